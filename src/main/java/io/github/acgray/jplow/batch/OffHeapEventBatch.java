@@ -0,0 +1,481 @@
+package io.github.acgray.jplow.batch;
+
+import io.github.acgray.jplow.value.EnrichedTimestamps;
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.SnowplowEvent;
+import io.github.acgray.jplow.value.TsvRow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A columnar batch of enriched events held outside the Java heap, in a single direct or
+ * memory-mapped {@link ByteBuffer}.
+ *
+ * <p>Columns are stored in the same way as in {@link SnowplowEventBatch}, but since the batch
+ * occupies one flat region of memory the garbage collector never has to scan or copy it, and a
+ * batch written to a mapped file can be opened by another process with {@link #wrap(ByteBuffer)}.
+ *
+ * <p>All values but the magic number are little-endian and every region starts on an 8 byte
+ * boundary. The buffer begins with a 48 byte header:
+ *
+ * <pre>
+ *   int     magic            0x4a504c42, big-endian so that the batch starts with "JPLB"
+ *   int     version          1
+ *   int     capacity         maximum number of rows
+ *   int     size             number of rows written
+ *   int     dataCapacity     size of the string data region in bytes
+ *   int     dataLength       number of bytes of string data written
+ *   long[3] columns          bitset of the EventField ordinals held in the batch
+ * </pre>
+ *
+ * which is followed by the regions of each column in the batch, in column order:
+ *
+ * <pre>
+ *   validity   ceil(capacity / 64) longs; bit r of the bitmap is set if row r has a value
+ *   values     timestamp: capacity longs, epoch milliseconds
+ *              int:       capacity ints
+ *              float:     capacity floats
+ *              boolean:   ceil(capacity / 64) longs; bit r is set if row r is true
+ *              string:    capacity pairs of ints, the start and end of each value
+ *                         relative to the data region
+ * </pre>
+ *
+ * and finally the data region holding the UTF-8 encoded values of all string columns.
+ *
+ * <p>A batch is limited to 2GB in total by the <code>int</code> indexing of {@link ByteBuffer}.
+ * Batches are not thread-safe while rows are being added.
+ */
+public final class OffHeapEventBatch {
+
+  static final int MAGIC = 0x4a504c42;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 48;
+
+  private static final int SIZE_OFFSET = 12;
+  private static final int DATA_LENGTH_OFFSET = 20;
+  private static final int COLUMNS_OFFSET = 24;
+
+  private final ByteBuffer buffer;
+  private final int capacity;
+  private final int dataCapacity;
+  private final Set<EventField> fields;
+  private final EventField[] columns;
+
+  // start of each column's validity and value regions, indexed by EventField.ordinal()
+  private final int[] validityOffsets;
+  private final int[] valueOffsets;
+  private final int dataOffset;
+
+  private int size;
+  private int dataLength;
+
+  private OffHeapEventBatch(ByteBuffer buffer, int capacity, int dataCapacity,
+      Set<EventField> fields) {
+    this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    this.capacity = capacity;
+    this.dataCapacity = dataCapacity;
+    this.fields = Collections.unmodifiableSet(
+        fields.isEmpty() ? EnumSet.noneOf(EventField.class) : EnumSet.copyOf(fields));
+    this.columns = this.fields.toArray(new EventField[0]);
+
+    // check the total first, so that none of the offsets below can overflow
+    long total = sizeOf(capacity, dataCapacity, this.fields);
+    if (total > this.buffer.capacity()) {
+      throw new IllegalArgumentException(String.format(
+          "Buffer of %s bytes is too small for a batch of %s bytes",
+          this.buffer.capacity(), total));
+    }
+
+    int count = EventField.values().length;
+    validityOffsets = new int[count];
+    valueOffsets = new int[count];
+
+    int offset = HEADER_SIZE;
+    for (EventField field : columns) {
+      validityOffsets[field.ordinal()] = offset;
+      offset += (int) bitmapSize(capacity);
+      valueOffsets[field.ordinal()] = offset;
+      offset += (int) valuesSize(field.type(), capacity);
+    }
+    dataOffset = offset;
+  }
+
+  /**
+   * @return the number of bytes needed for a batch with room for <code>capacity</code> rows and
+   *     <code>dataCapacity</code> bytes of string data
+   */
+  public static long sizeOf(int capacity, int dataCapacity, Set<EventField> fields) {
+    if (capacity < 0 || dataCapacity < 0) {
+      throw new IllegalArgumentException("Negative capacity");
+    }
+    long size = HEADER_SIZE;
+    for (EventField field : fields) {
+      size += bitmapSize(capacity) + valuesSize(field.type(), capacity);
+    }
+    return size + dataCapacity;
+  }
+
+  /** Allocate an empty batch in a direct buffer. */
+  public static OffHeapEventBatch allocateDirect(
+      int capacity, int dataCapacity, Set<EventField> fields) {
+    return create(
+        ByteBuffer.allocateDirect(checkSize(sizeOf(capacity, dataCapacity, fields))),
+        capacity, dataCapacity, fields);
+  }
+
+  /**
+   * Create an empty batch in a region of a file, mapped read-write from <code>position</code>.
+   * The file is extended if it is shorter than the batch.
+   */
+  public static OffHeapEventBatch map(FileChannel channel, long position,
+      int capacity, int dataCapacity, Set<EventField> fields) throws IOException {
+    int size = checkSize(sizeOf(capacity, dataCapacity, fields));
+    return create(
+        channel.map(FileChannel.MapMode.READ_WRITE, position, size),
+        capacity, dataCapacity, fields);
+  }
+
+  /**
+   * Create an empty batch at the current position of a buffer, overwriting its contents.
+   *
+   * @throws IllegalArgumentException if the remaining space in the buffer is too small
+   */
+  public static OffHeapEventBatch create(ByteBuffer buffer,
+      int capacity, int dataCapacity, Set<EventField> fields) {
+    OffHeapEventBatch batch = new OffHeapEventBatch(buffer, capacity, dataCapacity, fields);
+    batch.writeHeader();
+    batch.clear();
+    return batch;
+  }
+
+  /**
+   * Open a batch previously written to a buffer, e.g. one mapped from a file written by
+   * another process. Changes made through the returned batch are visible in the buffer.
+   *
+   * @throws IllegalArgumentException if the buffer does not hold a batch in a known format
+   */
+  public static OffHeapEventBatch wrap(ByteBuffer buffer) {
+    ByteBuffer header = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    if (header.remaining() < HEADER_SIZE || header.getInt(0) != Integer.reverseBytes(MAGIC)) {
+      throw new IllegalArgumentException("Not an event batch");
+    }
+    if (header.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("Unsupported batch version: " + header.getInt(4));
+    }
+
+    Set<EventField> fields = EnumSet.noneOf(EventField.class);
+    for (EventField field : EventField.values()) {
+      long word = header.getLong(COLUMNS_OFFSET + (field.ordinal() >>> 6) * 8);
+      if ((word & (1L << field.ordinal())) != 0) {
+        fields.add(field);
+      }
+    }
+
+    OffHeapEventBatch batch = new OffHeapEventBatch(
+        buffer, header.getInt(8), header.getInt(16), fields);
+    batch.size = header.getInt(SIZE_OFFSET);
+    batch.dataLength = header.getInt(DATA_LENGTH_OFFSET);
+    if (batch.size < 0 || batch.size > batch.capacity
+        || batch.dataLength < 0 || batch.dataLength > batch.dataCapacity) {
+      throw new IllegalArgumentException("Corrupt batch header");
+    }
+    return batch;
+  }
+
+  /**
+   * Parse a line of enriched TSV and append it to the batch.
+   *
+   * @return the row index of the added event
+   * @throws SnowplowEvent.InvalidFormat if the line does not have the expected number of columns
+   *     or one of the batch's columns holds an invalid value, in which case nothing is added
+   * @throws IllegalStateException if the batch has no room for another row or for the row's
+   *     string values, in which case nothing is added
+   */
+  public int add(CharSequence line) throws SnowplowEvent.InvalidFormat {
+    return add(TsvRow.of(line));
+  }
+
+  /**
+   * Append an indexed row of enriched TSV to the batch.
+   *
+   * @see #add(CharSequence)
+   */
+  public int add(TsvRow row) throws SnowplowEvent.InvalidFormat {
+    if (size == capacity) {
+      throw new IllegalStateException("Batch is full");
+    }
+    SnowplowEvent.checkFieldCount(row);
+
+    int r = size;
+    int dataMark = dataLength;
+    EventField current = null;
+
+    try {
+      for (EventField field : columns) {
+        current = field;
+        int i = field.index();
+        int values = valueOffsets[field.ordinal()];
+
+        boolean present = SnowplowEventBatch.isPresent(row, field);
+        setBit(validityOffsets[field.ordinal()], r, present);
+
+        switch (field.type()) {
+          case TIMESTAMP:
+            buffer.putLong(values + r * 8,
+                present ? SnowplowEventBatch.millis(row, i) : EnrichedTimestamps.NONE);
+            break;
+          case INT:
+            buffer.putInt(values + r * 4, present ? row.parseInt(i) : 0);
+            break;
+          case FLOAT:
+            buffer.putFloat(values + r * 4, present ? Float.parseFloat(row.rawValue(i)) : 0f);
+            break;
+          case BOOLEAN:
+            setBit(values, r, present && row.parseBoolean(i));
+            break;
+          case STRING:
+            buffer.putInt(values + r * 8, dataLength);
+            if (present) {
+              putUtf8(row, i);
+            }
+            buffer.putInt(values + r * 8 + 4, dataLength);
+            break;
+          default:
+            throw new AssertionError(field.type());
+        }
+      }
+    } catch (IllegalArgumentException exc) {
+      dataLength = dataMark;
+      throw new SnowplowEvent.InvalidFormat(String.format(
+          "Invalid value in column %s: %s",
+          current.columnName(),
+          row.rawValue(current.index())));
+    } catch (IllegalStateException exc) {
+      dataLength = dataMark;
+      throw exc;
+    }
+
+    size++;
+    buffer.putInt(SIZE_OFFSET, size);
+    buffer.putInt(DATA_LENGTH_OFFSET, dataLength);
+    return r;
+  }
+
+  /** Remove all rows. */
+  public void clear() {
+    size = 0;
+    dataLength = 0;
+    buffer.putInt(SIZE_OFFSET, 0);
+    buffer.putInt(DATA_LENGTH_OFFSET, 0);
+  }
+
+  /** @return the number of rows in the batch */
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public boolean isFull() {
+    return size == capacity;
+  }
+
+  /** @return the number of bytes of string data written */
+  public int dataLength() {
+    return dataLength;
+  }
+
+  public int dataCapacity() {
+    return dataCapacity;
+  }
+
+  /** @return the columns held by this batch */
+  public Set<EventField> fields() {
+    return fields;
+  }
+
+  /**
+   * @return a read-only view of the memory holding the batch in the layout described above,
+   *     including its unused capacity
+   */
+  public ByteBuffer buffer() {
+    ByteBuffer view = buffer.asReadOnlyBuffer();
+    view.limit(dataOffset + dataCapacity);
+    return view.order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public boolean isNull(EventField field, int row) {
+    return !getBit(validityOffset(field), checkRow(row));
+  }
+
+  /** @return the value in epoch milliseconds, or {@link EnrichedTimestamps#NONE} if null */
+  public long timestampMillis(EventField field, int row) {
+    return buffer.getLong(valueOffset(field, EventField.Type.TIMESTAMP) + checkRow(row) * 8);
+  }
+
+  /** @return the value, or 0 if null */
+  public int intValue(EventField field, int row) {
+    return buffer.getInt(valueOffset(field, EventField.Type.INT) + checkRow(row) * 4);
+  }
+
+  /** @return the value, or 0 if null */
+  public float floatValue(EventField field, int row) {
+    return buffer.getFloat(valueOffset(field, EventField.Type.FLOAT) + checkRow(row) * 4);
+  }
+
+  /** @return the value, or false if null */
+  public boolean booleanValue(EventField field, int row) {
+    return getBit(valueOffset(field, EventField.Type.BOOLEAN), checkRow(row));
+  }
+
+  /** @return the value of a string column, or null if it is null */
+  public String stringValue(EventField field, int row) {
+    if (isNull(field, row)) {
+      return null;
+    }
+    int entry = valueOffset(field, EventField.Type.STRING) + row * 8;
+    int start = buffer.getInt(entry);
+    byte[] utf8 = new byte[buffer.getInt(entry + 4) - start];
+    ByteBuffer data = buffer.duplicate();
+    data.position(dataOffset + start);
+    data.get(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Compare a string column to a UTF-8 encoded value without decoding the column.
+   *
+   * @return true if the row is not null and holds exactly the given bytes
+   */
+  public boolean stringEquals(EventField field, int row, byte[] utf8) {
+    if (isNull(field, row)) {
+      return false;
+    }
+    int entry = valueOffset(field, EventField.Type.STRING) + row * 8;
+    int start = buffer.getInt(entry);
+    int length = buffer.getInt(entry + 4) - start;
+    if (length != utf8.length) {
+      return false;
+    }
+    int base = dataOffset + start;
+    for (int i = 0; i < length; i++) {
+      if (buffer.get(base + i) != utf8[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("OffHeapEventBatch{size=%s, capacity=%s, dataLength=%s, dataCapacity=%s}",
+        size, capacity, dataLength, dataCapacity);
+  }
+
+  private void writeHeader() {
+    buffer.putInt(0, Integer.reverseBytes(MAGIC));
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, capacity);
+    buffer.putInt(16, dataCapacity);
+    long[] bits = new long[3];
+    for (EventField field : columns) {
+      bits[field.ordinal() >>> 6] |= 1L << field.ordinal();
+    }
+    for (int i = 0; i < bits.length; i++) {
+      buffer.putLong(COLUMNS_OFFSET + i * 8, bits[i]);
+    }
+  }
+
+  private void putUtf8(TsvRow row, int field) {
+    int length = row.utf8Length(field);
+    if ((long) dataLength + length > dataCapacity) {
+      throw new IllegalStateException("Batch string data is full");
+    }
+
+    int pos = dataOffset + dataLength;
+    if (buffer.hasArray()) {
+      row.copyUtf8(field, buffer.array(), buffer.arrayOffset() + pos);
+    } else {
+      byte[] utf8 = new byte[length];
+      row.copyUtf8(field, utf8, 0);
+      ByteBuffer data = buffer.duplicate();
+      data.position(pos);
+      data.put(utf8);
+    }
+    dataLength += length;
+  }
+
+  private int validityOffset(EventField field) {
+    if (!fields.contains(field)) {
+      throw new IllegalArgumentException("Column not in batch: " + field.columnName());
+    }
+    return validityOffsets[field.ordinal()];
+  }
+
+  private int valueOffset(EventField field, EventField.Type type) {
+    if (field.type() != type) {
+      throw new IllegalArgumentException(String.format(
+          "Column %s is of type %s, not %s", field.columnName(), field.type(), type));
+    }
+    if (!fields.contains(field)) {
+      throw new IllegalArgumentException("Column not in batch: " + field.columnName());
+    }
+    return valueOffsets[field.ordinal()];
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+    }
+    return row;
+  }
+
+  private boolean getBit(int bitmap, int index) {
+    return (buffer.getLong(bitmap + (index >>> 6) * 8) & (1L << index)) != 0;
+  }
+
+  private void setBit(int bitmap, int index, boolean value) {
+    int word = bitmap + (index >>> 6) * 8;
+    long bits = buffer.getLong(word);
+    buffer.putLong(word, value ? bits | 1L << index : bits & ~(1L << index));
+  }
+
+  private static long bitmapSize(int capacity) {
+    return ((capacity + 63L) >>> 6) * 8;
+  }
+
+  private static long valuesSize(EventField.Type type, int capacity) {
+    switch (type) {
+      case TIMESTAMP:
+      case STRING:
+        return capacity * 8L;
+      case INT:
+      case FLOAT:
+        return align(capacity * 4L);
+      case BOOLEAN:
+        return bitmapSize(capacity);
+      default:
+        throw new AssertionError(type);
+    }
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private static int checkSize(long size) {
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Batch of " + size + " bytes is too large");
+    }
+    return (int) size;
+  }
+}
@@ -0,0 +1,508 @@
+package io.github.acgray.jplow.batch;
+
+import io.github.acgray.jplow.selfdesc.ContextScanner;
+import io.github.acgray.jplow.selfdesc.SchemaIds;
+import io.github.acgray.jplow.selfdesc.SchemaPattern;
+import io.github.acgray.jplow.value.EnrichedTimestamps;
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.SnowplowEvent;
+import io.github.acgray.jplow.value.TsvRow;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A batch of enriched events stored column by column rather than as one object per event.
+ *
+ * <p>Each column of the batch is a primitive array with one entry per row, laid out according to
+ * the column's {@link EventField.Type}:
+ *
+ * <ul>
+ *   <li>timestamps as epoch milliseconds in a <code>long[]</code>
+ *   <li>integers in an <code>int[]</code> and floats in a <code>float[]</code>
+ *   <li>booleans as a bitset of <code>long</code> words
+ *   <li>strings as start and end offsets into a single UTF-8 buffer shared by all string columns
+ * </ul>
+ *
+ * Whether a value is present is recorded in a validity bitmap per column, where a set bit means
+ * the row has a value. Filters and aggregations over a column can then be written as loops over
+ * the arrays returned by {@link #timestampColumn(EventField)}, {@link #intColumn(EventField)} and
+ * so on, which the JIT is able to unroll and vectorize.
+ *
+ * <p>A batch can be restricted to a subset of columns, in which case the other columns are
+ * neither converted nor stored.
+ *
+ * <p>When a batch holds a contexts column, the schemas of the contexts of each row are also
+ * recorded in a bitmap of rows per schema and per schema family, indexed by {@link SchemaIds}, so
+ * that {@link #contextRows(SchemaPattern)} finds the rows carrying a schema without parsing any
+ * JSON. Since the data of the contexts is not parsed, a row counts as carrying a context even if
+ * its data is malformed, unlike {@link SnowplowEvent#hasContext(SchemaPattern)} for an event read
+ * with {@link io.github.acgray.jplow.value.ValidationPolicy#NONE}.
+ *
+ * <p>Batches are not thread-safe while rows are being added.
+ */
+public final class SnowplowEventBatch {
+
+  private static final int COLUMNS = EventField.values().length;
+
+  // the largest array the JVM reliably allocates
+  private static final int MAX_DATA_LENGTH = Integer.MAX_VALUE - 8;
+
+  private final int capacity;
+  private final Set<EventField> fields;
+  private final EventField[] columns;
+
+  // indexed by EventField.typeIndex(), null for columns outside the batch
+  private final long[][] timestamps;
+  private final int[][] ints;
+  private final float[][] floats;
+  private final long[][] booleans;
+  private final int[][] stringStarts;
+  private final int[][] stringEnds;
+
+  // indexed by EventField.ordinal()
+  private final long[][] validity;
+
+  // the contexts columns in the batch, and the bitmaps of the rows carrying each schema and
+  // family, indexed by SchemaIds and grown on demand
+  private final EventField[] contextColumns;
+  private long[][] schemaRows = new long[0][];
+  private long[][] familyRows = new long[0][];
+
+  private byte[] data;
+  private int dataLength;
+  private int size;
+
+  /** Create an empty batch of all columns. */
+  public SnowplowEventBatch(int capacity) {
+    this(capacity, EnumSet.allOf(EventField.class));
+  }
+
+  /** Create an empty batch holding only the given columns. */
+  public SnowplowEventBatch(int capacity, Set<EventField> fields) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Negative capacity: " + capacity);
+    }
+
+    this.capacity = capacity;
+    this.fields = Collections.unmodifiableSet(
+        fields.isEmpty() ? EnumSet.noneOf(EventField.class) : EnumSet.copyOf(fields));
+    this.columns = this.fields.toArray(new EventField[0]);
+    this.contextColumns = this.fields.stream()
+        .filter(field -> field == EventField.CONTEXTS || field == EventField.DERIVED_CONTEXTS)
+        .toArray(EventField[]::new);
+
+    int words = (capacity + 63) >>> 6;
+
+    timestamps = new long[EventField.columnsOf(EventField.Type.TIMESTAMP).size()][];
+    ints = new int[EventField.columnsOf(EventField.Type.INT).size()][];
+    floats = new float[EventField.columnsOf(EventField.Type.FLOAT).size()][];
+    booleans = new long[EventField.columnsOf(EventField.Type.BOOLEAN).size()][];
+    stringStarts = new int[EventField.columnsOf(EventField.Type.STRING).size()][];
+    stringEnds = new int[stringStarts.length][];
+    validity = new long[COLUMNS][];
+
+    for (EventField field : columns) {
+      int slot = field.typeIndex();
+      validity[field.ordinal()] = new long[words];
+      switch (field.type()) {
+        case TIMESTAMP:
+          timestamps[slot] = new long[capacity];
+          break;
+        case INT:
+          ints[slot] = new int[capacity];
+          break;
+        case FLOAT:
+          floats[slot] = new float[capacity];
+          break;
+        case BOOLEAN:
+          booleans[slot] = new long[words];
+          break;
+        case STRING:
+          stringStarts[slot] = new int[capacity];
+          stringEnds[slot] = new int[capacity];
+          break;
+        default:
+          throw new AssertionError(field.type());
+      }
+    }
+
+    data = new byte[(int) Math.min(MAX_DATA_LENGTH, Math.max(16L, capacity * 16L))];
+  }
+
+  /**
+   * Parse lines of enriched TSV into a new batch with room for exactly those lines.
+   *
+   * @throws SnowplowEvent.InvalidFormat if any line is invalid
+   */
+  public static SnowplowEventBatch of(List<? extends CharSequence> lines, Set<EventField> fields)
+      throws SnowplowEvent.InvalidFormat {
+    SnowplowEventBatch batch = new SnowplowEventBatch(lines.size(), fields);
+    for (CharSequence line : lines) {
+      batch.add(line);
+    }
+    return batch;
+  }
+
+  /**
+   * Parse a line of enriched TSV and append it to the batch.
+   *
+   * @return the row index of the added event
+   * @throws SnowplowEvent.InvalidFormat if the line does not have the expected number of columns
+   *     or one of the batch's columns holds an invalid value, in which case nothing is added
+   * @throws IllegalStateException if the batch has no room for another row or for the row's
+   *     string values, in which case nothing is added
+   */
+  public int add(CharSequence line) throws SnowplowEvent.InvalidFormat {
+    return add(TsvRow.of(line));
+  }
+
+  /**
+   * Append an indexed row of enriched TSV to the batch.
+   *
+   * @see #add(CharSequence)
+   */
+  public int add(TsvRow row) throws SnowplowEvent.InvalidFormat {
+    if (size == capacity) {
+      throw new IllegalStateException("Batch is full");
+    }
+    SnowplowEvent.checkFieldCount(row);
+
+    int r = size;
+    int dataMark = dataLength;
+    EventField current = null;
+
+    try {
+      for (EventField field : columns) {
+        current = field;
+        int i = field.index();
+        int slot = field.typeIndex();
+
+        boolean present = isPresent(row, field);
+        setBit(validity[field.ordinal()], r, present);
+
+        switch (field.type()) {
+          case TIMESTAMP:
+            timestamps[slot][r] = present ? millis(row, i) : EnrichedTimestamps.NONE;
+            break;
+          case INT:
+            ints[slot][r] = present ? row.parseInt(i) : 0;
+            break;
+          case FLOAT:
+            floats[slot][r] = present ? Float.parseFloat(row.rawValue(i)) : 0f;
+            break;
+          case BOOLEAN:
+            setBit(booleans[slot], r, present && row.parseBoolean(i));
+            break;
+          case STRING:
+            stringStarts[slot][r] = dataLength;
+            if (present) {
+              ensureData(row.utf8Length(i));
+              dataLength = row.copyUtf8(i, data, dataLength);
+            }
+            stringEnds[slot][r] = dataLength;
+            break;
+          default:
+            throw new AssertionError(field.type());
+        }
+      }
+    } catch (IllegalArgumentException exc) {
+      dataLength = dataMark;
+      throw new SnowplowEvent.InvalidFormat(String.format(
+          "Invalid value in column %s: %s",
+          current.columnName(),
+          row.rawValue(current.index())));
+    } catch (IllegalStateException exc) {
+      dataLength = dataMark;
+      throw exc;
+    }
+
+    if (contextColumns.length > 0) {
+      indexContexts(row, r, dataMark);
+    }
+
+    return size++;
+  }
+
+  private void indexContexts(TsvRow row, int r, int dataMark)
+      throws SnowplowEvent.InvalidFormat {
+    // scan every column before setting any bit, so that a failure leaves no trace of the row
+    int[][] ids = new int[contextColumns.length][];
+    for (int c = 0; c < contextColumns.length; c++) {
+      EventField field = contextColumns[c];
+      if (!isPresent(row, field)) {
+        ids[c] = new int[0];
+        continue;
+      }
+      try {
+        List<ContextScanner.Entry> entries = ContextScanner.scan(row.rawValue(field.index()));
+        ids[c] = new int[entries.size()];
+        for (int e = 0; e < ids[c].length; e++) {
+          ids[c][e] = SchemaIds.schemaId(entries.get(e).schema());
+        }
+      } catch (ContextScanner.InvalidFormat exc) {
+        dataLength = dataMark;
+        throw new SnowplowEvent.InvalidFormat(String.format(
+            "Invalid value in column %s: %s", field.columnName(), row.rawValue(field.index())));
+      }
+    }
+
+    for (int[] columnIds : ids) {
+      for (int id : columnIds) {
+        schemaRows = grow(schemaRows, id);
+        familyRows = grow(familyRows, SchemaIds.familyOf(id));
+        setBit(schemaRows[id], r, true);
+        setBit(familyRows[SchemaIds.familyOf(id)], r, true);
+      }
+    }
+  }
+
+  private long[][] grow(long[][] bitmaps, int id) {
+    if (id >= bitmaps.length) {
+      bitmaps = Arrays.copyOf(bitmaps, Math.max(id + 1, bitmaps.length * 2));
+    }
+    if (bitmaps[id] == null) {
+      bitmaps[id] = new long[(capacity + 63) >>> 6];
+    }
+    return bitmaps;
+  }
+
+  /** Remove all rows, keeping the allocated columns for reuse. */
+  public void clear() {
+    size = 0;
+    dataLength = 0;
+    clearBitmaps(schemaRows);
+    clearBitmaps(familyRows);
+  }
+
+  private static void clearBitmaps(long[][] bitmaps) {
+    for (long[] rows : bitmaps) {
+      if (rows != null) {
+        Arrays.fill(rows, 0L);
+      }
+    }
+  }
+
+  /** @return the number of rows in the batch */
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public boolean isFull() {
+    return size == capacity;
+  }
+
+  /** @return the columns held by this batch */
+  public Set<EventField> fields() {
+    return fields;
+  }
+
+  /**
+   * @return the column's values in epoch milliseconds, valid up to {@link #size()}. Null rows
+   *     hold {@link EnrichedTimestamps#NONE}.
+   */
+  public long[] timestampColumn(EventField field) {
+    return column(timestamps, field, EventField.Type.TIMESTAMP);
+  }
+
+  /** @return the column's values, valid up to {@link #size()}. Null rows hold 0. */
+  public int[] intColumn(EventField field) {
+    return column(ints, field, EventField.Type.INT);
+  }
+
+  /** @return the column's values, valid up to {@link #size()}. Null rows hold 0. */
+  public float[] floatColumn(EventField field) {
+    return column(floats, field, EventField.Type.FLOAT);
+  }
+
+  /**
+   * @return the column's values as a bitset of <code>long</code> words, where bit <code>r</code>
+   *     is set if row <code>r</code> is true
+   */
+  public long[] booleanColumn(EventField field) {
+    return column(booleans, field, EventField.Type.BOOLEAN);
+  }
+
+  /**
+   * @return the column's validity bitmap, where bit <code>r</code> is set if row <code>r</code>
+   *     has a value
+   */
+  public long[] validity(EventField field) {
+    long[] bitmap = validity[field.ordinal()];
+    if (bitmap == null) {
+      throw new IllegalArgumentException("Column not in batch: " + field.columnName());
+    }
+    return bitmap;
+  }
+
+  /**
+   * Find the rows with a user or derived context matching a pattern. A pattern with only a major
+   * version reads a single bitmap; otherwise the bitmaps of the matching schemas are combined.
+   *
+   * @return a new bitmap of <code>long</code> words, where bit <code>r</code> is set if row
+   *     <code>r</code> has a matching context
+   * @throws IllegalArgumentException if the batch holds no contexts column
+   */
+  public long[] contextRows(SchemaPattern pattern) {
+    if (contextColumns.length == 0) {
+      throw new IllegalArgumentException("Column not in batch: "
+          + EventField.CONTEXTS.columnName());
+    }
+    long[] result = new long[(capacity + 63) >>> 6];
+    int familyId = SchemaIds.existingFamilyId(pattern.family());
+    if (familyId < 0) {
+      return result;
+    }
+
+    if (pattern.minor() == null && pattern.addition() == null) {
+      if (familyId < familyRows.length && familyRows[familyId] != null) {
+        System.arraycopy(familyRows[familyId], 0, result, 0, result.length);
+      }
+      return result;
+    }
+
+    for (int id = 0; id < schemaRows.length; id++) {
+      long[] rows = schemaRows[id];
+      if (rows != null
+          && SchemaIds.familyOf(id) == familyId
+          && pattern.matches(SchemaIds.schema(id))) {
+        for (int w = 0; w < result.length; w++) {
+          result[w] |= rows[w];
+        }
+      }
+    }
+    return result;
+  }
+
+  public boolean isNull(EventField field, int row) {
+    return !getBit(validity(field), checkRow(row));
+  }
+
+  public long timestampMillis(EventField field, int row) {
+    return timestampColumn(field)[checkRow(row)];
+  }
+
+  public int intValue(EventField field, int row) {
+    return intColumn(field)[checkRow(row)];
+  }
+
+  public float floatValue(EventField field, int row) {
+    return floatColumn(field)[checkRow(row)];
+  }
+
+  public boolean booleanValue(EventField field, int row) {
+    return getBit(booleanColumn(field), checkRow(row));
+  }
+
+  /** @return the value of a string column, or null if it is null */
+  public String stringValue(EventField field, int row) {
+    if (isNull(field, row)) {
+      return null;
+    }
+    int start = stringStart(field, row);
+    return new String(
+        data, start, stringEnd(field, row) - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Compare a string column to a UTF-8 encoded value without decoding the column.
+   *
+   * @return true if the row is not null and holds exactly the given bytes
+   */
+  public boolean stringEquals(EventField field, int row, byte[] utf8) {
+    if (isNull(field, row)) {
+      return false;
+    }
+    int start = stringStart(field, row);
+    int length = stringEnd(field, row) - start;
+    if (length != utf8.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (data[start + i] != utf8[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the buffer holding the UTF-8 encoded values of all string columns
+   * @see #stringStart(EventField, int)
+   */
+  public byte[] stringData() {
+    return data;
+  }
+
+  /** @return the position in {@link #stringData()} of the first byte of a string value */
+  public int stringStart(EventField field, int row) {
+    return column(stringStarts, field, EventField.Type.STRING)[checkRow(row)];
+  }
+
+  /** @return the position in {@link #stringData()} just past the last byte of a string value */
+  public int stringEnd(EventField field, int row) {
+    return column(stringEnds, field, EventField.Type.STRING)[checkRow(row)];
+  }
+
+  /** @return true if the row has a value for the field, counting required strings as present */
+  static boolean isPresent(TsvRow row, EventField field) {
+    int i = field.index();
+    return i < row.fieldCount()
+        && (!row.isEmpty(i) || field.type() == EventField.Type.STRING && !field.isNullable());
+  }
+
+  static long millis(TsvRow row, int field) {
+    long millis = row.timestampMillis(field);
+    return millis != EnrichedTimestamps.NONE ? millis : row.instantValue(field).getMillis();
+  }
+
+  private <T> T column(T[] columns, EventField field, EventField.Type type) {
+    if (field.type() != type) {
+      throw new IllegalArgumentException(String.format(
+          "Column %s is of type %s, not %s", field.columnName(), field.type(), type));
+    }
+    T column = columns[field.typeIndex()];
+    if (column == null) {
+      throw new IllegalArgumentException("Column not in batch: " + field.columnName());
+    }
+    return column;
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+    }
+    return row;
+  }
+
+  private void ensureData(int extra) {
+    long required = (long) dataLength + extra;
+    if (required > data.length) {
+      if (required > MAX_DATA_LENGTH) {
+        throw new IllegalStateException("Batch string data is full");
+      }
+      long length = Math.max(required, Math.min(2L * data.length, MAX_DATA_LENGTH));
+      data = Arrays.copyOf(data, (int) length);
+    }
+  }
+
+  static boolean getBit(long[] bits, int index) {
+    return (bits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  static void setBit(long[] bits, int index, boolean value) {
+    if (value) {
+      bits[index >>> 6] |= 1L << index;
+    } else {
+      bits[index >>> 6] &= ~(1L << index);
+    }
+  }
+}
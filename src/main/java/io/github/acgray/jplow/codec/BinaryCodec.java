@@ -0,0 +1,64 @@
+package io.github.acgray.jplow.codec;
+
+/**
+ * Base class of the compact binary formats of jplow's value types.
+ * <p>
+ * An encoded record starts with a single {@link #FORMAT_VERSION} byte followed by the body
+ * written by {@link #write(Object, BinaryEncoder)}. Bodies are built from the primitives of
+ * {@link BinaryEncoder}: unsigned and zigzag varints, raw floats and length-prefixed UTF-8
+ * strings. The version is checked when decoding, so that the layout can change along with the
+ * canonical event model without old records being silently misread.
+ * <p>
+ * Codecs are stateless and thread-safe.
+ *
+ * @param <T> type of the encoded values
+ */
+public abstract class BinaryCodec<T> {
+
+  /** The version of the layout written by the codecs of this release. */
+  public static final int FORMAT_VERSION = 1;
+
+  /** Thrown when bytes being decoded are not a valid record. */
+  public static class InvalidFormat extends Exception {
+    public InvalidFormat(String message) {
+      super(message);
+    }
+  }
+
+  /** Write the body of a value, without a version byte. */
+  public abstract void write(T value, BinaryEncoder out);
+
+  /**
+   * Read the body of a value written by {@link #write(Object, BinaryEncoder)}.
+   *
+   * @throws InvalidFormat if the input is truncated or malformed
+   */
+  public abstract T read(BinaryDecoder in) throws InvalidFormat;
+
+  /** @return a value encoded as a versioned record */
+  public byte[] encode(T value) {
+    BinaryEncoder out = new BinaryEncoder();
+    out.writeByte(FORMAT_VERSION);
+    write(value, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Decode a versioned record produced by {@link #encode(Object)}.
+   *
+   * @throws InvalidFormat if the record has another version, is malformed or has trailing bytes
+   */
+  public T decode(byte[] bytes) throws InvalidFormat {
+    BinaryDecoder in = new BinaryDecoder(bytes);
+    int version = in.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new InvalidFormat("Unsupported format version: " + version);
+    }
+
+    T value = read(in);
+    if (in.remaining() > 0) {
+      throw new InvalidFormat(in.remaining() + " unexpected trailing bytes");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,124 @@
+package io.github.acgray.jplow.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitives written by a {@link BinaryEncoder} from a byte array.
+ * <p>
+ * Decoders are not thread-safe.
+ */
+public final class BinaryDecoder {
+
+  private final byte[] buffer;
+  private final int limit;
+  private int position;
+
+  public BinaryDecoder(byte[] bytes) {
+    this(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Read the bytes between <code>from</code> (inclusive) and <code>to</code> (exclusive). The
+   * array is retained, not copied.
+   */
+  public BinaryDecoder(byte[] bytes, int from, int to) {
+    this.buffer = bytes;
+    this.position = from;
+    this.limit = to;
+  }
+
+  /** @return the number of bytes left to read */
+  public int remaining() {
+    return limit - position;
+  }
+
+  /** @return the next byte, as an unsigned value */
+  public int readByte() throws BinaryCodec.InvalidFormat {
+    require(1);
+    return buffer[position++] & 0xff;
+  }
+
+  /** Read bytes into a new array. */
+  public byte[] readBytes(int length) throws BinaryCodec.InvalidFormat {
+    require(length);
+    byte[] bytes = new byte[length];
+    System.arraycopy(buffer, position, bytes, 0, length);
+    position += length;
+    return bytes;
+  }
+
+  public int readVarInt() throws BinaryCodec.InvalidFormat {
+    int result = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = readByte();
+      result |= (b & 0x7f) << shift;
+      if (b < 0x80) {
+        return result;
+      }
+    }
+    throw new BinaryCodec.InvalidFormat("Malformed varint at offset " + position);
+  }
+
+  public long readVarLong() throws BinaryCodec.InvalidFormat {
+    long result = 0;
+    for (int shift = 0; shift < 70; shift += 7) {
+      int b = readByte();
+      result |= (long) (b & 0x7f) << shift;
+      if (b < 0x80) {
+        return result;
+      }
+    }
+    throw new BinaryCodec.InvalidFormat("Malformed varint at offset " + position);
+  }
+
+  public int readSignedVarInt() throws BinaryCodec.InvalidFormat {
+    int value = readVarInt();
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  public long readSignedVarLong() throws BinaryCodec.InvalidFormat {
+    long value = readVarLong();
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  public float readFloat() throws BinaryCodec.InvalidFormat {
+    require(4);
+    int bits = buffer[position] & 0xff
+        | (buffer[position + 1] & 0xff) << 8
+        | (buffer[position + 2] & 0xff) << 16
+        | (buffer[position + 3] & 0xff) << 24;
+    position += 4;
+    return Float.intBitsToFloat(bits);
+  }
+
+  /** Read a string written as its UTF-8 length followed by its UTF-8 bytes. */
+  public String readString() throws BinaryCodec.InvalidFormat {
+    int length = readVarInt();
+    require(length);
+
+    int end = position + length;
+    for (int i = position; i < end; i++) {
+      if (buffer[i] < 0) {
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position = end;
+        return value;
+      }
+    }
+
+    // ASCII only, which is most values, so skip the decoder
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) buffer[position + i];
+    }
+    position = end;
+    return new String(chars);
+  }
+
+  private void require(int length) throws BinaryCodec.InvalidFormat {
+    if (length < 0 || length > limit - position) {
+      throw new BinaryCodec.InvalidFormat(String.format(
+          "Expected %s bytes at offset %s but only %s remain",
+          length, position, limit - position));
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package io.github.acgray.jplow.codec;
+
+import java.util.Arrays;
+
+/**
+ * Writes the primitives of the binary formats into a growable byte array.
+ * <p>
+ * Integers are written as little-endian base-128 varints, so that small values take a single
+ * byte; the <code>Signed</code> variants zigzag-encode their argument first so that small
+ * negative values are small too. Strings are written as their UTF-8 length as a varint followed
+ * by their UTF-8 bytes.
+ * <p>
+ * Encoders are not thread-safe.
+ */
+public final class BinaryEncoder {
+
+  private byte[] buffer;
+  private int position;
+
+  public BinaryEncoder() {
+    this(256);
+  }
+
+  public BinaryEncoder(int initialCapacity) {
+    buffer = new byte[Math.max(16, initialCapacity)];
+  }
+
+  /** @return the number of bytes written */
+  public int size() {
+    return position;
+  }
+
+  /** Discard everything written, keeping the buffer for reuse. */
+  public void reset() {
+    position = 0;
+  }
+
+  /** @return a copy of the bytes written */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer, position);
+  }
+
+  public void writeByte(int value) {
+    ensure(1);
+    buffer[position++] = (byte) value;
+  }
+
+  public void writeBytes(byte[] bytes, int from, int to) {
+    ensure(to - from);
+    System.arraycopy(bytes, from, buffer, position, to - from);
+    position += to - from;
+  }
+
+  /** Write an int as an unsigned varint of 1 to 5 bytes. */
+  public void writeVarInt(int value) {
+    ensure(5);
+    while ((value & ~0x7f) != 0) {
+      buffer[position++] = (byte) (value & 0x7f | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  /** Write a long as an unsigned varint of 1 to 10 bytes. */
+  public void writeVarLong(long value) {
+    ensure(10);
+    while ((value & ~0x7fL) != 0) {
+      buffer[position++] = (byte) (value & 0x7f | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  /** Write an int as a zigzag-encoded varint. */
+  public void writeSignedVarInt(int value) {
+    writeVarInt(value << 1 ^ value >> 31);
+  }
+
+  /** Write a long as a zigzag-encoded varint. */
+  public void writeSignedVarLong(long value) {
+    writeVarLong(value << 1 ^ value >> 63);
+  }
+
+  /** Write the 4 bytes of a float's IEEE 754 representation, little-endian. */
+  public void writeFloat(float value) {
+    int bits = Float.floatToRawIntBits(value);
+    ensure(4);
+    buffer[position++] = (byte) bits;
+    buffer[position++] = (byte) (bits >>> 8);
+    buffer[position++] = (byte) (bits >>> 16);
+    buffer[position++] = (byte) (bits >>> 24);
+  }
+
+  /** Write a string as its UTF-8 length followed by its UTF-8 bytes. */
+  public void writeString(String value) {
+    int length = value.length();
+    int utf8Length = length;
+    for (int i = 0; i < length; i++) {
+      if (value.charAt(i) >= 0x80) {
+        utf8Length = utf8Length(value, i);
+        break;
+      }
+    }
+
+    writeVarInt(utf8Length);
+    ensure(utf8Length);
+    byte[] out = buffer;
+    int pos = position;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        out[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        out[pos++] = (byte) (0xc0 | c >> 6);
+        out[pos++] = (byte) (0x80 | c & 0x3f);
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, value.charAt(++i));
+        out[pos++] = (byte) (0xf0 | cp >> 18);
+        out[pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+        out[pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+        out[pos++] = (byte) (0x80 | cp & 0x3f);
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogate, replaced as by String.getBytes
+        out[pos++] = '?';
+      } else {
+        out[pos++] = (byte) (0xe0 | c >> 12);
+        out[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+        out[pos++] = (byte) (0x80 | c & 0x3f);
+      }
+    }
+    position = pos;
+  }
+
+  /** @return the UTF-8 length of a string which is ASCII up to <code>from</code> */
+  private static int utf8Length(String value, int from) {
+    int length = from;
+    for (int i = from; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length += 1;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private void ensure(int extra) {
+    if (position + extra > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(position + extra, buffer.length * 2));
+    }
+  }
+}
@@ -0,0 +1,195 @@
+package io.github.acgray.jplow.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import io.github.acgray.jplow.selfdesc.SchemaKey;
+import io.github.acgray.jplow.value.GsonAdaptersBadRequest;
+import io.github.acgray.jplow.value.GsonAdaptersTrackerProtocol;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The JSON codecs used throughout jplow: a single configured {@link Gson} and the type adapters
+ * it resolves, shared by every thread.
+ * <p>
+ * Creating a <code>Gson</code> and resolving its adapters by reflection costs far more than
+ * using them, so the {@link #defaults() default registry} is built once, with the adapter for
+ * {@link SchemaKey}, the generated adapters of the jplow value classes and every
+ * {@link TypeAdapterFactory} registered with the {@link ServiceLoader}. Registries are
+ * immutable; further factories are added with {@link #with(TypeAdapterFactory...)}, which
+ * returns a new registry in which they take precedence.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * JplowCodecs codecs = JplowCodecs.defaults().with(new GsonAdaptersPageContext());
+ * <p>
+ * PageContext page = codecs.adapter(PageContext.class).fromJsonTree(data);
+ * </code>
+ */
+public final class JplowCodecs {
+
+  /** Date format of the failure timestamps of bad rows. */
+  private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ";
+
+  /** Most registries derived from one registry for single factory instances that are kept. */
+  private static final int MAX_DERIVED = 64;
+
+  /** Whether the instances of a factory class are interchangeable generated adapters. */
+  private static final ClassValue<Boolean> GENERATED = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      return type.getSimpleName().startsWith("GsonAdapters") && isStateless(type);
+    }
+  };
+
+  private static volatile JplowCodecs defaults;
+
+  private final List<TypeAdapterFactory> factories;
+  private final Gson gson;
+  private final Map<Class<?>, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
+  private final Map<Class<?>, JplowCodecs> derivedByClass = new ConcurrentHashMap<>();
+  // least recently used first
+  private final Map<Identity, JplowCodecs> derivedByInstance =
+      new LinkedHashMap<Identity, JplowCodecs>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Identity, JplowCodecs> eldest) {
+          return size() > MAX_DERIVED;
+        }
+      };
+
+  private JplowCodecs(List<TypeAdapterFactory> factories) {
+    this.factories = Collections.unmodifiableList(factories);
+
+    GsonBuilder builder = new GsonBuilder()
+        .registerTypeAdapter(SchemaKey.class, new SchemaKey.GsonTypeAdapter())
+        .setDateFormat(DATE_FORMAT);
+    for (TypeAdapterFactory factory : factories) {
+      builder.registerTypeAdapterFactory(factory);
+    }
+    this.gson = builder.create();
+  }
+
+  /**
+   * @return the registry with the default codecs and those of the factories found by the
+   *     {@link ServiceLoader}, built on first use
+   */
+  public static JplowCodecs defaults() {
+    JplowCodecs result = defaults;
+    if (result == null) {
+      synchronized (JplowCodecs.class) {
+        result = defaults;
+        if (result == null) {
+          List<TypeAdapterFactory> factories = new ArrayList<>();
+          for (TypeAdapterFactory factory : ServiceLoader.load(TypeAdapterFactory.class)) {
+            factories.add(factory);
+          }
+          factories.add(new GsonAdaptersBadRequest());
+          factories.add(new GsonAdaptersTrackerProtocol());
+          result = new JplowCodecs(factories);
+          defaults = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a registry with the codecs of this one and of the given factories, which take
+   *     precedence. A registry derived for a single factory is cached for that factory
+   *     instance, for the most recently used factories. The only exception is the generated
+   *     <code>GsonAdapters</code> factories of Immutables, which have no state, so their
+   *     registry is cached by class and a new instance may be passed each time.
+   */
+  public JplowCodecs with(TypeAdapterFactory... factories) {
+    if (factories.length == 0) {
+      return this;
+    }
+    if (factories.length > 1) {
+      return derive(factories);
+    }
+
+    TypeAdapterFactory factory = factories[0];
+    if (GENERATED.get(factory.getClass())) {
+      JplowCodecs result = derivedByClass.get(factory.getClass());
+      if (result == null) {
+        result = derivedByClass.computeIfAbsent(factory.getClass(), type -> derive(factory));
+      }
+      return result;
+    }
+
+    Identity key = new Identity(factory);
+    synchronized (derivedByInstance) {
+      JplowCodecs result = derivedByInstance.get(key);
+      if (result == null) {
+        result = derive(factory);
+        derivedByInstance.put(key, result);
+      }
+      return result;
+    }
+  }
+
+  private JplowCodecs derive(TypeAdapterFactory... added) {
+    // Gson gives precedence to the factories registered last
+    List<TypeAdapterFactory> combined = new ArrayList<>(factories);
+    Collections.addAll(combined, added);
+    return new JplowCodecs(combined);
+  }
+
+  /** @return true if neither a class nor its superclasses declare instance fields */
+  private static boolean isStateless(Class<?> type) {
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** @return the configured Gson, which is thread-safe */
+  public Gson gson() {
+    return gson;
+  }
+
+  /** @return the type adapter for a class, resolved once per registry */
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> adapter(Class<T> type) {
+    TypeAdapter<?> adapter = adapters.get(type);
+    if (adapter == null) {
+      adapter = gson.getAdapter(type);
+      adapters.put(type, adapter);
+    }
+    return (TypeAdapter<T>) adapter;
+  }
+
+  /** A key which compares an object by identity, whatever its <code>equals</code>. */
+  private static final class Identity {
+    private final Object value;
+
+    Identity(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Identity && ((Identity) other).value == value;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(value);
+    }
+  }
+}
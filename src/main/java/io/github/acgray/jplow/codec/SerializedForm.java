@@ -0,0 +1,62 @@
+package io.github.acgray.jplow.codec;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Serialization proxy which stands in for a value in Java serialization, writing it with a
+ * {@link BinaryCodec} instead of field by field.
+ * <p>
+ * A serializable value type opts in by returning a proxy from <code>writeReplace()</code>; the
+ * proxy is written as a length-prefixed versioned record and is replaced by the decoded value
+ * again when it is read. Existing users of Java serialization, such as Spark or caches, therefore
+ * get the binary format without any change on their side.
+ * <p>
+ * Subclasses must have a public no-argument constructor.
+ *
+ * @param <T> type of the replaced value
+ */
+public abstract class SerializedForm<T> implements Externalizable {
+
+  private static final long serialVersionUID = 1L;
+
+  private T value;
+
+  /** Used when deserializing. */
+  protected SerializedForm() {}
+
+  protected SerializedForm(T value) {
+    this.value = value;
+  }
+
+  /** @return the codec used to write and read the value */
+  protected abstract BinaryCodec<T> codec();
+
+  @Override
+  public void writeExternal(ObjectOutput out) throws IOException {
+    byte[] bytes = codec().encode(value);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @Override
+  public void readExternal(ObjectInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    try {
+      value = codec().decode(bytes);
+    } catch (BinaryCodec.InvalidFormat exc) {
+      InvalidObjectException invalid = new InvalidObjectException(exc.getMessage());
+      invalid.initCause(exc);
+      throw invalid;
+    }
+  }
+
+  /** @return the decoded value, which replaces this proxy in the deserialized object graph */
+  protected Object readResolve() {
+    return value;
+  }
+}
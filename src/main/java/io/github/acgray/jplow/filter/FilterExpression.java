@@ -0,0 +1,534 @@
+package io.github.acgray.jplow.filter;
+
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.TsvRow;
+import org.joda.time.Instant;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A filter over enriched events written as text, compiled once into a tree of
+ * {@link RowFilters} predicates which are then tested against each raw line.
+ * <p>
+ * An expression combines comparisons of columns, named as in the canonical event model, with
+ * <code>AND</code>, <code>OR</code>, <code>NOT</code> and parentheses. The comparisons are:
+ * <ul>
+ * <li><code>column = literal</code>, <code>!=</code> or <code>&lt;&gt;</code>, for any column</li>
+ * <li><code>column &lt; literal</code>, <code>&lt;=</code>, <code>&gt;</code> or
+ *     <code>&gt;=</code>, and <code>column BETWEEN literal AND literal</code>, for timestamp,
+ *     integer and float columns</li>
+ * <li><code>column IN (literal, ...)</code> for string and integer columns</li>
+ * <li><code>column LIKE 'prefix%'</code> for string columns</li>
+ * <li><code>column IS NULL</code> and <code>column IS NOT NULL</code>, which test whether the
+ *     column is empty</li>
+ * </ul>
+ * Strings and timestamps are quoted with single quotes, a quote being escaped by doubling it.
+ * Timestamps are in ISO 8601 or enriched format and in UTC, e.g. <code>'2026-01-01'</code> or
+ * <code>'2026-01-01 12:00:00.000'</code>. Booleans are compared with <code>TRUE</code>,
+ * <code>FALSE</code>, <code>1</code> or <code>0</code>. Keywords are not case-sensitive.
+ * <p>
+ * Columns are compared on the raw text of each line, before any event is built, so filtering
+ * costs nothing per row beyond the comparisons themselves. A comparison with an empty column
+ * is false, except that <code>NOT</code> and <code>!=</code> simply negate the comparison.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * FilterExpression filter = FilterExpression.parse(
+ *     "event = 'page_view' AND app_id IN ('web', 'ios') AND collector_tstamp &gt;= '2026-01-01'");
+ * <p>
+ * EnrichedTsvReader reader = EnrichedTsvReader.builder()
+ *     .filter(filter)
+ *     .build();
+ * <p>
+ * // null unless the line matches
+ * SnowplowEvent event = reader.read(line);
+ * </code>
+ */
+public final class FilterExpression implements Predicate<TsvRow> {
+
+  private static final DateTimeFormatter TIMESTAMP_FORMAT =
+      ISODateTimeFormat.dateTimeParser().withZoneUTC();
+
+  private final String text;
+  private final Predicate<TsvRow> predicate;
+  private final Set<EventField> fields;
+
+  private FilterExpression(String text, Predicate<TsvRow> predicate, Set<EventField> fields) {
+    this.text = text;
+    this.predicate = predicate;
+    this.fields = fields;
+  }
+
+  /**
+   * Parse and compile an expression.
+   *
+   * @throws InvalidFormat if the expression is not valid, names an unknown column or compares a
+   *     column with a literal of the wrong type
+   */
+  public static FilterExpression parse(String text) throws InvalidFormat {
+    Parser parser = new Parser(text);
+    Predicate<TsvRow> predicate = parser.parseExpression();
+    parser.expectEnd();
+    return new FilterExpression(
+        text, predicate, Collections.unmodifiableSet(parser.fields));
+  }
+
+  /** @return the text of the expression */
+  public String text() {
+    return text;
+  }
+
+  /** @return the columns the expression reads */
+  public Set<EventField> fields() {
+    return fields;
+  }
+
+  @Override
+  public boolean test(TsvRow row) {
+    return predicate.test(row);
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+
+  public static class InvalidFormat extends Exception {
+    InvalidFormat(String message) {
+      super(message);
+    }
+  }
+
+  private enum TokenType {
+    WORD, STRING, NUMBER, SYMBOL, END
+  }
+
+  /** Recursive descent parser which builds the predicate as it goes. */
+  private static final class Parser {
+
+    private final String text;
+    private final Set<EventField> fields = EnumSet.noneOf(EventField.class);
+    private int position;
+
+    private TokenType type;
+    private String token;
+    private int tokenStart;
+
+    Parser(String text) throws InvalidFormat {
+      this.text = text;
+      next();
+    }
+
+    /** expression := conjunction (OR conjunction)* */
+    Predicate<TsvRow> parseExpression() throws InvalidFormat {
+      Predicate<TsvRow> result = parseConjunction();
+      while (acceptKeyword("OR")) {
+        result = result.or(parseConjunction());
+      }
+      return result;
+    }
+
+    /** conjunction := negation (AND negation)* */
+    private Predicate<TsvRow> parseConjunction() throws InvalidFormat {
+      Predicate<TsvRow> result = parseNegation();
+      while (acceptKeyword("AND")) {
+        result = result.and(parseNegation());
+      }
+      return result;
+    }
+
+    /** negation := NOT negation | '(' expression ')' | comparison */
+    private Predicate<TsvRow> parseNegation() throws InvalidFormat {
+      if (acceptKeyword("NOT")) {
+        return parseNegation().negate();
+      }
+      if (acceptSymbol("(")) {
+        Predicate<TsvRow> result = parseExpression();
+        expectSymbol(")");
+        return result;
+      }
+      return parseComparison();
+    }
+
+    private Predicate<TsvRow> parseComparison() throws InvalidFormat {
+      if (type != TokenType.WORD) {
+        throw error("Expected a column name");
+      }
+      EventField field = EventField.forColumnName(token);
+      if (field == null) {
+        throw error("Unknown column " + token);
+      }
+      fields.add(field);
+      next();
+
+      if (acceptKeyword("IS")) {
+        boolean negated = acceptKeyword("NOT");
+        expectKeyword("NULL");
+        Predicate<TsvRow> isNull = RowFilters.isEmpty(field);
+        return negated ? isNull.negate() : isNull;
+      }
+
+      boolean negated = acceptKeyword("NOT");
+      Predicate<TsvRow> result;
+      if (acceptKeyword("IN")) {
+        result = parseIn(field);
+      } else if (acceptKeyword("BETWEEN")) {
+        int start = tokenStart;
+        Literal from = parseLiteral();
+        expectKeyword("AND");
+        result = range(field, from, true, parseLiteral(), true, start);
+      } else if (acceptKeyword("LIKE")) {
+        result = parseLike(field);
+      } else if (negated) {
+        throw error("Expected IN, BETWEEN or LIKE");
+      } else {
+        result = parseOperator(field);
+      }
+      return negated ? result.negate() : result;
+    }
+
+    private Predicate<TsvRow> parseOperator(EventField field) throws InvalidFormat {
+      if (type != TokenType.SYMBOL) {
+        throw error("Expected a comparison");
+      }
+      String operator = token;
+      next();
+
+      int start = tokenStart;
+      Literal value = parseLiteral();
+      switch (operator) {
+        case "=":
+          return equalTo(field, value, start);
+        case "!=":
+        case "<>":
+          return equalTo(field, value, start).negate();
+        case "<":
+          return range(field, null, false, value, false, start);
+        case "<=":
+          return range(field, null, false, value, true, start);
+        case ">":
+          return range(field, value, false, null, false, start);
+        case ">=":
+          return range(field, value, true, null, false, start);
+        default:
+          throw new InvalidFormat(String.format(
+              "Expected a comparison at position %s: %s", start, operator));
+      }
+    }
+
+    private Predicate<TsvRow> parseIn(EventField field) throws InvalidFormat {
+      expectSymbol("(");
+      List<Literal> values = new ArrayList<>();
+      List<Integer> starts = new ArrayList<>();
+      do {
+        starts.add(tokenStart);
+        values.add(parseLiteral());
+      } while (acceptSymbol(","));
+      expectSymbol(")");
+
+      if (field.type() == EventField.Type.STRING) {
+        List<String> strings = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+          strings.add(values.get(i).string(field, starts.get(i)));
+        }
+        return RowFilters.in(field, strings);
+      }
+      if (field.type() == EventField.Type.INT) {
+        Predicate<TsvRow> result = null;
+        for (int i = 0; i < values.size(); i++) {
+          Predicate<TsvRow> equal = equalTo(field, values.get(i), starts.get(i));
+          result = result == null ? equal : result.or(equal);
+        }
+        return result;
+      }
+      throw unsupported(field, "IN");
+    }
+
+    private Predicate<TsvRow> parseLike(EventField field) throws InvalidFormat {
+      if (field.type() != EventField.Type.STRING) {
+        throw unsupported(field, "LIKE");
+      }
+      int start = tokenStart;
+      String pattern = parseLiteral().string(field, start);
+      int wildcard = pattern.indexOf('%');
+      if (wildcard < 0) {
+        return RowFilters.equalTo(field, pattern);
+      }
+      if (wildcard != pattern.length() - 1) {
+        throw new InvalidFormat(String.format(
+            "Only patterns of the form 'prefix%%' are supported, at position %s: %s",
+            start, pattern));
+      }
+      return RowFilters.startsWith(field, pattern.substring(0, wildcard));
+    }
+
+    private Predicate<TsvRow> equalTo(EventField field, Literal value, int start)
+        throws InvalidFormat {
+      switch (field.type()) {
+        case STRING:
+          return RowFilters.equalTo(field, value.string(field, start));
+        case BOOLEAN:
+          return RowFilters.equalTo(field, value.bool(field, start) ? "1" : "0");
+        default:
+          return range(field, value, true, value, true, start);
+      }
+    }
+
+    /** Build a range, where a null bound is unbounded. */
+    private Predicate<TsvRow> range(
+        EventField field, Literal from, boolean fromInclusive, Literal to, boolean toInclusive,
+        int start) throws InvalidFormat {
+      switch (field.type()) {
+        case TIMESTAMP: {
+          long min = from == null ? Long.MIN_VALUE + 1 : from.millis(field, start);
+          long max = to == null ? Long.MAX_VALUE : to.millis(field, start);
+          if (!fromInclusive && from != null) {
+            min++;
+          }
+          if (!toInclusive && to != null) {
+            max--;
+          }
+          return min > max
+              ? row -> false
+              : RowFilters.between(field, new Instant(min), new Instant(max));
+        }
+        case INT: {
+          long min = from == null ? Integer.MIN_VALUE : from.integer(field, start);
+          long max = to == null ? Integer.MAX_VALUE : to.integer(field, start);
+          if (!fromInclusive && from != null) {
+            min++;
+          }
+          if (!toInclusive && to != null) {
+            max--;
+          }
+          min = Math.max(min, Integer.MIN_VALUE);
+          max = Math.min(max, Integer.MAX_VALUE);
+          return min > max
+              ? row -> false
+              : RowFilters.between(field, (int) min, (int) max);
+        }
+        case FLOAT: {
+          float min = from == null ? Float.NEGATIVE_INFINITY : from.decimal(field, start);
+          float max = to == null ? Float.POSITIVE_INFINITY : to.decimal(field, start);
+          if (!fromInclusive && from != null) {
+            min = Math.nextUp(min);
+          }
+          if (!toInclusive && to != null) {
+            max = Math.nextDown(max);
+          }
+          return min > max
+              ? row -> false
+              : RowFilters.between(field, min, max);
+        }
+        default:
+          throw unsupported(field, "ordering comparisons");
+      }
+    }
+
+    private Literal parseLiteral() throws InvalidFormat {
+      Literal literal;
+      if (type == TokenType.STRING || type == TokenType.NUMBER) {
+        literal = new Literal(type, token);
+      } else if (type == TokenType.WORD
+          && (isKeyword("TRUE") || isKeyword("FALSE"))) {
+        literal = new Literal(type, token.toUpperCase(Locale.ROOT));
+      } else {
+        throw error("Expected a value");
+      }
+      next();
+      return literal;
+    }
+
+    void expectEnd() throws InvalidFormat {
+      if (type != TokenType.END) {
+        throw error("Unexpected " + token);
+      }
+    }
+
+    private boolean isKeyword(String keyword) {
+      return type == TokenType.WORD && token.equalsIgnoreCase(keyword);
+    }
+
+    private boolean acceptKeyword(String keyword) throws InvalidFormat {
+      if (isKeyword(keyword)) {
+        next();
+        return true;
+      }
+      return false;
+    }
+
+    private void expectKeyword(String keyword) throws InvalidFormat {
+      if (!acceptKeyword(keyword)) {
+        throw error("Expected " + keyword);
+      }
+    }
+
+    private boolean acceptSymbol(String symbol) throws InvalidFormat {
+      if (type == TokenType.SYMBOL && token.equals(symbol)) {
+        next();
+        return true;
+      }
+      return false;
+    }
+
+    private void expectSymbol(String symbol) throws InvalidFormat {
+      if (!acceptSymbol(symbol)) {
+        throw error("Expected " + symbol);
+      }
+    }
+
+    private InvalidFormat error(String message) {
+      return new InvalidFormat(String.format(
+          "%s at position %s of: %s", message, tokenStart, text));
+    }
+
+    private InvalidFormat unsupported(EventField field, String comparison) {
+      return new InvalidFormat(String.format(
+          "Column %s of type %s does not support %s",
+          field.columnName(), field.type(), comparison));
+    }
+
+    /** Read the next token. */
+    private void next() throws InvalidFormat {
+      while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+      tokenStart = position;
+      if (position == text.length()) {
+        type = TokenType.END;
+        token = "end of expression";
+        return;
+      }
+
+      char c = text.charAt(position);
+      if (c == '\'') {
+        readString();
+      } else if (Character.isLetter(c) || c == '_') {
+        while (position < text.length()
+            && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+          position++;
+        }
+        type = TokenType.WORD;
+        token = text.substring(tokenStart, position);
+      } else if (Character.isDigit(c) || c == '-' || c == '.') {
+        position++;
+        while (position < text.length()
+            && (Character.isDigit(text.charAt(position))
+                || ".eE+-".indexOf(text.charAt(position)) >= 0)) {
+          position++;
+        }
+        type = TokenType.NUMBER;
+        token = text.substring(tokenStart, position);
+      } else {
+        position++;
+        if (position < text.length()
+            && (c == '<' || c == '>' || c == '!')
+            && (text.charAt(position) == '=' || c == '<' && text.charAt(position) == '>')) {
+          position++;
+        }
+        type = TokenType.SYMBOL;
+        token = text.substring(tokenStart, position);
+      }
+    }
+
+    private void readString() throws InvalidFormat {
+      StringBuilder value = new StringBuilder();
+      position++;
+      while (true) {
+        if (position == text.length()) {
+          throw new InvalidFormat(String.format(
+              "Unterminated string at position %s of: %s", tokenStart, text));
+        }
+        char c = text.charAt(position++);
+        if (c == '\'') {
+          if (position < text.length() && text.charAt(position) == '\'') {
+            position++;
+          } else {
+            break;
+          }
+        }
+        value.append(c);
+      }
+      type = TokenType.STRING;
+      token = value.toString();
+    }
+  }
+
+  /** A literal value, converted to the type of the column it is compared with. */
+  private static final class Literal {
+
+    private final TokenType type;
+    private final String text;
+
+    Literal(TokenType type, String text) {
+      this.type = type;
+      this.text = text;
+    }
+
+    String string(EventField field, int position) throws InvalidFormat {
+      if (type != TokenType.STRING) {
+        throw mismatch(field, position);
+      }
+      return text;
+    }
+
+    long millis(EventField field, int position) throws InvalidFormat {
+      if (type != TokenType.STRING) {
+        throw mismatch(field, position);
+      }
+      try {
+        return TIMESTAMP_FORMAT.parseMillis(text.trim().replace(' ', 'T'));
+      } catch (IllegalArgumentException exc) {
+        throw mismatch(field, position);
+      }
+    }
+
+    long integer(EventField field, int position) throws InvalidFormat {
+      if (type != TokenType.NUMBER) {
+        throw mismatch(field, position);
+      }
+      try {
+        return Long.parseLong(text);
+      } catch (NumberFormatException exc) {
+        throw mismatch(field, position);
+      }
+    }
+
+    float decimal(EventField field, int position) throws InvalidFormat {
+      if (type != TokenType.NUMBER) {
+        throw mismatch(field, position);
+      }
+      try {
+        return Float.parseFloat(text);
+      } catch (NumberFormatException exc) {
+        throw mismatch(field, position);
+      }
+    }
+
+    boolean bool(EventField field, int position) throws InvalidFormat {
+      if (type == TokenType.WORD ? text.equals("TRUE") : text.equals("1")) {
+        return true;
+      }
+      if (type == TokenType.WORD ? text.equals("FALSE") : text.equals("0")) {
+        return false;
+      }
+      throw mismatch(field, position);
+    }
+
+    private InvalidFormat mismatch(EventField field, int position) {
+      String literal = type == TokenType.STRING ? "'" + text + "'" : text;
+      return new InvalidFormat(String.format(
+          "Cannot compare column %s of type %s with %s at position %s",
+          field.columnName(), field.type(), literal, position));
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package io.github.acgray.jplow.filter;
+
+import io.github.acgray.jplow.value.EnrichedTimestamps;
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.TsvRow;
+import org.joda.time.Instant;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.function.Predicate;
+
+/**
+ * Predicates over the raw columns of a line of enriched TSV, evaluated before any event is
+ * built.
+ * <p>
+ * Each predicate reads only the columns it tests, straight from the field slices of a
+ * {@link TsvRow}: strings are compared without creating a String, and timestamps and integers
+ * are parsed without allocating. A line which is rejected is therefore never converted,
+ * validated or has its contexts parsed, which makes filtering out the bulk of a file almost
+ * free. Predicates are combined with {@link Predicate#and}, {@link Predicate#or} and
+ * {@link Predicate#negate}.
+ * <p>
+ * A column missing from a short line is treated as empty, and a timestamp or integer which
+ * cannot be parsed matches no range.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * Predicate&lt;TsvRow&gt; filter = RowFilters.equalTo(EventField.EVENT, "unstruct")
+ *     .and(RowFilters.in(EventField.APP_ID, "web", "ios"))
+ *     .and(RowFilters.startsWith(EventField.EVENT_VENDOR, "com.acme"));
+ * <p>
+ * TsvRow row = TsvRow.of(line);
+ * if (filter.test(row)) {
+ *   SnowplowEvent event = reader.read(row);
+ * }
+ * </code>
+ *
+ * @see io.github.acgray.jplow.value.EnrichedTsvReader#filter()
+ */
+public final class RowFilters {
+
+  /** Above this many values, membership is tested by hashing rather than by comparison. */
+  private static final int LINEAR_IN_LIMIT = 8;
+
+  private RowFilters() {}
+
+  /** @return a predicate which accepts every row */
+  public static Predicate<TsvRow> all() {
+    return row -> true;
+  }
+
+  /** @return a predicate matching rows in which a column holds exactly the given text */
+  public static Predicate<TsvRow> equalTo(EventField field, String value) {
+    int i = field.index();
+    return row -> i < row.fieldCount()
+        ? row.contentEquals(i, value)
+        : value.isEmpty();
+  }
+
+  /** @return a predicate matching rows in which a column holds one of the given values */
+  public static Predicate<TsvRow> in(EventField field, String... values) {
+    return in(field, Arrays.asList(values));
+  }
+
+  /** @return a predicate matching rows in which a column holds one of the given values */
+  public static Predicate<TsvRow> in(EventField field, Collection<String> values) {
+    int i = field.index();
+    String[] candidates = new HashSet<>(values).toArray(new String[0]);
+    boolean matchesEmpty = values.contains("");
+
+    if (candidates.length > LINEAR_IN_LIMIT) {
+      String[][] table = hashTable(candidates);
+      int mask = table.length - 1;
+      return row -> {
+        if (i >= row.fieldCount()) {
+          return matchesEmpty;
+        }
+        String[] bucket = table[spread(row.contentHash(i)) & mask];
+        return bucket != null && matchesAny(row, i, bucket);
+      };
+    }
+    return row -> i < row.fieldCount() ? matchesAny(row, i, candidates) : matchesEmpty;
+  }
+
+  /** @return a predicate matching rows in which a column starts with the given text */
+  public static Predicate<TsvRow> startsWith(EventField field, String prefix) {
+    int i = field.index();
+    return row -> i < row.fieldCount()
+        ? row.startsWith(i, prefix)
+        : prefix.isEmpty();
+  }
+
+  /** @return a predicate matching rows in which a column is empty */
+  public static Predicate<TsvRow> isEmpty(EventField field) {
+    int i = field.index();
+    return row -> i >= row.fieldCount() || row.isEmpty(i);
+  }
+
+  /**
+   * @return a predicate matching rows in which a timestamp column lies between two instants,
+   *     both inclusive
+   * @throws IllegalArgumentException if the column is not a timestamp
+   */
+  public static Predicate<TsvRow> between(EventField field, Instant from, Instant to) {
+    checkType(field, EventField.Type.TIMESTAMP);
+    int i = field.index();
+    long min = from.getMillis();
+    long max = to.getMillis();
+    return row -> {
+      long millis = millis(row, i);
+      return millis != EnrichedTimestamps.NONE && millis >= min && millis <= max;
+    };
+  }
+
+  /**
+   * @return a predicate matching rows in which an integer column lies between two values, both
+   *     inclusive
+   * @throws IllegalArgumentException if the column is not an integer
+   */
+  public static Predicate<TsvRow> between(EventField field, int from, int to) {
+    checkType(field, EventField.Type.INT);
+    int i = field.index();
+    return row -> {
+      if (i >= row.fieldCount() || row.isEmpty(i)) {
+        return false;
+      }
+      try {
+        int value = row.parseInt(i);
+        return value >= from && value <= to;
+      } catch (NumberFormatException exc) {
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return a predicate matching rows in which a float column lies between two values, both
+   *     inclusive
+   * @throws IllegalArgumentException if the column is not a float
+   */
+  public static Predicate<TsvRow> between(EventField field, float from, float to) {
+    checkType(field, EventField.Type.FLOAT);
+    int i = field.index();
+    return row -> {
+      if (i >= row.fieldCount() || row.isEmpty(i)) {
+        return false;
+      }
+      try {
+        float value = Float.parseFloat(row.rawValue(i));
+        return value >= from && value <= to;
+      } catch (NumberFormatException exc) {
+        return false;
+      }
+    };
+  }
+
+  private static boolean matchesAny(TsvRow row, int field, String[] candidates) {
+    for (String candidate : candidates) {
+      if (row.contentEquals(field, candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the candidates grouped into a power-of-two table of buckets by hash code */
+  private static String[][] hashTable(String[] candidates) {
+    String[][] table = new String[Integer.highestOneBit(candidates.length * 2 - 1) << 1][];
+    int mask = table.length - 1;
+    for (String candidate : candidates) {
+      int slot = spread(candidate.hashCode()) & mask;
+      String[] bucket = table[slot];
+      if (bucket == null) {
+        table[slot] = new String[] {candidate};
+      } else {
+        bucket = Arrays.copyOf(bucket, bucket.length + 1);
+        bucket[bucket.length - 1] = candidate;
+        table[slot] = bucket;
+      }
+    }
+    return table;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ hash >>> 16;
+  }
+
+  private static long millis(TsvRow row, int field) {
+    if (field >= row.fieldCount() || row.isEmpty(field)) {
+      return EnrichedTimestamps.NONE;
+    }
+    long millis = row.timestampMillis(field);
+    if (millis != EnrichedTimestamps.NONE) {
+      return millis;
+    }
+    try {
+      // not in the canonical format; defer to the more lenient parser
+      return row.instantValue(field).getMillis();
+    } catch (IllegalArgumentException exc) {
+      return EnrichedTimestamps.NONE;
+    }
+  }
+
+  private static void checkType(EventField field, EventField.Type type) {
+    if (field.type() != type) {
+      throw new IllegalArgumentException(String.format(
+          "Column %s is of type %s, not %s", field.columnName(), field.type(), type));
+    }
+  }
+}
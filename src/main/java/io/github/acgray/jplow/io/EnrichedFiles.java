@@ -0,0 +1,433 @@
+package io.github.acgray.jplow.io;
+
+import io.github.acgray.jplow.value.DelimiterIndex;
+import io.github.acgray.jplow.value.EnrichedTsvReader;
+import io.github.acgray.jplow.value.SnowplowEvent;
+import io.github.acgray.jplow.value.TsvRow;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads files of Snowplow Enriched TSV as streams of events, in parallel if wanted.
+ * <p>
+ * A file is divided into chunks of roughly {@link #DEFAULT_CHUNK_SIZE} bytes, each ending just
+ * after a newline, so that every line lies in exactly one chunk. Each chunk is memory-mapped when
+ * it is first read, and its lines and their fields are indexed in a single pass over the mapped
+ * bytes by a {@link DelimiterIndex}; lines are then parsed straight from the mapping without
+ * going through a <code>Reader</code> or scanning them again.
+ * <p>
+ * The stream's spliterator splits the file by chunks, and a single chunk by its lines, so
+ * <code>.parallel()</code> spreads the parsing of a large file across all cores. Each chunk
+ * reports its exact number of lines once it has been indexed.
+ * <p>
+ * If the reader has a {@link EnrichedTsvReader#filter() filter}, each line is tested against it
+ * before being parsed, and lines which are rejected are skipped without ever being converted
+ * into events.
+ * <p>
+ * Lines may end with <code>\n</code> or <code>\r\n</code>, the last line need not be terminated
+ * and empty lines are skipped. A line which cannot be parsed ends the stream with an exception,
+ * unless a handler for invalid lines is given, in which case it is reported to the handler and
+ * skipped.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * try (Stream&lt;SnowplowEvent&gt; events = EnrichedFiles.stream(path)) {
+ *   long pageViews = events.parallel()
+ *       .filter(event -&gt; "page_view".equals(event.event()))
+ *       .count();
+ * }
+ * </code>
+ */
+public final class EnrichedFiles {
+
+  /** Default size of the chunks a file is divided into. */
+  public static final int DEFAULT_CHUNK_SIZE = 32 << 20;
+
+  /** Typical length of an enriched line, used to estimate the number of lines in a file. */
+  private static final int AVERAGE_LINE_LENGTH = 2048;
+
+  private EnrichedFiles() {}
+
+  /**
+   * Stream the events of a file, fully parsed and validated as by
+   * {@link SnowplowEvent#fromTsv(CharSequence)}.
+   *
+   * @see #stream(Path, EnrichedTsvReader, int)
+   */
+  public static Stream<SnowplowEvent> stream(Path path) throws IOException {
+    return stream(path, EnrichedTsvReader.builder().build());
+  }
+
+  /**
+   * Stream the events of a file, parsed by the given reader.
+   *
+   * @see #stream(Path, EnrichedTsvReader, int)
+   */
+  public static Stream<SnowplowEvent> stream(Path path, EnrichedTsvReader reader)
+      throws IOException {
+    return stream(path, reader, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Stream the events of a file, parsed by the given reader, dividing the file into chunks of
+   * about the given size.
+   * <p>
+   * The file stays open until the stream is closed, so the stream should be used in a
+   * try-with-resources statement. A line which cannot be parsed is reported by an
+   * {@link IllegalArgumentException} wrapping a {@link SnowplowEvent.InvalidFormat}, and an error
+   * while mapping the file by an {@link UncheckedIOException}.
+   *
+   * @throws IOException if the file cannot be opened or its chunks cannot be located
+   */
+  public static Stream<SnowplowEvent> stream(
+      Path path, EnrichedTsvReader reader, int chunkSize) throws IOException {
+    return stream(path, reader, chunkSize, null);
+  }
+
+  /**
+   * Stream the events of a file, parsed by the given reader, passing each line which cannot be
+   * parsed to a handler and leaving it out of the stream.
+   * <p>
+   * The handler receives a {@link SnowplowEvent.InvalidFormat} giving the position of the line in
+   * the file, with the original error as its cause, and is called from whichever thread parsed
+   * the line, so it must be thread-safe if the stream is parallel. It may rethrow to end the
+   * stream after all. With a null handler, invalid lines end the stream as described in
+   * {@link #stream(Path, EnrichedTsvReader, int)}.
+   *
+   * <p>
+   * <code>
+   * List&lt;SnowplowEvent.InvalidFormat&gt; invalid = new CopyOnWriteArrayList&lt;&gt;();
+   * try (Stream&lt;SnowplowEvent&gt; events =
+   *     EnrichedFiles.stream(path, reader, EnrichedFiles.DEFAULT_CHUNK_SIZE, invalid::add)) {
+   *   ...
+   * }
+   * </code>
+   *
+   * @throws IOException if the file cannot be opened or its chunks cannot be located
+   */
+  public static Stream<SnowplowEvent> stream(
+      Path path, EnrichedTsvReader reader, int chunkSize,
+      @Nullable Consumer<? super SnowplowEvent.InvalidFormat> invalidLines) throws IOException {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long[] bounds = chunkBounds(channel, chunkSize);
+      FileSpliterator spliterator = new FileSpliterator(
+          new Source(path, channel, reader, invalidLines), bounds, 0, bounds.length - 1);
+
+      return StreamSupport.stream(spliterator, false).onClose(() -> {
+        try {
+          channel.close();
+        } catch (IOException exc) {
+          throw new UncheckedIOException(exc);
+        }
+      });
+    } catch (IOException | RuntimeException exc) {
+      channel.close();
+      throw exc;
+    }
+  }
+
+  /**
+   * @return the offsets at which chunks start, followed by the size of the file. Each chunk
+   *     but the last ends just after a newline.
+   */
+  static long[] chunkBounds(FileChannel channel, int chunkSize) throws IOException {
+    long size = channel.size();
+    long[] bounds = new long[(int) Math.min(Integer.MAX_VALUE, size / chunkSize + 2)];
+    int count = 0;
+    bounds[count++] = 0;
+
+    ByteBuffer probe = ByteBuffer.allocate(4096);
+    long position = chunkSize;
+    while (position < size) {
+      long newline = nextNewline(channel, position - 1, probe);
+      if (newline < 0 || newline + 1 >= size) {
+        break;
+      }
+      bounds[count++] = newline + 1;
+      position = newline + 1 + chunkSize;
+    }
+
+    bounds[count++] = size;
+    return Arrays.copyOf(bounds, count);
+  }
+
+  /** @return the offset of the first newline at or after a position, or -1 if there is none */
+  private static long nextNewline(FileChannel channel, long position, ByteBuffer probe)
+      throws IOException {
+    while (true) {
+      probe.clear();
+      int read = channel.read(probe, position);
+      if (read < 0) {
+        return -1;
+      }
+      for (int i = 0; i < read; i++) {
+        if (probe.get(i) == '\n') {
+          return position + i;
+        }
+      }
+      position += read;
+    }
+  }
+
+  /** What is needed to read the lines of any chunk of a file. */
+  private static final class Source {
+    final Path path;
+    final FileChannel channel;
+    final EnrichedTsvReader reader;
+    @Nullable final Consumer<? super SnowplowEvent.InvalidFormat> invalidLines;
+
+    Source(Path path, FileChannel channel, EnrichedTsvReader reader,
+        @Nullable Consumer<? super SnowplowEvent.InvalidFormat> invalidLines) {
+      this.path = path;
+      this.channel = channel;
+      this.reader = reader;
+      this.invalidLines = invalidLines;
+    }
+
+    /** @return true if every line of a chunk becomes an event */
+    boolean keepsEveryLine() {
+      return reader.filter() == null && invalidLines == null;
+    }
+
+    /** Map and index the chunk between two offsets of the file. */
+    ChunkSpliterator chunk(long start, long end) {
+      ByteBuffer buffer;
+      try {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      } catch (IOException exc) {
+        throw new UncheckedIOException(exc);
+      }
+
+      DelimiterIndex index = DelimiterIndex.of(buffer, 0, buffer.limit());
+      return new ChunkSpliterator(this, buffer, start, index, 0, index.lineCount());
+    }
+
+    /**
+     * Test a line against the reader's filter and parse it if it passes. The line is first
+     * copied into the scratch array, and only copied again to be kept by the event if accepted.
+     *
+     * @return the event, or null if the line was rejected by the filter or passed to the
+     *     handler of invalid lines
+     */
+    SnowplowEvent parse(
+        ByteBuffer buffer, long chunkStart, DelimiterIndex index, int line, byte[] scratch) {
+      int from = index.lineStart(line);
+      int length = index.lineEnd(line) - from;
+      int[] offsets = index.fieldOffsets(line, from);
+      buffer.position(from);
+
+      TsvRow row;
+      if (reader.filter() == null) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        row = TsvRow.of(bytes, offsets);
+      } else {
+        buffer.get(scratch, 0, length);
+        if (!reader.accepts(TsvRow.of(scratch, offsets))) {
+          return null;
+        }
+        row = TsvRow.of(Arrays.copyOf(scratch, length), offsets);
+      }
+
+      Exception error;
+      try {
+        return reader.convert(row);
+      } catch (SnowplowEvent.InvalidFormat exc) {
+        error = exc;
+      } catch (IllegalArgumentException exc) {
+        // a column which failed to convert, possibly already wrapping an InvalidFormat
+        error = exc.getCause() instanceof SnowplowEvent.InvalidFormat
+            ? (SnowplowEvent.InvalidFormat) exc.getCause()
+            : exc;
+      }
+
+      SnowplowEvent.InvalidFormat located = new SnowplowEvent.InvalidFormat(String.format(
+          "%s, in line at byte %s of %s", error.getMessage(), chunkStart + from, path));
+      located.initCause(error);
+      if (invalidLines == null) {
+        throw new IllegalArgumentException(located);
+      }
+      invalidLines.accept(located);
+      return null;
+    }
+  }
+
+  /**
+   * Splits a range of chunks of a file in half, and a single chunk by its lines.
+   */
+  private static final class FileSpliterator implements Spliterator<SnowplowEvent> {
+
+    private final Source source;
+    private final long[] bounds;
+    private int chunk;
+    private final int fence;
+    private ChunkSpliterator current;
+
+    FileSpliterator(Source source, long[] bounds, int chunk, int fence) {
+      this.source = source;
+      this.bounds = bounds;
+      this.chunk = chunk;
+      this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super SnowplowEvent> action) {
+      while (current == null || !current.tryAdvance(action)) {
+        if (!nextChunk()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super SnowplowEvent> action) {
+      if (current != null) {
+        current.forEachRemaining(action);
+      }
+      while (nextChunk()) {
+        current.forEachRemaining(action);
+      }
+    }
+
+    @Override
+    public Spliterator<SnowplowEvent> trySplit() {
+      if (current != null && current.estimateSize() > 0) {
+        // the chunk being read comes first, so it is the prefix to hand over
+        Spliterator<SnowplowEvent> prefix = current;
+        current = null;
+        return prefix;
+      }
+      if (fence - chunk > 1) {
+        int mid = (chunk + fence) >>> 1;
+        Spliterator<SnowplowEvent> prefix = new FileSpliterator(source, bounds, chunk, mid);
+        chunk = mid;
+        return prefix;
+      }
+      if (nextChunk()) {
+        return current.trySplit();
+      }
+      return null;
+    }
+
+    @Override
+    public long estimateSize() {
+      long lines = (bounds[fence] - bounds[chunk]) / AVERAGE_LINE_LENGTH;
+      return current == null ? lines : lines + current.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    private boolean nextChunk() {
+      if (chunk == fence) {
+        current = null;
+        return false;
+      }
+      current = source.chunk(bounds[chunk], bounds[chunk + 1]);
+      chunk++;
+      return true;
+    }
+  }
+
+  /** The lines of one mapped and indexed chunk. */
+  private static final class ChunkSpliterator implements Spliterator<SnowplowEvent> {
+
+    private final Source source;
+    private final ByteBuffer buffer;
+    private final long chunkStart;
+    private final DelimiterIndex lines;
+    private int index;
+    private final int fence;
+    // lines are copied here to be tested against the reader's filter
+    private byte[] scratch;
+
+    ChunkSpliterator(
+        Source source, ByteBuffer buffer, long chunkStart, DelimiterIndex lines, int index,
+        int fence) {
+      this.source = source;
+      this.buffer = buffer;
+      this.chunkStart = chunkStart;
+      this.lines = lines;
+      this.index = index;
+      this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super SnowplowEvent> action) {
+      while (index < fence) {
+        SnowplowEvent event = parse(index++);
+        if (event != null) {
+          action.accept(event);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super SnowplowEvent> action) {
+      for (int i = index; i < fence; i++) {
+        index = i + 1;
+        SnowplowEvent event = parse(i);
+        if (event != null) {
+          action.accept(event);
+        }
+      }
+    }
+
+    @Override
+    public Spliterator<SnowplowEvent> trySplit() {
+      int mid = (index + fence) >>> 1;
+      if (mid <= index) {
+        return null;
+      }
+      Spliterator<SnowplowEvent> prefix = new ChunkSpliterator(
+          source, buffer.duplicate(), chunkStart, lines, index, mid);
+      index = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+      // a filter or skipped invalid lines make the number of lines only an upper bound
+      return source.keepsEveryLine()
+          ? ORDERED | NONNULL | IMMUTABLE | SIZED | SUBSIZED
+          : ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    private SnowplowEvent parse(int line) {
+      if (source.reader.filter() != null) {
+        int length = lines.lineEnd(line) - lines.lineStart(line);
+        if (scratch == null || scratch.length < length) {
+          scratch = new byte[Math.max(length, 4096)];
+        }
+      }
+      return source.parse(buffer, chunkStart, lines, line, scratch);
+    }
+  }
+}
@@ -0,0 +1,296 @@
+package io.github.acgray.jplow.io;
+
+import io.github.acgray.jplow.selfdesc.SchemaKey;
+import io.github.acgray.jplow.selfdesc.SchemaRegistry;
+import io.github.acgray.jplow.selfdesc.SelfDescribing;
+import io.github.acgray.jplow.value.EnrichedTimestamps;
+import io.github.acgray.jplow.value.EnrichedTsvReader;
+import io.github.acgray.jplow.value.EnrichedTsvWriter;
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.SnowplowEvent;
+import io.github.acgray.jplow.value.ValidationPolicy;
+import org.immutables.value.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Splits events into the tables of a warehouse, in the manner of the Snowplow RDB shredder.
+ * <p>
+ * The atomic columns of each event, i.e. all but {@link EventField#CONTEXTS},
+ * {@link EventField#DERIVED_CONTEXTS} and {@link EventField#UNSTRUCT_EVENT}, are written as a
+ * line of TSV to the <code>atomic-events</code> table. Each context and unstructured event
+ * payload is written to the table named by the {@link SchemaKey#tableName()} of its schema, as
+ * a line of four tab-separated columns:
+ *
+ * <pre>
+ * root_id  root_tstamp  schema  data
+ * </pre>
+ *
+ * where <code>root_id</code> and <code>root_tstamp</code> are the event ID and collector
+ * timestamp of its event, <code>schema</code> is its full iglu schema reference and
+ * <code>data</code> its data as JSON. Every table is a directory of the output directory,
+ * holding one <code>part-NNNNN.tsv</code> file per partition, so partitions are shredded in
+ * parallel without sharing any file. Each JSON column is scanned once and each entity parsed
+ * once.
+ * <p>
+ * A partition keeps a buffered writer per table, at most {@link #maxOpenFiles()} of them at
+ * once; when another is needed, the least recently used one is flushed and closed, and its
+ * file is appended to if the table is written to again. Opening a partition deletes its part
+ * file from every table left by an earlier run, so a retried job neither duplicates its output
+ * nor keeps rows in tables it no longer writes to.
+ * <p>
+ * {@link #shredFiles(List)} skips the lines which cannot be parsed and the events whose JSON
+ * columns are malformed, rather than abandoning the whole job, and reports how many it skipped.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * Shredder shredder = Shredder.builder()
+ *     .outputDirectory(Paths.get("shredded"))
+ *     .build();
+ * <p>
+ * shredder.shredFiles(inputs);
+ * </code>
+ */
+@Value.Immutable
+public abstract class Shredder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(Shredder.class);
+
+  /** Name of the table of atomic columns. */
+  public static final String ATOMIC_TABLE = "atomic-events";
+
+  private static final Set<EventField> JSON_COLUMNS = EnumSet.of(
+      EventField.CONTEXTS, EventField.DERIVED_CONTEXTS, EventField.UNSTRUCT_EVENT);
+
+  // decodes every entity as a JsonObject
+  private static final SchemaRegistry NO_TYPES = SchemaRegistry.builder().build();
+
+  public static ImmutableShredder.Builder builder() {
+    return ImmutableShredder.builder();
+  }
+
+  /** @return the directory in which a directory is created for each table */
+  public abstract Path outputDirectory();
+
+  /** @return the most files a partition keeps open, by default 64 */
+  @Value.Default
+  public int maxOpenFiles() {
+    return 64;
+  }
+
+  /**
+   * @return the reader with which {@link #shredFiles(List)} parses its inputs, by default one
+   *     which only parses the JSON columns when the shredder reads them
+   */
+  @Value.Default
+  @Value.Auxiliary
+  public EnrichedTsvReader reader() {
+    return EnrichedTsvReader.builder().validationPolicy(ValidationPolicy.LAZY).build();
+  }
+
+  @Value.Check
+  protected void check() {
+    if (maxOpenFiles() < 2) {
+      throw new IllegalStateException("At least two open files are needed: " + maxOpenFiles());
+    }
+  }
+
+  /** @return the columns written to the {@link #ATOMIC_TABLE}, in order */
+  public static List<EventField> atomicColumns() {
+    List<EventField> columns = new ArrayList<>();
+    for (EventField field : EventField.values()) {
+      if (!JSON_COLUMNS.contains(field)) {
+        columns.add(field);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Shred files of enriched TSV in parallel, each file being a partition numbered by its
+   * position in the list. Lines which cannot be parsed and events with a malformed JSON column
+   * are skipped, and logged at debug level.
+   *
+   * @return the number of lines and events skipped
+   * @throws IOException if a file cannot be read or written
+   */
+  public long shredFiles(List<Path> inputs) throws IOException {
+    try {
+      return IntStream.range(0, inputs.size()).parallel().mapToLong(partition -> {
+        try (Partition out = open(partition);
+             Stream<SnowplowEvent> events = EnrichedFiles.stream(
+                 inputs.get(partition), reader(), EnrichedFiles.DEFAULT_CHUNK_SIZE,
+                 out::skip)) {
+          Iterator<SnowplowEvent> iterator = events.iterator();
+          while (iterator.hasNext()) {
+            SnowplowEvent event = iterator.next();
+            try {
+              out.write(event);
+            } catch (IllegalArgumentException exc) {
+              out.skip(exc);
+            }
+          }
+          return out.skipped();
+        } catch (IOException exc) {
+          throw new UncheckedIOException(exc);
+        }
+      }).sum();
+    } catch (UncheckedIOException exc) {
+      throw exc.getCause();
+    }
+  }
+
+  /**
+   * Open a partition to write events to, deleting its part file from every table directory
+   * left by an earlier run. A partition is not thread-safe, but different partitions can be
+   * written to concurrently.
+   */
+  public Partition open(int partition) throws IOException {
+    if (partition < 0) {
+      throw new IllegalArgumentException("Negative partition: " + partition);
+    }
+    String fileName = String.format("part-%05d.tsv", partition);
+    Files.createDirectories(outputDirectory());
+    try (DirectoryStream<Path> tables = Files.newDirectoryStream(
+        outputDirectory(), Files::isDirectory)) {
+      for (Path table : tables) {
+        Files.deleteIfExists(table.resolve(fileName));
+      }
+    }
+    return new Partition(fileName);
+  }
+
+  /** The tables of one partition, with their pool of open writers. */
+  public final class Partition implements Closeable {
+
+    private final String fileName;
+    private final EnrichedTsvWriter atomic = EnrichedTsvWriter.of(atomicColumns());
+    private final LinkedHashMap<String, Writer> writers =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private long events;
+    private long skipped;
+
+    private Partition(String fileName) {
+      this.fileName = fileName;
+    }
+
+    /**
+     * Write an event's atomic columns and each of its contexts and unstructured event payload.
+     *
+     * @throws IllegalArgumentException if a JSON column is malformed, unless the event's
+     *     validation policy is {@link ValidationPolicy#NONE}, in which case it is skipped, or if
+     *     a column cannot be converted. Nothing is written for the event in either case.
+     */
+    public void write(SnowplowEvent event) throws IOException {
+      // parse the JSON columns first, so that a malformed event writes nothing
+      List<SelfDescribing<?>> entities = new ArrayList<>(event.contextObjects(NO_TYPES));
+      SelfDescribing<?> payload = event.unstructEventPayload(NO_TYPES);
+      if (payload != null) {
+        entities.add(payload);
+      }
+      String rootTstamp = EnrichedTimestamps.format(event.collectorTstampMillis());
+      // formatted in full before anything is written
+      String atomicLine = atomic.toString(event);
+
+      Writer out = writer(ATOMIC_TABLE);
+      out.write(atomicLine);
+      out.write('\n');
+
+      for (SelfDescribing<?> entity : entities) {
+        out = writer(entity.schema().tableName());
+        out.write(event.eventId());
+        out.write('\t');
+        out.write(rootTstamp);
+        out.write('\t');
+        out.write(entity.schema().igluKey());
+        out.write('\t');
+        out.write(entity.data().toString());
+        out.write('\n');
+      }
+      events++;
+    }
+
+    /** @return the number of events written */
+    public long events() {
+      return events;
+    }
+
+    /** @return the number of lines and events skipped by {@link #shredFiles(List)} */
+    public long skipped() {
+      return skipped;
+    }
+
+    private void skip(Exception exc) {
+      Throwable reason = exc.getCause() instanceof SnowplowEvent.InvalidFormat
+          ? exc.getCause()
+          : exc;
+      LOG.debug("Skipping invalid event for {}: {}", fileName, reason.getMessage());
+      skipped++;
+    }
+
+    /** @return the tables written to so far, whose writers are open */
+    Set<String> openTables() {
+      return writers.keySet();
+    }
+
+    private Writer writer(String table) throws IOException {
+      Writer writer = writers.get(table);
+      if (writer == null) {
+        if (writers.size() >= maxOpenFiles()) {
+          Iterator<Map.Entry<String, Writer>> eldest = writers.entrySet().iterator();
+          Writer evicted = eldest.next().getValue();
+          eldest.remove();
+          evicted.close();
+        }
+        Path directory = outputDirectory().resolve(table);
+        Files.createDirectories(directory);
+        // output of earlier runs was deleted on opening, so a reopened writer appends
+        writer = Files.newBufferedWriter(
+            directory.resolve(fileName), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        writers.put(table, writer);
+      }
+      return writer;
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOException failure = null;
+      for (Writer writer : writers.values()) {
+        try {
+          writer.close();
+        } catch (IOException exc) {
+          if (failure == null) {
+            failure = exc;
+          } else {
+            failure.addSuppressed(exc);
+          }
+        }
+      }
+      writers.clear();
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+}
@@ -0,0 +1,542 @@
+package io.github.acgray.jplow.selfdesc;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the schemas of the entities in a contexts JSON, such as the <code>contexts</code> and
+ * <code>derived_contexts</code> columns of an enriched event, without building a JSON tree.
+ * <p>
+ * The contexts JSON is a self-describing object whose <code>data</code> is an array of
+ * self-describing entities. A single pass over the text reads the <code>schema</code> string of
+ * each entity and skips over everything else, including the entities' <code>data</code>, by
+ * matching brackets. Each entity is returned with its position and that of its data in the
+ * text, so that only the entities actually needed have to be parsed, with
+ * {@link Entry#decode()}, and data can be copied out without being parsed at all.
+ * <p>
+ * Since data is skipped rather than parsed, malformed data such as <code>{"a" tru}</code> is
+ * not detected by the scan. Data which is copied out unparsed can be checked first with
+ * {@link Entry#hasValidData()}.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * for (ContextScanner.Entry entry : ContextScanner.scan(event.contexts())) {
+ *   if (entry.schema().name().equals("web_page")) {
+ *     SelfDescribing&lt;JsonObject&gt; webPage = entry.decode();
+ *   }
+ * }
+ * </code>
+ */
+public final class ContextScanner {
+
+  private final String json;
+  private int position;
+
+  private ContextScanner(String json) {
+    this.json = json;
+  }
+
+  /**
+   * Find the entities of a contexts JSON.
+   *
+   * @return the entities in order of appearance
+   * @throws InvalidFormat if the text is not a JSON object with a <code>data</code> array of
+   *     objects, or an entity has no valid <code>schema</code>
+   */
+  public static List<Entry> scan(String json) throws InvalidFormat {
+    return new ContextScanner(json).scanContexts();
+  }
+
+  /**
+   * Find the entity of a self-describing JSON whose <code>data</code> is itself a
+   * self-describing entity, such as the <code>unstruct_event</code> column of an enriched
+   * event.
+   *
+   * @return the inner entity
+   * @throws InvalidFormat if the text is not a JSON object with a <code>data</code> object, or
+   *     that object has no valid <code>schema</code>
+   */
+  public static Entry scanPayload(String json) throws InvalidFormat {
+    return new ContextScanner(json).scanWrapped();
+  }
+
+  private Entry scanWrapped() throws InvalidFormat {
+    Entry entry = null;
+
+    expect('{');
+    if (!accept('}')) {
+      do {
+        String key = readString();
+        expect(':');
+        if (key.equals("data")) {
+          entry = readEntity();
+        } else {
+          skipValue();
+        }
+      } while (accept(','));
+      expect('}');
+    }
+
+    skipWhitespace();
+    if (position != json.length()) {
+      throw error("Unexpected content after the end of the object");
+    }
+    if (entry == null) {
+      throw error("No data object");
+    }
+    return entry;
+  }
+
+  private List<Entry> scanContexts() throws InvalidFormat {
+    List<Entry> entries = null;
+
+    expect('{');
+    if (!accept('}')) {
+      do {
+        String key = readString();
+        expect(':');
+        if (key.equals("data")) {
+          entries = scanEntities();
+        } else {
+          skipValue();
+        }
+      } while (accept(','));
+      expect('}');
+    }
+
+    skipWhitespace();
+    if (position != json.length()) {
+      throw error("Unexpected content after the end of the object");
+    }
+    if (entries == null) {
+      throw error("No data array");
+    }
+    return Collections.unmodifiableList(entries);
+  }
+
+  private List<Entry> scanEntities() throws InvalidFormat {
+    List<Entry> entries = new ArrayList<>();
+    expect('[');
+    if (accept(']')) {
+      return entries;
+    }
+    do {
+      entries.add(readEntity());
+    } while (accept(','));
+    expect(']');
+    return entries;
+  }
+
+  private Entry readEntity() throws InvalidFormat {
+    skipWhitespace();
+    int start = position;
+    SchemaKey schema = null;
+    int dataStart = -1;
+    int dataEnd = -1;
+
+    expect('{');
+    if (!accept('}')) {
+      do {
+        String key = readString();
+        expect(':');
+        if (key.equals("schema")) {
+          schema = readSchema();
+        } else if (key.equals("data")) {
+          skipWhitespace();
+          dataStart = position;
+          skipValue();
+          dataEnd = position;
+        } else {
+          skipValue();
+        }
+      } while (accept(','));
+      expect('}');
+    }
+
+    if (schema == null) {
+      throw error("Entity without a schema");
+    }
+    return new Entry(json, start, position, schema, dataStart, dataEnd);
+  }
+
+  private SchemaKey readSchema() throws InvalidFormat {
+    int start = position;
+    expect('"');
+    int keyStart = position;
+    while (position < json.length() && json.charAt(position) != '"'
+        && json.charAt(position) != '\\') {
+      position++;
+    }
+
+    try {
+      if (position < json.length() && json.charAt(position) == '"') {
+        // a schema without escapes is read in place, which for a cached schema copies nothing
+        return SchemaKey.parse(json, keyStart, position++);
+      }
+      position = start;
+      return SchemaKey.fromString(readString());
+    } catch (SchemaKey.InvalidFormat exc) {
+      position = start;
+      String key = readString();
+      position = start;
+      throw error("Invalid schema " + key);
+    }
+  }
+
+  private void skipValue() throws InvalidFormat {
+    skipWhitespace();
+    if (position == json.length()) {
+      throw error("Expected a value");
+    }
+
+    char c = json.charAt(position);
+    if (c == '"') {
+      readString();
+      return;
+    }
+    if (c == '{' || c == '[') {
+      // skip the whole subtree, minding brackets inside strings
+      int depth = 0;
+      while (position < json.length()) {
+        c = json.charAt(position);
+        if (c == '"') {
+          readString();
+          continue;
+        }
+        position++;
+        if (c == '{' || c == '[') {
+          depth++;
+        } else if (c == '}' || c == ']') {
+          if (--depth == 0) {
+            return;
+          }
+        }
+      }
+      throw error("Unterminated value");
+    }
+
+    // a number, true, false or null
+    int start = position;
+    while (position < json.length() && ",}] \t\r\n".indexOf(json.charAt(position)) < 0) {
+      position++;
+    }
+    if (position == start) {
+      throw error("Expected a value");
+    }
+  }
+
+  /** Check that a single well-formed JSON value starts at the current position. */
+  private void checkValue() throws InvalidFormat {
+    skipWhitespace();
+    if (position == json.length()) {
+      throw error("Expected a value");
+    }
+
+    switch (json.charAt(position)) {
+      case '{':
+        position++;
+        if (!accept('}')) {
+          do {
+            skipWhitespace();
+            checkString();
+            expect(':');
+            checkValue();
+          } while (accept(','));
+          expect('}');
+        }
+        return;
+      case '[':
+        position++;
+        if (!accept(']')) {
+          do {
+            checkValue();
+          } while (accept(','));
+          expect(']');
+        }
+        return;
+      case '"':
+        checkString();
+        return;
+      case 't':
+        checkLiteral("true");
+        return;
+      case 'f':
+        checkLiteral("false");
+        return;
+      case 'n':
+        checkLiteral("null");
+        return;
+      default:
+        checkNumber();
+    }
+  }
+
+  private void checkString() throws InvalidFormat {
+    if (position == json.length() || json.charAt(position) != '"') {
+      throw error("Expected \"");
+    }
+    position++;
+    while (position < json.length()) {
+      char c = json.charAt(position++);
+      if (c == '"') {
+        return;
+      }
+      if (c < 0x20) {
+        throw error("Unescaped control character");
+      }
+      if (c == '\\') {
+        if (position == json.length()) {
+          break;
+        }
+        char escaped = json.charAt(position++);
+        if (escaped == 'u') {
+          for (int i = 0; i < 4; i++) {
+            if (position == json.length() || Character.digit(json.charAt(position++), 16) < 0) {
+              throw error("Invalid escape");
+            }
+          }
+        } else if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+          throw error("Invalid escape");
+        }
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private void checkLiteral(String literal) throws InvalidFormat {
+    if (!json.startsWith(literal, position)) {
+      throw error("Expected " + literal);
+    }
+    position += literal.length();
+  }
+
+  private void checkNumber() throws InvalidFormat {
+    acceptChar('-');
+    if (!acceptChar('0') && skipDigits() == 0) {
+      throw error("Expected a value");
+    }
+    if (acceptChar('.') && skipDigits() == 0) {
+      throw error("Invalid number");
+    }
+    if (acceptChar('e') || acceptChar('E')) {
+      if (!acceptChar('+')) {
+        acceptChar('-');
+      }
+      if (skipDigits() == 0) {
+        throw error("Invalid number");
+      }
+    }
+  }
+
+  private int skipDigits() {
+    int start = position;
+    while (position < json.length() && json.charAt(position) >= '0'
+        && json.charAt(position) <= '9') {
+      position++;
+    }
+    return position - start;
+  }
+
+  /** Like {@link #accept(char)}, but without skipping whitespace first. */
+  private boolean acceptChar(char c) {
+    if (position < json.length() && json.charAt(position) == c) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private String readString() throws InvalidFormat {
+    expect('"');
+    int start = position;
+
+    // strings without escapes, such as schemas and keys, are copied in one go
+    while (position < json.length()) {
+      char c = json.charAt(position);
+      if (c == '"') {
+        return json.substring(start, position++);
+      }
+      if (c == '\\') {
+        break;
+      }
+      position++;
+    }
+
+    StringBuilder value = new StringBuilder(json.substring(start, position));
+    while (position < json.length()) {
+      char c = json.charAt(position++);
+      if (c == '"') {
+        return value.toString();
+      }
+      if (c != '\\') {
+        value.append(c);
+        continue;
+      }
+      if (position == json.length()) {
+        break;
+      }
+      char escaped = json.charAt(position++);
+      switch (escaped) {
+        case 'b':
+          value.append('\b');
+          break;
+        case 'f':
+          value.append('\f');
+          break;
+        case 'n':
+          value.append('\n');
+          break;
+        case 'r':
+          value.append('\r');
+          break;
+        case 't':
+          value.append('\t');
+          break;
+        case 'u':
+          if (position + 4 > json.length()) {
+            throw error("Invalid escape");
+          }
+          try {
+            value.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+          } catch (NumberFormatException exc) {
+            throw error("Invalid escape");
+          }
+          position += 4;
+          break;
+        default:
+          value.append(escaped);
+      }
+    }
+    throw error("Unterminated string");
+  }
+
+  private void skipWhitespace() {
+    while (position < json.length() && " \t\r\n".indexOf(json.charAt(position)) >= 0) {
+      position++;
+    }
+  }
+
+  private boolean accept(char c) {
+    skipWhitespace();
+    if (position < json.length() && json.charAt(position) == c) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private void expect(char c) throws InvalidFormat {
+    if (!accept(c)) {
+      throw error("Expected " + c);
+    }
+  }
+
+  private InvalidFormat error(String message) {
+    return new InvalidFormat(String.format("%s at position %s", message, position));
+  }
+
+  /**
+   * An entity found by the scanner: its schema, and the ranges of the text of the contexts JSON
+   * holding the entity and its data.
+   */
+  public static final class Entry {
+
+    private final String json;
+    private final int start;
+    private final int end;
+    private final SchemaKey schema;
+    private final int dataStart;
+    private final int dataEnd;
+
+    Entry(String json, int start, int end, SchemaKey schema, int dataStart, int dataEnd) {
+      this.json = json;
+      this.start = start;
+      this.end = end;
+      this.schema = schema;
+      this.dataStart = dataStart;
+      this.dataEnd = dataEnd;
+    }
+
+    public SchemaKey schema() {
+      return schema;
+    }
+
+    /** @return the position of the entity's opening brace in the contexts JSON */
+    public int start() {
+      return start;
+    }
+
+    /** @return the position just past the entity's closing brace in the contexts JSON */
+    public int end() {
+      return end;
+    }
+
+    /**
+     * @return the position of the first character of the entity's data in the contexts JSON,
+     *     or -1 if the entity has no data
+     */
+    public int dataStart() {
+      return dataStart;
+    }
+
+    /** @return the position just past the entity's data in the contexts JSON, or -1 */
+    public int dataEnd() {
+      return dataEnd;
+    }
+
+    /**
+     * Check the entity's data against the JSON grammar, without parsing it into a tree. The
+     * scan itself only matches brackets, so this is needed before copying data which has not
+     * otherwise been parsed.
+     *
+     * @return true if the entity has no data or its data is a single well-formed JSON value
+     */
+    public boolean hasValidData() {
+      if (dataStart < 0) {
+        return true;
+      }
+      ContextScanner scanner = new ContextScanner(json);
+      scanner.position = dataStart;
+      try {
+        scanner.checkValue();
+      } catch (InvalidFormat exc) {
+        return false;
+      }
+      return scanner.position == dataEnd;
+    }
+
+    /** @return the whole contexts JSON in which the entity was found */
+    public String source() {
+      return json;
+    }
+
+    /** @return the text of the entity */
+    public String json() {
+      return json.substring(start, end);
+    }
+
+    /**
+     * Parse the entity.
+     *
+     * @throws IllegalArgumentException if the entity is not valid self-describing JSON
+     */
+    public SelfDescribing<JsonObject> decode() {
+      return SelfDescribing.fromJson(json());
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Entry{%s, %s-%s}", schema.igluKey(), start, end);
+    }
+  }
+
+  public static class InvalidFormat extends Exception {
+    InvalidFormat(String message) {
+      super(message);
+    }
+  }
+}
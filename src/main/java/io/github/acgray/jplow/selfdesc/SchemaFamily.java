@@ -0,0 +1,78 @@
+package io.github.acgray.jplow.selfdesc;
+
+import java.io.Serializable;
+
+/**
+ * The vendor, name and major version of a schema: the part of a {@link SchemaKey} which every
+ * {@link SchemaPattern} matches exactly, and which identifies a family of compatible schemas.
+ * <p>
+ * Families are used as hash keys, so that the schemas matching a pattern are found with one
+ * lookup rather than by comparing every schema with it.
+ */
+public final class SchemaFamily implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String vendor;
+  private final String name;
+  private final int major;
+  private final int hash;
+
+  private SchemaFamily(String vendor, String name, int major) {
+    this.vendor = vendor;
+    this.name = name;
+    this.major = major;
+    this.hash = (vendor.hashCode() * 31 + name.hashCode()) * 31 + major;
+  }
+
+  public static SchemaFamily of(String vendor, String name, int major) {
+    return new SchemaFamily(vendor, name, major);
+  }
+
+  /** @return the family of a schema */
+  public static SchemaFamily of(SchemaKey schema) {
+    return new SchemaFamily(schema.vendor(), schema.name(), schema.version().major());
+  }
+
+  /** @return the family of the schemas a pattern can match */
+  public static SchemaFamily of(SchemaPattern pattern) {
+    return new SchemaFamily(pattern.vendor(), pattern.name(), pattern.major());
+  }
+
+  public String vendor() {
+    return vendor;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public int major() {
+    return major;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof SchemaFamily)) {
+      return false;
+    }
+    SchemaFamily family = (SchemaFamily) other;
+    return hash == family.hash
+        && major == family.major
+        && name.equals(family.name)
+        && vendor.equals(family.vendor);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("SchemaFamily{%s/%s/%s}", vendor, name, major);
+  }
+}
@@ -0,0 +1,115 @@
+package io.github.acgray.jplow.selfdesc;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small dense integer IDs for the schemas and {@link SchemaFamily schema families} seen by this
+ * process.
+ * <p>
+ * IDs are assigned in order of first use, starting from 0, and never change or get reused, so
+ * they can index arrays and bitsets: the contexts of an event can be summarized as the IDs of
+ * their schemas and a bitset of their families, and the question of whether an event carries a
+ * family becomes a single bit test. IDs are only meaningful within the process that assigned
+ * them and must not be stored.
+ * <p>
+ * Since IDs are never released, they are only assigned when a summary is asked for, e.g. by
+ * {@link io.github.acgray.jplow.value.SnowplowEvent#contextSchemaIds()} or a batch, and not when
+ * the contexts of an event are merely looked up.
+ * <p>
+ * Looking up an ID which has already been assigned does not lock.
+ */
+public final class SchemaIds {
+
+  private static final Map<SchemaKey, Integer> SCHEMA_IDS = new ConcurrentHashMap<>();
+  private static final Map<SchemaFamily, Integer> FAMILY_IDS = new ConcurrentHashMap<>();
+
+  // indexed by ID, replaced when grown; an ID is only published once its entries are written
+  private static volatile SchemaKey[] schemas = new SchemaKey[64];
+  private static volatile int[] familiesOfSchemas = new int[64];
+  private static volatile SchemaFamily[] families = new SchemaFamily[64];
+
+  private static int schemaCount;
+  private static int familyCount;
+
+  private SchemaIds() {}
+
+  /** @return the ID of a schema, assigning it if the schema has not been seen before */
+  public static int schemaId(SchemaKey schema) {
+    Integer id = SCHEMA_IDS.get(schema);
+    return id != null ? id : assignSchemaId(schema);
+  }
+
+  /** @return the ID of a family, assigning it if the family has not been seen before */
+  public static int familyId(SchemaFamily family) {
+    Integer id = FAMILY_IDS.get(family);
+    return id != null ? id : assignFamilyId(family);
+  }
+
+  /** @return the ID of a family, or -1 if no schema of the family has been given an ID */
+  public static int existingFamilyId(SchemaFamily family) {
+    Integer id = FAMILY_IDS.get(family);
+    return id != null ? id : -1;
+  }
+
+  /** @return the schema with an ID */
+  public static SchemaKey schema(int schemaId) {
+    checkId(schemaId, SCHEMA_IDS.size());
+    return schemas[schemaId];
+  }
+
+  /** @return the ID of the family of the schema with an ID */
+  public static int familyOf(int schemaId) {
+    checkId(schemaId, SCHEMA_IDS.size());
+    return familiesOfSchemas[schemaId];
+  }
+
+  /** @return the family with an ID */
+  public static SchemaFamily family(int familyId) {
+    checkId(familyId, FAMILY_IDS.size());
+    return families[familyId];
+  }
+
+  /** @return the number of schema IDs assigned so far, which bounds every schema ID */
+  public static int schemaCount() {
+    return SCHEMA_IDS.size();
+  }
+
+  private static synchronized int assignSchemaId(SchemaKey schema) {
+    Integer existing = SCHEMA_IDS.get(schema);
+    if (existing != null) {
+      return existing;
+    }
+    int family = familyId(SchemaFamily.of(schema));
+    int id = schemaCount++;
+    if (id == schemas.length) {
+      familiesOfSchemas = Arrays.copyOf(familiesOfSchemas, id * 2);
+      schemas = Arrays.copyOf(schemas, id * 2);
+    }
+    familiesOfSchemas[id] = family;
+    schemas[id] = schema;
+    SCHEMA_IDS.put(schema, id);
+    return id;
+  }
+
+  private static synchronized int assignFamilyId(SchemaFamily family) {
+    Integer existing = FAMILY_IDS.get(family);
+    if (existing != null) {
+      return existing;
+    }
+    int id = familyCount++;
+    if (id == families.length) {
+      families = Arrays.copyOf(families, id * 2);
+    }
+    families[id] = family;
+    FAMILY_IDS.put(family, id);
+    return id;
+  }
+
+  private static void checkId(int id, int count) {
+    if (id < 0 || id >= count) {
+      throw new IllegalArgumentException("Unknown ID: " + id);
+    }
+  }
+}
@@ -8,8 +8,6 @@ import org.immutables.value.Value;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Value representation of an iglu schema reference. Iglu schema references have the format:
@@ -23,31 +21,98 @@ import java.util.regex.Pattern;
 @Value.Immutable
 public abstract class SchemaKey implements Serializable {
 
+  private static final String IGLU_PREFIX = "iglu:";
+
   public static ImmutableSchemaKey.Builder builder() {
     return ImmutableSchemaKey.builder();
   }
 
   public static SchemaKey fromString(String s) throws InvalidFormat {
-    Pattern p = Pattern.compile("iglu:(.*)/([a-zA-Z0-9_\\-]+)/([a-z]+)/([\\d\\-]+)$");
+    return parse(s, 0, s.length());
+  }
+
+  /**
+   * Create a SchemaKey from a range of characters holding an iglu schema reference, such as
+   * part of a JSON buffer, without copying them. References seen recently are returned from a
+   * bounded cache, so that the keys of the same schema share one instance.
+   *
+   * @param text the characters holding the reference
+   * @param start the index of its first character
+   * @param end the index after its last character
+   * @throws InvalidFormat when the range is not an iglu schema reference
+   */
+  public static SchemaKey parse(CharSequence text, int start, int end) throws InvalidFormat {
+    SchemaKey key = SchemaKeyCache.INSTANCE.get(text, start, end);
+    if (key == null) {
+      key = parseUncached(text, start, end);
+      SchemaKeyCache.INSTANCE.put(text, start, end, key);
+    }
+    return key;
+  }
+
+  private static SchemaKey parseUncached(CharSequence text, int start, int end)
+      throws InvalidFormat {
+    int vendorStart = start + IGLU_PREFIX.length();
+    if (end < vendorStart || !regionMatches(text, start, IGLU_PREFIX)) {
+      throw new InvalidFormat();
+    }
 
-    Matcher m = p.matcher(s);
+    // the vendor may itself contain slashes, so the other parts are found from the end
+    int versionSlash = lastIndexOf(text, '/', vendorStart, end);
+    int formatSlash = lastIndexOf(text, '/', vendorStart, versionSlash);
+    int nameSlash = lastIndexOf(text, '/', vendorStart, formatSlash);
+    if (nameSlash < 0) {
+      throw new InvalidFormat();
+    }
 
-    if (!m.matches()) {
+    for (int i = nameSlash + 1; i < formatSlash; i++) {
+      char c = text.charAt(i);
+      if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+          || c == '_' || c == '-')) {
+        throw new InvalidFormat();
+      }
+    }
+    for (int i = formatSlash + 1; i < versionSlash; i++) {
+      char c = text.charAt(i);
+      if (c < 'a' || c > 'z') {
+        throw new InvalidFormat();
+      }
+    }
+    if (formatSlash - nameSlash == 1 || versionSlash - formatSlash == 1) {
       throw new InvalidFormat();
     }
 
     try {
       return ImmutableSchemaKey.builder()
-          .vendor(m.group(1))
-          .name(m.group(2))
-          .format(m.group(3))
-          .version(SchemaVer.fromString(m.group(4)))
+          .vendor(text.subSequence(vendorStart, nameSlash).toString())
+          .name(text.subSequence(nameSlash + 1, formatSlash).toString())
+          .format(text.subSequence(formatSlash + 1, versionSlash).toString())
+          .version(SchemaVer.parse(text, versionSlash + 1, end))
           .build();
     } catch (SchemaVer.InvalidFormat exc) {
       throw new InvalidFormat();
     }
   }
 
+  private static boolean regionMatches(CharSequence text, int start, String prefix) {
+    for (int i = 0; i < prefix.length(); i++) {
+      if (text.charAt(start + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return the index of the last c in the range, or -1 if there is none */
+  private static int lastIndexOf(CharSequence text, char c, int start, int end) {
+    for (int i = end - 1; i >= start; i--) {
+      if (text.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   public abstract String vendor();;
 
   public abstract SchemaVer version();
@@ -63,21 +128,26 @@ public abstract class SchemaKey implements Serializable {
     return String.format("SchemaKey{%s}", igluKey());
   }
 
+  /** @return the iglu schema reference of this key, built once per instance */
+  @Value.Lazy
   public String igluKey() {
-    return String.format(
-      "iglu:%s/%s/%s/%s",
-      vendor(),
-      name(),
-      format(),
-      version());
+    return new StringBuilder(IGLU_PREFIX)
+        .append(vendor()).append('/')
+        .append(name()).append('/')
+        .append(format()).append('/')
+        .append(version())
+        .toString();
   }
 
+  /** @return the name of the table into which this schema is shredded, built once per instance */
+  @Value.Lazy
   public String tableName() {
-    return String.format(
-      "%s_%s_%d",
-      vendor().replace(".", "_"),
-      name(),
-      version().major());
+    return vendor().replace('.', '_') + '_' + name() + '_' + version().major();
+  }
+
+  /** Replaces this key in Java serialization by its compact binary form. */
+  protected Object writeReplace() {
+    return new SchemaKeyCodec.Serialized(this);
   }
 
   public static class InvalidFormat extends Exception {}
@@ -0,0 +1,64 @@
+package io.github.acgray.jplow.selfdesc;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded cache of canonical {@link SchemaKey} instances, looked up by the text of their iglu
+ * schema references.
+ * <p>
+ * Events carry the same few schemas over and over, so parsing each reference anew allocates
+ * thousands of identical keys per second. The cache is direct-mapped: each reference hashes to
+ * a single slot, a lookup compares the text with the iglu key of the instance in that slot, and
+ * a colliding reference replaces it. Lookups neither lock nor allocate, and the number of
+ * cached keys never exceeds the number of slots.
+ */
+final class SchemaKeyCache {
+
+  /** Number of slots, a power of two. */
+  private static final int SIZE = 1024;
+
+  static final SchemaKeyCache INSTANCE = new SchemaKeyCache();
+
+  private final AtomicReferenceArray<SchemaKey> slots = new AtomicReferenceArray<>(SIZE);
+
+  private SchemaKeyCache() {}
+
+  /** @return the cached key whose iglu key is the range of text, or null if there is none */
+  @Nullable
+  SchemaKey get(CharSequence text, int start, int end) {
+    SchemaKey key = slots.get(slot(text, start, end));
+    return key != null && contentEquals(key.igluKey(), text, start, end) ? key : null;
+  }
+
+  /**
+   * Cache a key parsed from a range of text, unless the text is not in canonical form, e.g.
+   * has leading zeros in its version.
+   */
+  void put(CharSequence text, int start, int end, SchemaKey key) {
+    if (contentEquals(key.igluKey(), text, start, end)) {
+      slots.set(slot(text, start, end), key);
+    }
+  }
+
+  private static int slot(CharSequence text, int start, int end) {
+    // the same hash as String.hashCode, spread over the low bits
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+    return (hash ^ (hash >>> 16)) & (SIZE - 1);
+  }
+
+  private static boolean contentEquals(String value, CharSequence text, int start, int end) {
+    if (value.length() != end - start) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) != text.charAt(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,58 @@
+package io.github.acgray.jplow.selfdesc;
+
+import io.github.acgray.jplow.codec.BinaryCodec;
+import io.github.acgray.jplow.codec.BinaryDecoder;
+import io.github.acgray.jplow.codec.BinaryEncoder;
+import io.github.acgray.jplow.codec.SerializedForm;
+
+/**
+ * Binary format of a {@link SchemaKey}: its vendor, name and format as strings followed by the
+ * three parts of its version as varints.
+ */
+public final class SchemaKeyCodec extends BinaryCodec<SchemaKey> {
+
+  public static final SchemaKeyCodec INSTANCE = new SchemaKeyCodec();
+
+  private SchemaKeyCodec() {}
+
+  @Override
+  public void write(SchemaKey key, BinaryEncoder out) {
+    out.writeString(key.vendor());
+    out.writeString(key.name());
+    out.writeString(key.format());
+    SchemaVer version = key.version();
+    out.writeVarInt(version.major());
+    out.writeVarInt(version.minor());
+    out.writeVarInt(version.addition());
+  }
+
+  @Override
+  public SchemaKey read(BinaryDecoder in) throws InvalidFormat {
+    return SchemaKey.builder()
+        .vendor(in.readString())
+        .name(in.readString())
+        .format(in.readString())
+        .version(ImmutableSchemaVer.builder()
+            .major(in.readVarInt())
+            .minor(in.readVarInt())
+            .addition(in.readVarInt())
+            .build())
+        .build();
+  }
+
+  static final class Serialized extends SerializedForm<SchemaKey> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Serialized() {}
+
+    Serialized(SchemaKey key) {
+      super(key);
+    }
+
+    @Override
+    protected BinaryCodec<SchemaKey> codec() {
+      return INSTANCE;
+    }
+  }
+}
@@ -41,6 +41,12 @@ public abstract class SchemaPattern {
   @Nullable
   public abstract Integer addition();
 
+  /** @return the family of the schemas this pattern can match, built once per instance */
+  @Value.Lazy
+  public SchemaFamily family() {
+    return SchemaFamily.of(this);
+  }
+
   public boolean matches(SchemaKey schema) {
     return schema.vendor().equals(vendor())
         && schema.name().equals(name())
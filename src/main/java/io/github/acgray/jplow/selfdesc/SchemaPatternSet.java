@@ -0,0 +1,202 @@
+package io.github.acgray.jplow.selfdesc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * A collection of {@link SchemaPattern}s compiled for matching schemas against all of them at
+ * once.
+ * <p>
+ * Each pattern is identified by its position in the collection it was compiled from. Patterns
+ * are grouped by their {@link SchemaFamily}, the vendor, name and major version which they
+ * always match exactly, and within a family by their optional minor version and addition. A
+ * schema is matched with a single hash probe for its family, followed by at most four lookups
+ * for the minor version and addition, whatever the number of patterns.
+ * <p>
+ * Sets are immutable and can be shared between threads.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * SchemaPatternSet routes = SchemaPatternSet.of(patterns);
+ * <p>
+ * for (SchemaKey schema : event.contextSchemas()) {
+ *   for (int id : routes.matches(schema)) {
+ *     sinks.get(id).accept(event);
+ *   }
+ * }
+ * </code>
+ */
+public final class SchemaPatternSet {
+
+  private static final int[] NONE = new int[0];
+
+  private final List<SchemaPattern> patterns;
+  private final Map<SchemaFamily, Family> families;
+
+  private SchemaPatternSet(List<SchemaPattern> patterns, Map<SchemaFamily, Family> families) {
+    this.patterns = patterns;
+    this.families = families;
+  }
+
+  /** Compile patterns, each identified by its position in the list. */
+  public static SchemaPatternSet of(List<SchemaPattern> patterns) {
+    Map<SchemaFamily, FamilyBuilder> builders = new HashMap<>();
+    for (int id = 0; id < patterns.size(); id++) {
+      SchemaPattern pattern = patterns.get(id);
+      builders.computeIfAbsent(pattern.family(), family -> new FamilyBuilder()).add(pattern, id);
+    }
+
+    Map<SchemaFamily, Family> families = new HashMap<>();
+    for (Map.Entry<SchemaFamily, FamilyBuilder> entry : builders.entrySet()) {
+      families.put(entry.getKey(), entry.getValue().build());
+    }
+    return new SchemaPatternSet(
+        Collections.unmodifiableList(new ArrayList<>(patterns)), families);
+  }
+
+  /** Compile patterns, each identified by its position among the arguments. */
+  public static SchemaPatternSet of(SchemaPattern... patterns) {
+    return of(Arrays.asList(patterns));
+  }
+
+  /** @return the number of patterns */
+  public int size() {
+    return patterns.size();
+  }
+
+  /** @return the pattern with an ID */
+  public SchemaPattern pattern(int id) {
+    return patterns.get(id);
+  }
+
+  /** @return the IDs of the patterns matching a schema, in ascending order */
+  public int[] matches(SchemaKey schema) {
+    Family family = families.get(SchemaFamily.of(schema));
+    if (family == null) {
+      return NONE;
+    }
+    SchemaVer version = schema.version();
+    int[] any = family.any;
+    int[] minor = family.minors.getOrDefault(version.minor(), NONE);
+    int[] addition = family.additions.getOrDefault(version.addition(), NONE);
+    int[] exact = family.exact.getOrDefault(versionKey(version), NONE);
+
+    int length = any.length + minor.length + addition.length + exact.length;
+    if (length == 0) {
+      return NONE;
+    }
+    int[] result = new int[length];
+    System.arraycopy(any, 0, result, 0, any.length);
+    System.arraycopy(minor, 0, result, any.length, minor.length);
+    System.arraycopy(addition, 0, result, any.length + minor.length, addition.length);
+    System.arraycopy(exact, 0, result, length - exact.length, exact.length);
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * Pass the IDs of the patterns matching a schema to a consumer, without building an array.
+   * The IDs are not in any particular order.
+   */
+  public void forEachMatch(SchemaKey schema, IntConsumer consumer) {
+    Family family = families.get(SchemaFamily.of(schema));
+    if (family == null) {
+      return;
+    }
+    SchemaVer version = schema.version();
+    forEach(family.any, consumer);
+    forEach(family.minors.getOrDefault(version.minor(), NONE), consumer);
+    forEach(family.additions.getOrDefault(version.addition(), NONE), consumer);
+    forEach(family.exact.getOrDefault(versionKey(version), NONE), consumer);
+  }
+
+  /** @return true if any pattern matches the schema */
+  public boolean matchesAny(SchemaKey schema) {
+    Family family = families.get(SchemaFamily.of(schema));
+    if (family == null) {
+      return false;
+    }
+    SchemaVer version = schema.version();
+    return family.any.length > 0
+        || family.minors.containsKey(version.minor())
+        || family.additions.containsKey(version.addition())
+        || family.exact.containsKey(versionKey(version));
+  }
+
+  private static void forEach(int[] ids, IntConsumer consumer) {
+    for (int id : ids) {
+      consumer.accept(id);
+    }
+  }
+
+  private static long versionKey(SchemaVer version) {
+    return versionKey(version.minor(), version.addition());
+  }
+
+  private static long versionKey(int minor, int addition) {
+    return ((long) minor << 32) | (addition & 0xffffffffL);
+  }
+
+  /** The patterns of one family, by which of the minor version and addition they fix. */
+  private static final class Family {
+    final int[] any;
+    final Map<Integer, int[]> minors;
+    final Map<Integer, int[]> additions;
+    final Map<Long, int[]> exact;
+
+    Family(
+        int[] any, Map<Integer, int[]> minors, Map<Integer, int[]> additions,
+        Map<Long, int[]> exact) {
+      this.any = any;
+      this.minors = minors;
+      this.additions = additions;
+      this.exact = exact;
+    }
+  }
+
+  private static final class FamilyBuilder {
+    final List<Integer> any = new ArrayList<>();
+    final Map<Integer, List<Integer>> minors = new HashMap<>();
+    final Map<Integer, List<Integer>> additions = new HashMap<>();
+    final Map<Long, List<Integer>> exact = new HashMap<>();
+
+    void add(SchemaPattern pattern, int id) {
+      Integer minor = pattern.minor();
+      Integer addition = pattern.addition();
+      if (minor == null && addition == null) {
+        any.add(id);
+      } else if (addition == null) {
+        minors.computeIfAbsent(minor, key -> new ArrayList<>()).add(id);
+      } else if (minor == null) {
+        additions.computeIfAbsent(addition, key -> new ArrayList<>()).add(id);
+      } else {
+        exact.computeIfAbsent(versionKey(minor, addition), key -> new ArrayList<>()).add(id);
+      }
+    }
+
+    Family build() {
+      return new Family(toArray(any), toArrays(minors), toArrays(additions), toArrays(exact));
+    }
+
+    private static <K> Map<K, int[]> toArrays(Map<K, List<Integer>> ids) {
+      if (ids.isEmpty()) {
+        return Collections.emptyMap();
+      }
+      Map<K, int[]> result = new HashMap<>();
+      for (Map.Entry<K, List<Integer>> entry : ids.entrySet()) {
+        result.put(entry.getKey(), toArray(entry.getValue()));
+      }
+      return result;
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+      return ids.isEmpty() ? NONE : ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package io.github.acgray.jplow.selfdesc;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.github.acgray.jplow.codec.JplowCodecs;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The classes into which the data of self-describing JSON is decoded, chosen by schema.
+ * <p>
+ * Each class is registered for a {@link SchemaPattern}, optionally with a
+ * {@link TypeAdapterFactory} for it, e.g. one generated by Immutables. When self-describing
+ * JSON is read, its <code>schema</code> is looked up by a single hash probe on its
+ * {@link SchemaFamily}, and its <code>data</code> is streamed straight into the registered
+ * class, without first being built into a <code>JsonObject</code>. Data whose schema has no
+ * registered class is read as a <code>JsonObject</code>.
+ * <p>
+ * When several patterns of a family match a schema, the most specific one wins: patterns with
+ * an addition before those with only a minor version, before those with only a major version.
+ * Registries are immutable and can be shared between threads.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * SchemaRegistry registry = SchemaRegistry.builder()
+ *     .register(PAGE_CONTEXT_V1, PageContextV1.class, new GsonAdaptersPageContextV1())
+ *     .register(PRODUCT_V1, ProductV1.class, new GsonAdaptersProductV1())
+ *     .build();
+ * <p>
+ * for (SelfDescribing&lt;?&gt; context : event.contextObjects(registry)) {
+ *   if (context.data() instanceof ProductV1) {
+ *     ...
+ *   }
+ * }
+ * </code>
+ */
+public final class SchemaRegistry {
+
+  private static final Comparator<Registration> MOST_SPECIFIC_FIRST =
+      Comparator.comparingInt(registration -> -registration.specificity());
+
+  private final Map<SchemaFamily, Registration[]> registrations;
+
+  private SchemaRegistry(Map<SchemaFamily, Registration[]> registrations) {
+    this.registrations = registrations;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** @return the class registered for a schema, or null if there is none */
+  @Nullable
+  public Class<?> typeFor(SchemaKey schema) {
+    Registration registration = lookup(schema);
+    return registration == null ? null : registration.type;
+  }
+
+  /**
+   * Parse self-describing JSON, decoding its data into the class registered for its schema.
+   *
+   * @throws IllegalArgumentException if the JSON is not valid self-describing JSON, or its data
+   *     cannot be decoded into the registered class
+   */
+  public SelfDescribing<?> fromJson(String json) {
+    try {
+      JsonReader in = new JsonReader(new StringReader(json));
+      SelfDescribing<?> result = read(in);
+      if (in.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonParseException("Unexpected content after the end of the object");
+      }
+      return result;
+    } catch (IOException | RuntimeException exc) {
+      throw new IllegalArgumentException(
+          String.format("Invalid self describing json: %s", json), exc);
+    }
+  }
+
+  /**
+   * Read self-describing JSON, decoding its data into the class registered for its schema. If
+   * the data comes before the schema, it is first read as a tree.
+   *
+   * @throws JsonParseException if the object has no schema or no data
+   */
+  public SelfDescribing<?> read(JsonReader in) throws IOException {
+    JplowCodecs codecs = JplowCodecs.defaults();
+    SchemaKey schema = null;
+    Object data = null;
+    JsonElement pending = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      String name = in.nextName();
+      if (name.equals("schema")) {
+        schema = codecs.adapter(SchemaKey.class).read(in);
+      } else if (name.equals("data")) {
+        if (schema != null) {
+          data = adapterFor(schema).read(in);
+        } else {
+          pending = codecs.adapter(JsonElement.class).read(in);
+        }
+      } else {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+
+    if (schema == null) {
+      throw new JsonParseException("Self describing json without a schema");
+    }
+    if (pending != null) {
+      data = adapterFor(schema).fromJsonTree(pending);
+    }
+    if (data == null) {
+      throw new JsonParseException("Self describing json without data: " + schema.igluKey());
+    }
+    return ImmutableSelfDescribing.builder().schema(schema).data(data).build();
+  }
+
+  /**
+   * Convert already parsed self-describing JSON into the class registered for its schema.
+   *
+   * @return the converted value, or the value itself if no class is registered for its schema
+   */
+  public SelfDescribing<?> convert(SelfDescribing<JsonObject> value) {
+    Registration registration = lookup(value.schema());
+    if (registration == null) {
+      return value;
+    }
+    return ImmutableSelfDescribing.builder()
+        .schema(value.schema())
+        .data(registration.adapter().fromJsonTree(value.data()))
+        .build();
+  }
+
+  private TypeAdapter<?> adapterFor(SchemaKey schema) {
+    Registration registration = lookup(schema);
+    return registration == null
+        ? JplowCodecs.defaults().adapter(JsonObject.class)
+        : registration.adapter();
+  }
+
+  @Nullable
+  private Registration lookup(SchemaKey schema) {
+    Registration[] candidates = registrations.get(SchemaFamily.of(schema));
+    if (candidates != null) {
+      for (Registration registration : candidates) {
+        if (registration.pattern.matches(schema)) {
+          return registration;
+        }
+      }
+    }
+    return null;
+  }
+
+  /** A class registered for a pattern, and the codecs with which to decode it. */
+  private static final class Registration {
+    final SchemaPattern pattern;
+    final Class<?> type;
+    final JplowCodecs codecs;
+
+    Registration(SchemaPattern pattern, Class<?> type, JplowCodecs codecs) {
+      this.pattern = pattern;
+      this.type = type;
+      this.codecs = codecs;
+    }
+
+    int specificity() {
+      return pattern.addition() != null ? 2 : pattern.minor() != null ? 1 : 0;
+    }
+
+    TypeAdapter<?> adapter() {
+      return codecs.adapter(type);
+    }
+  }
+
+  public static final class Builder {
+
+    private final Map<SchemaFamily, List<Registration>> registrations = new HashMap<>();
+
+    private Builder() {}
+
+    /** Register a class, decoded with the {@link JplowCodecs#defaults() default codecs}. */
+    public Builder register(SchemaPattern pattern, Class<?> type) {
+      return register(pattern, type, null);
+    }
+
+    /** Register a class, decoded with the default codecs and a factory, which takes precedence. */
+    public Builder register(
+        SchemaPattern pattern, Class<?> type, @Nullable TypeAdapterFactory typeAdapterFactory) {
+      JplowCodecs codecs = typeAdapterFactory == null
+          ? JplowCodecs.defaults()
+          : JplowCodecs.defaults().with(typeAdapterFactory);
+      registrations
+          .computeIfAbsent(SchemaFamily.of(pattern), family -> new ArrayList<>())
+          .add(new Registration(pattern, type, codecs));
+      return this;
+    }
+
+    public SchemaRegistry build() {
+      Map<SchemaFamily, Registration[]> result = new HashMap<>();
+      for (Map.Entry<SchemaFamily, List<Registration>> entry : registrations.entrySet()) {
+        List<Registration> family = new ArrayList<>(entry.getValue());
+        family.sort(MOST_SPECIFIC_FIRST);
+        result.put(entry.getKey(), family.toArray(new Registration[0]));
+      }
+      return new SchemaRegistry(result);
+    }
+  }
+}
@@ -3,8 +3,6 @@ package io.github.acgray.jplow.selfdesc;
 import org.immutables.value.Value;
 
 import java.io.Serializable;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Value representation of a SchemaVer value
@@ -31,17 +29,50 @@ public abstract class SchemaVer implements Comparable<SchemaVer>, Serializable {
    * @throws InvalidFormat when the input does not match the expected format
    */
   public static SchemaVer fromString(String schemaVer) throws InvalidFormat {
-    Pattern p = Pattern.compile("^(\\d+)-(\\d+)-(\\d+)$");
-    Matcher m = p.matcher(schemaVer);
-    if (m.matches()) {
-      return ImmutableSchemaVer.builder()
-          .major(Integer.valueOf(m.group(1)))
-          .minor(Integer.valueOf(m.group(2)))
-          .addition(Integer.valueOf(m.group(3)))
-          .build();
-    } else {
+    return parse(schemaVer, 0, schemaVer.length());
+  }
+
+  /**
+   * Create a SchemaVer instance from a range of characters, such as part of an iglu schema
+   * reference, without copying them.
+   *
+   * @param text the characters holding the SchemaVer representation
+   * @param start the index of its first character
+   * @param end the index after its last character
+   * @return an instance representing the provided value
+   * @throws InvalidFormat when the range does not match the expected format
+   */
+  public static SchemaVer parse(CharSequence text, int start, int end) throws InvalidFormat {
+    int[] parts = new int[3];
+    int position = start;
+    for (int part = 0; part < 3; part++) {
+      if (part > 0) {
+        if (position == end || text.charAt(position) != '-') {
+          throw new InvalidFormat();
+        }
+        position++;
+      }
+      int digitsStart = position;
+      long value = 0;
+      while (position < end && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+        value = value * 10 + (text.charAt(position++) - '0');
+        if (value > Integer.MAX_VALUE) {
+          throw new InvalidFormat();
+        }
+      }
+      if (position == digitsStart) {
+        throw new InvalidFormat();
+      }
+      parts[part] = (int) value;
+    }
+    if (position != end) {
       throw new InvalidFormat();
     }
+    return ImmutableSchemaVer.builder()
+        .major(parts[0])
+        .minor(parts[1])
+        .addition(parts[2])
+        .build();
   }
 
   /** @return the major version number l */
@@ -54,7 +85,7 @@ public abstract class SchemaVer implements Comparable<SchemaVer>, Serializable {
   public abstract int addition();
 
   public String toString() {
-    return String.format("%d-%d-%d", major(), minor(), addition());
+    return major() + "-" + minor() + "-" + addition();
   }
 
   private long numericRepr() {
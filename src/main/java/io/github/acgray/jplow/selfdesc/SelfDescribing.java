@@ -1,16 +1,17 @@
 package io.github.acgray.jplow.selfdesc;
 
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapterFactory;
+import io.github.acgray.jplow.codec.JplowCodecs;
 import org.immutables.gson.Gson;
 import org.immutables.value.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
-import java.util.ServiceLoader;
 
 /**
  * Wrapper around a value object holding its self-describing schema, allowing objects to be
@@ -30,18 +31,7 @@ public abstract class SelfDescribing<T> implements Serializable {
 
   public static <T> SelfDescribing<T> fromJson(
       String json, Class<T> wrappedType, TypeAdapterFactory typeAdapterFactory) {
-    GsonBuilder gsonBuilder = new GsonBuilder();
-
-    for (TypeAdapterFactory factory : ServiceLoader.load(TypeAdapterFactory.class)) {
-      gsonBuilder.registerTypeAdapterFactory(factory);
-    }
-
-    if (typeAdapterFactory != null) {
-      gsonBuilder.registerTypeAdapterFactory(typeAdapterFactory);
-    }
-
-    com.google.gson.Gson gson =
-        gsonBuilder.registerTypeAdapter(SchemaKey.class, new SchemaKey.GsonTypeAdapter()).create();
+    com.google.gson.Gson gson = codecs(typeAdapterFactory).gson();
 
     try {
 
@@ -66,15 +56,7 @@ public abstract class SelfDescribing<T> implements Serializable {
 
   public static <T> SelfDescribing<T> fromJsonObject(
       JsonObject object, Class<T> dataType, TypeAdapterFactory typeAdapterFactory) {
-
-    GsonBuilder gsonBuilder = new GsonBuilder();
-
-    if (typeAdapterFactory != null) {
-      gsonBuilder.registerTypeAdapterFactory(typeAdapterFactory);
-    }
-
-    com.google.gson.Gson gson =
-        gsonBuilder.registerTypeAdapter(SchemaKey.class, new SchemaKey.GsonTypeAdapter()).create();
+    com.google.gson.Gson gson = codecs(typeAdapterFactory).gson();
 
     SchemaKey schema = gson.fromJson(object.get("schema"), SchemaKey.class);
     T data = gson.fromJson(object.get("data"), dataType);
@@ -90,16 +72,38 @@ public abstract class SelfDescribing<T> implements Serializable {
 
   public abstract T data();
 
+  /**
+   * Convert the data of this value to another type, keeping its schema.
+   * <p>
+   * JSON data is decoded straight into the target type, and other data is first converted to
+   * a JSON tree. The type adapter for each pair of target type and factory is looked up once
+   * and cached, as described in {@link JplowCodecs#with(TypeAdapterFactory...)}.
+   *
+   * @param typeAdapterFactory an additional factory for the target type, or null
+   *
+   * @see JplowCodecs#with(TypeAdapterFactory...)
+   */
   public <U> SelfDescribing<U> as(Class<U> targetType, TypeAdapterFactory typeAdapterFactory) {
-    return SelfDescribing.fromJsonObject(this.toJsonObject(), targetType, typeAdapterFactory);
+    JplowCodecs codecs = codecs(typeAdapterFactory);
+    T data = data();
+    JsonElement tree = data instanceof JsonElement
+        ? (JsonElement) data
+        : codecs.gson().toJsonTree(data);
+
+    return ImmutableSelfDescribing.<U>builder()
+        .schema(schema())
+        .data(codecs.adapter(targetType).fromJsonTree(tree))
+        .build();
   }
 
-  private JsonObject toJsonObject() {
-    com.google.gson.Gson gson =
-        new GsonBuilder()
-            .registerTypeAdapter(SchemaKey.class, new SchemaKey.GsonTypeAdapter())
-            .create();
+  /** Replaces this value in Java serialization by its compact binary form. */
+  protected Object writeReplace() {
+    return new SelfDescribingCodec.Serialized(this);
+  }
 
-    return gson.toJsonTree(this).getAsJsonObject();
+  private static JplowCodecs codecs(@Nullable TypeAdapterFactory typeAdapterFactory) {
+    return typeAdapterFactory == null
+        ? JplowCodecs.defaults()
+        : JplowCodecs.defaults().with(typeAdapterFactory);
   }
 }
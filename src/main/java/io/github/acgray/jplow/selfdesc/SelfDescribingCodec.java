@@ -0,0 +1,115 @@
+package io.github.acgray.jplow.selfdesc;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import io.github.acgray.jplow.codec.BinaryCodec;
+import io.github.acgray.jplow.codec.BinaryDecoder;
+import io.github.acgray.jplow.codec.BinaryEncoder;
+import io.github.acgray.jplow.codec.SerializedForm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Binary format of a {@link SelfDescribing} value: its schema as written by
+ * {@link SchemaKeyCodec}, followed by its data.
+ * <p>
+ * Data held as JSON, e.g. the contexts of an event, is written as compact JSON text and read
+ * back as the same kind of {@link JsonElement}. Any other data must be {@link Serializable} and
+ * is written with Java serialization.
+ */
+public final class SelfDescribingCodec extends BinaryCodec<SelfDescribing<?>> {
+
+  public static final SelfDescribingCodec INSTANCE = new SelfDescribingCodec();
+
+  private static final int JSON_DATA = 0;
+  private static final int SERIALIZED_DATA = 1;
+
+  private SelfDescribingCodec() {}
+
+  /**
+   * @throws IllegalArgumentException if the data is neither JSON nor {@link Serializable}
+   */
+  @Override
+  public void write(SelfDescribing<?> value, BinaryEncoder out) {
+    SchemaKeyCodec.INSTANCE.write(value.schema(), out);
+
+    Object data = value.data();
+    if (data instanceof JsonElement) {
+      out.writeByte(JSON_DATA);
+      out.writeString(data.toString());
+    } else if (data instanceof Serializable) {
+      byte[] bytes = serialize(data);
+      out.writeByte(SERIALIZED_DATA);
+      out.writeVarInt(bytes.length);
+      out.writeBytes(bytes, 0, bytes.length);
+    } else {
+      throw new IllegalArgumentException(
+          "Data is neither JSON nor serializable: " + data.getClass().getName());
+    }
+  }
+
+  @Override
+  public SelfDescribing<?> read(BinaryDecoder in) throws InvalidFormat {
+    SchemaKey schema = SchemaKeyCodec.INSTANCE.read(in);
+
+    Object data;
+    int kind = in.readByte();
+    switch (kind) {
+      case JSON_DATA:
+        String json = in.readString();
+        try {
+          data = new JsonParser().parse(json);
+        } catch (JsonParseException exc) {
+          throw new InvalidFormat("Invalid JSON data: " + json);
+        }
+        break;
+      case SERIALIZED_DATA:
+        data = deserialize(in.readBytes(in.readVarInt()));
+        break;
+      default:
+        throw new InvalidFormat("Unknown data kind: " + kind);
+    }
+
+    return SelfDescribing.<Object>builder().schema(schema).data(data).build();
+  }
+
+  private static byte[] serialize(Object data) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(data);
+    } catch (IOException exc) {
+      throw new IllegalArgumentException("Data could not be serialized", exc);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) throws InvalidFormat {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    } catch (IOException | ClassNotFoundException exc) {
+      throw new InvalidFormat("Data could not be deserialized: " + exc);
+    }
+  }
+
+  static final class Serialized extends SerializedForm<SelfDescribing<?>> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Serialized() {}
+
+    Serialized(SelfDescribing<?> value) {
+      super(value);
+    }
+
+    @Override
+    protected BinaryCodec<SelfDescribing<?>> codec() {
+      return INSTANCE;
+    }
+  }
+}
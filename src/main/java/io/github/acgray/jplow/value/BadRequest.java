@@ -1,9 +1,9 @@
 package io.github.acgray.jplow.value;
 
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.SerializedName;
+import io.github.acgray.jplow.codec.JplowCodecs;
 import io.github.acgray.jplow.snowplow.CollectorPayload;
 import org.apache.thrift.TDeserializer;
 import org.apache.thrift.TException;
@@ -31,13 +31,7 @@ public abstract class BadRequest implements Serializable {
   private static final Logger LOG = LoggerFactory.getLogger(BadRequest.class);
 
   public static BadRequest fromString(String s) {
-    com.google.gson.Gson gson =
-        new GsonBuilder()
-            .registerTypeAdapterFactory(new GsonAdaptersBadRequest())
-            .setDateFormat("yyyy-MM-dd'T'HH:mm:ssZ")
-            .create();
-
-    return gson.fromJson(s, BadRequest.class);
+    return JplowCodecs.defaults().gson().fromJson(s, BadRequest.class);
   }
 
   public abstract List<BadRequestError> errors();
@@ -70,7 +64,7 @@ public abstract class BadRequest implements Serializable {
   public List<TrackerProtocol> getRawEvents() throws NoEventsFound {
 
     CollectorPayload cp;
-    com.google.gson.Gson gson = new com.google.gson.Gson();
+    com.google.gson.Gson gson = JplowCodecs.defaults().gson();
 
     try {
       cp = this.deserializePayload();
@@ -98,6 +92,11 @@ public abstract class BadRequest implements Serializable {
     return rawEvents;
   }
 
+  /** Replaces this record in Java serialization by its compact binary form. */
+  protected Object writeReplace() {
+    return new BadRequestCodec.Serialized(this);
+  }
+
   /**
    * Thrown when the base64-encoded `line` parameter does not contain a valid CollectorPayload
    * thrift record.
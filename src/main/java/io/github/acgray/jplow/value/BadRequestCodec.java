@@ -0,0 +1,65 @@
+package io.github.acgray.jplow.value;
+
+import io.github.acgray.jplow.codec.BinaryCodec;
+import io.github.acgray.jplow.codec.BinaryDecoder;
+import io.github.acgray.jplow.codec.BinaryEncoder;
+import io.github.acgray.jplow.codec.SerializedForm;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Binary format of a {@link BadRequest}: the number of errors followed by the level and message
+ * of each, then the line as a string and the failure timestamp in milliseconds.
+ */
+public final class BadRequestCodec extends BinaryCodec<BadRequest> {
+
+  public static final BadRequestCodec INSTANCE = new BadRequestCodec();
+
+  private BadRequestCodec() {}
+
+  @Override
+  public void write(BadRequest request, BinaryEncoder out) {
+    out.writeVarInt(request.errors().size());
+    for (BadRequest.BadRequestError error : request.errors()) {
+      out.writeString(error.level());
+      out.writeString(error.message());
+    }
+    out.writeString(request.line());
+    out.writeSignedVarLong(request.failureTstamp().getTime());
+  }
+
+  @Override
+  public BadRequest read(BinaryDecoder in) throws InvalidFormat {
+    int count = in.readVarInt();
+    List<BadRequest.BadRequestError> errors = new ArrayList<>(Math.min(count, 16));
+    for (int i = 0; i < count; i++) {
+      errors.add(ImmutableBadRequestError.builder()
+          .level(in.readString())
+          .message(in.readString())
+          .build());
+    }
+    return ImmutableBadRequest.builder()
+        .errors(errors)
+        .line(in.readString())
+        .failureTstamp(new Date(in.readSignedVarLong()))
+        .build();
+  }
+
+  static final class Serialized extends SerializedForm<BadRequest> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Serialized() {}
+
+    Serialized(BadRequest request) {
+      super(request);
+    }
+
+    @Override
+    protected BinaryCodec<BadRequest> codec() {
+      return INSTANCE;
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package io.github.acgray.jplow.value;
+
+import com.google.gson.JsonObject;
+import io.github.acgray.jplow.selfdesc.ContextScanner;
+import io.github.acgray.jplow.selfdesc.SchemaFamily;
+import io.github.acgray.jplow.selfdesc.SchemaIds;
+import io.github.acgray.jplow.selfdesc.SchemaKey;
+import io.github.acgray.jplow.selfdesc.SchemaPattern;
+import io.github.acgray.jplow.selfdesc.SelfDescribing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The context entities of an event, indexed by the {@link SchemaFamily} of their schemas, so
+ * that looking up the contexts matching a {@link SchemaPattern} is a single hash lookup rather
+ * than a scan comparing every schema.
+ * <p>
+ * When built from the output of a {@link ContextScanner}, each entity is only parsed the first
+ * time it is returned by a lookup, and questions which only concern schemas, such as
+ * {@link #contains(SchemaPattern)}, parse nothing at all. The exception is a lenient index, in
+ * which {@link #contains(SchemaPattern)} parses the matching entities so that a malformed one
+ * counts as absent, as it does for {@link #first(SchemaPattern)} and {@link #all(SchemaPattern)}.
+ * <p>
+ * On request, the schemas are also summarized by their {@link SchemaIds}, with a bitset of the
+ * IDs of their families, for combining with those of other events. IDs are only assigned then,
+ * since each one is kept for the life of the process, so that events which are only queried do
+ * not add every schema they carry to {@link SchemaIds}. The summary covers every context, whether
+ * or not its data can be parsed.
+ */
+final class ContextIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ContextIndex.class);
+
+  private static final int[] NONE = new int[0];
+
+  private final SchemaKey[] schemas;
+  // assigned on demand; a race only looks the IDs up twice
+  @Nullable
+  private volatile int[] schemaIds;
+  @Nullable
+  private volatile BitSet families;
+  @Nullable
+  private final List<ContextScanner.Entry> entries;
+  // parsed entities, filled in on demand when built from scanned entries
+  private final SelfDescribing<?>[] decoded;
+  private final boolean lenient;
+  private final Map<SchemaFamily, int[]> positions = new HashMap<>();
+
+  private ContextIndex(
+      SchemaKey[] schemas, @Nullable List<ContextScanner.Entry> entries,
+      SelfDescribing<?>[] decoded, boolean lenient) {
+    this.schemas = schemas;
+    this.entries = entries;
+    this.decoded = decoded;
+    this.lenient = lenient;
+
+    for (int i = 0; i < schemas.length; i++) {
+      SchemaFamily family = SchemaFamily.of(schemas[i]);
+      int[] existing = positions.getOrDefault(family, NONE);
+      int[] updated = Arrays.copyOf(existing, existing.length + 1);
+      updated[existing.length] = i;
+      positions.put(family, updated);
+    }
+  }
+
+  /** Index contexts which have already been parsed. */
+  static ContextIndex of(List<SelfDescribing<JsonObject>> contexts) {
+    SchemaKey[] schemas = new SchemaKey[contexts.size()];
+    for (int i = 0; i < schemas.length; i++) {
+      schemas[i] = contexts.get(i).schema();
+    }
+    return new ContextIndex(schemas, null, contexts.toArray(new SelfDescribing<?>[0]), false);
+  }
+
+  /**
+   * Index scanned contexts, to be parsed on demand.
+   *
+   * @param lenient whether an entity which cannot be parsed is treated as absent, rather than
+   *     reported by an {@link IllegalArgumentException}
+   */
+  static ContextIndex scanned(List<ContextScanner.Entry> entries, boolean lenient) {
+    SchemaKey[] schemas = new SchemaKey[entries.size()];
+    for (int i = 0; i < schemas.length; i++) {
+      schemas[i] = entries.get(i).schema();
+    }
+    return new ContextIndex(schemas, entries, new SelfDescribing<?>[schemas.length], lenient);
+  }
+
+  /**
+   * @return true if any context matches the pattern. Unless the index is lenient, no context is
+   *     parsed, and a malformed context is reported by {@link #first(SchemaPattern)} rather than
+   *     here.
+   */
+  boolean contains(SchemaPattern pattern) {
+    int[] candidates = candidates(pattern);
+    if (candidates.length == 0) {
+      return false;
+    }
+    boolean parse = lenient && entries != null;
+    if (!parse && pattern.minor() == null && pattern.addition() == null) {
+      return true;
+    }
+    for (int i : candidates) {
+      if (matchesVersion(pattern, schemas[i]) && (!parse || get(i) != null)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the first context matching the pattern, or null if there is none */
+  @Nullable
+  SelfDescribing<JsonObject> first(SchemaPattern pattern) {
+    for (int i : candidates(pattern)) {
+      if (matchesVersion(pattern, schemas[i])) {
+        SelfDescribing<JsonObject> context = get(i);
+        if (context != null) {
+          return context;
+        }
+      }
+    }
+    return null;
+  }
+
+  /** @return every context matching the pattern, in order */
+  List<SelfDescribing<JsonObject>> all(SchemaPattern pattern) {
+    List<SelfDescribing<JsonObject>> result = null;
+    for (int i : candidates(pattern)) {
+      if (matchesVersion(pattern, schemas[i])) {
+        SelfDescribing<JsonObject> context = get(i);
+        if (context != null) {
+          if (result == null) {
+            result = new ArrayList<>(2);
+          }
+          result.add(context);
+        }
+      }
+    }
+    return result == null ? Collections.emptyList() : Collections.unmodifiableList(result);
+  }
+
+  /** @return the schema IDs of the contexts, in order, assigning any which are new */
+  int[] schemaIds() {
+    int[] ids = schemaIds;
+    if (ids == null) {
+      ids = new int[schemas.length];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = SchemaIds.schemaId(schemas[i]);
+      }
+      schemaIds = ids;
+    }
+    return ids.clone();
+  }
+
+  /** @return the set of the family IDs of the contexts, assigning any which are new */
+  BitSet families() {
+    BitSet result = families;
+    if (result == null) {
+      result = new BitSet();
+      for (int id : schemaIds()) {
+        result.set(SchemaIds.familyOf(id));
+      }
+      families = result;
+    }
+    return (BitSet) result.clone();
+  }
+
+  private int[] candidates(SchemaPattern pattern) {
+    return positions.getOrDefault(pattern.family(), NONE);
+  }
+
+  private static boolean matchesVersion(SchemaPattern pattern, SchemaKey schema) {
+    Integer minor = pattern.minor();
+    Integer addition = pattern.addition();
+    return (minor == null || schema.version().minor() == minor)
+        && (addition == null || schema.version().addition() == addition);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nullable
+  private SelfDescribing<JsonObject> get(int i) {
+    SelfDescribing<JsonObject> context = (SelfDescribing<JsonObject>) decoded[i];
+    if (context == null && entries != null) {
+      // parsing is idempotent, so a race only costs a second parse
+      try {
+        context = entries.get(i).decode();
+      } catch (IllegalArgumentException exc) {
+        if (!lenient) {
+          throw new IllegalArgumentException(new SnowplowEvent.InvalidFormat(
+              "Invalid format of context: " + entries.get(i).json()));
+        }
+        LOG.debug("Ignoring malformed context: {}", entries.get(i).json());
+        return null;
+      }
+      decoded[i] = context;
+    }
+    return context;
+  }
+}
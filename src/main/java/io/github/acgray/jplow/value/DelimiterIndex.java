@@ -0,0 +1,213 @@
+package io.github.acgray.jplow.value;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * An index of the lines of a block of UTF-8 encoded TSV, and of the fields of each line, built
+ * in a single pass over the block.
+ * <p>
+ * The block is scanned eight bytes at a time: each <code>long</code> word is compared against
+ * tabs and newlines with SWAR (SIMD within a register) arithmetic, which yields a mask with the
+ * high bit set in every matching byte, and only the set bits are visited. A typical enriched
+ * line has one delimiter every ten or so bytes, so most of the per-byte branches of a
+ * character loop are avoided.
+ * <p>
+ * The field offsets of each line are stored in the format of {@link TsvTokenizer}, so that a
+ * {@link TsvRow} can be made from a line without scanning it again. Lines may end with
+ * <code>\n</code> or <code>\r\n</code>, the last line need not be terminated and empty lines are
+ * left out of the index.
+ *
+ * @see TsvRow#of(byte[], int[])
+ */
+public final class DelimiterIndex {
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+  private static final long TABS = ONES * TsvTokenizer.DELIMITER;
+  private static final long NEWLINES = ONES * '\n';
+
+  private final int lineCount;
+  // position in offsets of the first entry of each line, followed by the end of the last line
+  private final int[] lines;
+  // the field offsets of every line, one after the other
+  private final int[] offsets;
+
+  private DelimiterIndex(int lineCount, int[] lines, int[] offsets) {
+    this.lineCount = lineCount;
+    this.lines = lines;
+    this.offsets = offsets;
+  }
+
+  /** Index all lines of an array. */
+  public static DelimiterIndex of(byte[] utf8) {
+    return of(utf8, 0, utf8.length);
+  }
+
+  /**
+   * Index the lines held between <code>from</code> (inclusive) and <code>to</code> (exclusive).
+   * Offsets in the index are absolute positions in the array.
+   */
+  public static DelimiterIndex of(byte[] utf8, int from, int to) {
+    return of(ByteBuffer.wrap(utf8), from, to);
+  }
+
+  /**
+   * Index the lines held between the absolute positions <code>from</code> (inclusive) and
+   * <code>to</code> (exclusive) of a buffer, such as a mapped file. The buffer's position and
+   * byte order are not changed.
+   */
+  public static DelimiterIndex of(ByteBuffer buffer, int from, int to) {
+    return new Scanner(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN), from, to).scan();
+  }
+
+  /** @return the number of non-empty lines */
+  public int lineCount() {
+    return lineCount;
+  }
+
+  /** @return the position of the first byte of a line */
+  public int lineStart(int line) {
+    return offsets[lines[checkLine(line)]];
+  }
+
+  /** @return the position just past the last byte of a line, excluding its terminator */
+  public int lineEnd(int line) {
+    return offsets[lines[checkLine(line) + 1] - 1] - 1;
+  }
+
+  /** @return the number of fields in a line */
+  public int fieldCount(int line) {
+    return lines[checkLine(line) + 1] - lines[line] - 1;
+  }
+
+  /**
+   * @return the field offsets of a line in the format of {@link TsvTokenizer}, as absolute
+   *     positions in the indexed block
+   */
+  public int[] fieldOffsets(int line) {
+    return fieldOffsets(line, 0);
+  }
+
+  /**
+   * @return the field offsets of a line in the format of {@link TsvTokenizer}, relative to the
+   *     given position, e.g. the start of the line once it is copied into its own array
+   */
+  public int[] fieldOffsets(int line, int base) {
+    int[] result = Arrays.copyOfRange(offsets, lines[checkLine(line)], lines[line + 1]);
+    if (base != 0) {
+      for (int i = 0; i < result.length; i++) {
+        result[i] -= base;
+      }
+    }
+    return result;
+  }
+
+  private int checkLine(int line) {
+    if (line < 0 || line >= lineCount) {
+      throw new IndexOutOfBoundsException("Line " + line + " of " + lineCount);
+    }
+    return line;
+  }
+
+  /**
+   * @return a word with the high bit set in each byte which is zero in the given word, and
+   *     every other bit clear
+   */
+  static long zeroBytes(long word) {
+    return ~((word & LOW_BITS) + LOW_BITS | word | LOW_BITS);
+  }
+
+  /** Builds the index of one block. */
+  private static final class Scanner {
+
+    private final ByteBuffer buffer;
+    private final int from;
+    private final int to;
+
+    private int[] lines = new int[64];
+    private int lineCount;
+    // room for the fields of as many full enriched lines as lines, doubled as needed
+    private int[] offsets = new int[64 * TsvTokenizer.DEFAULT_CAPACITY];
+    private int size;
+    private int lineStart;
+
+    Scanner(ByteBuffer buffer, int from, int to) {
+      this.buffer = buffer;
+      this.from = from;
+      this.to = to;
+    }
+
+    DelimiterIndex scan() {
+      startLine(from);
+
+      int i = from;
+      for (; i + 8 <= to; i += 8) {
+        long word = buffer.getLong(i);
+        long newlines = zeroBytes(word ^ NEWLINES);
+        long matches = zeroBytes(word ^ TABS) | newlines;
+        while (matches != 0) {
+          long bit = matches & -matches;
+          int position = i + (Long.numberOfTrailingZeros(bit) >>> 3);
+          if ((newlines & bit) != 0) {
+            endLine(position);
+            startLine(position + 1);
+          } else {
+            add(position + 1);
+          }
+          matches ^= bit;
+        }
+      }
+
+      for (; i < to; i++) {
+        byte b = buffer.get(i);
+        if (b == '\n') {
+          endLine(i);
+          startLine(i + 1);
+        } else if (b == TsvTokenizer.DELIMITER) {
+          add(i + 1);
+        }
+      }
+
+      if (lineStart < to) {
+        endLine(to);
+      } else {
+        // nothing after the last newline
+        size = lines[lineCount];
+      }
+      return new DelimiterIndex(lineCount, lines, offsets);
+    }
+
+    private void startLine(int position) {
+      lineStart = position;
+      add(position);
+    }
+
+    private void endLine(int position) {
+      int end = position;
+      if (end > lineStart && buffer.get(end - 1) == '\r') {
+        end--;
+      }
+
+      if (end == lineStart) {
+        // empty line; forget its offsets
+        size = lines[lineCount];
+        return;
+      }
+
+      add(end + 1);
+      if (lineCount + 2 > lines.length) {
+        lines = Arrays.copyOf(lines, lines.length * 2);
+      }
+      lines[++lineCount] = size;
+    }
+
+    private void add(int offset) {
+      if (size == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[size++] = offset;
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package io.github.acgray.jplow.value;
+
+/**
+ * Allocation-free parsing of the timestamp format used in Snowplow Enriched TSV, i.e.
+ * <code>yyyy-MM-dd HH:mm:ss.SSS</code> in UTC.
+ *
+ * <p>Timestamps are returned as milliseconds since the epoch. Rather than throwing, the parse
+ * methods return {@link #NONE} for input which is not exactly in this format, so that callers
+ * on hot paths can decide whether to fall back to a more lenient parser or skip the value.
+ * Timestamps can be formatted back without allocating by {@link #format(long, char[], int)}.
+ */
+public final class EnrichedTimestamps {
+
+  /** Returned in place of a timestamp for missing or malformed values. */
+  public static final long NONE = Long.MIN_VALUE;
+
+  /** Length of a timestamp in the enriched format. */
+  public static final int LENGTH = 23;
+
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+
+  private EnrichedTimestamps() {}
+
+  /**
+   * @param timestamp text in the format <code>yyyy-MM-dd HH:mm:ss.SSS</code>
+   * @return milliseconds since the epoch, or {@link #NONE} if the input is malformed
+   */
+  public static long parseMillis(CharSequence timestamp) {
+    return parseMillis(timestamp, 0, timestamp.length());
+  }
+
+  /**
+   * Parse the timestamp held between <code>from</code> (inclusive) and <code>to</code>
+   * (exclusive).
+   *
+   * @return milliseconds since the epoch, or {@link #NONE} if the input is malformed
+   */
+  public static long parseMillis(CharSequence s, int from, int to) {
+    if (to - from != LENGTH
+        || s.charAt(from + 4) != '-'
+        || s.charAt(from + 7) != '-'
+        || s.charAt(from + 10) != ' '
+        || s.charAt(from + 13) != ':'
+        || s.charAt(from + 16) != ':'
+        || s.charAt(from + 19) != '.') {
+      return NONE;
+    }
+
+    int year = digits(s, from, 4);
+    int month = digits(s, from + 5, 2);
+    int day = digits(s, from + 8, 2);
+    int hour = digits(s, from + 11, 2);
+    int minute = digits(s, from + 14, 2);
+    int second = digits(s, from + 17, 2);
+    int millis = digits(s, from + 20, 3);
+
+    return toEpochMillis(year, month, day, hour, minute, second, millis);
+  }
+
+  /**
+   * Parse the UTF-8 encoded timestamp held between <code>from</code> (inclusive) and
+   * <code>to</code> (exclusive).
+   *
+   * @return milliseconds since the epoch, or {@link #NONE} if the input is malformed
+   */
+  public static long parseMillis(byte[] s, int from, int to) {
+    if (to - from != LENGTH
+        || s[from + 4] != '-'
+        || s[from + 7] != '-'
+        || s[from + 10] != ' '
+        || s[from + 13] != ':'
+        || s[from + 16] != ':'
+        || s[from + 19] != '.') {
+      return NONE;
+    }
+
+    int year = digits(s, from, 4);
+    int month = digits(s, from + 5, 2);
+    int day = digits(s, from + 8, 2);
+    int hour = digits(s, from + 11, 2);
+    int minute = digits(s, from + 14, 2);
+    int second = digits(s, from + 17, 2);
+    int millis = digits(s, from + 20, 3);
+
+    return toEpochMillis(year, month, day, hour, minute, second, millis);
+  }
+
+  /**
+   * Format a timestamp as <code>yyyy-MM-dd HH:mm:ss.SSS</code> in UTC.
+   *
+   * @param millis milliseconds since the epoch
+   */
+  public static String format(long millis) {
+    char[] chars = new char[LENGTH];
+    if (format(millis, chars, 0) < 0) {
+      return SnowplowEvent.DATE_FORMAT.print(millis);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Format a timestamp into a char array without allocating. The array must have at least
+   * {@link #LENGTH} chars available from <code>offset</code>.
+   *
+   * @param millis milliseconds since the epoch
+   * @return the position in <code>dest</code> just past the timestamp, or -1 if its year is
+   *     outside 0 to 9999 and so cannot be formatted in {@link #LENGTH} chars
+   */
+  public static int format(long millis, char[] dest, int offset) {
+    long epochDay = Math.floorDiv(millis, MILLIS_PER_DAY);
+    int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+
+    // civil_from_days, the inverse of epochDay below
+    long z = epochDay + 719_468L;
+    long era = (z >= 0 ? z : z - 146_096L) / 146_097L;
+    int dayOfEra = (int) (z - era * 146_097L);
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int mp = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+    int month = mp < 10 ? mp + 3 : mp - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+    if (year < 0 || year > 9999) {
+      return -1;
+    }
+
+    int pos = offset;
+    pos = putDigits(dest, pos, (int) year, 4);
+    dest[pos++] = '-';
+    pos = putDigits(dest, pos, month, 2);
+    dest[pos++] = '-';
+    pos = putDigits(dest, pos, day, 2);
+    dest[pos++] = ' ';
+    pos = putDigits(dest, pos, millisOfDay / 3_600_000, 2);
+    dest[pos++] = ':';
+    pos = putDigits(dest, pos, millisOfDay / 60_000 % 60, 2);
+    dest[pos++] = ':';
+    pos = putDigits(dest, pos, millisOfDay / 1_000 % 60, 2);
+    dest[pos++] = '.';
+    return putDigits(dest, pos, millisOfDay % 1_000, 3);
+  }
+
+  private static int putDigits(char[] dest, int offset, int value, int count) {
+    for (int i = offset + count - 1; i >= offset; i--) {
+      dest[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    return offset + count;
+  }
+
+  /** @return the value of <code>count</code> decimal digits, or -1 if any is not a digit */
+  private static int digits(CharSequence s, int from, int count) {
+    int result = 0;
+    for (int i = from; i < from + count; i++) {
+      int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static int digits(byte[] s, int from, int count) {
+    int result = 0;
+    for (int i = from; i < from + count; i++) {
+      int digit = s[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static long toEpochMillis(
+      int year, int month, int day, int hour, int minute, int second, int millis) {
+    if (year < 0
+        || month < 1 || month > 12
+        || day < 1 || day > daysInMonth(year, month)
+        || hour < 0 || hour > 23
+        || minute < 0 || minute > 59
+        || second < 0 || second > 59
+        || millis < 0) {
+      return NONE;
+    }
+
+    return epochDay(year, month, day) * MILLIS_PER_DAY
+        + hour * 3_600_000L
+        + minute * 60_000L
+        + second * 1_000L
+        + millis;
+  }
+
+  private static int daysInMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  private static boolean isLeapYear(int year) {
+    return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  /**
+   * Days since 1970-01-01 of a date in the proleptic Gregorian calendar.
+   *
+   * @see <a href="http://howardhinnant.github.io/date_algorithms.html#days_from_civil">
+   *     days_from_civil</a>
+   */
+  private static long epochDay(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146_097L + dayOfEra - 719_468L;
+  }
+}
@@ -0,0 +1,122 @@
+package io.github.acgray.jplow.value;
+
+import org.immutables.value.Value;
+
+import javax.annotation.Nullable;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Reusable settings for turning lines of Snowplow Enriched TSV into events.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * EnrichedTsvReader reader = EnrichedTsvReader.builder()
+ *     .validationPolicy(ValidationPolicy.NONE)
+ *     .build();
+ * <p>
+ * SnowplowEvent event = reader.read(line);
+ * </code>
+ */
+@Value.Immutable
+public abstract class EnrichedTsvReader {
+
+  public static ImmutableEnrichedTsvReader.Builder builder() {
+    return ImmutableEnrichedTsvReader.builder();
+  }
+
+  /**
+   * @return when the JSON columns of each event are parsed and validated,
+   * by default {@link ValidationPolicy#EAGER}
+   */
+  @Value.Default
+  public ValidationPolicy validationPolicy() {
+    return ValidationPolicy.EAGER;
+  }
+
+  /**
+   * @return the columns to convert, or null to convert every column
+   *
+   * @see SnowplowEvent#fromTsv(CharSequence, Set)
+   */
+  @Nullable
+  public abstract Set<EventField> fields();
+
+  /**
+   * @return a dictionary in which to look up the values of the string columns
+   * it covers, so that they share canonical instances, or null to create a
+   * new String for every value
+   *
+   * @see StringDictionary
+   */
+  @Nullable
+  @Value.Auxiliary
+  public abstract StringDictionary dictionary();
+
+  /**
+   * @return a predicate over the raw columns of each line, tested before the
+   * line is converted so that rejected lines cost almost nothing, or null to
+   * accept every line. {@link #read(CharSequence)} returns null for a line
+   * which is rejected, and readers of whole files such as
+   * {@link io.github.acgray.jplow.io.EnrichedFiles} leave it out.
+   *
+   * @see io.github.acgray.jplow.filter.RowFilters
+   */
+  @Nullable
+  @Value.Auxiliary
+  public abstract Predicate<TsvRow> filter();
+
+  /**
+   * @return true if a row passes the {@link #filter()}, or there is no filter
+   */
+  public boolean accepts(TsvRow row) {
+    Predicate<TsvRow> filter = filter();
+    return filter == null || filter.test(row);
+  }
+
+  /**
+   * Create an event from a line of enriched TSV, if it passes the
+   * {@link #filter()}.
+   *
+   * @param line a single line of enriched output, without its line terminator
+   *
+   * @return the event, or null if the line was rejected by the filter
+   *
+   * @throws SnowplowEvent.InvalidFormat when the line does not have the expected
+   * number of columns, or a projected column holds an invalid value
+   *
+   * @see SnowplowEvent#fromTsv(CharSequence, ValidationPolicy)
+   * @see SnowplowEvent#fromTsv(CharSequence, Set, ValidationPolicy)
+   */
+  @Nullable
+  public SnowplowEvent read(CharSequence line) throws SnowplowEvent.InvalidFormat {
+    return read(TsvRow.of(line));
+  }
+
+  /**
+   * Create an event from an already indexed row of enriched TSV, if it passes
+   * the {@link #filter()}.
+   *
+   * @return the event, or null if the row was rejected by the filter
+   *
+   * @see #read(CharSequence)
+   */
+  @Nullable
+  public SnowplowEvent read(TsvRow row) throws SnowplowEvent.InvalidFormat {
+    return accepts(row) ? convert(row) : null;
+  }
+
+  /**
+   * Create an event from a row which has already been tested against the
+   * {@link #filter()}, without testing it again.
+   *
+   * @see #read(TsvRow)
+   */
+  public SnowplowEvent convert(TsvRow row) throws SnowplowEvent.InvalidFormat {
+    Set<EventField> fields = fields();
+    return fields == null
+        ? SnowplowEvent.fromRow(row, validationPolicy(), dictionary())
+        : SnowplowEvent.fromRow(row, fields, validationPolicy(), dictionary());
+  }
+}
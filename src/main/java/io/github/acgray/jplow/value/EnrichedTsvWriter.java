@@ -0,0 +1,367 @@
+package io.github.acgray.jplow.value;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes events as lines of Snowplow Enriched TSV directly into an output, without building a
+ * String per column or per line.
+ * <p>
+ * Each event is first formatted into a reusable buffer, with integers and timestamps formatted
+ * in place, and then copied to the output in one call. Columns of a {@link LazySnowplowEvent}
+ * which have not been modified are copied straight from its original line.
+ * <p>
+ * By default all 131 columns are written in their canonical order, exactly as by
+ * {@link SnowplowEvent#toTsv()}, but any subset of columns in any order can be chosen instead,
+ * e.g. to match the layout of a warehouse table.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * EnrichedTsvWriter writer = EnrichedTsvWriter.of(Arrays.asList(
+ *     EventField.EVENT_ID, EventField.COLLECTOR_TSTAMP, EventField.APP_ID));
+ * <p>
+ * try (EnrichedTsvWriter.ChannelWriter out = writer.open(channel)) {
+ *   for (SnowplowEvent event : events) {
+ *     out.write(event);
+ *   }
+ * }
+ * </code>
+ * <p>
+ * Writers hold scratch buffers and are not thread-safe; use one per thread.
+ */
+public final class EnrichedTsvWriter {
+
+  /** Default size of the block buffer used when writing to a channel. */
+  public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+  private static final int NUMBER_LENGTH = 11;
+
+  // backs SnowplowEvent.toTsv(), so that it reuses a buffer rather than allocating a writer
+  private static final ThreadLocal<EnrichedTsvWriter> CANONICAL =
+      ThreadLocal.withInitial(EnrichedTsvWriter::create);
+
+  private final EventField[] columns;
+  private final List<EventField> columnList;
+
+  private char[] line = new char[2048];
+  private int length;
+  private byte[] utf8 = new byte[0];
+
+  private EnrichedTsvWriter(EventField[] columns) {
+    this.columns = columns;
+    this.columnList = Collections.unmodifiableList(Arrays.asList(columns.clone()));
+  }
+
+  /** @return a writer of all columns in their canonical order */
+  public static EnrichedTsvWriter create() {
+    return new EnrichedTsvWriter(EventField.values());
+  }
+
+  /**
+   * @param columns the columns to write, in order. A column may appear more than once.
+   * @return a writer of the given columns
+   */
+  public static EnrichedTsvWriter of(List<EventField> columns) {
+    if (columns.isEmpty()) {
+      throw new IllegalArgumentException("No columns to write");
+    }
+    return new EnrichedTsvWriter(new ArrayList<>(columns).toArray(new EventField[0]));
+  }
+
+  /** @return the columns written for each event, in order */
+  public List<EventField> columns() {
+    return columnList;
+  }
+
+  /**
+   * Append an event to an output as a line of TSV, without a line terminator.
+   */
+  public void write(SnowplowEvent event, Appendable out) throws IOException {
+    format(event);
+    if (out instanceof StringBuilder) {
+      ((StringBuilder) out).append(line, 0, length);
+    } else if (out instanceof Writer) {
+      ((Writer) out).write(line, 0, length);
+    } else {
+      out.append(CharBuffer.wrap(line, 0, length));
+    }
+  }
+
+  /**
+   * Write an event into a buffer as a line of TSV, without a line terminator.
+   *
+   * @throws BufferOverflowException if the line does not fit in the remaining space, in which
+   *     case nothing is written
+   */
+  public void write(SnowplowEvent event, CharBuffer out) {
+    format(event);
+    if (out.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+    out.put(line, 0, length);
+  }
+
+  /**
+   * Write an event into a buffer as a UTF-8 encoded line of TSV, without a line terminator.
+   *
+   * @return the number of bytes written
+   * @throws BufferOverflowException if the line does not fit in the remaining space, in which
+   *     case nothing is written
+   */
+  public int write(SnowplowEvent event, ByteBuffer out) {
+    format(event);
+    int bytes = encode();
+    if (out.remaining() < bytes) {
+      throw new BufferOverflowException();
+    }
+    out.put(utf8, 0, bytes);
+    return bytes;
+  }
+
+  /**
+   * Format an event into a new String, without a line terminator.
+   */
+  public String toString(SnowplowEvent event) {
+    format(event);
+    return new String(line, 0, length);
+  }
+
+  /** Format an event with all columns, using a writer cached for the calling thread. */
+  static String toTsv(SnowplowEvent event) {
+    return CANONICAL.get().toString(event);
+  }
+
+  /**
+   * Start writing newline-terminated lines to a channel, buffered in blocks of
+   * {@link #DEFAULT_BLOCK_SIZE} bytes.
+   */
+  public ChannelWriter open(WritableByteChannel channel) {
+    return open(channel, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Start writing newline-terminated lines to a channel, buffered in blocks of the given size.
+   * Lines larger than a block are written directly.
+   */
+  public ChannelWriter open(WritableByteChannel channel, int blockSize) {
+    return new ChannelWriter(this, channel, ByteBuffer.allocateDirect(blockSize));
+  }
+
+  /**
+   * Writes events as lines to a channel through a block buffer. The channel is closed when the
+   * writer is closed.
+   */
+  public static final class ChannelWriter implements Closeable, Flushable {
+
+    private final EnrichedTsvWriter writer;
+    private final WritableByteChannel channel;
+    private final ByteBuffer block;
+
+    private ChannelWriter(
+        EnrichedTsvWriter writer, WritableByteChannel channel, ByteBuffer block) {
+      this.writer = writer;
+      this.channel = channel;
+      this.block = block;
+    }
+
+    /** Write an event followed by a newline. */
+    public void write(SnowplowEvent event) throws IOException {
+      writer.format(event);
+      writer.line = ensureCapacity(writer.line, writer.length + 1);
+      writer.line[writer.length++] = '\n';
+      int bytes = writer.encode();
+
+      if (block.remaining() < bytes) {
+        flushBlock();
+      }
+      if (block.remaining() < bytes) {
+        writeFully(ByteBuffer.wrap(writer.utf8, 0, bytes));
+      } else {
+        block.put(writer.utf8, 0, bytes);
+      }
+    }
+
+    /** Write any buffered lines to the channel. */
+    @Override
+    public void flush() throws IOException {
+      flushBlock();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flushBlock();
+      } finally {
+        channel.close();
+      }
+    }
+
+    private void flushBlock() throws IOException {
+      block.flip();
+      writeFully(block);
+      block.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /** Format an event's columns into the line buffer. */
+  private void format(SnowplowEvent event) {
+    LazySnowplowEvent lazy = event instanceof LazySnowplowEvent
+        ? (LazySnowplowEvent) event
+        : null;
+
+    length = 0;
+    for (int c = 0; c < columns.length; c++) {
+      EventField field = columns[c];
+      if (c > 0) {
+        line = ensureCapacity(line, length + 1);
+        line[length++] = TsvTokenizer.DELIMITER;
+      }
+
+      if (lazy != null
+          && field.type() == EventField.Type.STRING
+          && lazy.isProjected(field)
+          && field.index() < lazy.row().fieldCount()) {
+        // strings are stored verbatim, so copy the original column
+        TsvRow row = lazy.row();
+        line = ensureCapacity(line, length + row.length(field.index()));
+        length = row.copyChars(field.index(), line, length);
+        continue;
+      }
+
+      switch (field.type()) {
+        case STRING:
+          appendString((String) field.get(event));
+          break;
+        case INT:
+          if (!event.isNull(field)) {
+            appendInt(event.intValue(field));
+          }
+          break;
+        case FLOAT:
+          if (!event.isNull(field)) {
+            appendString(Float.toString(event.floatValue(field)));
+          }
+          break;
+        case BOOLEAN:
+          if (!event.isNull(field)) {
+            line = ensureCapacity(line, length + 1);
+            line[length++] = event.booleanValue(field) ? '1' : '0';
+          }
+          break;
+        case TIMESTAMP:
+          appendTimestamp(event.timestampMillis(field));
+          break;
+        default:
+          throw new AssertionError(field.type());
+      }
+    }
+  }
+
+  private void appendString(String value) {
+    if (value != null) {
+      line = ensureCapacity(line, length + value.length());
+      value.getChars(0, value.length(), line, length);
+      length += value.length();
+    }
+  }
+
+  private void appendTimestamp(long millis) {
+    if (millis == EnrichedTimestamps.NONE) {
+      return;
+    }
+    line = ensureCapacity(line, length + EnrichedTimestamps.LENGTH);
+    int end = EnrichedTimestamps.format(millis, line, length);
+    if (end < 0) {
+      appendString(EnrichedTimestamps.format(millis));
+    } else {
+      length = end;
+    }
+  }
+
+  private void appendInt(int value) {
+    line = ensureCapacity(line, length + NUMBER_LENGTH);
+    if (value == Integer.MIN_VALUE) {
+      appendString(Integer.toString(value));
+      return;
+    }
+    if (value < 0) {
+      line[length++] = '-';
+      value = -value;
+    }
+
+    int digits = 1;
+    for (int v = value; v >= 10; v /= 10) {
+      digits++;
+    }
+    for (int i = length + digits - 1; i >= length; i--) {
+      line[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    length += digits;
+  }
+
+  /**
+   * Encode the line buffer as UTF-8 into the byte buffer.
+   *
+   * @return the number of bytes
+   */
+  private int encode() {
+    utf8 = ensureCapacity(utf8, length * 3);
+    byte[] out = utf8;
+    char[] in = line;
+    int pos = 0;
+    for (int i = 0; i < length; i++) {
+      char c = in[i];
+      if (c < 0x80) {
+        out[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        out[pos++] = (byte) (0xc0 | c >> 6);
+        out[pos++] = (byte) (0x80 | c & 0x3f);
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(in[i + 1])) {
+        int cp = Character.toCodePoint(c, in[++i]);
+        out[pos++] = (byte) (0xf0 | cp >> 18);
+        out[pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+        out[pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+        out[pos++] = (byte) (0x80 | cp & 0x3f);
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogate, replaced as by String.getBytes
+        out[pos++] = '?';
+      } else {
+        out[pos++] = (byte) (0xe0 | c >> 12);
+        out[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+        out[pos++] = (byte) (0x80 | c & 0x3f);
+      }
+    }
+    return pos;
+  }
+
+  private static char[] ensureCapacity(char[] buffer, int capacity) {
+    return capacity <= buffer.length
+        ? buffer
+        : Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+  }
+
+  private static byte[] ensureCapacity(byte[] buffer, int capacity) {
+    return capacity <= buffer.length
+        ? buffer
+        : new byte[Math.max(capacity, buffer.length * 2)];
+  }
+}
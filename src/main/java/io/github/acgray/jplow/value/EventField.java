@@ -0,0 +1,296 @@
+package io.github.acgray.jplow.value;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The columns of the Snowplow Enriched TSV format, in the order in which they
+ * appear in a line. The ordinal of each constant is its column index.
+ * <p>
+ * Lines written by older versions of Snowplow Enrich have 130 columns and
+ * do not include {@link #TRUE_TSTAMP}.
+ *
+ * @see <a href="https://github.com/snowplow/snowplow/wiki/canonical-event-model">Canonical event model</a>
+ */
+public enum EventField {
+
+  APP_ID("app_id", Type.STRING, false, SnowplowEvent::appId),
+  PLATFORM("platform", Type.STRING, false, SnowplowEvent::platform),
+  ETL_TSTAMP("etl_tstamp", Type.TIMESTAMP, false, SnowplowEvent::etlTstamp),
+  COLLECTOR_TSTAMP("collector_tstamp", Type.TIMESTAMP, false, SnowplowEvent::collectorTstamp),
+  DVCE_CREATED_TSTAMP("dvce_created_tstamp", Type.TIMESTAMP, true, SnowplowEvent::dvceCreatedTstamp),
+  EVENT("event", Type.STRING, false, SnowplowEvent::event),
+  EVENT_ID("event_id", Type.STRING, false, SnowplowEvent::eventId),
+  TXN_ID("txn_id", Type.INT, true, SnowplowEvent::txnId),
+  NAME_TRACKER("name_tracker", Type.STRING, true, SnowplowEvent::nameTracker),
+  V_TRACKER("v_tracker", Type.STRING, true, SnowplowEvent::vTracker),
+  V_COLLECTOR("v_collector", Type.STRING, true, SnowplowEvent::vCollector),
+  V_ETL("v_etl", Type.STRING, true, SnowplowEvent::vEtl),
+  USER_ID("user_id", Type.STRING, true, SnowplowEvent::userId),
+  USER_IPADDRESS("user_ipaddress", Type.STRING, true, SnowplowEvent::userIpaddress),
+  USER_FINGERPRINT("user_fingerprint", Type.STRING, true, SnowplowEvent::userFingerprint),
+  DOMAIN_USERID("domain_userid", Type.STRING, true, SnowplowEvent::domainUserid),
+  DOMAIN_SESSIONIDX("domain_sessionidx", Type.INT, true, SnowplowEvent::domainSessionidx),
+  NETWORK_USERID("network_userid", Type.STRING, true, SnowplowEvent::networkUserid),
+  GEO_COUNTRY("geo_country", Type.STRING, true, SnowplowEvent::geoCountry),
+  GEO_REGION("geo_region", Type.STRING, true, SnowplowEvent::geoRegion),
+  GEO_CITY("geo_city", Type.STRING, true, SnowplowEvent::geoCity),
+  GEO_ZIPCODE("geo_zipcode", Type.STRING, true, SnowplowEvent::geoZipcode),
+  GEO_LATITUDE("geo_latitude", Type.FLOAT, true, SnowplowEvent::geoLatitude),
+  GEO_LONGITUDE("geo_longitude", Type.FLOAT, true, SnowplowEvent::geoLongitude),
+  GEO_REGION_NAME("geo_region_name", Type.STRING, true, SnowplowEvent::geoRegionName),
+  IP_ISP("ip_isp", Type.STRING, true, SnowplowEvent::ipIsp),
+  IP_ORGANIZATION("ip_organization", Type.STRING, true, SnowplowEvent::ipOrganization),
+  IP_DOMAIN("ip_domain", Type.STRING, true, SnowplowEvent::ipDomain),
+  IP_NETSPEED("ip_netspeed", Type.STRING, true, SnowplowEvent::ipNetspeed),
+  PAGE_URL("page_url", Type.STRING, true, SnowplowEvent::pageUrl),
+  PAGE_TITLE("page_title", Type.STRING, true, SnowplowEvent::pageTitle),
+  PAGE_REFERRER("page_referrer", Type.STRING, true, SnowplowEvent::pageReferrer),
+  PAGE_URLSCHEME("page_urlscheme", Type.STRING, true, SnowplowEvent::pageUrlscheme),
+  PAGE_URLHOST("page_urlhost", Type.STRING, true, SnowplowEvent::pageUrlhost),
+  PAGE_URLPORT("page_urlport", Type.STRING, true, SnowplowEvent::pageUrlport),
+  PAGE_URLPATH("page_urlpath", Type.STRING, true, SnowplowEvent::pageUrlpath),
+  PAGE_URLQUERY("page_urlquery", Type.STRING, true, SnowplowEvent::pageUrlquery),
+  PAGE_URLFRAGMENT("page_urlfragment", Type.STRING, true, SnowplowEvent::pageUrlfragment),
+  REFR_URLSCHEME("refr_urlscheme", Type.STRING, true, SnowplowEvent::refrUrlscheme),
+  REFR_URLHOST("refr_urlhost", Type.STRING, true, SnowplowEvent::refrUrlhost),
+  REFR_URLPORT("refr_urlport", Type.STRING, true, SnowplowEvent::refrUrlport),
+  REFR_URLPATH("refr_urlpath", Type.STRING, true, SnowplowEvent::refrUrlpath),
+  REFR_URLQUERY("refr_urlquery", Type.STRING, true, SnowplowEvent::refrUrlquery),
+  REFR_URLFRAGMENT("refr_urlfragment", Type.STRING, true, SnowplowEvent::refrUrlfragment),
+  REFR_MEDIUM("refr_medium", Type.STRING, true, SnowplowEvent::refrMedium),
+  REFR_SOURCE("refr_source", Type.STRING, true, SnowplowEvent::refrSource),
+  REFR_TERM("refr_term", Type.STRING, true, SnowplowEvent::refrTerm),
+  MKT_MEDIUM("mkt_medium", Type.STRING, true, SnowplowEvent::mktMedium),
+  MKT_SOURCE("mkt_source", Type.STRING, true, SnowplowEvent::mktSource),
+  MKT_TERM("mkt_term", Type.STRING, true, SnowplowEvent::mktTerm),
+  MKT_CONTENT("mkt_content", Type.STRING, true, SnowplowEvent::mktContent),
+  MKT_CAMPAIGN("mkt_campaign", Type.STRING, true, SnowplowEvent::mktCampaign),
+  CONTEXTS("contexts", Type.STRING, true, SnowplowEvent::contexts),
+  SE_CATEGORY("se_category", Type.STRING, true, SnowplowEvent::seCategory),
+  SE_ACTION("se_action", Type.STRING, true, SnowplowEvent::seAction),
+  SE_LABEL("se_label", Type.STRING, true, SnowplowEvent::seLabel),
+  SE_PROPERTY("se_property", Type.STRING, true, SnowplowEvent::seProperty),
+  SE_VALUE("se_value", Type.STRING, true, SnowplowEvent::seValue),
+  UNSTRUCT_EVENT("unstruct_event", Type.STRING, true, SnowplowEvent::unstructEvent),
+  TR_ORDERID("tr_orderid", Type.STRING, true, SnowplowEvent::trOrderid),
+  TR_AFFILIATION("tr_affiliation", Type.STRING, true, SnowplowEvent::trAffiliation),
+  TR_TOTAL("tr_total", Type.STRING, true, SnowplowEvent::trTotal),
+  TR_TAX("tr_tax", Type.STRING, true, SnowplowEvent::trTax),
+  TR_SHIPPING("tr_shipping", Type.STRING, true, SnowplowEvent::trShipping),
+  TR_CITY("tr_city", Type.STRING, true, SnowplowEvent::trCity),
+  TR_STATE("tr_state", Type.STRING, true, SnowplowEvent::trState),
+  TR_COUNTRY("tr_country", Type.STRING, true, SnowplowEvent::trCountry),
+  TI_ORDERID("ti_orderid", Type.STRING, true, SnowplowEvent::tiOrderid),
+  TI_SKU("ti_sku", Type.STRING, true, SnowplowEvent::tiSku),
+  TI_NAME("ti_name", Type.STRING, true, SnowplowEvent::tiName),
+  TI_CATEGORY("ti_category", Type.STRING, true, SnowplowEvent::tiCategory),
+  TI_PRICE("ti_price", Type.STRING, true, SnowplowEvent::tiPrice),
+  TI_QUANTITY("ti_quantity", Type.INT, true, SnowplowEvent::tiQuantity),
+  PP_XOFFSET_MIN("pp_xoffset_min", Type.INT, true, SnowplowEvent::ppXoffsetMin),
+  PP_XOFFSET_MAX("pp_xoffset_max", Type.INT, true, SnowplowEvent::ppXoffsetMax),
+  PP_YOFFSET_MIN("pp_yoffset_min", Type.INT, true, SnowplowEvent::ppYoffsetMin),
+  PP_YOFFSET_MAX("pp_yoffset_max", Type.INT, true, SnowplowEvent::ppYoffsetMax),
+  USERAGENT("useragent", Type.STRING, true, SnowplowEvent::useragent),
+  BR_NAME("br_name", Type.STRING, true, SnowplowEvent::brName),
+  BR_FAMILY("br_family", Type.STRING, true, SnowplowEvent::brFamily),
+  BR_VERSION("br_version", Type.STRING, true, SnowplowEvent::brVersion),
+  BR_TYPE("br_type", Type.STRING, true, SnowplowEvent::brType),
+  BR_RENDERENGINE("br_renderengine", Type.STRING, true, SnowplowEvent::brRenderengine),
+  BR_LANG("br_lang", Type.STRING, true, SnowplowEvent::brLang),
+  BR_FEATURES_PDF("br_features_pdf", Type.BOOLEAN, true, SnowplowEvent::brFeaturesPdf),
+  BR_FEATURES_FLASH("br_features_flash", Type.BOOLEAN, true, SnowplowEvent::brFeaturesFlash),
+  BR_FEATURES_JAVA("br_features_java", Type.BOOLEAN, true, SnowplowEvent::brFeaturesJava),
+  BR_FEATURES_DIRECTOR("br_features_director", Type.BOOLEAN, true, SnowplowEvent::brFeaturesDirector),
+  BR_FEATURES_QUICKTIME("br_features_quicktime", Type.BOOLEAN, true, SnowplowEvent::brFeaturesQuicktime),
+  BR_FEATURES_REALPLAYER("br_features_realplayer", Type.BOOLEAN, true, SnowplowEvent::brFeaturesRealplayer),
+  BR_FEATURES_WINDOWSMEDIA("br_features_windowsmedia", Type.BOOLEAN, true, SnowplowEvent::brFeaturesWindowsmedia),
+  BR_FEATURES_GEARS("br_features_gears", Type.BOOLEAN, true, SnowplowEvent::brFeaturesGears),
+  BR_FEATURES_SILVERLIGHT("br_features_silverlight", Type.BOOLEAN, true, SnowplowEvent::brFeaturesSilverlight),
+  BR_COOKIES("br_cookies", Type.BOOLEAN, true, SnowplowEvent::brCookies),
+  BR_COLORDEPTH("br_colordepth", Type.STRING, true, SnowplowEvent::brColordepth),
+  BR_VIEWWIDTH("br_viewwidth", Type.INT, true, SnowplowEvent::brViewwidth),
+  BR_VIEWHEIGHT("br_viewheight", Type.INT, true, SnowplowEvent::brViewheight),
+  OS_NAME("os_name", Type.STRING, true, SnowplowEvent::osName),
+  OS_FAMILY("os_family", Type.STRING, true, SnowplowEvent::osFamily),
+  OS_MANUFACTURER("os_manufacturer", Type.STRING, true, SnowplowEvent::osManufacturer),
+  OS_TIMEZONE("os_timezone", Type.STRING, true, SnowplowEvent::osTimezone),
+  DVCE_TYPE("dvce_type", Type.STRING, true, SnowplowEvent::dvceType),
+  DVCE_ISMOBILE("dvce_ismobile", Type.BOOLEAN, true, SnowplowEvent::dvceIsmobile),
+  DVCE_SCREENWIDTH("dvce_screenwidth", Type.INT, true, SnowplowEvent::dvceScreenwidth),
+  DVCE_SCREENHEIGHT("dvce_screenheight", Type.INT, true, SnowplowEvent::dvceScreenheight),
+  DOC_CHARSET("doc_charset", Type.STRING, true, SnowplowEvent::docCharset),
+  DOC_WIDTH("doc_width", Type.INT, true, SnowplowEvent::docWidth),
+  DOC_HEIGHT("doc_height", Type.INT, true, SnowplowEvent::docHeight),
+  TR_CURRENCY("tr_currency", Type.STRING, true, SnowplowEvent::trCurrency),
+  TR_TOTAL_BASE("tr_total_base", Type.STRING, true, SnowplowEvent::trTotalBase),
+  TR_TAX_BASE("tr_tax_base", Type.STRING, true, SnowplowEvent::trTaxBase),
+  TR_SHIPPING_BASE("tr_shipping_base", Type.STRING, true, SnowplowEvent::trShippingBase),
+  TI_CURRENCY("ti_currency", Type.STRING, true, SnowplowEvent::tiCurrency),
+  TI_PRICE_BASE("ti_price_base", Type.STRING, true, SnowplowEvent::tiPriceBase),
+  BASE_CURRENCY("base_currency", Type.STRING, true, SnowplowEvent::baseCurrency),
+  GEO_TIMEZONE("geo_timezone", Type.STRING, true, SnowplowEvent::geoTimezone),
+  MKT_CLICKID("mkt_clickid", Type.STRING, true, SnowplowEvent::mktClickid),
+  MKT_NETWORK("mkt_network", Type.STRING, true, SnowplowEvent::mktNetwork),
+  ETL_TAGS("etl_tags", Type.STRING, true, SnowplowEvent::etlTags),
+  DVCE_SENT_TSTAMP("dvce_sent_tstamp", Type.TIMESTAMP, true, SnowplowEvent::dvceSentTstamp),
+  REFR_DOMAIN_USERID("refr_domain_userid", Type.STRING, true, SnowplowEvent::refrDomainUserid),
+  REFR_DVCE_TSTAMP("refr_dvce_tstamp", Type.STRING, true, SnowplowEvent::refrDvceTstamp),
+  DERIVED_CONTEXTS("derived_contexts", Type.STRING, true, SnowplowEvent::derivedContexts),
+  DOMAIN_SESSIONID("domain_sessionid", Type.STRING, true, SnowplowEvent::domainSessionid),
+  DERIVED_TSTAMP("derived_tstamp", Type.TIMESTAMP, true, SnowplowEvent::derivedTstamp),
+  EVENT_VENDOR("event_vendor", Type.STRING, false, SnowplowEvent::eventVendor),
+  EVENT_NAME("event_name", Type.STRING, false, SnowplowEvent::eventName),
+  EVENT_FORMAT("event_format", Type.STRING, false, SnowplowEvent::eventFormat),
+  EVENT_VERSION("event_version", Type.STRING, false, SnowplowEvent::eventVersion),
+  EVENT_FINGERPRINT("event_fingerprint", Type.STRING, true, SnowplowEvent::eventFingerprint),
+  TRUE_TSTAMP("true_tstamp", Type.TIMESTAMP, true, SnowplowEvent::trueTstamp);
+
+  /**
+   * Value types of the enriched columns, corresponding to the return types
+   * of the {@link SnowplowEvent} accessors.
+   */
+  public enum Type {
+    STRING,
+    INT,
+    FLOAT,
+    BOOLEAN,
+    TIMESTAMP
+  }
+
+  private static final Map<Type, List<EventField>> BY_TYPE = new EnumMap<>(Type.class);
+  private static final Map<String, EventField> BY_NAME = new HashMap<>();
+
+  static {
+    for (EventField field : values()) {
+      BY_NAME.put(field.columnName, field);
+    }
+    for (Type type : Type.values()) {
+      BY_TYPE.put(type, new ArrayList<>());
+    }
+    for (EventField field : values()) {
+      List<EventField> fields = BY_TYPE.get(field.type);
+      field.typeIndex = fields.size();
+      fields.add(field);
+    }
+    for (Type type : Type.values()) {
+      BY_TYPE.put(type, Collections.unmodifiableList(BY_TYPE.get(type)));
+    }
+  }
+
+  private final String columnName;
+  private final Type type;
+  private final boolean nullable;
+  private final Function<SnowplowEvent, ?> accessor;
+  private int typeIndex;
+
+  EventField(
+      String columnName,
+      Type type,
+      boolean nullable,
+      Function<SnowplowEvent, ?> accessor) {
+    this.columnName = columnName;
+    this.type = type;
+    this.nullable = nullable;
+    this.accessor = accessor;
+  }
+
+  /** @return the name of the column in the canonical event model, e.g. <code>app_id</code> */
+  public String columnName() {
+    return columnName;
+  }
+
+  public Type type() {
+    return type;
+  }
+
+  /**
+   * @return false for the required columns. Required string columns are read
+   * as an empty String, rather than null, when they are empty.
+   */
+  public boolean isNullable() {
+    return nullable;
+  }
+
+  /** @return the index of this column in a line of enriched TSV */
+  public int index() {
+    return ordinal();
+  }
+
+  /**
+   * @return the position of this column among the columns of the same type,
+   * e.g. 0 for the first {@link Type#INT} column. Useful for storing columns
+   * in one primitive array per type.
+   */
+  public int typeIndex() {
+    return typeIndex;
+  }
+
+  /** @return all columns of a type, in column order */
+  public static List<EventField> columnsOf(Type type) {
+    return BY_TYPE.get(type);
+  }
+
+  /**
+   * @return the column with the given name in the canonical event model, e.g.
+   * <code>app_id</code>, or null if there is none
+   */
+  @Nullable
+  public static EventField forColumnName(String columnName) {
+    return BY_NAME.get(columnName);
+  }
+
+  /** @return this column's value in an event, via its accessor */
+  public Object get(SnowplowEvent event) {
+    return accessor.apply(event);
+  }
+
+  /**
+   * Convert this column of an enriched TSV row to the type returned by the
+   * corresponding {@link SnowplowEvent} accessor.
+   *
+   * @return the value, or null if the row has no such column
+   * @throws IllegalArgumentException if the column holds an invalid value
+   */
+  public Object decode(TsvRow row) {
+    return decode(row, null);
+  }
+
+  /**
+   * Decode this column from a row, looking string values up in a dictionary
+   * if it covers the column.
+   *
+   * @see #decode(TsvRow)
+   */
+  public Object decode(TsvRow row, @Nullable StringDictionary dictionary) {
+    int field = ordinal();
+    if (field >= row.fieldCount()) {
+      return null;
+    }
+    switch (type) {
+      case STRING:
+        if (dictionary != null && dictionary.covers(field)) {
+          return nullable
+              ? row.stringValue(field, dictionary)
+              : row.rawValue(field, dictionary);
+        }
+        return nullable ? row.stringValue(field) : row.rawValue(field);
+      case INT:
+        return row.intValue(field);
+      case FLOAT:
+        return row.floatValue(field);
+      case BOOLEAN:
+        return row.boolValue(field);
+      case TIMESTAMP:
+        return row.instantValue(field);
+      default:
+        throw new AssertionError(type);
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package io.github.acgray.jplow.value;
+
+import io.github.acgray.jplow.selfdesc.ContextScanner;
+import io.github.acgray.jplow.selfdesc.SchemaKey;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes events as flat JSON objects, in the style of the Snowplow Analytics SDK, e.g. for
+ * loading into Elasticsearch as newline-delimited JSON.
+ * <p>
+ * Each atomic column is written under its snake_case column name, with timestamps in ISO 8601
+ * format, integers and floats as numbers and booleans as <code>true</code> or
+ * <code>false</code>; null columns are left out. The user and derived contexts are grouped by
+ * schema family into arrays named <code>contexts_&lt;table name&gt;</code>, and the payload of
+ * the unstructured event is written as an object named <code>unstruct_event_&lt;table
+ * name&gt;</code>, where the table name is the {@link SchemaKey#tableName() tableName()} of
+ * the schema, e.g. <code>contexts_com_acme_page_context_1</code>.
+ * <p>
+ * The JSON columns are only scanned for the positions of their entities, with a
+ * {@link ContextScanner}, and the data of each entity is copied verbatim from the column, so no
+ * JSON tree is built. The data is first checked against the strict JSON grammar, whatever the
+ * event's validation policy, so that malformed data never reaches the output: even eager
+ * validation parses leniently, and accepts e.g. unquoted names and single-quoted strings.
+ * <p>
+ * <h2>Example usage:</h2>
+ * <p>
+ * <code>
+ * EventJsonWriter writer = EventJsonWriter.create();
+ * <p>
+ * for (SnowplowEvent event : events) {
+ *   writer.write(event, out);
+ *   out.append('\n');
+ * }
+ * </code>
+ * <p>
+ * Writers hold a scratch buffer and are not thread-safe; use one per thread.
+ */
+public final class EventJsonWriter {
+
+  private static final DateTimeFormatter ISO_FORMAT = ISODateTimeFormat.dateTime().withZoneUTC();
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final EventField[] columns;
+  private final char[] timestamp = new char[EnrichedTimestamps.LENGTH];
+
+  private EventJsonWriter() {
+    List<EventField> atomic = new ArrayList<>();
+    for (EventField field : EventField.values()) {
+      if (field != EventField.CONTEXTS
+          && field != EventField.DERIVED_CONTEXTS
+          && field != EventField.UNSTRUCT_EVENT) {
+        atomic.add(field);
+      }
+    }
+    this.columns = atomic.toArray(new EventField[0]);
+  }
+
+  public static EventJsonWriter create() {
+    return new EventJsonWriter();
+  }
+
+  /**
+   * Append an event to an output as a JSON object, without a line terminator.
+   *
+   * @throws IllegalArgumentException if a JSON column or the data of an entity is malformed,
+   *     unless the event's validation policy is {@link ValidationPolicy#NONE}, in which case it
+   *     is left out
+   */
+  public void write(SnowplowEvent event, Appendable out) throws IOException {
+    // scan and check the JSON columns first, so that a malformed event writes nothing
+    List<ContextScanner.Entry> contexts = event.scanContexts();
+    ContextScanner.Entry payload = event.scanUnstructEvent();
+    contexts.removeIf(entry -> !hasValidData(event, entry));
+    if (payload != null && !hasValidData(event, payload)) {
+      payload = null;
+    }
+
+    out.append('{');
+    boolean first = true;
+    for (EventField field : columns) {
+      if (!event.isNull(field) && writeField(event, field, first, out)) {
+        first = false;
+      }
+    }
+
+    boolean[] written = new boolean[contexts.size()];
+    for (int i = 0; i < contexts.size(); i++) {
+      if (written[i]) {
+        continue;
+      }
+      // the contexts of a family need not be adjacent, so gather the rest of them now
+      String table = contexts.get(i).schema().tableName();
+      first = writeName("contexts_" + table, first, out);
+      out.append('[');
+      boolean firstEntity = true;
+      for (int j = i; j < contexts.size(); j++) {
+        ContextScanner.Entry entry = contexts.get(j);
+        if (!written[j] && entry.schema().tableName().equals(table)) {
+          written[j] = true;
+          if (!firstEntity) {
+            out.append(',');
+          }
+          firstEntity = false;
+          writeData(entry, out);
+        }
+      }
+      out.append(']');
+    }
+
+    if (payload != null) {
+      writeName("unstruct_event_" + payload.schema().tableName(), first, out);
+      writeData(payload, out);
+    }
+    out.append('}');
+  }
+
+  /** Format an event into a new String of JSON. */
+  public String toJson(SnowplowEvent event) {
+    StringBuilder json = new StringBuilder(2048);
+    try {
+      write(event, json);
+    } catch (IOException exc) {
+      throw new AssertionError(exc);
+    }
+    return json.toString();
+  }
+
+  /** @return true if the field was written, which it is not if it has no JSON value */
+  private boolean writeField(
+      SnowplowEvent event, EventField field, boolean first, Appendable out) throws IOException {
+    switch (field.type()) {
+      case STRING:
+        writeName(field.columnName(), first, out);
+        writeString((String) field.get(event), out);
+        return true;
+      case INT:
+        writeName(field.columnName(), first, out);
+        out.append(Integer.toString(event.intValue(field)));
+        return true;
+      case FLOAT:
+        float value = event.floatValue(field);
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+          return false;
+        }
+        writeName(field.columnName(), first, out);
+        out.append(Float.toString(value));
+        return true;
+      case BOOLEAN:
+        writeName(field.columnName(), first, out);
+        out.append(event.booleanValue(field) ? "true" : "false");
+        return true;
+      case TIMESTAMP:
+        writeName(field.columnName(), first, out);
+        writeTimestamp(event.timestampMillis(field), out);
+        return true;
+      default:
+        throw new AssertionError(field.type());
+    }
+  }
+
+  private void writeTimestamp(long millis, Appendable out) throws IOException {
+    out.append('"');
+    if (EnrichedTimestamps.format(millis, timestamp, 0) < 0) {
+      out.append(ISO_FORMAT.print(millis));
+    } else {
+      // yyyy-MM-dd HH:mm:ss.SSS becomes yyyy-MM-ddTHH:mm:ss.SSSZ
+      timestamp[10] = 'T';
+      for (char c : timestamp) {
+        out.append(c);
+      }
+      out.append('Z');
+    }
+    out.append('"');
+  }
+
+  /**
+   * @return false if the entity's data is malformed and the event's policy is
+   *     {@link ValidationPolicy#NONE}
+   * @throws IllegalArgumentException if the data is malformed under any other policy
+   */
+  private static boolean hasValidData(SnowplowEvent event, ContextScanner.Entry entry) {
+    if (entry.hasValidData()) {
+      return true;
+    }
+    if (event.validationPolicy() != ValidationPolicy.NONE) {
+      throw new IllegalArgumentException(new SnowplowEvent.InvalidFormat(
+          "Invalid format of entity: " + entry.json()));
+    }
+    return false;
+  }
+
+  private static void writeData(ContextScanner.Entry entry, Appendable out) throws IOException {
+    if (entry.dataStart() < 0) {
+      out.append("null");
+    } else {
+      out.append(entry.source(), entry.dataStart(), entry.dataEnd());
+    }
+  }
+
+  /** @return false, the value of <code>first</code> for the next member */
+  private static boolean writeName(String name, boolean first, Appendable out)
+      throws IOException {
+    if (!first) {
+      out.append(',');
+    }
+    writeString(name, out);
+    out.append(':');
+    return false;
+  }
+
+  private static void writeString(String value, Appendable out) throws IOException {
+    out.append('"');
+    int from = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+        continue;
+      }
+      out.append(value, from, i);
+      from = i + 1;
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          out.append("\\u")
+              .append(HEX[c >> 12 & 0xf])
+              .append(HEX[c >> 8 & 0xf])
+              .append(HEX[c >> 4 & 0xf])
+              .append(HEX[c & 0xf]);
+      }
+    }
+    out.append(value, from, value.length());
+    out.append('"');
+  }
+}
@@ -0,0 +1,974 @@
+package io.github.acgray.jplow.value;
+
+import com.google.gson.JsonObject;
+import io.github.acgray.jplow.selfdesc.SelfDescribing;
+import org.joda.time.Instant;
+
+import javax.annotation.Nullable;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link SnowplowEvent} view over a line of Snowplow Enriched TSV which
+ * decodes each column the first time it is accessed.
+ * <p>
+ * The original line and its field offset index are retained, and every
+ * accessor converts its column on first use and memoizes the result, so
+ * reading a handful of columns costs only the conversion of those columns.
+ * Unlike {@link SnowplowEvent#fromTsv(CharSequence)}, no validation beyond
+ * the number of columns is done up front: a malformed column (or context
+ * payload) is reported when it is accessed, by an
+ * {@link IllegalArgumentException} wrapping an {@link InvalidFormat}.
+ * <p>
+ * Instances can be used wherever a {@link SnowplowEvent} is expected. Use
+ * {@link #toImmutable()} to obtain a fully decoded and validated copy with
+ * value-based equality.
+ * <p>
+ * A lazy event may be restricted to a projection of its columns, in which
+ * case the accessors of all other columns return null.
+ * <p>
+ * Concurrent first access to the same column may decode it more than once,
+ * but always yields equal values.
+ */
+public final class LazySnowplowEvent extends SnowplowEvent {
+
+  /** Marks a column which has been decoded to null. */
+  private static final Object ABSENT = new Object();
+
+  private final TsvRow row;
+
+  @Nullable
+  private final EnumSet<EventField> projection;
+
+  private final ValidationPolicy policy;
+
+  @Nullable
+  private final StringDictionary dictionary;
+
+  private transient Object[] values;
+  private transient List<SelfDescribing<JsonObject>> contextObjects;
+  private transient ContextIndex contextIndex;
+  private transient SelfDescribing<JsonObject> unstructEventObject;
+  private transient boolean unstructEventDecoded;
+
+  private LazySnowplowEvent(
+      TsvRow row,
+      @Nullable EnumSet<EventField> projection,
+      ValidationPolicy policy,
+      @Nullable StringDictionary dictionary) {
+    this.row = row;
+    this.projection = projection;
+    this.policy = policy;
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Create a lazy event from a line of enriched TSV.
+   *
+   * @param tsv a single line of enriched output, without its line terminator
+   *
+   * @throws InvalidFormat when the line does not have the expected number of columns
+   */
+  public static LazySnowplowEvent of(CharSequence tsv) throws InvalidFormat {
+    return of(TsvRow.of(tsv.toString()));
+  }
+
+  /**
+   * Create a lazy event from a line of enriched TSV encoded as UTF-8.
+   * The array is retained, not copied.
+   *
+   * @throws InvalidFormat when the line does not have the expected number of columns
+   */
+  public static LazySnowplowEvent of(byte[] utf8) throws InvalidFormat {
+    return of(TsvRow.of(utf8));
+  }
+
+  /**
+   * Create a lazy event from a line of enriched TSV encoded as UTF-8 held
+   * between <code>from</code> (inclusive) and <code>to</code> (exclusive).
+   * The array is retained, not copied.
+   *
+   * @throws InvalidFormat when the line does not have the expected number of columns
+   */
+  public static LazySnowplowEvent of(byte[] utf8, int from, int to) throws InvalidFormat {
+    return of(TsvRow.of(utf8, from, to));
+  }
+
+  /**
+   * Create a lazy event backed by an already indexed row.
+   *
+   * @throws InvalidFormat when the row does not have the expected number of columns
+   */
+  public static LazySnowplowEvent of(TsvRow row) throws InvalidFormat {
+    checkFieldCount(row);
+    return new LazySnowplowEvent(row, null, ValidationPolicy.LAZY, null);
+  }
+
+  /**
+   * Create a lazy event backed by an already indexed row, exposing only the
+   * given columns. Accessors for all other columns return null.
+   *
+   * @throws InvalidFormat when the row does not have the expected number of columns
+   */
+  public static LazySnowplowEvent of(TsvRow row, Set<EventField> fields)
+      throws InvalidFormat {
+    return of(row, fields, ValidationPolicy.LAZY);
+  }
+
+  /**
+   * Create a lazy event backed by an already indexed row, exposing only the
+   * given columns, with the given policy for reporting malformed JSON
+   * columns. Since nothing is decoded up front, {@link ValidationPolicy#EAGER}
+   * behaves as {@link ValidationPolicy#LAZY} here.
+   *
+   * @throws InvalidFormat when the row does not have the expected number of columns
+   */
+  public static LazySnowplowEvent of(
+      TsvRow row, Set<EventField> fields, ValidationPolicy policy)
+      throws InvalidFormat {
+    return of(row, fields, policy, null);
+  }
+
+  /**
+   * Create a lazy event backed by an already indexed row, exposing only the
+   * given columns and looking up the values of string columns covered by a
+   * dictionary as they are decoded.
+   *
+   * @see #of(TsvRow, Set, ValidationPolicy)
+   */
+  public static LazySnowplowEvent of(
+      TsvRow row,
+      Set<EventField> fields,
+      ValidationPolicy policy,
+      @Nullable StringDictionary dictionary)
+      throws InvalidFormat {
+    checkFieldCount(row);
+    return new LazySnowplowEvent(
+        row,
+        fields.isEmpty() ? EnumSet.noneOf(EventField.class) : EnumSet.copyOf(fields),
+        policy,
+        dictionary);
+  }
+
+  /** @return the row this event decodes its columns from */
+  public TsvRow row() {
+    return row;
+  }
+
+  /**
+   * @return true if the column is part of this event's projection, i.e. its
+   * accessor returns the column's value rather than null
+   */
+  public boolean isProjected(EventField field) {
+    return projection == null || projection.contains(field);
+  }
+
+  /**
+   * Decode every column and build an immutable copy of this event,
+   * validating it in the same way as {@link SnowplowEvent#fromTsv(CharSequence)}.
+   */
+  public SnowplowEvent toImmutable() {
+    return ImmutableSnowplowEvent.builder()
+        .from(this)
+        .validationPolicy(ValidationPolicy.EAGER)
+        .build();
+  }
+
+  /**
+   * @return the policy for malformed JSON columns, {@link ValidationPolicy#LAZY}
+   * unless another was given when the event was created
+   */
+  @Override
+  public ValidationPolicy validationPolicy() {
+    return policy;
+  }
+
+  @Override
+  public String appId() {
+    return (String) value(EventField.APP_ID);
+  }
+
+  @Override
+  public String platform() {
+    return (String) value(EventField.PLATFORM);
+  }
+
+  @Override
+  public Instant etlTstamp() {
+    return (Instant) value(EventField.ETL_TSTAMP);
+  }
+
+  @Override
+  public Instant collectorTstamp() {
+    return (Instant) value(EventField.COLLECTOR_TSTAMP);
+  }
+
+  @Override
+  public Instant dvceCreatedTstamp() {
+    return (Instant) value(EventField.DVCE_CREATED_TSTAMP);
+  }
+
+  @Override
+  public String event() {
+    return (String) value(EventField.EVENT);
+  }
+
+  @Override
+  public String eventId() {
+    return (String) value(EventField.EVENT_ID);
+  }
+
+  @Override
+  public Integer txnId() {
+    return (Integer) value(EventField.TXN_ID);
+  }
+
+  @Override
+  public String nameTracker() {
+    return (String) value(EventField.NAME_TRACKER);
+  }
+
+  @Override
+  public String vTracker() {
+    return (String) value(EventField.V_TRACKER);
+  }
+
+  @Override
+  public String vCollector() {
+    return (String) value(EventField.V_COLLECTOR);
+  }
+
+  @Override
+  public String vEtl() {
+    return (String) value(EventField.V_ETL);
+  }
+
+  @Override
+  public String userId() {
+    return (String) value(EventField.USER_ID);
+  }
+
+  @Override
+  public String userIpaddress() {
+    return (String) value(EventField.USER_IPADDRESS);
+  }
+
+  @Override
+  public String userFingerprint() {
+    return (String) value(EventField.USER_FINGERPRINT);
+  }
+
+  @Override
+  public String domainUserid() {
+    return (String) value(EventField.DOMAIN_USERID);
+  }
+
+  @Override
+  public Integer domainSessionidx() {
+    return (Integer) value(EventField.DOMAIN_SESSIONIDX);
+  }
+
+  @Override
+  public String networkUserid() {
+    return (String) value(EventField.NETWORK_USERID);
+  }
+
+  @Override
+  public String geoCountry() {
+    return (String) value(EventField.GEO_COUNTRY);
+  }
+
+  @Override
+  public String geoRegion() {
+    return (String) value(EventField.GEO_REGION);
+  }
+
+  @Override
+  public String geoCity() {
+    return (String) value(EventField.GEO_CITY);
+  }
+
+  @Override
+  public String geoZipcode() {
+    return (String) value(EventField.GEO_ZIPCODE);
+  }
+
+  @Override
+  public Float geoLatitude() {
+    return (Float) value(EventField.GEO_LATITUDE);
+  }
+
+  @Override
+  public Float geoLongitude() {
+    return (Float) value(EventField.GEO_LONGITUDE);
+  }
+
+  @Override
+  public String geoRegionName() {
+    return (String) value(EventField.GEO_REGION_NAME);
+  }
+
+  @Override
+  public String ipIsp() {
+    return (String) value(EventField.IP_ISP);
+  }
+
+  @Override
+  public String ipOrganization() {
+    return (String) value(EventField.IP_ORGANIZATION);
+  }
+
+  @Override
+  public String ipDomain() {
+    return (String) value(EventField.IP_DOMAIN);
+  }
+
+  @Override
+  public String ipNetspeed() {
+    return (String) value(EventField.IP_NETSPEED);
+  }
+
+  @Override
+  public String pageUrl() {
+    return (String) value(EventField.PAGE_URL);
+  }
+
+  @Override
+  public String pageTitle() {
+    return (String) value(EventField.PAGE_TITLE);
+  }
+
+  @Override
+  public String pageReferrer() {
+    return (String) value(EventField.PAGE_REFERRER);
+  }
+
+  @Override
+  public String pageUrlscheme() {
+    return (String) value(EventField.PAGE_URLSCHEME);
+  }
+
+  @Override
+  public String pageUrlhost() {
+    return (String) value(EventField.PAGE_URLHOST);
+  }
+
+  @Override
+  public String pageUrlport() {
+    return (String) value(EventField.PAGE_URLPORT);
+  }
+
+  @Override
+  public String pageUrlpath() {
+    return (String) value(EventField.PAGE_URLPATH);
+  }
+
+  @Override
+  public String pageUrlquery() {
+    return (String) value(EventField.PAGE_URLQUERY);
+  }
+
+  @Override
+  public String pageUrlfragment() {
+    return (String) value(EventField.PAGE_URLFRAGMENT);
+  }
+
+  @Override
+  public String refrUrlscheme() {
+    return (String) value(EventField.REFR_URLSCHEME);
+  }
+
+  @Override
+  public String refrUrlhost() {
+    return (String) value(EventField.REFR_URLHOST);
+  }
+
+  @Override
+  public String refrUrlport() {
+    return (String) value(EventField.REFR_URLPORT);
+  }
+
+  @Override
+  public String refrUrlpath() {
+    return (String) value(EventField.REFR_URLPATH);
+  }
+
+  @Override
+  public String refrUrlquery() {
+    return (String) value(EventField.REFR_URLQUERY);
+  }
+
+  @Override
+  public String refrUrlfragment() {
+    return (String) value(EventField.REFR_URLFRAGMENT);
+  }
+
+  @Override
+  public String refrMedium() {
+    return (String) value(EventField.REFR_MEDIUM);
+  }
+
+  @Override
+  public String refrSource() {
+    return (String) value(EventField.REFR_SOURCE);
+  }
+
+  @Override
+  public String refrTerm() {
+    return (String) value(EventField.REFR_TERM);
+  }
+
+  @Override
+  public String mktMedium() {
+    return (String) value(EventField.MKT_MEDIUM);
+  }
+
+  @Override
+  public String mktSource() {
+    return (String) value(EventField.MKT_SOURCE);
+  }
+
+  @Override
+  public String mktTerm() {
+    return (String) value(EventField.MKT_TERM);
+  }
+
+  @Override
+  public String mktContent() {
+    return (String) value(EventField.MKT_CONTENT);
+  }
+
+  @Override
+  public String mktCampaign() {
+    return (String) value(EventField.MKT_CAMPAIGN);
+  }
+
+  @Override
+  public String contexts() {
+    return (String) value(EventField.CONTEXTS);
+  }
+
+  @Override
+  public String seCategory() {
+    return (String) value(EventField.SE_CATEGORY);
+  }
+
+  @Override
+  public String seAction() {
+    return (String) value(EventField.SE_ACTION);
+  }
+
+  @Override
+  public String seLabel() {
+    return (String) value(EventField.SE_LABEL);
+  }
+
+  @Override
+  public String seProperty() {
+    return (String) value(EventField.SE_PROPERTY);
+  }
+
+  @Override
+  public String seValue() {
+    return (String) value(EventField.SE_VALUE);
+  }
+
+  @Override
+  public String unstructEvent() {
+    return (String) value(EventField.UNSTRUCT_EVENT);
+  }
+
+  @Override
+  public String trOrderid() {
+    return (String) value(EventField.TR_ORDERID);
+  }
+
+  @Override
+  public String trAffiliation() {
+    return (String) value(EventField.TR_AFFILIATION);
+  }
+
+  @Override
+  public String trTotal() {
+    return (String) value(EventField.TR_TOTAL);
+  }
+
+  @Override
+  public String trTax() {
+    return (String) value(EventField.TR_TAX);
+  }
+
+  @Override
+  public String trShipping() {
+    return (String) value(EventField.TR_SHIPPING);
+  }
+
+  @Override
+  public String trCity() {
+    return (String) value(EventField.TR_CITY);
+  }
+
+  @Override
+  public String trState() {
+    return (String) value(EventField.TR_STATE);
+  }
+
+  @Override
+  public String trCountry() {
+    return (String) value(EventField.TR_COUNTRY);
+  }
+
+  @Override
+  public String tiOrderid() {
+    return (String) value(EventField.TI_ORDERID);
+  }
+
+  @Override
+  public String tiSku() {
+    return (String) value(EventField.TI_SKU);
+  }
+
+  @Override
+  public String tiName() {
+    return (String) value(EventField.TI_NAME);
+  }
+
+  @Override
+  public String tiCategory() {
+    return (String) value(EventField.TI_CATEGORY);
+  }
+
+  @Override
+  public String tiPrice() {
+    return (String) value(EventField.TI_PRICE);
+  }
+
+  @Override
+  public Integer tiQuantity() {
+    return (Integer) value(EventField.TI_QUANTITY);
+  }
+
+  @Override
+  public Integer ppXoffsetMin() {
+    return (Integer) value(EventField.PP_XOFFSET_MIN);
+  }
+
+  @Override
+  public Integer ppXoffsetMax() {
+    return (Integer) value(EventField.PP_XOFFSET_MAX);
+  }
+
+  @Override
+  public Integer ppYoffsetMin() {
+    return (Integer) value(EventField.PP_YOFFSET_MIN);
+  }
+
+  @Override
+  public Integer ppYoffsetMax() {
+    return (Integer) value(EventField.PP_YOFFSET_MAX);
+  }
+
+  @Override
+  public String useragent() {
+    return (String) value(EventField.USERAGENT);
+  }
+
+  @Override
+  public String brName() {
+    return (String) value(EventField.BR_NAME);
+  }
+
+  @Override
+  public String brFamily() {
+    return (String) value(EventField.BR_FAMILY);
+  }
+
+  @Override
+  public String brVersion() {
+    return (String) value(EventField.BR_VERSION);
+  }
+
+  @Override
+  public String brType() {
+    return (String) value(EventField.BR_TYPE);
+  }
+
+  @Override
+  public String brRenderengine() {
+    return (String) value(EventField.BR_RENDERENGINE);
+  }
+
+  @Override
+  public String brLang() {
+    return (String) value(EventField.BR_LANG);
+  }
+
+  @Override
+  public Boolean brFeaturesPdf() {
+    return (Boolean) value(EventField.BR_FEATURES_PDF);
+  }
+
+  @Override
+  public Boolean brFeaturesFlash() {
+    return (Boolean) value(EventField.BR_FEATURES_FLASH);
+  }
+
+  @Override
+  public Boolean brFeaturesJava() {
+    return (Boolean) value(EventField.BR_FEATURES_JAVA);
+  }
+
+  @Override
+  public Boolean brFeaturesDirector() {
+    return (Boolean) value(EventField.BR_FEATURES_DIRECTOR);
+  }
+
+  @Override
+  public Boolean brFeaturesQuicktime() {
+    return (Boolean) value(EventField.BR_FEATURES_QUICKTIME);
+  }
+
+  @Override
+  public Boolean brFeaturesRealplayer() {
+    return (Boolean) value(EventField.BR_FEATURES_REALPLAYER);
+  }
+
+  @Override
+  public Boolean brFeaturesWindowsmedia() {
+    return (Boolean) value(EventField.BR_FEATURES_WINDOWSMEDIA);
+  }
+
+  @Override
+  public Boolean brFeaturesGears() {
+    return (Boolean) value(EventField.BR_FEATURES_GEARS);
+  }
+
+  @Override
+  public Boolean brFeaturesSilverlight() {
+    return (Boolean) value(EventField.BR_FEATURES_SILVERLIGHT);
+  }
+
+  @Override
+  public Boolean brCookies() {
+    return (Boolean) value(EventField.BR_COOKIES);
+  }
+
+  @Override
+  public String brColordepth() {
+    return (String) value(EventField.BR_COLORDEPTH);
+  }
+
+  @Override
+  public Integer brViewwidth() {
+    return (Integer) value(EventField.BR_VIEWWIDTH);
+  }
+
+  @Override
+  public Integer brViewheight() {
+    return (Integer) value(EventField.BR_VIEWHEIGHT);
+  }
+
+  @Override
+  public String osName() {
+    return (String) value(EventField.OS_NAME);
+  }
+
+  @Override
+  public String osFamily() {
+    return (String) value(EventField.OS_FAMILY);
+  }
+
+  @Override
+  public String osManufacturer() {
+    return (String) value(EventField.OS_MANUFACTURER);
+  }
+
+  @Override
+  public String osTimezone() {
+    return (String) value(EventField.OS_TIMEZONE);
+  }
+
+  @Override
+  public String dvceType() {
+    return (String) value(EventField.DVCE_TYPE);
+  }
+
+  @Override
+  public Boolean dvceIsmobile() {
+    return (Boolean) value(EventField.DVCE_ISMOBILE);
+  }
+
+  @Override
+  public Integer dvceScreenwidth() {
+    return (Integer) value(EventField.DVCE_SCREENWIDTH);
+  }
+
+  @Override
+  public Integer dvceScreenheight() {
+    return (Integer) value(EventField.DVCE_SCREENHEIGHT);
+  }
+
+  @Override
+  public String docCharset() {
+    return (String) value(EventField.DOC_CHARSET);
+  }
+
+  @Override
+  public Integer docWidth() {
+    return (Integer) value(EventField.DOC_WIDTH);
+  }
+
+  @Override
+  public Integer docHeight() {
+    return (Integer) value(EventField.DOC_HEIGHT);
+  }
+
+  @Override
+  public String trCurrency() {
+    return (String) value(EventField.TR_CURRENCY);
+  }
+
+  @Override
+  public String trTotalBase() {
+    return (String) value(EventField.TR_TOTAL_BASE);
+  }
+
+  @Override
+  public String trTaxBase() {
+    return (String) value(EventField.TR_TAX_BASE);
+  }
+
+  @Override
+  public String trShippingBase() {
+    return (String) value(EventField.TR_SHIPPING_BASE);
+  }
+
+  @Override
+  public String tiCurrency() {
+    return (String) value(EventField.TI_CURRENCY);
+  }
+
+  @Override
+  public String tiPriceBase() {
+    return (String) value(EventField.TI_PRICE_BASE);
+  }
+
+  @Override
+  public String baseCurrency() {
+    return (String) value(EventField.BASE_CURRENCY);
+  }
+
+  @Override
+  public String geoTimezone() {
+    return (String) value(EventField.GEO_TIMEZONE);
+  }
+
+  @Override
+  public String mktClickid() {
+    return (String) value(EventField.MKT_CLICKID);
+  }
+
+  @Override
+  public String mktNetwork() {
+    return (String) value(EventField.MKT_NETWORK);
+  }
+
+  @Override
+  public String etlTags() {
+    return (String) value(EventField.ETL_TAGS);
+  }
+
+  @Override
+  public Instant dvceSentTstamp() {
+    return (Instant) value(EventField.DVCE_SENT_TSTAMP);
+  }
+
+  @Override
+  public String refrDomainUserid() {
+    return (String) value(EventField.REFR_DOMAIN_USERID);
+  }
+
+  @Override
+  public String refrDvceTstamp() {
+    return (String) value(EventField.REFR_DVCE_TSTAMP);
+  }
+
+  @Override
+  public String derivedContexts() {
+    return (String) value(EventField.DERIVED_CONTEXTS);
+  }
+
+  @Override
+  public String domainSessionid() {
+    return (String) value(EventField.DOMAIN_SESSIONID);
+  }
+
+  @Override
+  public Instant derivedTstamp() {
+    return (Instant) value(EventField.DERIVED_TSTAMP);
+  }
+
+  @Override
+  public String eventVendor() {
+    return (String) value(EventField.EVENT_VENDOR);
+  }
+
+  @Override
+  public String eventName() {
+    return (String) value(EventField.EVENT_NAME);
+  }
+
+  @Override
+  public String eventFormat() {
+    return (String) value(EventField.EVENT_FORMAT);
+  }
+
+  @Override
+  public String eventVersion() {
+    return (String) value(EventField.EVENT_VERSION);
+  }
+
+  @Override
+  public String eventFingerprint() {
+    return (String) value(EventField.EVENT_FINGERPRINT);
+  }
+
+  @Override
+  public Instant trueTstamp() {
+    return (Instant) value(EventField.TRUE_TSTAMP);
+  }
+
+  @Override
+  public long etlTstampMillis() {
+    return millis(EventField.ETL_TSTAMP);
+  }
+
+  @Override
+  public long collectorTstampMillis() {
+    return millis(EventField.COLLECTOR_TSTAMP);
+  }
+
+  @Override
+  public long dvceCreatedTstampMillis() {
+    return millis(EventField.DVCE_CREATED_TSTAMP);
+  }
+
+  @Override
+  public long dvceSentTstampMillis() {
+    return millis(EventField.DVCE_SENT_TSTAMP);
+  }
+
+  @Override
+  public long derivedTstampMillis() {
+    return millis(EventField.DERIVED_TSTAMP);
+  }
+
+  @Override
+  public long trueTstampMillis() {
+    return millis(EventField.TRUE_TSTAMP);
+  }
+
+  @Override
+  List<SelfDescribing<JsonObject>> contextObjects() {
+    List<SelfDescribing<JsonObject>> result = contextObjects;
+    if (result == null) {
+      result = super.contextObjects();
+      contextObjects = result;
+    }
+    return result;
+  }
+
+  @Override
+  ContextIndex contextIndex() {
+    ContextIndex result = contextIndex;
+    if (result == null) {
+      result = super.contextIndex();
+      contextIndex = result;
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public SelfDescribing<JsonObject> unstructEventObject() {
+    if (!unstructEventDecoded) {
+      unstructEventObject = super.unstructEventObject();
+      unstructEventDecoded = true;
+    }
+    return unstructEventObject;
+  }
+
+  @Override
+  public String toString() {
+    return "LazySnowplowEvent{" + row + "}";
+  }
+
+  /**
+   * @return the decoded value of a column, or null if it is empty or outside
+   * of the projection
+   *
+   * @throws IllegalArgumentException wrapping an {@link InvalidFormat} if the
+   * column holds an invalid value, or is a required column and is empty
+   */
+  Object value(EventField field) {
+    if (!isProjected(field)) {
+      return null;
+    }
+
+    Object[] decoded = values;
+    if (decoded == null) {
+      decoded = new Object[EventField.values().length];
+      values = decoded;
+    }
+
+    Object value = decoded[field.ordinal()];
+    if (value == null) {
+      value = decode(field);
+      decoded[field.ordinal()] = value == null ? ABSENT : value;
+      return value;
+    }
+    return value == ABSENT ? null : value;
+  }
+
+  /**
+   * Read a timestamp column straight from the row, only creating an
+   * {@link Instant} if it is not in the canonical format.
+   */
+  private long millis(EventField field) {
+    if (!isProjected(field) || field.index() >= row.fieldCount()) {
+      return EnrichedTimestamps.NONE;
+    }
+
+    Object[] decoded = values;
+    Object cached = decoded == null ? null : decoded[field.ordinal()];
+    if (cached == null) {
+      long millis = row.timestampMillis(field.index());
+      if (millis != EnrichedTimestamps.NONE
+          || row.isEmpty(field.index()) && field.isNullable()) {
+        return millis;
+      }
+      cached = value(field);
+    }
+    return cached == ABSENT ? EnrichedTimestamps.NONE : ((Instant) cached).getMillis();
+  }
+
+  private Object decode(EventField field) {
+    if (!field.isNullable()
+        && field.type() != EventField.Type.STRING
+        && field.index() < row.fieldCount()
+        && row.isEmpty(field.index())) {
+      throw new IllegalArgumentException(new InvalidFormat(
+          "Missing value in required column " + field.columnName()));
+    }
+    try {
+      return field.decode(row, dictionary);
+    } catch (IllegalArgumentException exc) {
+      throw new IllegalArgumentException(
+          new InvalidFormat(String.format(
+              "Invalid value in column %s: %s",
+              field.columnName(),
+              row.rawValue(field.index()))));
+    }
+  }
+}
@@ -0,0 +1,1002 @@
+package io.github.acgray.jplow.value;
+
+import com.google.gson.JsonObject;
+import io.github.acgray.jplow.selfdesc.SelfDescribing;
+import org.joda.time.Instant;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact {@link SnowplowEvent} which stores its numeric, boolean and
+ * timestamp columns as primitives.
+ * <p>
+ * Each column is held in one array per {@link EventField.Type}, indexed by
+ * {@link EventField#typeIndex()}: Strings in a <code>String[]</code>,
+ * integers in an <code>int[]</code>, floats in a <code>float[]</code> and
+ * timestamps as epoch milliseconds in a <code>long[]</code>. Booleans are
+ * packed into the bits of a single <code>long</code>, and whether each
+ * column is null is recorded in a bitmap indexed by column. A retained event
+ * therefore costs a handful of objects rather than one wrapper per column.
+ * <p>
+ * The primitive accessors ({@link #intValue(EventField)},
+ * {@link #timestampMillis(EventField)}, ...) read the arrays directly,
+ * while the boxed accessors inherited from {@link SnowplowEvent} box on
+ * each call.
+ */
+public final class PackedSnowplowEvent extends SnowplowEvent {
+
+  private static final int COLUMNS = EventField.values().length;
+
+  private final String[] strings =
+      new String[EventField.columnsOf(EventField.Type.STRING).size()];
+  private final int[] ints =
+      new int[EventField.columnsOf(EventField.Type.INT).size()];
+  private final float[] floats =
+      new float[EventField.columnsOf(EventField.Type.FLOAT).size()];
+  private final long[] timestamps =
+      new long[EventField.columnsOf(EventField.Type.TIMESTAMP).size()];
+  private final long[] nulls = new long[(COLUMNS + 63) >>> 6];
+  private long booleans;
+  private ValidationPolicy policy = ValidationPolicy.LAZY;
+
+  private transient List<SelfDescribing<JsonObject>> contextObjects;
+  private transient ContextIndex contextIndex;
+  private transient SelfDescribing<JsonObject> unstructEventObject;
+  private transient boolean unstructEventDecoded;
+
+  private PackedSnowplowEvent() {}
+
+  /** Create an event with no null columns, to be filled in column by column. */
+  PackedSnowplowEvent(ValidationPolicy policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * Create a packed copy of an event, or return the event itself if it is
+   * already packed.
+   */
+  public static PackedSnowplowEvent copyOf(SnowplowEvent event) {
+    if (event instanceof PackedSnowplowEvent) {
+      return (PackedSnowplowEvent) event;
+    }
+
+    PackedSnowplowEvent packed = new PackedSnowplowEvent();
+    packed.policy = event.validationPolicy();
+    for (EventField field : EventField.values()) {
+      Object value = field.get(event);
+      if (value == null) {
+        packed.setNull(field);
+        continue;
+      }
+
+      int slot = field.typeIndex();
+      switch (field.type()) {
+        case STRING:
+          packed.strings[slot] = (String) value;
+          break;
+        case INT:
+          packed.ints[slot] = (Integer) value;
+          break;
+        case FLOAT:
+          packed.floats[slot] = (Float) value;
+          break;
+        case BOOLEAN:
+          packed.setBoolean(slot, (Boolean) value);
+          break;
+        case TIMESTAMP:
+          packed.timestamps[slot] = ((Instant) value).getMillis();
+          break;
+        default:
+          throw new AssertionError(field.type());
+      }
+    }
+    return packed;
+  }
+
+  /**
+   * Create a packed event from a line of enriched TSV. Columns are converted
+   * directly into primitives, without boxing.
+   * <p>
+   * The context and unstructured event payloads are not validated until
+   * they are accessed.
+   *
+   * @param tsv a single line of enriched output, without its line terminator
+   *
+   * @throws InvalidFormat when the line does not have the expected number of
+   * columns or a column holds an invalid value
+   */
+  public static PackedSnowplowEvent of(CharSequence tsv) throws InvalidFormat {
+    return of(TsvRow.of(tsv));
+  }
+
+  /**
+   * Create a packed event from an indexed row of enriched TSV.
+   *
+   * @see #of(CharSequence)
+   */
+  public static PackedSnowplowEvent of(TsvRow row) throws InvalidFormat {
+    checkFieldCount(row);
+
+    PackedSnowplowEvent packed = new PackedSnowplowEvent();
+    EventField current = null;
+    try {
+      for (EventField field : EventField.values()) {
+        current = field;
+        int i = field.index();
+        if (i >= row.fieldCount() || row.isEmpty(i) && field.isNullable()) {
+          packed.setNull(field);
+          continue;
+        }
+        if (row.isEmpty(i) && field.type() != EventField.Type.STRING) {
+          throw new InvalidFormat("Missing value in required column " + field.columnName());
+        }
+
+        int slot = field.typeIndex();
+        switch (field.type()) {
+          case STRING:
+            packed.strings[slot] = row.rawValue(i);
+            break;
+          case INT:
+            packed.ints[slot] = row.parseInt(i);
+            break;
+          case FLOAT:
+            packed.floats[slot] = Float.parseFloat(row.rawValue(i));
+            break;
+          case BOOLEAN:
+            packed.setBoolean(slot, row.parseBoolean(i));
+            break;
+          case TIMESTAMP:
+            long millis = row.timestampMillis(i);
+            packed.timestamps[slot] = millis != EnrichedTimestamps.NONE
+                ? millis
+                : row.instantValue(i).getMillis();
+            break;
+          default:
+            throw new AssertionError(field.type());
+        }
+      }
+    } catch (IllegalArgumentException exc) {
+      throw new InvalidFormat(String.format(
+          "Invalid value in column %s: %s",
+          current.columnName(),
+          row.rawValue(current.index())));
+    }
+    return packed;
+  }
+
+  @Override
+  public boolean isNull(EventField field) {
+    int i = field.ordinal();
+    return (nulls[i >>> 6] & (1L << i)) != 0;
+  }
+
+  @Override
+  public int intValue(EventField field) {
+    checkType(field, EventField.Type.INT);
+    return isNull(field) ? 0 : ints[field.typeIndex()];
+  }
+
+  @Override
+  public float floatValue(EventField field) {
+    checkType(field, EventField.Type.FLOAT);
+    return isNull(field) ? 0f : floats[field.typeIndex()];
+  }
+
+  @Override
+  public boolean booleanValue(EventField field) {
+    checkType(field, EventField.Type.BOOLEAN);
+    return !isNull(field) && (booleans & (1L << field.typeIndex())) != 0;
+  }
+
+  @Override
+  public long timestampMillis(EventField field) {
+    checkType(field, EventField.Type.TIMESTAMP);
+    return isNull(field) ? EnrichedTimestamps.NONE : timestamps[field.typeIndex()];
+  }
+
+  @Override
+  public long etlTstampMillis() {
+    return timestampMillis(EventField.ETL_TSTAMP);
+  }
+
+  @Override
+  public long collectorTstampMillis() {
+    return timestampMillis(EventField.COLLECTOR_TSTAMP);
+  }
+
+  @Override
+  public long dvceCreatedTstampMillis() {
+    return timestampMillis(EventField.DVCE_CREATED_TSTAMP);
+  }
+
+  @Override
+  public long dvceSentTstampMillis() {
+    return timestampMillis(EventField.DVCE_SENT_TSTAMP);
+  }
+
+  @Override
+  public long derivedTstampMillis() {
+    return timestampMillis(EventField.DERIVED_TSTAMP);
+  }
+
+  @Override
+  public long trueTstampMillis() {
+    return timestampMillis(EventField.TRUE_TSTAMP);
+  }
+
+  @Override
+  public String appId() {
+    return string(EventField.APP_ID);
+  }
+
+  @Override
+  public String platform() {
+    return string(EventField.PLATFORM);
+  }
+
+  @Override
+  public Instant etlTstamp() {
+    return instant(EventField.ETL_TSTAMP);
+  }
+
+  @Override
+  public Instant collectorTstamp() {
+    return instant(EventField.COLLECTOR_TSTAMP);
+  }
+
+  @Override
+  public Instant dvceCreatedTstamp() {
+    return instant(EventField.DVCE_CREATED_TSTAMP);
+  }
+
+  @Override
+  public String event() {
+    return string(EventField.EVENT);
+  }
+
+  @Override
+  public String eventId() {
+    return string(EventField.EVENT_ID);
+  }
+
+  @Override
+  public Integer txnId() {
+    return boxedInt(EventField.TXN_ID);
+  }
+
+  @Override
+  public String nameTracker() {
+    return string(EventField.NAME_TRACKER);
+  }
+
+  @Override
+  public String vTracker() {
+    return string(EventField.V_TRACKER);
+  }
+
+  @Override
+  public String vCollector() {
+    return string(EventField.V_COLLECTOR);
+  }
+
+  @Override
+  public String vEtl() {
+    return string(EventField.V_ETL);
+  }
+
+  @Override
+  public String userId() {
+    return string(EventField.USER_ID);
+  }
+
+  @Override
+  public String userIpaddress() {
+    return string(EventField.USER_IPADDRESS);
+  }
+
+  @Override
+  public String userFingerprint() {
+    return string(EventField.USER_FINGERPRINT);
+  }
+
+  @Override
+  public String domainUserid() {
+    return string(EventField.DOMAIN_USERID);
+  }
+
+  @Override
+  public Integer domainSessionidx() {
+    return boxedInt(EventField.DOMAIN_SESSIONIDX);
+  }
+
+  @Override
+  public String networkUserid() {
+    return string(EventField.NETWORK_USERID);
+  }
+
+  @Override
+  public String geoCountry() {
+    return string(EventField.GEO_COUNTRY);
+  }
+
+  @Override
+  public String geoRegion() {
+    return string(EventField.GEO_REGION);
+  }
+
+  @Override
+  public String geoCity() {
+    return string(EventField.GEO_CITY);
+  }
+
+  @Override
+  public String geoZipcode() {
+    return string(EventField.GEO_ZIPCODE);
+  }
+
+  @Override
+  public Float geoLatitude() {
+    return boxedFloat(EventField.GEO_LATITUDE);
+  }
+
+  @Override
+  public Float geoLongitude() {
+    return boxedFloat(EventField.GEO_LONGITUDE);
+  }
+
+  @Override
+  public String geoRegionName() {
+    return string(EventField.GEO_REGION_NAME);
+  }
+
+  @Override
+  public String ipIsp() {
+    return string(EventField.IP_ISP);
+  }
+
+  @Override
+  public String ipOrganization() {
+    return string(EventField.IP_ORGANIZATION);
+  }
+
+  @Override
+  public String ipDomain() {
+    return string(EventField.IP_DOMAIN);
+  }
+
+  @Override
+  public String ipNetspeed() {
+    return string(EventField.IP_NETSPEED);
+  }
+
+  @Override
+  public String pageUrl() {
+    return string(EventField.PAGE_URL);
+  }
+
+  @Override
+  public String pageTitle() {
+    return string(EventField.PAGE_TITLE);
+  }
+
+  @Override
+  public String pageReferrer() {
+    return string(EventField.PAGE_REFERRER);
+  }
+
+  @Override
+  public String pageUrlscheme() {
+    return string(EventField.PAGE_URLSCHEME);
+  }
+
+  @Override
+  public String pageUrlhost() {
+    return string(EventField.PAGE_URLHOST);
+  }
+
+  @Override
+  public String pageUrlport() {
+    return string(EventField.PAGE_URLPORT);
+  }
+
+  @Override
+  public String pageUrlpath() {
+    return string(EventField.PAGE_URLPATH);
+  }
+
+  @Override
+  public String pageUrlquery() {
+    return string(EventField.PAGE_URLQUERY);
+  }
+
+  @Override
+  public String pageUrlfragment() {
+    return string(EventField.PAGE_URLFRAGMENT);
+  }
+
+  @Override
+  public String refrUrlscheme() {
+    return string(EventField.REFR_URLSCHEME);
+  }
+
+  @Override
+  public String refrUrlhost() {
+    return string(EventField.REFR_URLHOST);
+  }
+
+  @Override
+  public String refrUrlport() {
+    return string(EventField.REFR_URLPORT);
+  }
+
+  @Override
+  public String refrUrlpath() {
+    return string(EventField.REFR_URLPATH);
+  }
+
+  @Override
+  public String refrUrlquery() {
+    return string(EventField.REFR_URLQUERY);
+  }
+
+  @Override
+  public String refrUrlfragment() {
+    return string(EventField.REFR_URLFRAGMENT);
+  }
+
+  @Override
+  public String refrMedium() {
+    return string(EventField.REFR_MEDIUM);
+  }
+
+  @Override
+  public String refrSource() {
+    return string(EventField.REFR_SOURCE);
+  }
+
+  @Override
+  public String refrTerm() {
+    return string(EventField.REFR_TERM);
+  }
+
+  @Override
+  public String mktMedium() {
+    return string(EventField.MKT_MEDIUM);
+  }
+
+  @Override
+  public String mktSource() {
+    return string(EventField.MKT_SOURCE);
+  }
+
+  @Override
+  public String mktTerm() {
+    return string(EventField.MKT_TERM);
+  }
+
+  @Override
+  public String mktContent() {
+    return string(EventField.MKT_CONTENT);
+  }
+
+  @Override
+  public String mktCampaign() {
+    return string(EventField.MKT_CAMPAIGN);
+  }
+
+  @Override
+  public String contexts() {
+    return string(EventField.CONTEXTS);
+  }
+
+  @Override
+  public String seCategory() {
+    return string(EventField.SE_CATEGORY);
+  }
+
+  @Override
+  public String seAction() {
+    return string(EventField.SE_ACTION);
+  }
+
+  @Override
+  public String seLabel() {
+    return string(EventField.SE_LABEL);
+  }
+
+  @Override
+  public String seProperty() {
+    return string(EventField.SE_PROPERTY);
+  }
+
+  @Override
+  public String seValue() {
+    return string(EventField.SE_VALUE);
+  }
+
+  @Override
+  public String unstructEvent() {
+    return string(EventField.UNSTRUCT_EVENT);
+  }
+
+  @Override
+  public String trOrderid() {
+    return string(EventField.TR_ORDERID);
+  }
+
+  @Override
+  public String trAffiliation() {
+    return string(EventField.TR_AFFILIATION);
+  }
+
+  @Override
+  public String trTotal() {
+    return string(EventField.TR_TOTAL);
+  }
+
+  @Override
+  public String trTax() {
+    return string(EventField.TR_TAX);
+  }
+
+  @Override
+  public String trShipping() {
+    return string(EventField.TR_SHIPPING);
+  }
+
+  @Override
+  public String trCity() {
+    return string(EventField.TR_CITY);
+  }
+
+  @Override
+  public String trState() {
+    return string(EventField.TR_STATE);
+  }
+
+  @Override
+  public String trCountry() {
+    return string(EventField.TR_COUNTRY);
+  }
+
+  @Override
+  public String tiOrderid() {
+    return string(EventField.TI_ORDERID);
+  }
+
+  @Override
+  public String tiSku() {
+    return string(EventField.TI_SKU);
+  }
+
+  @Override
+  public String tiName() {
+    return string(EventField.TI_NAME);
+  }
+
+  @Override
+  public String tiCategory() {
+    return string(EventField.TI_CATEGORY);
+  }
+
+  @Override
+  public String tiPrice() {
+    return string(EventField.TI_PRICE);
+  }
+
+  @Override
+  public Integer tiQuantity() {
+    return boxedInt(EventField.TI_QUANTITY);
+  }
+
+  @Override
+  public Integer ppXoffsetMin() {
+    return boxedInt(EventField.PP_XOFFSET_MIN);
+  }
+
+  @Override
+  public Integer ppXoffsetMax() {
+    return boxedInt(EventField.PP_XOFFSET_MAX);
+  }
+
+  @Override
+  public Integer ppYoffsetMin() {
+    return boxedInt(EventField.PP_YOFFSET_MIN);
+  }
+
+  @Override
+  public Integer ppYoffsetMax() {
+    return boxedInt(EventField.PP_YOFFSET_MAX);
+  }
+
+  @Override
+  public String useragent() {
+    return string(EventField.USERAGENT);
+  }
+
+  @Override
+  public String brName() {
+    return string(EventField.BR_NAME);
+  }
+
+  @Override
+  public String brFamily() {
+    return string(EventField.BR_FAMILY);
+  }
+
+  @Override
+  public String brVersion() {
+    return string(EventField.BR_VERSION);
+  }
+
+  @Override
+  public String brType() {
+    return string(EventField.BR_TYPE);
+  }
+
+  @Override
+  public String brRenderengine() {
+    return string(EventField.BR_RENDERENGINE);
+  }
+
+  @Override
+  public String brLang() {
+    return string(EventField.BR_LANG);
+  }
+
+  @Override
+  public Boolean brFeaturesPdf() {
+    return boxedBoolean(EventField.BR_FEATURES_PDF);
+  }
+
+  @Override
+  public Boolean brFeaturesFlash() {
+    return boxedBoolean(EventField.BR_FEATURES_FLASH);
+  }
+
+  @Override
+  public Boolean brFeaturesJava() {
+    return boxedBoolean(EventField.BR_FEATURES_JAVA);
+  }
+
+  @Override
+  public Boolean brFeaturesDirector() {
+    return boxedBoolean(EventField.BR_FEATURES_DIRECTOR);
+  }
+
+  @Override
+  public Boolean brFeaturesQuicktime() {
+    return boxedBoolean(EventField.BR_FEATURES_QUICKTIME);
+  }
+
+  @Override
+  public Boolean brFeaturesRealplayer() {
+    return boxedBoolean(EventField.BR_FEATURES_REALPLAYER);
+  }
+
+  @Override
+  public Boolean brFeaturesWindowsmedia() {
+    return boxedBoolean(EventField.BR_FEATURES_WINDOWSMEDIA);
+  }
+
+  @Override
+  public Boolean brFeaturesGears() {
+    return boxedBoolean(EventField.BR_FEATURES_GEARS);
+  }
+
+  @Override
+  public Boolean brFeaturesSilverlight() {
+    return boxedBoolean(EventField.BR_FEATURES_SILVERLIGHT);
+  }
+
+  @Override
+  public Boolean brCookies() {
+    return boxedBoolean(EventField.BR_COOKIES);
+  }
+
+  @Override
+  public String brColordepth() {
+    return string(EventField.BR_COLORDEPTH);
+  }
+
+  @Override
+  public Integer brViewwidth() {
+    return boxedInt(EventField.BR_VIEWWIDTH);
+  }
+
+  @Override
+  public Integer brViewheight() {
+    return boxedInt(EventField.BR_VIEWHEIGHT);
+  }
+
+  @Override
+  public String osName() {
+    return string(EventField.OS_NAME);
+  }
+
+  @Override
+  public String osFamily() {
+    return string(EventField.OS_FAMILY);
+  }
+
+  @Override
+  public String osManufacturer() {
+    return string(EventField.OS_MANUFACTURER);
+  }
+
+  @Override
+  public String osTimezone() {
+    return string(EventField.OS_TIMEZONE);
+  }
+
+  @Override
+  public String dvceType() {
+    return string(EventField.DVCE_TYPE);
+  }
+
+  @Override
+  public Boolean dvceIsmobile() {
+    return boxedBoolean(EventField.DVCE_ISMOBILE);
+  }
+
+  @Override
+  public Integer dvceScreenwidth() {
+    return boxedInt(EventField.DVCE_SCREENWIDTH);
+  }
+
+  @Override
+  public Integer dvceScreenheight() {
+    return boxedInt(EventField.DVCE_SCREENHEIGHT);
+  }
+
+  @Override
+  public String docCharset() {
+    return string(EventField.DOC_CHARSET);
+  }
+
+  @Override
+  public Integer docWidth() {
+    return boxedInt(EventField.DOC_WIDTH);
+  }
+
+  @Override
+  public Integer docHeight() {
+    return boxedInt(EventField.DOC_HEIGHT);
+  }
+
+  @Override
+  public String trCurrency() {
+    return string(EventField.TR_CURRENCY);
+  }
+
+  @Override
+  public String trTotalBase() {
+    return string(EventField.TR_TOTAL_BASE);
+  }
+
+  @Override
+  public String trTaxBase() {
+    return string(EventField.TR_TAX_BASE);
+  }
+
+  @Override
+  public String trShippingBase() {
+    return string(EventField.TR_SHIPPING_BASE);
+  }
+
+  @Override
+  public String tiCurrency() {
+    return string(EventField.TI_CURRENCY);
+  }
+
+  @Override
+  public String tiPriceBase() {
+    return string(EventField.TI_PRICE_BASE);
+  }
+
+  @Override
+  public String baseCurrency() {
+    return string(EventField.BASE_CURRENCY);
+  }
+
+  @Override
+  public String geoTimezone() {
+    return string(EventField.GEO_TIMEZONE);
+  }
+
+  @Override
+  public String mktClickid() {
+    return string(EventField.MKT_CLICKID);
+  }
+
+  @Override
+  public String mktNetwork() {
+    return string(EventField.MKT_NETWORK);
+  }
+
+  @Override
+  public String etlTags() {
+    return string(EventField.ETL_TAGS);
+  }
+
+  @Override
+  public Instant dvceSentTstamp() {
+    return instant(EventField.DVCE_SENT_TSTAMP);
+  }
+
+  @Override
+  public String refrDomainUserid() {
+    return string(EventField.REFR_DOMAIN_USERID);
+  }
+
+  @Override
+  public String refrDvceTstamp() {
+    return string(EventField.REFR_DVCE_TSTAMP);
+  }
+
+  @Override
+  public String derivedContexts() {
+    return string(EventField.DERIVED_CONTEXTS);
+  }
+
+  @Override
+  public String domainSessionid() {
+    return string(EventField.DOMAIN_SESSIONID);
+  }
+
+  @Override
+  public Instant derivedTstamp() {
+    return instant(EventField.DERIVED_TSTAMP);
+  }
+
+  @Override
+  public String eventVendor() {
+    return string(EventField.EVENT_VENDOR);
+  }
+
+  @Override
+  public String eventName() {
+    return string(EventField.EVENT_NAME);
+  }
+
+  @Override
+  public String eventFormat() {
+    return string(EventField.EVENT_FORMAT);
+  }
+
+  @Override
+  public String eventVersion() {
+    return string(EventField.EVENT_VERSION);
+  }
+
+  @Override
+  public String eventFingerprint() {
+    return string(EventField.EVENT_FINGERPRINT);
+  }
+
+  @Override
+  public Instant trueTstamp() {
+    return instant(EventField.TRUE_TSTAMP);
+  }
+
+  /**
+   * @return the policy of the event this was copied from, or
+   * {@link ValidationPolicy#LAZY} for events packed directly from TSV
+   */
+  @Override
+  public ValidationPolicy validationPolicy() {
+    return policy;
+  }
+
+  @Override
+  List<SelfDescribing<JsonObject>> contextObjects() {
+    List<SelfDescribing<JsonObject>> result = contextObjects;
+    if (result == null) {
+      result = super.contextObjects();
+      contextObjects = result;
+    }
+    return result;
+  }
+
+  @Override
+  ContextIndex contextIndex() {
+    ContextIndex result = contextIndex;
+    if (result == null) {
+      result = super.contextIndex();
+      contextIndex = result;
+    }
+    return result;
+  }
+
+  @Nullable
+  @Override
+  public SelfDescribing<JsonObject> unstructEventObject() {
+    if (!unstructEventDecoded) {
+      unstructEventObject = super.unstructEventObject();
+      unstructEventDecoded = true;
+    }
+    return unstructEventObject;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof PackedSnowplowEvent)) {
+      return false;
+    }
+    PackedSnowplowEvent that = (PackedSnowplowEvent) other;
+    return booleans == that.booleans
+        && Arrays.equals(nulls, that.nulls)
+        && Arrays.equals(timestamps, that.timestamps)
+        && Arrays.equals(ints, that.ints)
+        && Arrays.equals(floats, that.floats)
+        && Arrays.equals(strings, that.strings);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = Long.hashCode(booleans);
+    h = h * 31 + Arrays.hashCode(nulls);
+    h = h * 31 + Arrays.hashCode(timestamps);
+    h = h * 31 + Arrays.hashCode(ints);
+    h = h * 31 + Arrays.hashCode(floats);
+    h = h * 31 + Arrays.hashCode(strings);
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    return "PackedSnowplowEvent{eventId=" + eventId() + "}";
+  }
+
+  void setNull(EventField field) {
+    int i = field.ordinal();
+    nulls[i >>> 6] |= 1L << i;
+  }
+
+  void setString(EventField field, String value) {
+    strings[field.typeIndex()] = value;
+  }
+
+  void setInt(EventField field, int value) {
+    ints[field.typeIndex()] = value;
+  }
+
+  void setFloat(EventField field, float value) {
+    floats[field.typeIndex()] = value;
+  }
+
+  void setTimestampMillis(EventField field, long millis) {
+    timestamps[field.typeIndex()] = millis;
+  }
+
+  void setBoolean(int slot, boolean value) {
+    if (value) {
+      booleans |= 1L << slot;
+    }
+  }
+
+  private String string(EventField field) {
+    return strings[field.typeIndex()];
+  }
+
+  private Integer boxedInt(EventField field) {
+    return isNull(field) ? null : Integer.valueOf(ints[field.typeIndex()]);
+  }
+
+  private Float boxedFloat(EventField field) {
+    return isNull(field) ? null : Float.valueOf(floats[field.typeIndex()]);
+  }
+
+  private Boolean boxedBoolean(EventField field) {
+    return isNull(field) ? null : Boolean.valueOf((booleans & (1L << field.typeIndex())) != 0);
+  }
+
+  private Instant instant(EventField field) {
+    return isNull(field) ? null : new Instant(timestamps[field.typeIndex()]);
+  }
+}
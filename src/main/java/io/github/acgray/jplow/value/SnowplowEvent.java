@@ -5,7 +5,13 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import io.github.acgray.jplow.codec.JplowCodecs;
+import io.github.acgray.jplow.selfdesc.ContextScanner;
+import io.github.acgray.jplow.selfdesc.SchemaIds;
+import io.github.acgray.jplow.selfdesc.SchemaKey;
 import io.github.acgray.jplow.selfdesc.SchemaPattern;
+import io.github.acgray.jplow.selfdesc.SchemaRegistry;
 import io.github.acgray.jplow.selfdesc.SelfDescribing;
 import org.immutables.gson.Gson;
 import org.immutables.value.Value;
@@ -17,16 +23,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Represents a complete enriched Snowplow Event with context objects
  * and unstructured event payload.
  * <p>
  * Context and unstructured payload are deserialized when an instance
- * is created and cached as instances of SelfDescribingJson.
+ * is created and cached as instances of SelfDescribingJson, unless
+ * another {@link ValidationPolicy} is chosen.
  * <p>
  * <h2>Example usage:</h2>
  * <p>
@@ -674,182 +686,432 @@ public abstract class SnowplowEvent implements Serializable {
   public abstract Instant trueTstamp();
 
 
+  // Timestamps as milliseconds since the epoch, without boxing
+  /**
+   * @return <code>etl_tstamp</code> in milliseconds since the epoch, or
+   * {@link EnrichedTimestamps#NONE} if it is not set
+   */
+  public long etlTstampMillis() {
+    return millis(etlTstamp());
+  }
+
+  /**
+   * @return <code>collector_tstamp</code> in milliseconds since the epoch, or
+   * {@link EnrichedTimestamps#NONE} if it is not set
+   */
+  public long collectorTstampMillis() {
+    return millis(collectorTstamp());
+  }
+
+  /**
+   * @return <code>dvce_created_tstamp</code> in milliseconds since the epoch,
+   * or {@link EnrichedTimestamps#NONE} if it is not set
+   */
+  public long dvceCreatedTstampMillis() {
+    return millis(dvceCreatedTstamp());
+  }
+
+  /**
+   * @return <code>dvce_sent_tstamp</code> in milliseconds since the epoch, or
+   * {@link EnrichedTimestamps#NONE} if it is not set
+   */
+  public long dvceSentTstampMillis() {
+    return millis(dvceSentTstamp());
+  }
+
+  /**
+   * @return <code>derived_tstamp</code> in milliseconds since the epoch, or
+   * {@link EnrichedTimestamps#NONE} if it is not set
+   */
+  public long derivedTstampMillis() {
+    return millis(derivedTstamp());
+  }
+
+  /**
+   * @return <code>true_tstamp</code> in milliseconds since the epoch, or
+   * {@link EnrichedTimestamps#NONE} if it is not set
+   */
+  public long trueTstampMillis() {
+    return millis(trueTstamp());
+  }
+
+
+  // Typed access to any column
+  /**
+   * @return true if the column has no value in this event
+   */
+  public boolean isNull(EventField field) {
+    return field.get(this) == null;
+  }
+
+  /**
+   * @return the value of an {@link EventField.Type#INT} column, or 0 if it
+   * is null
+   * @throws IllegalArgumentException if the column is of another type
+   */
+  public int intValue(EventField field) {
+    Integer value = (Integer) field.get(checkType(field, EventField.Type.INT));
+    return value == null ? 0 : value;
+  }
+
+  /**
+   * @return the value of a {@link EventField.Type#FLOAT} column, or 0 if it
+   * is null
+   * @throws IllegalArgumentException if the column is of another type
+   */
+  public float floatValue(EventField field) {
+    Float value = (Float) field.get(checkType(field, EventField.Type.FLOAT));
+    return value == null ? 0f : value;
+  }
+
+  /**
+   * @return the value of a {@link EventField.Type#BOOLEAN} column, or false
+   * if it is null
+   * @throws IllegalArgumentException if the column is of another type
+   */
+  public boolean booleanValue(EventField field) {
+    Boolean value = (Boolean) field.get(checkType(field, EventField.Type.BOOLEAN));
+    return value != null && value;
+  }
+
+  /**
+   * @return the value of a {@link EventField.Type#TIMESTAMP} column in
+   * milliseconds since the epoch, or {@link EnrichedTimestamps#NONE} if it
+   * is null
+   * @throws IllegalArgumentException if the column is of another type
+   */
+  public long timestampMillis(EventField field) {
+    return millis((Instant) field.get(checkType(field, EventField.Type.TIMESTAMP)));
+  }
+
+  /**
+   * Replaces this event in Java serialization by its compact binary form.
+   *
+   * @see SnowplowEventCodec
+   */
+  protected Object writeReplace() {
+    return new SnowplowEventCodec.Serialized(this);
+  }
+
+  SnowplowEvent checkType(EventField field, EventField.Type type) {
+    if (field.type() != type) {
+      throw new IllegalArgumentException(String.format(
+          "Column %s is of type %s, not %s", field.columnName(), field.type(), type));
+    }
+    return this;
+  }
+
+
   ///////////////////////////////////////////////////////////////////////
 
 
+  /**
+   * Create an event from a line of Snowplow Enriched TSV.
+   * <p>
+   * Both the 130 column layout and the 131 column layout including
+   * <code>true_tstamp</code> are accepted. Empty trailing fields are
+   * significant and count towards the number of columns.
+   *
+   * @param tsv a single line of enriched output, without its line terminator
+   *
+   * @return the parsed event
+   *
+   * @throws InvalidFormat when the line does not have the expected number of
+   * columns or a required column is empty
+   */
   public static SnowplowEvent fromTsv(String tsv) throws InvalidFormat {
-    String[] bits = tsv.split("\t");
+    return fromTsv((CharSequence) tsv);
+  }
 
-    if (bits.length != 130) {
-      throw new InvalidFormat(
-          String.format("Expected 130 fields but got %s", bits.length));
+  /**
+   * Create an event from a line of Snowplow Enriched TSV held in any
+   * character sequence, such as a reused {@link StringBuilder} or a
+   * {@link java.nio.CharBuffer}.
+   *
+   * @param tsv a single line of enriched output, without its line terminator
+   *
+   * @return the parsed event
+   *
+   * @throws InvalidFormat when the line does not have the expected number of
+   * columns or a required column is empty
+   *
+   * @see #fromTsv(String)
+   */
+  public static SnowplowEvent fromTsv(CharSequence tsv) throws InvalidFormat {
+    return fromRow(TsvRow.of(tsv), ValidationPolicy.EAGER, null);
+  }
+
+  /**
+   * Create an event from a line of Snowplow Enriched TSV, validating its
+   * JSON columns according to the given policy.
+   *
+   * @param tsv a single line of enriched output, without its line terminator
+   * @param policy when to parse and validate the JSON columns
+   *
+   * @return the parsed event
+   *
+   * @throws InvalidFormat when the line does not have the expected number of
+   * columns or a required column is empty
+   *
+   * @see #fromTsv(CharSequence)
+   */
+  public static SnowplowEvent fromTsv(CharSequence tsv, ValidationPolicy policy)
+      throws InvalidFormat {
+    return fromRow(TsvRow.of(tsv), policy, null);
+  }
+
+  /**
+   * Create an event from a line of Snowplow Enriched TSV, converting only the
+   * given columns.
+   * <p>
+   * Accessors for columns outside of the projection return null, including
+   * those which are otherwise required. No other columns are converted and
+   * the event is not validated with {@link #check()}, so context objects and
+   * the unstructured event payload are only parsed if they are requested.
+   *
+   * @param tsv a single line of enriched output, without its line terminator
+   * @param fields the columns to convert
+   *
+   * @return the parsed event
+   *
+   * @throws InvalidFormat when the line does not have the expected number of
+   * columns or a projected column holds an invalid value or is a required
+   * column and is empty
+   */
+  public static SnowplowEvent fromTsv(CharSequence tsv, Set<EventField> fields)
+      throws InvalidFormat {
+    return fromTsv(tsv, fields, ValidationPolicy.LAZY);
+  }
+
+  /**
+   * Create an event from a line of Snowplow Enriched TSV, converting only the
+   * given columns and validating any projected JSON columns according to the
+   * given policy.
+   *
+   * @param tsv a single line of enriched output, without its line terminator
+   * @param fields the columns to convert
+   * @param policy when to parse and validate the projected JSON columns
+   *
+   * @return the parsed event
+   *
+   * @throws InvalidFormat when the line does not have the expected number of
+   * columns or a projected column holds an invalid value or is a required
+   * column and is empty
+   *
+   * @see #fromTsv(CharSequence, Set)
+   */
+  public static SnowplowEvent fromTsv(
+      CharSequence tsv, Set<EventField> fields, ValidationPolicy policy)
+      throws InvalidFormat {
+    return fromTsv(tsv, fields, policy, null);
+  }
+
+  static SnowplowEvent fromTsv(
+      CharSequence tsv,
+      Set<EventField> fields,
+      ValidationPolicy policy,
+      @Nullable StringDictionary dictionary)
+      throws InvalidFormat {
+    return fromRow(TsvRow.of(tsv), fields, policy, dictionary);
+  }
+
+  /** Create an event from an indexed row, converting only the given columns. */
+  static SnowplowEvent fromRow(
+      TsvRow row,
+      Set<EventField> fields,
+      ValidationPolicy policy,
+      @Nullable StringDictionary dictionary)
+      throws InvalidFormat {
+    LazySnowplowEvent event = LazySnowplowEvent.of(row, fields, policy, dictionary);
+
+    try {
+      for (EventField field : fields) {
+        event.value(field);
+      }
+      if (policy == ValidationPolicy.EAGER) {
+        event.check();
+      }
+    } catch (IllegalArgumentException exc) {
+      throw (InvalidFormat) exc.getCause();
     }
 
+    return event;
+  }
+
+  /** Create an event from an indexed row, converting all columns. */
+  static SnowplowEvent fromRow(
+      TsvRow row, ValidationPolicy policy, @Nullable StringDictionary dictionary)
+      throws InvalidFormat {
+    checkFieldCount(row);
+
     ImmutableSnowplowEvent.Builder b = builder()
-        .appId(bits[0])
-        .platform(bits[1])
-
-        .etlTstamp(instantValue(bits[2]))
-        .collectorTstamp(instantValue(bits[3]))
-        .dvceCreatedTstamp(instantValue(bits[4]))
-
-        .event(bits[5])
-        .eventId(bits[6])
-        .txnId(intValue(bits[7]))
-
-        .nameTracker(bits[8])
-        .vTracker(bits[9])
-        .vCollector(bits[10])
-        .vEtl(bits[11])
-
-        .userId(stringValue(bits[12]))
-        .userIpaddress(stringValue(bits[13]))
-        .userFingerprint(stringValue(bits[14]))
-        .domainUserid(stringValue(bits[15]))
-        .domainSessionidx(intValue(bits[16]))
-        .networkUserid(stringValue(bits[17]))
-
-        .geoCountry(stringValue(bits[18]))
-        .geoRegion(stringValue(bits[19]))
-        .geoCity(stringValue(bits[20]))
-        .geoZipcode(stringValue(bits[21]))
-        .geoLatitude(floatValue(bits[22]))
-        .geoLongitude(floatValue(bits[23]))
-        .geoRegionName(stringValue(bits[24]))
-
-        .ipIsp(stringValue(bits[25]))
-        .ipOrganization(stringValue(bits[26]))
-        .ipDomain(stringValue(bits[27]))
-        .ipNetspeed(stringValue(bits[28]))
-
-        .pageUrl(stringValue(bits[29]))
-        .pageTitle(stringValue(bits[30]))
-        .pageReferrer(stringValue(bits[31]))
-
-        .pageUrlscheme(stringValue(bits[32]))
-        .pageUrlhost(stringValue(bits[33]))
-        .pageUrlport(stringValue(bits[34]))
-        .pageUrlpath(stringValue(bits[35]))
-        .pageUrlquery(stringValue(bits[36]))
-        .pageUrlfragment(stringValue(bits[37]))
-
-        .refrUrlscheme(stringValue(bits[38]))
-        .refrUrlhost(stringValue(bits[39]))
-        .refrUrlport(stringValue(bits[40]))
-        .refrUrlpath(stringValue(bits[41]))
-        .refrUrlquery(stringValue(bits[42]))
-        .refrUrlfragment(stringValue(bits[43]))
-
-        .refrMedium(stringValue(bits[44]))
-        .refrSource(stringValue(bits[45]))
-        .refrTerm(stringValue(bits[46]))
-
-        .mktMedium(stringValue(bits[47]))
-        .mktSource(stringValue(bits[48]))
-        .mktTerm(stringValue(bits[49]))
-        .mktContent(stringValue(bits[50]))
-        .mktCampaign(stringValue(bits[51]))
-
-        .contexts(stringValue(bits[52]))
-
-        .seCategory(stringValue(bits[53]))
-        .seAction(stringValue(bits[54]))
-        .seLabel(stringValue(bits[55]))
-        .seProperty(stringValue(bits[56]))
-        .seValue(stringValue(bits[57]))
-
-        .unstructEvent(stringValue(bits[58]))
-
-        .trOrderid(stringValue(bits[59]))
-        .trAffiliation(stringValue(bits[60]))
-        .trTotal(stringValue(bits[61]))
-        .trTax(stringValue(bits[62]))
-        .trShipping(stringValue(bits[63]))
-        .trCity(stringValue(bits[64]))
-        .trState(stringValue(bits[65]))
-        .trCountry(stringValue(bits[66]))
-
-        .tiOrderid(stringValue(bits[67]))
-        .tiSku(stringValue(bits[68]))
-        .tiName(stringValue(bits[69]))
-        .tiCategory(stringValue(bits[70]))
-        .tiPrice(stringValue(bits[71]))
-        .tiQuantity(intValue(bits[72]))
-
-        .ppXoffsetMin(intValue(bits[73]))
-        .ppXoffsetMax(intValue(bits[74]))
-        .ppYoffsetMin(intValue(bits[75]))
-        .ppYoffsetMax(intValue(bits[76]))
-
-        .useragent(stringValue(bits[77]))
-
-        .brName(stringValue(bits[78]))
-        .brFamily(stringValue(bits[79]))
-        .brVersion(stringValue(bits[80]))
-        .brType(stringValue(bits[81]))
-        .brRenderengine(stringValue(bits[82]))
-
-        .brLang(stringValue(bits[83]))
-        .brFeaturesPdf(boolValue(bits[84]))
-        .brFeaturesFlash(boolValue(bits[85]))
-        .brFeaturesJava(boolValue(bits[86]))
-        .brFeaturesDirector(boolValue(bits[87]))
-        .brFeaturesQuicktime(boolValue(bits[88]))
-        .brFeaturesRealplayer(boolValue(bits[89]))
-        .brFeaturesWindowsmedia(boolValue(bits[80]))
-        .brFeaturesGears(boolValue(bits[91]))
-        .brFeaturesSilverlight(boolValue(bits[92]))
-        .brCookies(boolValue(bits[93]))
-        .brColordepth(stringValue(bits[94]))
-        .brViewwidth(intValue(bits[95]))
-        .brViewheight(intValue(bits[96]))
-
-        .osName(stringValue(bits[97]))
-        .osFamily(stringValue(bits[98]))
-        .osManufacturer(stringValue(bits[99]))
-        .osTimezone(stringValue(bits[100]))
-
-        .dvceType(stringValue(bits[101]))
-        .dvceIsmobile(boolValue(bits[102]))
-
-        .dvceScreenwidth(intValue(bits[103]))
-        .dvceScreenheight(intValue(bits[104]))
-
-        .docCharset(stringValue(bits[105]))
-        .docWidth(intValue(bits[106]))
-        .docHeight(intValue(bits[107]))
-
-        .trCurrency(stringValue(bits[108]))
-        .trTotalBase(stringValue(bits[109]))
-        .trTaxBase(stringValue(bits[110]))
-        .trShippingBase(stringValue(bits[111]))
-        .tiCurrency(stringValue(bits[112]))
-        .tiPriceBase(stringValue(bits[113]))
-        .baseCurrency(stringValue(bits[114]))
-
-        .geoTimezone(stringValue(bits[115]))
-
-        .mktClickid(stringValue(bits[116]))
-        .mktNetwork(stringValue(bits[117]))
-
-        .etlTags(stringValue(bits[118]))
-
-        .dvceSentTstamp(instantValue(bits[119]))
-
-        .refrDomainUserid(stringValue(bits[120]))
-        .refrDvceTstamp(stringValue(bits[121]))
-
-        .derivedContexts(stringValue(bits[122]))
-
-        .domainSessionid(stringValue(bits[123]))
-
-        .derivedTstamp(instantValue(bits[124]))
-
-        .eventVendor(stringValue(bits[125]))
-        .eventName(stringValue(bits[126]))
-        .eventFormat(stringValue(bits[127]))
-        .eventVersion(stringValue(bits[128]))
-        .eventFingerprint(stringValue(bits[129]));
+        .validationPolicy(policy)
+        .appId(rawValue(row, 0, dictionary))
+        .platform(rawValue(row, 1, dictionary))
+
+        .etlTstamp(requiredInstant(row, EventField.ETL_TSTAMP))
+        .collectorTstamp(requiredInstant(row, EventField.COLLECTOR_TSTAMP))
+        .dvceCreatedTstamp(row.instantValue(4))
+
+        .event(rawValue(row, 5, dictionary))
+        .eventId(rawValue(row, 6, dictionary))
+        .txnId(row.intValue(7))
+
+        .nameTracker(stringValue(row, 8, dictionary))
+        .vTracker(stringValue(row, 9, dictionary))
+        .vCollector(stringValue(row, 10, dictionary))
+        .vEtl(stringValue(row, 11, dictionary))
+
+        .userId(stringValue(row, 12, dictionary))
+        .userIpaddress(stringValue(row, 13, dictionary))
+        .userFingerprint(stringValue(row, 14, dictionary))
+        .domainUserid(stringValue(row, 15, dictionary))
+        .domainSessionidx(row.intValue(16))
+        .networkUserid(stringValue(row, 17, dictionary))
+
+        .geoCountry(stringValue(row, 18, dictionary))
+        .geoRegion(stringValue(row, 19, dictionary))
+        .geoCity(stringValue(row, 20, dictionary))
+        .geoZipcode(stringValue(row, 21, dictionary))
+        .geoLatitude(row.floatValue(22))
+        .geoLongitude(row.floatValue(23))
+        .geoRegionName(stringValue(row, 24, dictionary))
+
+        .ipIsp(stringValue(row, 25, dictionary))
+        .ipOrganization(stringValue(row, 26, dictionary))
+        .ipDomain(stringValue(row, 27, dictionary))
+        .ipNetspeed(stringValue(row, 28, dictionary))
+
+        .pageUrl(stringValue(row, 29, dictionary))
+        .pageTitle(stringValue(row, 30, dictionary))
+        .pageReferrer(stringValue(row, 31, dictionary))
+
+        .pageUrlscheme(stringValue(row, 32, dictionary))
+        .pageUrlhost(stringValue(row, 33, dictionary))
+        .pageUrlport(stringValue(row, 34, dictionary))
+        .pageUrlpath(stringValue(row, 35, dictionary))
+        .pageUrlquery(stringValue(row, 36, dictionary))
+        .pageUrlfragment(stringValue(row, 37, dictionary))
+
+        .refrUrlscheme(stringValue(row, 38, dictionary))
+        .refrUrlhost(stringValue(row, 39, dictionary))
+        .refrUrlport(stringValue(row, 40, dictionary))
+        .refrUrlpath(stringValue(row, 41, dictionary))
+        .refrUrlquery(stringValue(row, 42, dictionary))
+        .refrUrlfragment(stringValue(row, 43, dictionary))
+
+        .refrMedium(stringValue(row, 44, dictionary))
+        .refrSource(stringValue(row, 45, dictionary))
+        .refrTerm(stringValue(row, 46, dictionary))
+
+        .mktMedium(stringValue(row, 47, dictionary))
+        .mktSource(stringValue(row, 48, dictionary))
+        .mktTerm(stringValue(row, 49, dictionary))
+        .mktContent(stringValue(row, 50, dictionary))
+        .mktCampaign(stringValue(row, 51, dictionary))
+
+        .contexts(stringValue(row, 52, dictionary))
+
+        .seCategory(stringValue(row, 53, dictionary))
+        .seAction(stringValue(row, 54, dictionary))
+        .seLabel(stringValue(row, 55, dictionary))
+        .seProperty(stringValue(row, 56, dictionary))
+        .seValue(stringValue(row, 57, dictionary))
+
+        .unstructEvent(stringValue(row, 58, dictionary))
+
+        .trOrderid(stringValue(row, 59, dictionary))
+        .trAffiliation(stringValue(row, 60, dictionary))
+        .trTotal(stringValue(row, 61, dictionary))
+        .trTax(stringValue(row, 62, dictionary))
+        .trShipping(stringValue(row, 63, dictionary))
+        .trCity(stringValue(row, 64, dictionary))
+        .trState(stringValue(row, 65, dictionary))
+        .trCountry(stringValue(row, 66, dictionary))
+
+        .tiOrderid(stringValue(row, 67, dictionary))
+        .tiSku(stringValue(row, 68, dictionary))
+        .tiName(stringValue(row, 69, dictionary))
+        .tiCategory(stringValue(row, 70, dictionary))
+        .tiPrice(stringValue(row, 71, dictionary))
+        .tiQuantity(row.intValue(72))
+
+        .ppXoffsetMin(row.intValue(73))
+        .ppXoffsetMax(row.intValue(74))
+        .ppYoffsetMin(row.intValue(75))
+        .ppYoffsetMax(row.intValue(76))
+
+        .useragent(stringValue(row, 77, dictionary))
+
+        .brName(stringValue(row, 78, dictionary))
+        .brFamily(stringValue(row, 79, dictionary))
+        .brVersion(stringValue(row, 80, dictionary))
+        .brType(stringValue(row, 81, dictionary))
+        .brRenderengine(stringValue(row, 82, dictionary))
+
+        .brLang(stringValue(row, 83, dictionary))
+        .brFeaturesPdf(row.boolValue(84))
+        .brFeaturesFlash(row.boolValue(85))
+        .brFeaturesJava(row.boolValue(86))
+        .brFeaturesDirector(row.boolValue(87))
+        .brFeaturesQuicktime(row.boolValue(88))
+        .brFeaturesRealplayer(row.boolValue(89))
+        .brFeaturesWindowsmedia(row.boolValue(90))
+        .brFeaturesGears(row.boolValue(91))
+        .brFeaturesSilverlight(row.boolValue(92))
+        .brCookies(row.boolValue(93))
+        .brColordepth(stringValue(row, 94, dictionary))
+        .brViewwidth(row.intValue(95))
+        .brViewheight(row.intValue(96))
+
+        .osName(stringValue(row, 97, dictionary))
+        .osFamily(stringValue(row, 98, dictionary))
+        .osManufacturer(stringValue(row, 99, dictionary))
+        .osTimezone(stringValue(row, 100, dictionary))
+
+        .dvceType(stringValue(row, 101, dictionary))
+        .dvceIsmobile(row.boolValue(102))
+
+        .dvceScreenwidth(row.intValue(103))
+        .dvceScreenheight(row.intValue(104))
+
+        .docCharset(stringValue(row, 105, dictionary))
+        .docWidth(row.intValue(106))
+        .docHeight(row.intValue(107))
+
+        .trCurrency(stringValue(row, 108, dictionary))
+        .trTotalBase(stringValue(row, 109, dictionary))
+        .trTaxBase(stringValue(row, 110, dictionary))
+        .trShippingBase(stringValue(row, 111, dictionary))
+        .tiCurrency(stringValue(row, 112, dictionary))
+        .tiPriceBase(stringValue(row, 113, dictionary))
+        .baseCurrency(stringValue(row, 114, dictionary))
+
+        .geoTimezone(stringValue(row, 115, dictionary))
+
+        .mktClickid(stringValue(row, 116, dictionary))
+        .mktNetwork(stringValue(row, 117, dictionary))
+
+        .etlTags(stringValue(row, 118, dictionary))
+
+        .dvceSentTstamp(row.instantValue(119))
+
+        .refrDomainUserid(stringValue(row, 120, dictionary))
+        .refrDvceTstamp(stringValue(row, 121, dictionary))
+
+        .derivedContexts(stringValue(row, 122, dictionary))
+
+        .domainSessionid(stringValue(row, 123, dictionary))
+
+        .derivedTstamp(row.instantValue(124))
+
+        .eventVendor(rawValue(row, 125, dictionary))
+        .eventName(rawValue(row, 126, dictionary))
+        .eventFormat(rawValue(row, 127, dictionary))
+        .eventVersion(rawValue(row, 128, dictionary))
+        .eventFingerprint(stringValue(row, 129, dictionary))
+
+        .trueTstamp(row.fieldCount() > 130 ? row.instantValue(130) : null);
 
     return b.build();
 
@@ -859,11 +1121,29 @@ public abstract class SnowplowEvent implements Serializable {
       .forPattern("yyyy-MM-dd HH:mm:ss.SSS")
       .withZone(DateTimeZone.UTC);
 
+  /**
+   * When the JSON columns of this event are parsed and validated. Events are
+   * validated eagerly unless another policy is chosen, e.g. with
+   * {@link #fromTsv(CharSequence, ValidationPolicy)} or on the builder.
+   * <p>
+   * The policy is carried over by the <code>with*</code> methods, so copies
+   * of an event which is not eagerly validated do not parse its JSON columns
+   * either. It does not take part in equality.
+   */
+  @Gson.Ignore
+  @Value.Auxiliary
+  @Value.Default
+  public ValidationPolicy validationPolicy() {
+    return ValidationPolicy.EAGER;
+  }
+
   @Value.Check
   protected void check() {
-    // Initialize lazy objects early and catch validation errors
-    this.unstructEventObject();
-    this.contextObjects();
+    if (validationPolicy() == ValidationPolicy.EAGER) {
+      // Initialize lazy objects early and catch validation errors
+      this.unstructEventObject();
+      this.contextObjects();
+    }
   }
 
   @Value.Lazy
@@ -871,54 +1151,111 @@ public abstract class SnowplowEvent implements Serializable {
       throws IllegalArgumentException {
     // deserialize context objects from context and derivedContext fields
 
-    com.google.gson.Gson gson = new com.google.gson.Gson();
+    com.google.gson.Gson gson = JplowCodecs.defaults().gson();
 
     List<SelfDescribing<JsonObject>> selfDescribingJsons = new ArrayList<>();
 
     try {
-      if (contexts() != null) {
-        JsonArray ctx = gson.fromJson(contexts(), JsonObject.class)
-            .getAsJsonArray("data");
-        if (ctx == null) {
-          throw new ClassCastException();
-        }
-        for (JsonElement e : ctx) {
-          selfDescribingJsons.add(
-              SelfDescribing.<JsonObject>fromJsonObject(e.getAsJsonObject()));
-        }
-      }
+      selfDescribingJsons.addAll(parseContexts(gson, contexts()));
     }
     catch (JsonSyntaxException | ClassCastException | IllegalArgumentException exc) {
-      throw new IllegalArgumentException(
-          new InvalidFormat("Invalid format of contexts field: "
-              + contexts()));
+      invalid(new InvalidFormat("Invalid format of contexts field: "
+          + contexts()));
     }
 
     try {
-      if (derivedContexts() != null) {
-        JsonArray ctx = gson.fromJson(
-            derivedContexts(),
-            JsonObject.class)
-            .getAsJsonArray("data");
-        if (ctx == null) {
-          throw new ClassCastException();
-        }
-
-        for (JsonElement e : ctx) {
-          selfDescribingJsons.add(
-              SelfDescribing.fromJsonObject(e.getAsJsonObject()));
-        }
-      }
+      selfDescribingJsons.addAll(parseContexts(gson, derivedContexts()));
     }
     catch (JsonSyntaxException | ClassCastException | IllegalArgumentException exc) {
-      throw new IllegalArgumentException(
-          new InvalidFormat("Invalid format of derived_contexts field: "
-              + derivedContexts()));
+      invalid(new InvalidFormat("Invalid format of derived_contexts field: "
+          + derivedContexts()));
     }
 
     return selfDescribingJsons;
   }
 
+  private static List<SelfDescribing<JsonObject>> parseContexts(
+      com.google.gson.Gson gson, @Nullable String json) {
+    List<SelfDescribing<JsonObject>> contexts = new ArrayList<>();
+    if (json != null) {
+      JsonArray ctx = gson.fromJson(json, JsonObject.class)
+          .getAsJsonArray("data");
+      if (ctx == null) {
+        throw new ClassCastException();
+      }
+      for (JsonElement e : ctx) {
+        contexts.add(
+            SelfDescribing.<JsonObject>fromJsonObject(e.getAsJsonObject()));
+      }
+    }
+    return contexts;
+  }
+
+  /**
+   * Find the context entities of this event, user contexts first and then
+   * derived contexts, without parsing them.
+   *
+   * @see ContextScanner
+   */
+  List<ContextScanner.Entry> scanContexts() throws IllegalArgumentException {
+    List<ContextScanner.Entry> entries = new ArrayList<>();
+
+    if (contexts() != null) {
+      try {
+        entries.addAll(ContextScanner.scan(contexts()));
+      } catch (ContextScanner.InvalidFormat exc) {
+        invalid(new InvalidFormat("Invalid format of contexts field: "
+            + contexts()));
+      }
+    }
+
+    if (derivedContexts() != null) {
+      try {
+        entries.addAll(ContextScanner.scan(derivedContexts()));
+      } catch (ContextScanner.InvalidFormat exc) {
+        invalid(new InvalidFormat("Invalid format of derived_contexts field: "
+            + derivedContexts()));
+      }
+    }
+
+    return entries;
+  }
+
+  /**
+   * Find the payload of the unstructured event of this event without parsing
+   * it.
+   *
+   * @return the payload, or null if there is none
+   * @see ContextScanner#scanPayload(String)
+   */
+  @Nullable
+  ContextScanner.Entry scanUnstructEvent() throws IllegalArgumentException {
+    if (unstructEvent() != null && !unstructEvent().isEmpty()) {
+      try {
+        return ContextScanner.scanPayload(unstructEvent());
+      } catch (ContextScanner.InvalidFormat exc) {
+        invalid(new InvalidFormat("Invalid format of unstruct event payload: "
+            + unstructEvent()));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the schemas of the user and derived contexts of this event, in
+   * that order, read without parsing the contexts themselves
+   *
+   * @throws IllegalArgumentException if a contexts column is malformed,
+   * unless the event's validation policy is {@link ValidationPolicy#NONE}
+   */
+  public List<SchemaKey> contextSchemas() {
+    List<SchemaKey> schemas = new ArrayList<>();
+    for (ContextScanner.Entry entry : scanContexts()) {
+      schemas.add(entry.schema());
+    }
+    return schemas;
+  }
+
   @Nullable
   @Value.Lazy
   public SelfDescribing<JsonObject> unstructEventObject()
@@ -928,13 +1265,95 @@ public abstract class SnowplowEvent implements Serializable {
         return SelfDescribing.<JsonObject>fromJson(unstructEvent());
       }
       catch (IllegalArgumentException exc) {
-        throw new IllegalArgumentException(
-            new InvalidFormat("Invalid format of unstruct event payload: "
-                + unstructEvent()));
+        invalid(new InvalidFormat("Invalid format of unstruct event payload: "
+            + unstructEvent()));
       }
-    } else {
+    }
+    return null;
+  }
+
+  /**
+   * @return the user and derived contexts of this event, in that order, with
+   * the data of each decoded into the class registered for its schema
+   *
+   * @throws IllegalArgumentException if a context is malformed, unless the
+   * event's validation policy is {@link ValidationPolicy#NONE}, in which case
+   * it is skipped
+   */
+  public List<SelfDescribing<?>> contextObjects(SchemaRegistry registry) {
+    List<SelfDescribing<?>> contexts = new ArrayList<>();
+    for (ContextScanner.Entry entry : scanContexts()) {
+      try {
+        contexts.add(registry.fromJson(entry.json()));
+      }
+      catch (IllegalArgumentException exc) {
+        invalid(new InvalidFormat("Invalid format of context: "
+            + entry.json()));
+      }
+    }
+    return contexts;
+  }
+
+  /**
+   * @return the payload of this event's unstructured event, with its data
+   * decoded into the class registered for its schema, or null if there is
+   * none. The payload is streamed out of its envelope, which is not parsed
+   * into a tree.
+   *
+   * @throws IllegalArgumentException if the payload is malformed, unless the
+   * event's validation policy is {@link ValidationPolicy#NONE}
+   */
+  @Nullable
+  public SelfDescribing<?> unstructEventPayload(SchemaRegistry registry) {
+    if (unstructEvent() == null || unstructEvent().isEmpty()) {
       return null;
     }
+    try {
+      JsonReader in = new JsonReader(new StringReader(unstructEvent()));
+      SelfDescribing<?> payload = null;
+      in.beginObject();
+      while (in.hasNext()) {
+        if (in.nextName().equals("data")) {
+          payload = registry.read(in);
+        } else {
+          in.skipValue();
+        }
+      }
+      in.endObject();
+      if (payload == null) {
+        throw new IllegalArgumentException("No payload");
+      }
+      return payload;
+    }
+    catch (IOException | RuntimeException exc) {
+      invalid(new InvalidFormat("Invalid format of unstruct event payload: "
+          + unstructEvent()));
+    }
+    return null;
+  }
+
+  /**
+   * Report a malformed JSON column, unless this event's input is trusted.
+   */
+  private void invalid(InvalidFormat exc) {
+    if (validationPolicy() != ValidationPolicy.NONE) {
+      throw new IllegalArgumentException(exc);
+    }
+    LOG.debug("Ignoring malformed payload: {}", exc.getMessage());
+  }
+
+  /**
+   * The contexts of this event indexed by schema. Eagerly validated events
+   * index the contexts they have already parsed; otherwise the contexts are
+   * scanned for their schemas, and each is parsed when first looked up.
+   */
+  @Value.Lazy
+  ContextIndex contextIndex() {
+    if (validationPolicy() == ValidationPolicy.EAGER) {
+      return ContextIndex.of(contextObjects());
+    }
+    return ContextIndex.scanned(
+        scanContexts(), validationPolicy() == ValidationPolicy.NONE);
   }
 
   /**
@@ -950,33 +1369,74 @@ public abstract class SnowplowEvent implements Serializable {
    *
    * @throws ContextNotPresent
    *     when no context object in the event matches the schema
+   *
+   * @see #findContext(SchemaPattern)
    */
+  @SuppressWarnings("unchecked")
   public <T> SelfDescribing<T> getContextForSchema(SchemaPattern pattern)
       throws ContextNotPresent {
-    for (SelfDescribing sdj : contextObjects()) {
-      if (pattern.matches(sdj.schema())) {
-        return sdj;
-      }
+    SelfDescribing<JsonObject> context = contextIndex().first(pattern);
+    if (context == null) {
+      throw new ContextNotPresent(pattern);
     }
-
-    throw new ContextNotPresent(pattern);
+    return (SelfDescribing<T>) context;
   }
 
-  @SuppressWarnings("unchecked")
   public <T> SelfDescribing<T> getContextForSchema(SchemaPattern pattern, Class<T> wrappedType)
     throws ContextNotPresent {
-    for (SelfDescribing sdj : contextObjects()) {
-      if (pattern.matches(sdj.schema())) {
-        return sdj.<T>as(wrappedType, null);
-      }
-    }
+    return this.<JsonObject>getContextForSchema(pattern).as(wrappedType, null);
+  }
 
-    throw new ContextNotPresent(pattern);
+  /**
+   * Look for the first context entity in the event with the given schema,
+   * searching user and then derived contexts.
+   *
+   * @param pattern
+   *     full or partial schema to match on
+   *
+   * @return the context, or an empty Optional if no context matches
+   */
+  public Optional<SelfDescribing<JsonObject>> findContext(SchemaPattern pattern) {
+    return Optional.ofNullable(contextIndex().first(pattern));
+  }
+
+  /**
+   * Look for the first context entity in the event with the given schema,
+   * and convert its data to the given type.
+   *
+   * @see #findContext(SchemaPattern)
+   */
+  public <T> Optional<SelfDescribing<T>> findContext(
+      SchemaPattern pattern, Class<T> wrappedType) {
+    return findContext(pattern).map(context -> context.as(wrappedType, null));
+  }
+
+  /**
+   * Find every context entity in the event with the given schema, e.g. all
+   * the products of an ecommerce event.
+   *
+   * @param pattern
+   *     full or partial schema to match on
+   *
+   * @return the matching contexts, user and then derived contexts in the
+   * order in which they appear, or an empty list
+   */
+  public List<SelfDescribing<JsonObject>> getContextsForSchema(SchemaPattern pattern) {
+    return contextIndex().all(pattern);
   }
 
   /**
    * Check whether a context matching the provided schema is present
-   * in the event.
+   * in the event. Only the schemas of the contexts are compared, so
+   * contexts which have not been parsed yet are not parsed, and a pattern
+   * with only a major version is a single hash lookup.
+   * <p>
+   * The exception is {@link ValidationPolicy#NONE}, under which the matching
+   * contexts are parsed,
+   * so that a malformed context is absent here just as it is for
+   * {@link #findContext(SchemaPattern)}. Under {@link ValidationPolicy#LAZY}
+   * a malformed context is still reported as present, and the error is
+   * only thrown when the context itself is looked up.
    *
    * @param pattern
    *     full or partial schema key to match on
@@ -986,190 +1446,74 @@ public abstract class SnowplowEvent implements Serializable {
    * @see SnowplowEvent::getContextForSchema()
    */
   public Boolean hasContext(SchemaPattern pattern) {
-    try {
-      this.getContextForSchema(pattern);
-      return true;
-    }
-    catch (ContextNotPresent e) {
-      return false;
-    }
+    return contextIndex().contains(pattern);
   }
 
-  private static String stringValue(String s) {
-    return s.isEmpty() ? null : s;
-  }
-
-  private static Float floatValue(String s) {
-    return s.isEmpty() ? null : Float.valueOf(s);
-  }
-
-  private static Integer intValue(String s) {
-    return s.isEmpty() ? null : Integer.valueOf(s);
-  }
-
-  private static Boolean boolValue(String s) {
-    return s.isEmpty() ? null : s.equals("1");
+  /**
+   * @return the {@link SchemaIds} of the schemas of the user and derived
+   * contexts of this event, in that order. IDs are assigned to new schemas
+   * by the first call. Every context is included, even one whose data is
+   * malformed and which {@link #hasContext(SchemaPattern)} therefore treats
+   * as absent under {@link ValidationPolicy#NONE}.
+   */
+  public int[] contextSchemaIds() {
+    return contextIndex().schemaIds();
   }
 
-  private static Instant instantValue(String s)
-      throws InvalidFormat {
-
-    return s.isEmpty() ? null : DATE_FORMAT.parseDateTime(s).toInstant();
+  /**
+   * @return the set of the {@link SchemaIds} of the families of the contexts
+   * of this event, for combining with those of other events. Like
+   * {@link #contextSchemaIds()}, it includes contexts with malformed data.
+   */
+  public BitSet contextFamilies() {
+    return contextIndex().families();
   }
 
-  private static String tsvRepr(Float f) {
-    return f == null ? "" : f.toString();
+  /**
+   * Check that a row has either the 130 column or the 131 column layout.
+   *
+   * @throws InvalidFormat when it has any other number of columns
+   */
+  public static void checkFieldCount(TsvRow row) throws InvalidFormat {
+    if (row.fieldCount() != 130 && row.fieldCount() != 131) {
+      throw new InvalidFormat(
+          String.format("Expected 130 or 131 fields but got %s", row.fieldCount()));
+    }
   }
 
-  private static String tsvRepr(Instant i) {
-    return i == null ? "" : DATE_FORMAT.print(i);
+  private static String rawValue(
+      TsvRow row, int field, @Nullable StringDictionary dictionary) {
+    return dictionary != null && dictionary.covers(field)
+        ? row.rawValue(field, dictionary)
+        : row.rawValue(field);
   }
 
-  private static String tsvRepr(Integer i) {
-    return i == null ? "" : i.toString();
+  private static String stringValue(
+      TsvRow row, int field, @Nullable StringDictionary dictionary) {
+    return dictionary != null && dictionary.covers(field)
+        ? row.stringValue(field, dictionary)
+        : row.stringValue(field);
   }
 
-  private static String tsvRepr(String s) {
-    return s == null ? "" : s;
+  private static Instant requiredInstant(TsvRow row, EventField field)
+      throws InvalidFormat {
+    if (row.isEmpty(field.index())) {
+      throw new InvalidFormat("Missing value in required column " + field.columnName());
+    }
+    return row.instantValue(field.index());
   }
 
-  private static String tsvRepr(Boolean b) {
-    return b == null ? "" : (b ? "1" : "0");
+  private static long millis(Instant i) {
+    return i == null ? EnrichedTimestamps.NONE : i.getMillis();
   }
 
+  /**
+   * @return the event as a line of Snowplow Enriched TSV with all 131
+   * columns, without a line terminator
+   *
+   * @see EnrichedTsvWriter
+   */
   public String toTsv() {
-    return String.join(
-        "\t",
-        tsvRepr(appId()),
-        tsvRepr(platform()),
-        tsvRepr(tsvRepr(etlTstamp())),
-        tsvRepr(tsvRepr(collectorTstamp())),
-        tsvRepr(tsvRepr(dvceCreatedTstamp())),
-        tsvRepr(event()),
-        tsvRepr(eventId()),
-        tsvRepr(txnId()),
-        tsvRepr(nameTracker()),
-        tsvRepr(vTracker()),
-        tsvRepr(vCollector()),
-        tsvRepr(vEtl()),
-        tsvRepr(userId()),
-        tsvRepr(userIpaddress()),
-        tsvRepr(userFingerprint()),
-        tsvRepr(domainUserid()),
-        tsvRepr(domainSessionidx()),
-        tsvRepr(networkUserid()),
-        tsvRepr(geoCountry()),
-        tsvRepr(geoRegion()),
-        tsvRepr(geoCity()),
-        tsvRepr(geoZipcode()),
-        tsvRepr(geoLatitude()),
-        tsvRepr(geoLongitude()),
-        tsvRepr(geoRegionName()),
-        tsvRepr(ipIsp()),
-        tsvRepr(ipOrganization()),
-        tsvRepr(ipDomain()),
-        tsvRepr(ipNetspeed()),
-        tsvRepr(pageUrl()),
-        tsvRepr(pageTitle()),
-        tsvRepr(pageReferrer()),
-        tsvRepr(pageUrlscheme()),
-        tsvRepr(pageUrlhost()),
-        tsvRepr(pageUrlport()),
-        tsvRepr(pageUrlpath()),
-        tsvRepr(pageUrlquery()),
-        tsvRepr(pageUrlfragment()),
-        tsvRepr(refrUrlscheme()),
-        tsvRepr(refrUrlhost()),
-        tsvRepr(refrUrlport()),
-        tsvRepr(refrUrlpath()),
-        tsvRepr(refrUrlquery()),
-        tsvRepr(refrUrlfragment()),
-        tsvRepr(refrMedium()),
-        tsvRepr(refrSource()),
-        tsvRepr(refrTerm()),
-        tsvRepr(mktMedium()),
-        tsvRepr(mktSource()),
-        tsvRepr(mktTerm()),
-        tsvRepr(mktContent()),
-        tsvRepr(mktCampaign()),
-        tsvRepr(contexts()),
-        tsvRepr(seCategory()),
-        tsvRepr(seAction()),
-        tsvRepr(seLabel()),
-        tsvRepr(seProperty()),
-        tsvRepr(seValue()),
-        tsvRepr(unstructEvent()),
-        tsvRepr(trOrderid()),
-        tsvRepr(trAffiliation()),
-        tsvRepr(trTotal()),
-        tsvRepr(trTax()),
-        tsvRepr(trShipping()),
-        tsvRepr(trCity()),
-        tsvRepr(trState()),
-        tsvRepr(trCountry()),
-        tsvRepr(tiOrderid()),
-        tsvRepr(tiSku()),
-        tsvRepr(tiName()),
-        tsvRepr(tiCategory()),
-        tsvRepr(tiPrice()),
-        tsvRepr(tiQuantity()),
-        tsvRepr(ppXoffsetMin()),
-        tsvRepr(ppXoffsetMax()),
-        tsvRepr(ppYoffsetMin()),
-        tsvRepr(ppYoffsetMax()),
-        tsvRepr(useragent()),
-        tsvRepr(brName()),
-        tsvRepr(brFamily()),
-        tsvRepr(brVersion()),
-        tsvRepr(brType()),
-        tsvRepr(brRenderengine()),
-        tsvRepr(brLang()),
-        tsvRepr(brFeaturesPdf()),
-        tsvRepr(brFeaturesFlash()),
-        tsvRepr(brFeaturesJava()),
-        tsvRepr(brFeaturesDirector()),
-        tsvRepr(brFeaturesQuicktime()),
-        tsvRepr(brFeaturesRealplayer()),
-        tsvRepr(brFeaturesWindowsmedia()),
-        tsvRepr(brFeaturesGears()),
-        tsvRepr(brFeaturesSilverlight()),
-        tsvRepr(brCookies()),
-        tsvRepr(brColordepth()),
-        tsvRepr(brViewwidth()),
-        tsvRepr(brViewheight()),
-        tsvRepr(osName()),
-        tsvRepr(osFamily()),
-        tsvRepr(osManufacturer()),
-        tsvRepr(osTimezone()),
-        tsvRepr(dvceType()),
-        tsvRepr(dvceIsmobile()),
-        tsvRepr(dvceScreenwidth()),
-        tsvRepr(dvceScreenheight()),
-        tsvRepr(docCharset()),
-        tsvRepr(docWidth()),
-        tsvRepr(docHeight()),
-        tsvRepr(trCurrency()),
-        tsvRepr(trTotalBase()),
-        tsvRepr(trTaxBase()),
-        tsvRepr(trShippingBase()),
-        tsvRepr(tiCurrency()),
-        tsvRepr(tiPriceBase()),
-        tsvRepr(baseCurrency()),
-        tsvRepr(geoTimezone()),
-        tsvRepr(mktClickid()),
-        tsvRepr(mktNetwork()),
-        tsvRepr(etlTags()),
-        tsvRepr(dvceSentTstamp()),
-        tsvRepr(refrDomainUserid()),
-        tsvRepr(refrDvceTstamp()),
-        tsvRepr(derivedContexts()),
-        tsvRepr(domainSessionid()),
-        tsvRepr(derivedTstamp()),
-        tsvRepr(eventVendor()),
-        tsvRepr(eventName()),
-        tsvRepr(eventFormat()),
-        tsvRepr(eventVersion()),
-        tsvRepr(eventFingerprint()),
-        tsvRepr(trueTstamp()));
+    return EnrichedTsvWriter.toTsv(this);
   }
 }
@@ -0,0 +1,213 @@
+package io.github.acgray.jplow.value;
+
+import io.github.acgray.jplow.codec.BinaryCodec;
+import io.github.acgray.jplow.codec.BinaryDecoder;
+import io.github.acgray.jplow.codec.BinaryEncoder;
+import io.github.acgray.jplow.codec.SerializedForm;
+
+import java.util.EnumSet;
+
+/**
+ * Compact binary format of a {@link SnowplowEvent}.
+ * <p>
+ * After a byte for the kind of event and one for its {@link ValidationPolicy}, the columns of
+ * an event are written as:
+ * <ul>
+ * <li>the number of columns, so that records written with fewer columns can still be read</li>
+ * <li>a null bitmap with one bit per column</li>
+ * <li>the values of all boolean columns as the bits of one varint</li>
+ * <li>then, in column order, the value of each non-null column: integers as zigzag varints,
+ * floats as 4 bytes, timestamps as the zigzag varint difference in milliseconds from the
+ * previous non-null timestamp, and strings as length-prefixed UTF-8</li>
+ * </ul>
+ * Since the timestamps of an event are usually close together, each of them after the first
+ * takes only a few bytes.
+ * <p>
+ * Decoded events are of the same kind as the encoded ones: an {@link ImmutableSnowplowEvent}
+ * is decoded as an equal immutable event and any other event as a
+ * {@link PackedSnowplowEvent}, except for a {@link LazySnowplowEvent}, which is written as its
+ * original line and projection so that it remains lazy. The {@link StringDictionary} of a
+ * lazy event is not kept.
+ */
+public final class SnowplowEventCodec extends BinaryCodec<SnowplowEvent> {
+
+  public static final SnowplowEventCodec INSTANCE = new SnowplowEventCodec();
+
+  private static final EventField[] FIELDS = EventField.values();
+  private static final ValidationPolicy[] POLICIES = ValidationPolicy.values();
+
+  private static final int IMMUTABLE = 0;
+  private static final int PACKED = 1;
+  private static final int LAZY = 2;
+
+  private SnowplowEventCodec() {}
+
+  @Override
+  public void write(SnowplowEvent event, BinaryEncoder out) {
+    if (event instanceof LazySnowplowEvent) {
+      LazySnowplowEvent lazy = (LazySnowplowEvent) event;
+      out.writeByte(LAZY);
+      out.writeByte(event.validationPolicy().ordinal());
+      writeProjection(lazy, out);
+      out.writeString(lazy.row().toString());
+      return;
+    }
+
+    out.writeByte(event instanceof ImmutableSnowplowEvent ? IMMUTABLE : PACKED);
+    out.writeByte(event.validationPolicy().ordinal());
+    out.writeVarInt(FIELDS.length);
+
+    long booleans = 0;
+    for (int start = 0; start < FIELDS.length; start += 8) {
+      int bits = 0;
+      for (int i = start; i < Math.min(start + 8, FIELDS.length); i++) {
+        EventField field = FIELDS[i];
+        if (event.isNull(field)) {
+          bits |= 1 << (i - start);
+        } else if (field.type() == EventField.Type.BOOLEAN && event.booleanValue(field)) {
+          booleans |= 1L << field.typeIndex();
+        }
+      }
+      out.writeByte(bits);
+    }
+    out.writeVarLong(booleans);
+
+    long previousMillis = 0;
+    for (EventField field : FIELDS) {
+      if (event.isNull(field)) {
+        continue;
+      }
+      switch (field.type()) {
+        case STRING:
+          out.writeString((String) field.get(event));
+          break;
+        case INT:
+          out.writeSignedVarInt(event.intValue(field));
+          break;
+        case FLOAT:
+          out.writeFloat(event.floatValue(field));
+          break;
+        case BOOLEAN:
+          break;
+        case TIMESTAMP:
+          long millis = event.timestampMillis(field);
+          out.writeSignedVarLong(millis - previousMillis);
+          previousMillis = millis;
+          break;
+        default:
+          throw new AssertionError(field.type());
+      }
+    }
+  }
+
+  @Override
+  public SnowplowEvent read(BinaryDecoder in) throws InvalidFormat {
+    int kind = in.readByte();
+    int policyOrdinal = in.readByte();
+    if (policyOrdinal >= POLICIES.length) {
+      throw new InvalidFormat("Unknown validation policy: " + policyOrdinal);
+    }
+    ValidationPolicy policy = POLICIES[policyOrdinal];
+
+    switch (kind) {
+      case LAZY:
+        return readLazy(in, policy);
+      case IMMUTABLE:
+        return ImmutableSnowplowEvent.copyOf(readPacked(in, policy));
+      case PACKED:
+        return readPacked(in, policy);
+      default:
+        throw new InvalidFormat("Unknown event kind: " + kind);
+    }
+  }
+
+  private static PackedSnowplowEvent readPacked(BinaryDecoder in, ValidationPolicy policy)
+      throws InvalidFormat {
+    int columns = in.readVarInt();
+    if (columns > FIELDS.length) {
+      throw new InvalidFormat(String.format(
+          "Expected at most %s columns but got %s", FIELDS.length, columns));
+    }
+
+    PackedSnowplowEvent event = new PackedSnowplowEvent(policy);
+    byte[] nulls = in.readBytes((columns + 7) >>> 3);
+    long booleans = in.readVarLong();
+
+    long previousMillis = 0;
+    for (EventField field : FIELDS) {
+      int i = field.ordinal();
+      if (i >= columns || (nulls[i >>> 3] & 1 << (i & 7)) != 0) {
+        event.setNull(field);
+        continue;
+      }
+      switch (field.type()) {
+        case STRING:
+          event.setString(field, in.readString());
+          break;
+        case INT:
+          event.setInt(field, in.readSignedVarInt());
+          break;
+        case FLOAT:
+          event.setFloat(field, in.readFloat());
+          break;
+        case BOOLEAN:
+          event.setBoolean(field.typeIndex(), (booleans & 1L << field.typeIndex()) != 0);
+          break;
+        case TIMESTAMP:
+          previousMillis += in.readSignedVarLong();
+          event.setTimestampMillis(field, previousMillis);
+          break;
+        default:
+          throw new AssertionError(field.type());
+      }
+    }
+    return event;
+  }
+
+  private static void writeProjection(LazySnowplowEvent event, BinaryEncoder out) {
+    for (int start = 0; start < FIELDS.length; start += 8) {
+      int bits = 0;
+      for (int i = start; i < Math.min(start + 8, FIELDS.length); i++) {
+        if (event.isProjected(FIELDS[i])) {
+          bits |= 1 << (i - start);
+        }
+      }
+      out.writeByte(bits);
+    }
+  }
+
+  private static LazySnowplowEvent readLazy(BinaryDecoder in, ValidationPolicy policy)
+      throws InvalidFormat {
+    byte[] bits = in.readBytes((FIELDS.length + 7) >>> 3);
+    EnumSet<EventField> projection = EnumSet.noneOf(EventField.class);
+    for (EventField field : FIELDS) {
+      int i = field.ordinal();
+      if ((bits[i >>> 3] & 1 << (i & 7)) != 0) {
+        projection.add(field);
+      }
+    }
+
+    String line = in.readString();
+    try {
+      return LazySnowplowEvent.of(TsvRow.of(line), projection, policy);
+    } catch (SnowplowEvent.InvalidFormat exc) {
+      throw new InvalidFormat("Invalid line of lazy event: " + exc.getMessage());
+    }
+  }
+
+  static final class Serialized extends SerializedForm<SnowplowEvent> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Serialized() {}
+
+    Serialized(SnowplowEvent event) {
+      super(event);
+    }
+
+    @Override
+    protected BinaryCodec<SnowplowEvent> codec() {
+      return INSTANCE;
+    }
+  }
+}
@@ -0,0 +1,326 @@
+package io.github.acgray.jplow.value;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, thread-safe dictionary of canonical String instances for columns with few distinct
+ * values, such as <code>app_id</code> or <code>event</code>.
+ * <p>
+ * When a dictionary is used for parsing, each value of the columns it covers is looked up
+ * directly from the characters or bytes of the line, so that every occurrence of a value shares
+ * one String and repeated values are not allocated at all. Values can also be given an int
+ * code, so that events can be grouped or compared by code instead of by String.
+ * <p>
+ * The dictionary holds at most {@link #maxSize()} canonical instances. It is organized as a
+ * set-associative cache in which each value may be held in one of two sets, and when both are
+ * full the value least recently used (approximately) is evicted.
+ * <p>
+ * Codes are assigned by {@link #code(String)} and are permanent: a value keeps its code after
+ * its canonical instance has been evicted, and codes are never reused for a different value.
+ * The codes are therefore not bounded by {@link #maxSize()}, and grow with the number of
+ * distinct values which have been given one.
+ * <p>
+ * Dictionaries can be shared between threads and readers. Concurrent first lookups of the same
+ * value may return different instances, but only one of them is retained.
+ *
+ * @see EnrichedTsvReader#dictionary()
+ */
+public final class StringDictionary {
+
+  /** Returned as the code of a null value. */
+  public static final int NO_CODE = -1;
+
+  /** The columns covered by a dictionary unless others are given. */
+  public static final Set<EventField> DEFAULT_FIELDS = Collections.unmodifiableSet(EnumSet.of(
+      EventField.APP_ID,
+      EventField.PLATFORM,
+      EventField.EVENT,
+      EventField.NAME_TRACKER,
+      EventField.V_TRACKER,
+      EventField.V_COLLECTOR,
+      EventField.V_ETL,
+      EventField.GEO_COUNTRY,
+      EventField.BR_FAMILY,
+      EventField.OS_FAMILY,
+      EventField.DVCE_TYPE,
+      EventField.EVENT_VENDOR,
+      EventField.EVENT_NAME,
+      EventField.EVENT_FORMAT));
+
+  private static final int WAYS = 4;
+  private static final int PROBES = 2 * WAYS;
+
+  private static final class Entry {
+    final String value;
+    final int hash;
+    volatile boolean referenced;
+
+    Entry(String value, int hash) {
+      this.value = value;
+      this.hash = hash;
+    }
+  }
+
+  private final Set<EventField> fields;
+  private final boolean[] covered;
+
+  private final AtomicReferenceArray<Entry> slots;
+  private final int setMask;
+  private final AtomicInteger held = new AtomicInteger();
+
+  // permanent, and independent of the slots
+  private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Integer, String> values = new ConcurrentHashMap<>();
+  private final AtomicInteger nextCode = new AtomicInteger();
+
+  /**
+   * Create a dictionary of the {@link #DEFAULT_FIELDS}.
+   *
+   * @param maxSize the maximum number of values, rounded up to a power of two
+   */
+  public StringDictionary(int maxSize) {
+    this(maxSize, DEFAULT_FIELDS);
+  }
+
+  /**
+   * Create a dictionary of the given string columns.
+   *
+   * @param maxSize the maximum number of values, rounded up to a power of two
+   */
+  public StringDictionary(int maxSize, Set<EventField> fields) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Dictionary size must be positive: " + maxSize);
+    }
+
+    covered = new boolean[EventField.values().length];
+    for (EventField field : fields) {
+      if (field.type() != EventField.Type.STRING) {
+        throw new IllegalArgumentException(
+            "Not a string column: " + field.columnName());
+      }
+      covered[field.index()] = true;
+    }
+    this.fields = Collections.unmodifiableSet(
+        fields.isEmpty() ? EnumSet.noneOf(EventField.class) : EnumSet.copyOf(fields));
+
+    int minSets = (maxSize + WAYS - 1) / WAYS;
+    int sets = minSets == 1 ? 1 : Integer.highestOneBit(minSets - 1) << 1;
+    slots = new AtomicReferenceArray<>(sets * WAYS);
+    setMask = sets - 1;
+  }
+
+  /** @return the columns whose values are looked up in this dictionary when parsing */
+  public Set<EventField> fields() {
+    return fields;
+  }
+
+  /** @return true if values of the column are looked up in this dictionary when parsing */
+  public boolean covers(EventField field) {
+    return covered[field.index()];
+  }
+
+  boolean covers(int column) {
+    return column < covered.length && covered[column];
+  }
+
+  /** @return the maximum number of canonical instances held */
+  public int maxSize() {
+    return slots.length();
+  }
+
+  /** @return the number of canonical instances currently held */
+  public int size() {
+    return held.get();
+  }
+
+  /**
+   * @return the canonical instance of a value, which is added to the dictionary if absent
+   */
+  public String intern(String value) {
+    return entry(value).value;
+  }
+
+  /**
+   * @return the canonical instance of the value held between <code>from</code> (inclusive) and
+   *     <code>to</code> (exclusive), only creating a String if it is not in the dictionary
+   */
+  public String intern(CharSequence chars, int from, int to) {
+    int hash = 0;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+
+    for (int probe = 0; probe < PROBES; probe++) {
+      Entry entry = slots.get(slot(hash, probe));
+      if (entry != null && entry.hash == hash && matches(entry.value, chars, from, to)) {
+        touch(entry);
+        return entry.value;
+      }
+    }
+    return insert(chars.subSequence(from, to).toString(), hash).value;
+  }
+
+  /**
+   * @return the canonical instance of the UTF-8 encoded value held between <code>from</code>
+   *     (inclusive) and <code>to</code> (exclusive), only creating a String if it is not in the
+   *     dictionary
+   */
+  public String intern(byte[] utf8, int from, int to) {
+    int hash = 0;
+    for (int i = from; i < to; i++) {
+      byte b = utf8[i];
+      if (b < 0) {
+        // not ASCII, so the bytes cannot be compared with chars directly
+        return intern(new String(utf8, from, to - from, StandardCharsets.UTF_8));
+      }
+      hash = 31 * hash + b;
+    }
+
+    for (int probe = 0; probe < PROBES; probe++) {
+      Entry entry = slots.get(slot(hash, probe));
+      if (entry != null && entry.hash == hash && matches(entry.value, utf8, from, to)) {
+        touch(entry);
+        return entry.value;
+      }
+    }
+    return insert(new String(utf8, from, to - from, StandardCharsets.US_ASCII), hash).value;
+  }
+
+  /**
+   * @return the code of a value, which is assigned if the value has none yet, or
+   *     {@link #NO_CODE} if the value is null
+   * @throws IllegalStateException if every code has been assigned
+   */
+  public int code(@Nullable String value) {
+    if (value == null) {
+      return NO_CODE;
+    }
+    Integer code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    return codes.computeIfAbsent(intern(value), canonical -> {
+      int assigned = nextCode.getAndIncrement();
+      if (assigned < 0) {
+        nextCode.set(Integer.MIN_VALUE);
+        throw new IllegalStateException("Dictionary has run out of codes");
+      }
+      values.put(assigned, canonical);
+      return assigned;
+    });
+  }
+
+  /** @return the value with the given code, or null if no value has that code */
+  @Nullable
+  public String decode(int code) {
+    return values.get(code);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("StringDictionary{size=%s, maxSize=%s}", size(), maxSize());
+  }
+
+  private Entry entry(String value) {
+    int hash = value.hashCode();
+    for (int probe = 0; probe < PROBES; probe++) {
+      Entry entry = slots.get(slot(hash, probe));
+      if (entry != null && entry.hash == hash && entry.value.equals(value)) {
+        touch(entry);
+        return entry;
+      }
+    }
+    return insert(value, hash);
+  }
+
+  private Entry insert(String value, int hash) {
+    Entry entry = new Entry(value, hash);
+
+    while (true) {
+      int empty = -1;
+      int unreferenced = -1;
+      for (int probe = 0; probe < PROBES; probe++) {
+        int slot = slot(hash, probe);
+        Entry current = slots.get(slot);
+        if (current == null) {
+          if (empty < 0) {
+            empty = slot;
+          }
+        } else if (current.hash == hash && current.value.equals(value)) {
+          // inserted concurrently
+          touch(current);
+          return current;
+        } else if (unreferenced < 0 && !current.referenced) {
+          unreferenced = slot;
+        }
+      }
+
+      int victim = empty >= 0 ? empty : unreferenced;
+      if (victim < 0) {
+        // every candidate was used recently; give them all another chance
+        for (int probe = 0; probe < PROBES; probe++) {
+          Entry current = slots.get(slot(hash, probe));
+          if (current != null) {
+            current.referenced = false;
+          }
+        }
+        victim = slot(hash, ThreadLocalRandom.current().nextInt(PROBES));
+      }
+
+      Entry evicted = slots.get(victim);
+      if (slots.compareAndSet(victim, evicted, entry)) {
+        if (evicted == null) {
+          held.incrementAndGet();
+        }
+        return entry;
+      }
+    }
+  }
+
+  /**
+   * @return the slot to look at for a value with the given hash. A value may be held in either
+   *     of two sets, which lets the table fill up evenly before anything is evicted.
+   */
+  private int slot(int hash, int probe) {
+    int h = probe < WAYS ? hash ^ hash >>> 16 : hash * 0x9e3779b9 >>> 15;
+    return (h & setMask) * WAYS + (probe & (WAYS - 1));
+  }
+
+  private static void touch(Entry entry) {
+    if (!entry.referenced) {
+      entry.referenced = true;
+    }
+  }
+
+  private static boolean matches(String value, CharSequence chars, int from, int to) {
+    if (value.length() != to - from) {
+      return false;
+    }
+    for (int i = from; i < to; i++) {
+      if (value.charAt(i - from) != chars.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean matches(String value, byte[] ascii, int from, int to) {
+    if (value.length() != to - from) {
+      return false;
+    }
+    for (int i = from; i < to; i++) {
+      if (value.charAt(i - from) != ascii[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
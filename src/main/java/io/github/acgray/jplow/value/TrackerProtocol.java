@@ -1,6 +1,7 @@
 package io.github.acgray.jplow.value;
 
 import com.google.gson.*;
+import io.github.acgray.jplow.codec.JplowCodecs;
 import io.github.acgray.jplow.selfdesc.ImmutableSelfDescribing;
 import io.github.acgray.jplow.selfdesc.SchemaKey;
 import io.github.acgray.jplow.selfdesc.SelfDescribing;
@@ -33,10 +34,6 @@ import java.util.List;
 public abstract class TrackerProtocol implements Serializable {
 
   private static final Logger LOG = LoggerFactory.getLogger(TrackerProtocol.class);
-  private static final com.google.gson.Gson gson =
-      new GsonBuilder()
-          .registerTypeAdapter(SchemaKey.class, new SchemaKey.GsonTypeAdapter())
-          .create();
 
   public static TrackerProtocol withContexts(List<SelfDescribing<JsonObject>> contexts) {
 
@@ -50,7 +47,8 @@ public abstract class TrackerProtocol implements Serializable {
               .build();
 
       return ImmutableTrackerProtocol.builder()
-          .cx(new String(Base64.encodeBase64(gson.toJson(cxWrapper).getBytes())))
+          .cx(new String(Base64.encodeBase64(
+              JplowCodecs.defaults().gson().toJson(cxWrapper).getBytes())))
           .build();
     } catch (SchemaKey.InvalidFormat exc) {
       throw new AssertionError(exc);
@@ -69,7 +67,8 @@ public abstract class TrackerProtocol implements Serializable {
               .build();
 
       return ImmutableTrackerProtocol.builder()
-          .ue_px(new String(Base64.encodeBase64(gson.toJson(wrapper).getBytes())))
+          .ue_px(new String(Base64.encodeBase64(
+              JplowCodecs.defaults().gson().toJson(wrapper).getBytes())))
           .build();
     } catch (SchemaKey.InvalidFormat exc) {
       throw new AssertionError(exc);
@@ -92,13 +91,7 @@ public abstract class TrackerProtocol implements Serializable {
    * @return created TrackerProtocol object
    */
   public static TrackerProtocol fromJson(JsonObject object) {
-    com.google.gson.Gson gson =
-        new GsonBuilder()
-            .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
-            .registerTypeAdapterFactory(new GsonAdaptersTrackerProtocol())
-            .create();
-
-    return gson.fromJson(object, TrackerProtocol.class);
+    return JplowCodecs.defaults().gson().fromJson(object, TrackerProtocol.class);
   }
 
   /**
@@ -390,7 +383,7 @@ public abstract class TrackerProtocol implements Serializable {
         return null;
       }
 
-      com.google.gson.Gson gson = new com.google.gson.Gson();
+      com.google.gson.Gson gson = JplowCodecs.defaults().gson();
 
       List<SelfDescribing<JsonObject>> cxList = new ArrayList<>();
 
@@ -438,8 +431,8 @@ public abstract class TrackerProtocol implements Serializable {
       return ImmutableTrackerProtocol.builder()
           .from(this)
           .cx(
-              new String(
-                  Base64.encodeBase64(gson.toJson(correctedCtx).getBytes())))
+              new String(Base64.encodeBase64(
+                  JplowCodecs.defaults().gson().toJson(correctedCtx).getBytes())))
           .build();
     } catch (SchemaKey.InvalidFormat exception) {
       throw new AssertionError(exception);
@@ -456,14 +449,10 @@ public abstract class TrackerProtocol implements Serializable {
               .data(unstructEvent)
               .build();
 
-      com.google.gson.Gson gson =
-          new GsonBuilder()
-              .registerTypeAdapter(SchemaKey.class, new SchemaKey.GsonTypeAdapter())
-              .create();
-
       return ImmutableTrackerProtocol.builder()
           .from(this)
-          .ue_px(Base64.encodeBase64String(gson.toJson(wrapped).getBytes()))
+          .ue_px(Base64.encodeBase64String(
+              JplowCodecs.defaults().gson().toJson(wrapped).getBytes()))
           .build();
     } catch (SchemaKey.InvalidFormat exc) {
       throw new AssertionError(exc);
@@ -473,8 +462,6 @@ public abstract class TrackerProtocol implements Serializable {
   public SelfDescribing<JsonObject> getUnstructPayload() {
     String ue_px = ue_px();
     if (ue_px != null) {
-      com.google.gson.Gson gson = new com.google.gson.Gson();
-
       String ueJson = new String(Base64.decodeBase64(ue_px));
 
       SelfDescribing<JsonObject> ueWrapper = SelfDescribing.fromJson(ueJson);
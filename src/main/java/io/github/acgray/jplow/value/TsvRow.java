@@ -0,0 +1,421 @@
+package io.github.acgray.jplow.value;
+
+import org.joda.time.Instant;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A line of tab-separated values together with its field offset index.
+ *
+ * <p>The line is held either as characters or as UTF-8 bytes, and individual fields are only
+ * converted to Strings or other values when one of the <code>*Value</code> methods is called.
+ *
+ * @see TsvTokenizer
+ */
+public final class TsvRow implements Serializable {
+
+  private final CharSequence chars;
+  private final byte[] bytes;
+  private final int[] offsets;
+  private final int fieldCount;
+
+  private TsvRow(CharSequence chars, byte[] bytes, int[] offsets) {
+    this(chars, bytes, offsets, TsvTokenizer.fieldCount(offsets));
+  }
+
+  // the index may be longer than needed, e.g. by one entry for a 130 column line
+  private TsvRow(CharSequence chars, byte[] bytes, int[] offsets, int fieldCount) {
+    this.chars = chars;
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.fieldCount = fieldCount;
+  }
+
+  /**
+   * Index a line held as characters. The sequence is retained, so it must not be modified while
+   * the row is in use.
+   */
+  public static TsvRow of(CharSequence line) {
+    // a single index is allocated per line, rather than one to fill and one trimmed copy
+    int[] offsets = new int[TsvTokenizer.DEFAULT_CAPACITY];
+    int fields = TsvTokenizer.tokenize(line, 0, line.length(), offsets);
+    if (fields >= offsets.length) {
+      offsets = new int[fields + 1];
+      TsvTokenizer.tokenize(line, 0, line.length(), offsets);
+    }
+    return new TsvRow(line, null, offsets, fields);
+  }
+
+  /** Index a line held as UTF-8 bytes. The array is retained, not copied. */
+  public static TsvRow of(byte[] utf8) {
+    return of(utf8, 0, utf8.length);
+  }
+
+  /**
+   * Index a line held as UTF-8 bytes between <code>from</code> (inclusive) and <code>to</code>
+   * (exclusive). The array is retained, not copied.
+   */
+  public static TsvRow of(byte[] utf8, int from, int to) {
+    int[] offsets = new int[TsvTokenizer.DEFAULT_CAPACITY];
+    int fields = TsvTokenizer.tokenize(utf8, from, to, offsets);
+    if (fields >= offsets.length) {
+      offsets = new int[fields + 1];
+      TsvTokenizer.tokenize(utf8, from, to, offsets);
+    }
+    return new TsvRow(null, utf8, offsets, fields);
+  }
+
+  /**
+   * Wrap a UTF-8 encoded line which has already been indexed, e.g. by a {@link DelimiterIndex}.
+   * Neither the array nor the index is copied.
+   *
+   * @param offsets an exactly sized index of the line in the format of {@link TsvTokenizer}
+   */
+  public static TsvRow of(byte[] utf8, int[] offsets) {
+    if (offsets.length < 2) {
+      throw new IllegalArgumentException("An index must describe at least one field");
+    }
+    return new TsvRow(null, utf8, offsets);
+  }
+
+  /** @return the number of fields in this row */
+  public int fieldCount() {
+    return fieldCount;
+  }
+
+  /** @return the length of a field, in chars or bytes depending on the backing line */
+  public int length(int field) {
+    return TsvTokenizer.fieldLength(offsets, field);
+  }
+
+  public boolean isEmpty(int field) {
+    return length(field) == 0;
+  }
+
+  /** @return the field as a String, or an empty String if it is empty */
+  public String rawValue(int field) {
+    int start = TsvTokenizer.fieldStart(offsets, field);
+    int end = TsvTokenizer.fieldEnd(offsets, field);
+    if (bytes != null) {
+      return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+    return chars.subSequence(start, end).toString();
+  }
+
+  /** @return the field as a String, or null if it is empty */
+  public String stringValue(int field) {
+    return isEmpty(field) ? null : rawValue(field);
+  }
+
+  /**
+   * @return the canonical instance of the field's value in a dictionary, or an empty String if
+   *     it is empty
+   */
+  public String rawValue(int field, StringDictionary dictionary) {
+    int start = TsvTokenizer.fieldStart(offsets, field);
+    int end = TsvTokenizer.fieldEnd(offsets, field);
+    if (start == end) {
+      return "";
+    }
+    return bytes != null
+        ? dictionary.intern(bytes, start, end)
+        : dictionary.intern(chars, start, end);
+  }
+
+  /**
+   * @return the canonical instance of the field's value in a dictionary, or null if it is empty
+   */
+  public String stringValue(int field, StringDictionary dictionary) {
+    return isEmpty(field) ? null : rawValue(field, dictionary);
+  }
+
+  public Float floatValue(int field) {
+    return isEmpty(field) ? null : Float.valueOf(rawValue(field));
+  }
+
+  public Integer intValue(int field) {
+    return isEmpty(field) ? null : Integer.valueOf(parseInt(field));
+  }
+
+  public Boolean boolValue(int field) {
+    return isEmpty(field) ? null : parseBoolean(field);
+  }
+
+  /** @return true if the field holds <code>1</code>, otherwise false */
+  public boolean parseBoolean(int field) {
+    return length(field) == 1 && charAt(TsvTokenizer.fieldStart(offsets, field)) == '1';
+  }
+
+  /**
+   * @return the field parsed as an enriched timestamp, or null if it is empty
+   * @throws IllegalArgumentException if the field is not a valid timestamp
+   */
+  public Instant instantValue(int field) {
+    if (isEmpty(field)) {
+      return null;
+    }
+
+    long millis = timestampMillis(field);
+    if (millis != EnrichedTimestamps.NONE) {
+      return new Instant(millis);
+    }
+
+    // not in the canonical format; defer to the more lenient formatter
+    return SnowplowEvent.DATE_FORMAT.parseDateTime(rawValue(field)).toInstant();
+  }
+
+  /**
+   * Parse the field as an enriched timestamp without allocating.
+   *
+   * @return milliseconds since the epoch, or {@link EnrichedTimestamps#NONE} if the field is
+   *     empty or not exactly in the enriched timestamp format
+   */
+  public long timestampMillis(int field) {
+    int start = TsvTokenizer.fieldStart(offsets, field);
+    int end = TsvTokenizer.fieldEnd(offsets, field);
+    return bytes != null
+        ? EnrichedTimestamps.parseMillis(bytes, start, end)
+        : EnrichedTimestamps.parseMillis(chars, start, end);
+  }
+
+  /**
+   * Parse a decimal integer field without creating a String, with the same accepted syntax as
+   * {@link Integer#parseInt(String)}.
+   *
+   * @throws NumberFormatException if the field is empty or not a valid integer
+   */
+  public int parseInt(int field) {
+    int from = TsvTokenizer.fieldStart(offsets, field);
+    int to = TsvTokenizer.fieldEnd(offsets, field);
+
+    if (from >= to) {
+      throw invalidNumber(field);
+    }
+
+    boolean negative = false;
+    int i = from;
+    char first = charAt(i);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      if (++i == to) {
+        throw invalidNumber(field);
+      }
+    }
+
+    // accumulate negatively to cover Integer.MIN_VALUE
+    int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+    int result = 0;
+    for (; i < to; i++) {
+      int digit = charAt(i) - '0';
+      if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit) {
+        throw invalidNumber(field);
+      }
+      result = result * 10 - digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Compare a field with a value without creating a String for the field.
+   *
+   * @return true if the field holds exactly the given value
+   */
+  public boolean contentEquals(int field, String value) {
+    return matches(field, value, true);
+  }
+
+  /**
+   * Compare the start of a field with a value without creating a String for the field.
+   *
+   * @return true if the field starts with the given prefix
+   */
+  public boolean startsWith(int field, String prefix) {
+    return matches(field, prefix, false);
+  }
+
+  /**
+   * Hash a field without creating a String for it, unless it holds non-ASCII UTF-8.
+   *
+   * @return the same value as <code>rawValue(field).hashCode()</code>
+   */
+  public int contentHash(int field) {
+    int start = TsvTokenizer.fieldStart(offsets, field);
+    int end = TsvTokenizer.fieldEnd(offsets, field);
+
+    int hash = 0;
+    if (bytes == null) {
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + chars.charAt(i);
+      }
+      return hash;
+    }
+    for (int i = start; i < end; i++) {
+      byte b = bytes[i];
+      if (b < 0) {
+        // not ASCII, so the bytes are not the chars of the value
+        return rawValue(field).hashCode();
+      }
+      hash = 31 * hash + b;
+    }
+    return hash;
+  }
+
+  /** @return the length of a field once encoded as UTF-8 */
+  public int utf8Length(int field) {
+    int start = TsvTokenizer.fieldStart(offsets, field);
+    int end = TsvTokenizer.fieldEnd(offsets, field);
+    if (bytes != null) {
+      return end - start;
+    }
+
+    int length = 0;
+    for (int i = start; i < end; i++) {
+      char c = chars.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < end
+          && Character.isLowSurrogate(chars.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length += 1;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Copy a field into a byte array, encoded as UTF-8. The destination must have at least
+   * {@link #utf8Length(int)} bytes available from <code>offset</code>.
+   *
+   * @return the position in <code>dest</code> just past the copied field
+   */
+  public int copyUtf8(int field, byte[] dest, int offset) {
+    int start = TsvTokenizer.fieldStart(offsets, field);
+    int end = TsvTokenizer.fieldEnd(offsets, field);
+    if (bytes != null) {
+      System.arraycopy(bytes, start, dest, offset, end - start);
+      return offset + end - start;
+    }
+
+    int pos = offset;
+    for (int i = start; i < end; i++) {
+      char c = chars.charAt(i);
+      if (c < 0x80) {
+        dest[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        dest[pos++] = (byte) (0xc0 | c >> 6);
+        dest[pos++] = (byte) (0x80 | c & 0x3f);
+      } else if (Character.isHighSurrogate(c) && i + 1 < end
+          && Character.isLowSurrogate(chars.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, chars.charAt(++i));
+        dest[pos++] = (byte) (0xf0 | cp >> 18);
+        dest[pos++] = (byte) (0x80 | cp >> 12 & 0x3f);
+        dest[pos++] = (byte) (0x80 | cp >> 6 & 0x3f);
+        dest[pos++] = (byte) (0x80 | cp & 0x3f);
+      } else if (Character.isSurrogate(c)) {
+        // unpaired surrogate, replaced as by String.getBytes
+        dest[pos++] = '?';
+      } else {
+        dest[pos++] = (byte) (0xe0 | c >> 12);
+        dest[pos++] = (byte) (0x80 | c >> 6 & 0x3f);
+        dest[pos++] = (byte) (0x80 | c & 0x3f);
+      }
+    }
+    return pos;
+  }
+
+  /**
+   * Copy a field into a char array. The destination must have at least {@link #length(int)}
+   * chars available from <code>offset</code>, which is enough for both char and UTF-8 rows.
+   *
+   * @return the position in <code>dest</code> just past the copied field
+   */
+  public int copyChars(int field, char[] dest, int offset) {
+    int start = TsvTokenizer.fieldStart(offsets, field);
+    int end = TsvTokenizer.fieldEnd(offsets, field);
+
+    if (bytes == null) {
+      if (chars instanceof String) {
+        ((String) chars).getChars(start, end, dest, offset);
+      } else {
+        for (int i = start; i < end; i++) {
+          dest[offset + i - start] = chars.charAt(i);
+        }
+      }
+      return offset + end - start;
+    }
+
+    int pos = offset;
+    for (int i = start; i < end; i++) {
+      byte b = bytes[i];
+      if (b < 0) {
+        // not ASCII; decode the rest of the field properly
+        String rest = new String(bytes, i, end - i, StandardCharsets.UTF_8);
+        rest.getChars(0, rest.length(), dest, pos);
+        return pos + rest.length();
+      }
+      dest[pos++] = (char) b;
+    }
+    return pos;
+  }
+
+  /** @return the line as text */
+  @Override
+  public String toString() {
+    int from = offsets[0];
+    int to = offsets[fieldCount] - 1;
+    if (bytes != null) {
+      return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+    return chars.subSequence(from, to).toString();
+  }
+
+  private boolean matches(int field, String value, boolean whole) {
+    int start = TsvTokenizer.fieldStart(offsets, field);
+    int end = TsvTokenizer.fieldEnd(offsets, field);
+    int length = value.length();
+
+    if (bytes == null) {
+      if (whole ? end - start != length : end - start < length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (chars.charAt(start + i) != value.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // ASCII characters are compared byte for byte
+    int i = 0;
+    for (; i < length && value.charAt(i) < 0x80; i++) {
+      if (start + i >= end || bytes[start + i] != value.charAt(i)) {
+        return false;
+      }
+    }
+    if (i == length) {
+      return !whole || start + length == end;
+    }
+
+    // the rest of the value is not ASCII; compare it with the decoded rest of the field
+    String rest = new String(bytes, start + i, end - start - i, StandardCharsets.UTF_8);
+    String expected = value.substring(i);
+    return whole ? rest.equals(expected) : rest.startsWith(expected);
+  }
+
+  private char charAt(int i) {
+    return bytes != null ? (char) (bytes[i] & 0xff) : chars.charAt(i);
+  }
+
+  private NumberFormatException invalidNumber(int field) {
+    return new NumberFormatException(
+        String.format("For input string: \"%s\"", rawValue(field)));
+  }
+}
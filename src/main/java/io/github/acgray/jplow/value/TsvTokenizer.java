@@ -0,0 +1,203 @@
+package io.github.acgray.jplow.value;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a line of tab-separated values into an index of field offsets without creating any
+ * intermediate Strings.
+ *
+ * <p>The index produced for a line with <code>n</code> fields is an <code>int[]</code> of at least
+ * <code>n + 1</code> entries where <code>offsets[i]</code> is the position of the first character
+ * of field <code>i</code> and <code>offsets[i + 1] - 1</code> is the position just past its last
+ * character (i.e. the position of the following tab). Field <code>i</code> therefore spans
+ * <code>[fieldStart(offsets, i), fieldEnd(offsets, i))</code>.
+ *
+ * <p>Unlike {@link String#split(String)}, empty trailing fields are preserved, so a line ending
+ * in a tab has one more (empty) field than it has non-empty ones.
+ *
+ * <p>Byte input is expected to be UTF-8 encoded. The tab character can never occur inside a
+ * multi-byte UTF-8 sequence, so byte offsets can be used directly to slice the original buffer.
+ */
+public final class TsvTokenizer {
+
+  public static final char DELIMITER = '\t';
+
+  /**
+   * Initial index capacity, exactly that of a full enriched event of 131 fields, so that its
+   * index needs neither growing nor trimming.
+   */
+  static final int DEFAULT_CAPACITY = 132;
+
+  private TsvTokenizer() {}
+
+  /**
+   * Index the fields of a complete line.
+   *
+   * @param line the line to index, without a trailing newline
+   * @return an offset index sized exactly to the number of fields plus one
+   */
+  public static int[] tokenize(CharSequence line) {
+    int[] offsets = new int[DEFAULT_CAPACITY];
+    int fields = tokenize(line, 0, line.length(), offsets);
+    if (fields + 1 > offsets.length) {
+      offsets = new int[fields + 1];
+      tokenize(line, 0, line.length(), offsets);
+    }
+    return trim(offsets, fields);
+  }
+
+  /**
+   * Index the fields found between <code>from</code> (inclusive) and <code>to</code> (exclusive)
+   * into a caller-supplied array, which allows the array to be reused between lines.
+   *
+   * <p>If <code>offsets</code> is too small to hold the index, the fields are still counted but
+   * only the first <code>offsets.length</code> entries are written; callers should compare the
+   * returned count against the array length.
+   *
+   * @return the number of fields in the range
+   */
+  public static int tokenize(CharSequence line, int from, int to, int[] offsets) {
+    int capacity = offsets.length;
+    int field = 0;
+    if (capacity > 0) {
+      offsets[0] = from;
+    }
+    for (int i = from; i < to; i++) {
+      if (line.charAt(i) == DELIMITER) {
+        if (++field < capacity) {
+          offsets[field] = i + 1;
+        }
+      }
+    }
+    if (++field < capacity) {
+      offsets[field] = to + 1;
+    }
+    return field;
+  }
+
+  /**
+   * Index the fields of a complete UTF-8 encoded line.
+   *
+   * @see #tokenize(CharSequence)
+   */
+  public static int[] tokenize(byte[] line) {
+    return tokenize(line, 0, line.length);
+  }
+
+  /**
+   * Index the fields of a UTF-8 encoded line held between <code>from</code> and <code>to</code>.
+   * Offsets in the returned index are absolute positions in <code>line</code>.
+   *
+   * @see #tokenize(CharSequence)
+   */
+  public static int[] tokenize(byte[] line, int from, int to) {
+    int[] offsets = new int[DEFAULT_CAPACITY];
+    int fields = tokenize(line, from, to, offsets);
+    if (fields + 1 > offsets.length) {
+      offsets = new int[fields + 1];
+      tokenize(line, from, to, offsets);
+    }
+    return trim(offsets, fields);
+  }
+
+  /** @see #tokenize(CharSequence, int, int, int[]) */
+  public static int tokenize(byte[] line, int from, int to, int[] offsets) {
+    int capacity = offsets.length;
+    int field = 0;
+    if (capacity > 0) {
+      offsets[0] = from;
+    }
+    for (int i = from; i < to; i++) {
+      if (line[i] == DELIMITER) {
+        if (++field < capacity) {
+          offsets[field] = i + 1;
+        }
+      }
+    }
+    if (++field < capacity) {
+      offsets[field] = to + 1;
+    }
+    return field;
+  }
+
+  /**
+   * Index the fields of the UTF-8 encoded line between the buffer's position and limit. Offsets
+   * in the returned index are absolute positions in the buffer, whose position is not changed.
+   *
+   * @see #tokenize(CharSequence)
+   */
+  public static int[] tokenize(ByteBuffer line) {
+    int[] offsets = new int[DEFAULT_CAPACITY];
+    int fields = tokenize(line, line.position(), line.limit(), offsets);
+    if (fields + 1 > offsets.length) {
+      offsets = new int[fields + 1];
+      tokenize(line, line.position(), line.limit(), offsets);
+    }
+    return trim(offsets, fields);
+  }
+
+  /**
+   * Index the fields between the absolute positions <code>from</code> and <code>to</code> of a
+   * buffer holding UTF-8 encoded data. The buffer's position is not changed.
+   *
+   * @see #tokenize(CharSequence, int, int, int[])
+   */
+  public static int tokenize(ByteBuffer line, int from, int to, int[] offsets) {
+    if (line.hasArray()) {
+      int base = line.arrayOffset();
+      int fields = tokenize(line.array(), base + from, base + to, offsets);
+      if (base != 0) {
+        for (int i = 0; i < Math.min(fields + 1, offsets.length); i++) {
+          offsets[i] -= base;
+        }
+      }
+      return fields;
+    }
+
+    int capacity = offsets.length;
+    int field = 0;
+    if (capacity > 0) {
+      offsets[0] = from;
+    }
+    for (int i = from; i < to; i++) {
+      if (line.get(i) == DELIMITER) {
+        if (++field < capacity) {
+          offsets[field] = i + 1;
+        }
+      }
+    }
+    if (++field < capacity) {
+      offsets[field] = to + 1;
+    }
+    return field;
+  }
+
+  /** @return the position of the first character of the given field */
+  public static int fieldStart(int[] offsets, int field) {
+    return offsets[field];
+  }
+
+  /** @return the position just past the last character of the given field */
+  public static int fieldEnd(int[] offsets, int field) {
+    return offsets[field + 1] - 1;
+  }
+
+  /** @return the length of the given field */
+  public static int fieldLength(int[] offsets, int field) {
+    return offsets[field + 1] - 1 - offsets[field];
+  }
+
+  /** @return the number of fields described by an exactly-sized index */
+  public static int fieldCount(int[] offsets) {
+    return offsets.length - 1;
+  }
+
+  private static int[] trim(int[] offsets, int fields) {
+    if (offsets.length == fields + 1) {
+      return offsets;
+    }
+    int[] trimmed = new int[fields + 1];
+    System.arraycopy(offsets, 0, trimmed, 0, fields + 1);
+    return trimmed;
+  }
+}
@@ -0,0 +1,28 @@
+package io.github.acgray.jplow.value;
+
+/**
+ * Controls when the JSON columns of an event (<code>contexts</code>, <code>derived_contexts</code>
+ * and <code>unstruct_event</code>) are parsed and validated.
+ *
+ * @see SnowplowEvent#validationPolicy()
+ */
+public enum ValidationPolicy {
+
+  /**
+   * Parse the JSON columns when the event is constructed, so that an event with malformed
+   * payloads can never be created.
+   */
+  EAGER,
+
+  /**
+   * Parse the JSON columns the first time they are used. A malformed payload is reported then,
+   * by an {@link IllegalArgumentException} wrapping a {@link SnowplowEvent.InvalidFormat}.
+   */
+  LAZY,
+
+  /**
+   * Trust the input: the JSON columns are parsed the first time they are used, and a malformed
+   * payload is treated as if it were absent rather than reported.
+   */
+  NONE
+}
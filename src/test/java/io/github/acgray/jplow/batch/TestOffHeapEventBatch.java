@@ -0,0 +1,167 @@
+package io.github.acgray.jplow.batch;
+
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.SnowplowEvent;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestOffHeapEventBatch {
+
+  private static final Set<EventField> FIELDS = EnumSet.of(
+      EventField.APP_ID,
+      EventField.COLLECTOR_TSTAMP,
+      EventField.EVENT,
+      EventField.TXN_ID,
+      EventField.GEO_LATITUDE,
+      EventField.PAGE_URL,
+      EventField.BR_FEATURES_WINDOWSMEDIA);
+
+  private static String line(String appId, String event, String txnId) {
+    String[] c = new String[131];
+    Arrays.fill(c, "");
+    c[0] = appId;
+    c[1] = "web";
+    c[2] = "2017-01-26 00:01:25.292";
+    c[3] = "2013-11-26 00:02:05.123";
+    c[5] = event;
+    c[6] = "c6ef3124-b53a-4b13-a233-0088f79dcbcb";
+    c[7] = txnId;
+    c[22] = "37.443604";
+    c[90] = "1";
+    return String.join("\t", c);
+  }
+
+  private static void assertRows(OffHeapEventBatch batch) {
+    assertEquals(2, batch.size());
+    assertEquals("angry-birds", batch.stringValue(EventField.APP_ID, 0));
+    assertEquals("caf\u00e9", batch.stringValue(EventField.APP_ID, 1));
+    assertEquals(1385424125123L, batch.timestampMillis(EventField.COLLECTOR_TSTAMP, 1));
+    assertEquals(41828, batch.intValue(EventField.TXN_ID, 0));
+    assertTrue(batch.isNull(EventField.TXN_ID, 1));
+    assertEquals(37.443604f, batch.floatValue(EventField.GEO_LATITUDE, 0), 0f);
+    assertTrue(batch.booleanValue(EventField.BR_FEATURES_WINDOWSMEDIA, 0));
+    assertNull(batch.stringValue(EventField.PAGE_URL, 0));
+    assertTrue(batch.stringEquals(
+        EventField.EVENT, 1, "page_view".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testDirect() throws SnowplowEvent.InvalidFormat {
+    OffHeapEventBatch batch = OffHeapEventBatch.allocateDirect(2, 256, FIELDS);
+    batch.add(line("angry-birds", "unstruct", "41828"));
+    batch.add(line("caf\u00e9", "page_view", ""));
+
+    assertTrue(batch.isFull());
+    assertRows(batch);
+    assertEquals(FIELDS, batch.fields());
+
+    try {
+      batch.timestampMillis(EventField.ETL_TSTAMP, 0);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testWrapCopy() throws SnowplowEvent.InvalidFormat {
+    OffHeapEventBatch batch = OffHeapEventBatch.allocateDirect(4, 256, FIELDS);
+    batch.add(line("angry-birds", "unstruct", "41828"));
+    batch.add(line("caf\u00e9", "page_view", ""));
+
+    ByteBuffer copy = ByteBuffer.allocate(batch.buffer().remaining());
+    copy.put(batch.buffer());
+    copy.flip();
+
+    OffHeapEventBatch wrapped = OffHeapEventBatch.wrap(copy);
+    assertEquals(4, wrapped.capacity());
+    assertEquals(FIELDS, wrapped.fields());
+    assertRows(wrapped);
+  }
+
+  @Test
+  public void testMapped() throws IOException, SnowplowEvent.InvalidFormat {
+    File file = File.createTempFile("batch", ".bin");
+    file.deleteOnExit();
+
+    try (FileChannel channel = FileChannel.open(
+        file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      OffHeapEventBatch batch = OffHeapEventBatch.map(channel, 0, 2, 256, FIELDS);
+      batch.add(line("angry-birds", "unstruct", "41828"));
+      batch.add(line("caf\u00e9", "page_view", ""));
+    }
+
+    assertEquals(OffHeapEventBatch.sizeOf(2, 256, FIELDS), file.length());
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      assertRows(OffHeapEventBatch.wrap(mapped));
+    }
+  }
+
+  @Test
+  public void testRejectedRowsAreNotAdded() throws SnowplowEvent.InvalidFormat {
+    OffHeapEventBatch batch = OffHeapEventBatch.allocateDirect(4, 48, FIELDS);
+    batch.add(line("angry-birds", "unstruct", "41828"));
+    int dataLength = batch.dataLength();
+
+    try {
+      batch.add(line("angry-birds", "unstruct", "not-a-number"));
+      fail("Expected InvalidFormat");
+    } catch (SnowplowEvent.InvalidFormat exc) {
+      // expected
+    }
+
+    try {
+      batch.add(line("a-much-longer-app-id-than-fits", "unstruct", "1"));
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException exc) {
+      // expected
+    }
+
+    assertEquals(1, batch.size());
+    assertEquals(dataLength, batch.dataLength());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrapInvalid() {
+    OffHeapEventBatch.wrap(ByteBuffer.allocate(64));
+  }
+
+  @Test
+  public void testHeaderStartsWithMagic() {
+    ByteBuffer buffer = OffHeapEventBatch.allocateDirect(4, 256, FIELDS).buffer();
+    byte[] magic = new byte[4];
+    buffer.get(magic);
+
+    assertEquals("JPLB", new String(magic, StandardCharsets.US_ASCII));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrapRejectsCapacityBeyondBuffer() {
+    OffHeapEventBatch batch = OffHeapEventBatch.allocateDirect(4, 256, FIELDS);
+    ByteBuffer copy = ByteBuffer.allocate(batch.buffer().remaining());
+    copy.put(batch.buffer());
+    copy.flip();
+
+    // large enough that the column offsets no longer fit in an int
+    copy.order(ByteOrder.LITTLE_ENDIAN).putInt(8, Integer.MAX_VALUE);
+
+    OffHeapEventBatch.wrap(copy);
+  }
+}
@@ -0,0 +1,203 @@
+package io.github.acgray.jplow.batch;
+
+import io.github.acgray.jplow.selfdesc.SchemaPattern;
+import io.github.acgray.jplow.value.EnrichedTimestamps;
+import io.github.acgray.jplow.value.EnrichedTsvFixtures;
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.SnowplowEvent;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestSnowplowEventBatch {
+
+  private static String line(String event, String collectorTstamp, String txnId, String appId) {
+    String[] c = new String[131];
+    Arrays.fill(c, "");
+    c[0] = appId;
+    c[1] = "web";
+    c[2] = "2017-01-26 00:01:25.292";
+    c[3] = collectorTstamp;
+    c[5] = event;
+    c[6] = "c6ef3124-b53a-4b13-a233-0088f79dcbcb";
+    c[7] = txnId;
+    c[22] = "37.443604";
+    c[90] = "1";
+    c[106] = "1349";
+    return String.join("\t", c);
+  }
+
+  @Test
+  public void testColumns() throws SnowplowEvent.InvalidFormat {
+    SnowplowEventBatch batch = SnowplowEventBatch.of(
+        Arrays.asList(
+            line("page_view", "2013-11-26 00:02:05.123", "41828", "angry-birds"),
+            line("unstruct", "2013-11-26 01:00:00.000", "", "caf\u00e9")),
+        EnumSet.allOf(EventField.class));
+
+    assertEquals(2, batch.size());
+    assertTrue(batch.isFull());
+
+    assertArrayEquals(
+        new long[] {1385424125123L, 1385427600000L},
+        batch.timestampColumn(EventField.COLLECTOR_TSTAMP));
+    assertEquals(
+        EnrichedTimestamps.NONE, batch.timestampMillis(EventField.DVCE_CREATED_TSTAMP, 0));
+    assertTrue(batch.isNull(EventField.DVCE_CREATED_TSTAMP, 0));
+
+    assertEquals(41828, batch.intValue(EventField.TXN_ID, 0));
+    assertFalse(batch.isNull(EventField.TXN_ID, 0));
+    assertTrue(batch.isNull(EventField.TXN_ID, 1));
+
+    assertEquals(37.443604f, batch.floatValue(EventField.GEO_LATITUDE, 0), 0f);
+    assertTrue(batch.isNull(EventField.GEO_LONGITUDE, 0));
+
+    assertTrue(batch.booleanValue(EventField.BR_FEATURES_WINDOWSMEDIA, 1));
+    assertFalse(batch.booleanValue(EventField.BR_FEATURES_PDF, 1));
+    assertTrue(batch.isNull(EventField.BR_FEATURES_PDF, 1));
+
+    assertEquals("angry-birds", batch.stringValue(EventField.APP_ID, 0));
+    assertEquals("caf\u00e9", batch.stringValue(EventField.APP_ID, 1));
+    assertEquals(1349, batch.intValue(EventField.DOC_WIDTH, 0));
+    assertTrue(batch.stringEquals(
+        EventField.EVENT, 1, "unstruct".getBytes(StandardCharsets.UTF_8)));
+    assertFalse(batch.stringEquals(
+        EventField.EVENT, 0, "unstruct".getBytes(StandardCharsets.UTF_8)));
+
+    // required columns are empty rather than null
+    assertEquals("", batch.stringValue(EventField.EVENT_VENDOR, 0));
+    assertNull(batch.stringValue(EventField.PAGE_URL, 0));
+  }
+
+  @Test
+  public void testScanProjectedColumns() throws SnowplowEvent.InvalidFormat {
+    SnowplowEventBatch batch = new SnowplowEventBatch(
+        100, EnumSet.of(EventField.EVENT, EventField.COLLECTOR_TSTAMP));
+
+    for (int i = 0; i < 100; i++) {
+      batch.add(line(
+          i % 4 == 0 ? "page_view" : "struct",
+          String.format("2013-11-26 %02d:30:00.000", i % 24),
+          "bad-txn-id-is-not-decoded",
+          "app"));
+    }
+
+    // page views per hour of the day
+    int[] counts = new int[24];
+    long[] collectorTstamp = batch.timestampColumn(EventField.COLLECTOR_TSTAMP);
+    byte[] pageView = "page_view".getBytes(StandardCharsets.UTF_8);
+    for (int r = 0; r < batch.size(); r++) {
+      if (batch.stringEquals(EventField.EVENT, r, pageView)) {
+        counts[(int) (collectorTstamp[r] / 3_600_000L % 24)]++;
+      }
+    }
+
+    assertEquals(5, counts[0]);
+    assertEquals(0, counts[1]);
+    assertEquals(4, counts[4]);
+
+    try {
+      batch.intColumn(EventField.TXN_ID);
+      fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testInvalidRowIsNotAdded() throws SnowplowEvent.InvalidFormat {
+    SnowplowEventBatch batch = new SnowplowEventBatch(2);
+    batch.add(line("page_view", "2013-11-26 00:02:05.123", "1", "first"));
+
+    try {
+      batch.add(line("page_view", "2013-11-26 00:02:05.123", "one", "second"));
+      fail("Expected InvalidFormat");
+    } catch (SnowplowEvent.InvalidFormat exc) {
+      // expected
+    }
+
+    assertEquals(1, batch.size());
+    batch.add(line("page_view", "2013-11-26 00:02:05.123", "2", "third"));
+    assertEquals("third", batch.stringValue(EventField.APP_ID, 1));
+    assertEquals(2, batch.intValue(EventField.TXN_ID, 1));
+
+    try {
+      batch.add(line("page_view", "2013-11-26 00:02:05.123", "3", "fourth"));
+      fail("Expected IllegalStateException");
+    } catch (IllegalStateException exc) {
+      // expected
+    }
+
+    batch.clear();
+    assertEquals(0, batch.size());
+  }
+
+  private static SchemaPattern pattern(String vendor, String name, int major, Integer minor) {
+    return SchemaPattern.builder().vendor(vendor).name(name).major(major).minor(minor).build();
+  }
+
+  @Test
+  public void testContextRows() throws SnowplowEvent.InvalidFormat {
+    String[] withoutDerived = EnrichedTsvFixtures.columns();
+    withoutDerived[122] = "";
+    String[] withoutContexts = EnrichedTsvFixtures.columns();
+    withoutContexts[52] = "";
+
+    SnowplowEventBatch batch = new SnowplowEventBatch(
+        3, EnumSet.of(EventField.CONTEXTS, EventField.DERIVED_CONTEXTS));
+    batch.add(EnrichedTsvFixtures.line(withoutDerived));
+    batch.add(EnrichedTsvFixtures.line(withoutContexts));
+    batch.add(EnrichedTsvFixtures.line());
+
+    assertArrayEquals(
+        new long[] {0b101L}, batch.contextRows(pattern("com.acme", "page_context", 1, null)));
+    assertArrayEquals(
+        new long[] {0b101L}, batch.contextRows(pattern("com.acme", "page_context", 1, 0)));
+    assertArrayEquals(
+        new long[] {0L}, batch.contextRows(pattern("com.acme", "page_context", 1, 1)));
+    assertArrayEquals(
+        new long[] {0L}, batch.contextRows(pattern("com.acme", "page_context", 2, null)));
+    assertArrayEquals(
+        new long[] {0b110L},
+        batch.contextRows(pattern("com.snowplowanalytics.snowplow", "ua_parser_context", 1, 0)));
+
+    batch.clear();
+    batch.add(EnrichedTsvFixtures.line(withoutContexts));
+    assertArrayEquals(
+        new long[] {0L}, batch.contextRows(pattern("com.acme", "page_context", 1, null)));
+  }
+
+  @Test
+  public void testInvalidContextsRowIsNotAdded() throws SnowplowEvent.InvalidFormat {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[122] = "{not json";
+
+    SnowplowEventBatch batch = new SnowplowEventBatch(
+        2, EnumSet.of(EventField.CONTEXTS, EventField.DERIVED_CONTEXTS));
+    try {
+      batch.add(EnrichedTsvFixtures.line(columns));
+      fail("Expected InvalidFormat");
+    } catch (SnowplowEvent.InvalidFormat exc) {
+      // expected
+    }
+
+    assertEquals(0, batch.size());
+    assertArrayEquals(
+        new long[] {0L}, batch.contextRows(pattern("com.acme", "page_context", 1, null)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testContextRowsRequireContextsColumn() {
+    new SnowplowEventBatch(1, EnumSet.of(EventField.APP_ID))
+        .contextRows(pattern("com.acme", "page_context", 1, null));
+  }
+}
@@ -0,0 +1,110 @@
+package io.github.acgray.jplow.codec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBinaryEncoder {
+
+  @Test
+  public void testVarIntsShouldRoundTrip() throws Exception {
+    int[] ints = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+    long[] longs = {0L, 300L, 1385424125123L, Long.MAX_VALUE, -1L, Long.MIN_VALUE};
+
+    BinaryEncoder out = new BinaryEncoder(16);
+    for (int value : ints) {
+      out.writeVarInt(value);
+      out.writeSignedVarInt(value);
+    }
+    for (long value : longs) {
+      out.writeVarLong(value);
+      out.writeSignedVarLong(value);
+    }
+
+    BinaryDecoder in = new BinaryDecoder(out.toByteArray());
+    for (int value : ints) {
+      Assert.assertEquals(value, in.readVarInt());
+      Assert.assertEquals(value, in.readSignedVarInt());
+    }
+    for (long value : longs) {
+      Assert.assertEquals(value, in.readVarLong());
+      Assert.assertEquals(value, in.readSignedVarLong());
+    }
+    Assert.assertEquals(0, in.remaining());
+  }
+
+  @Test
+  public void testSmallValuesShouldTakeOneByte() {
+    BinaryEncoder out = new BinaryEncoder();
+    out.writeVarInt(127);
+    out.writeSignedVarInt(-64);
+    out.writeSignedVarLong(63L);
+
+    Assert.assertEquals(3, out.size());
+  }
+
+  @Test
+  public void testFloatsAndStringsShouldRoundTrip() throws Exception {
+    String[] strings = {"", "web", "caf\u00e9", "\u20ac10", "smile \ud83d\ude00"};
+
+    BinaryEncoder out = new BinaryEncoder();
+    out.writeFloat(-122.4124f);
+    out.writeFloat(Float.NaN);
+    for (String value : strings) {
+      out.writeString(value);
+    }
+
+    BinaryDecoder in = new BinaryDecoder(out.toByteArray());
+    Assert.assertEquals(-122.4124f, in.readFloat(), 0f);
+    Assert.assertTrue(Float.isNaN(in.readFloat()));
+    for (String value : strings) {
+      Assert.assertEquals(value, in.readString());
+    }
+    Assert.assertEquals(0, in.remaining());
+  }
+
+  @Test
+  public void testStringShouldBePrefixedWithUtf8Length() throws Exception {
+    BinaryEncoder out = new BinaryEncoder();
+    out.writeString("caf\u00e9");
+
+    BinaryDecoder in = new BinaryDecoder(out.toByteArray());
+    Assert.assertEquals(5, in.readVarInt());
+    Assert.assertEquals(5, in.remaining());
+  }
+
+  @Test(expected = BinaryCodec.InvalidFormat.class)
+  public void testTruncatedInputShouldThrowInvalidFormat() throws Exception {
+    BinaryEncoder out = new BinaryEncoder();
+    out.writeString("truncated");
+    byte[] bytes = out.toByteArray();
+
+    new BinaryDecoder(bytes, 0, bytes.length - 1).readString();
+  }
+
+  @Test
+  public void testDecodeShouldCheckFormatVersion() throws Exception {
+    BinaryCodec<String> codec = new BinaryCodec<String>() {
+      @Override
+      public void write(String value, BinaryEncoder out) {
+        out.writeString(value);
+      }
+
+      @Override
+      public String read(BinaryDecoder in) throws InvalidFormat {
+        return in.readString();
+      }
+    };
+
+    byte[] bytes = codec.encode("value");
+    Assert.assertEquals(BinaryCodec.FORMAT_VERSION, bytes[0]);
+    Assert.assertEquals("value", codec.decode(bytes));
+
+    bytes[0] = (byte) (BinaryCodec.FORMAT_VERSION + 1);
+    try {
+      codec.decode(bytes);
+      Assert.fail("Expected InvalidFormat");
+    } catch (BinaryCodec.InvalidFormat exc) {
+      Assert.assertTrue(exc.getMessage().contains("version"));
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package io.github.acgray.jplow.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import io.github.acgray.jplow.selfdesc.SchemaKey;
+import io.github.acgray.jplow.value.GsonAdaptersTrackerProtocol;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class TestJplowCodecs {
+
+  /** Reads every string in upper case. */
+  private static class UpperCaseFactory implements TypeAdapterFactory {
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+      if (type.getRawType() != String.class) {
+        return null;
+      }
+      return (TypeAdapter<T>) new TypeAdapter<String>() {
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+          out.value(value);
+        }
+
+        @Override
+        public String read(JsonReader in) throws IOException {
+          return in.nextString().toUpperCase();
+        }
+      };
+    }
+  }
+
+  /** Reads every string with a configured suffix. */
+  private static class SuffixFactory implements TypeAdapterFactory {
+    private final String suffix;
+
+    SuffixFactory(String suffix) {
+      this.suffix = suffix;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+      if (type.getRawType() != String.class) {
+        return null;
+      }
+      return (TypeAdapter<T>) new TypeAdapter<String>() {
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+          out.value(value);
+        }
+
+        @Override
+        public String read(JsonReader in) throws IOException {
+          return in.nextString() + suffix;
+        }
+      };
+    }
+  }
+
+  @Test
+  public void testDefaultsShouldBeShared() {
+    Assert.assertSame(JplowCodecs.defaults(), JplowCodecs.defaults());
+    Assert.assertSame(JplowCodecs.defaults().gson(), JplowCodecs.defaults().gson());
+  }
+
+  @Test
+  public void testDefaultsShouldReadSchemaKeys() throws Exception {
+    SchemaKey key = JplowCodecs.defaults().adapter(SchemaKey.class)
+        .fromJsonTree(new JsonPrimitive("iglu:com.acme/foo/jsonschema/1-0-0"));
+
+    Assert.assertEquals(SchemaKey.fromString("iglu:com.acme/foo/jsonschema/1-0-0"), key);
+  }
+
+  @Test
+  public void testAdapterShouldBeResolvedOnce() {
+    JplowCodecs codecs = JplowCodecs.defaults();
+
+    Assert.assertSame(codecs.adapter(SchemaKey.class), codecs.adapter(SchemaKey.class));
+  }
+
+  @Test
+  public void testWithShouldAddFactoryWithPrecedence() {
+    TypeAdapterFactory factory = new UpperCaseFactory();
+    JplowCodecs codecs = JplowCodecs.defaults().with(factory);
+
+    Assert.assertEquals("ABC", codecs.gson().fromJson("\"abc\"", String.class));
+    Assert.assertEquals("abc", JplowCodecs.defaults().gson().fromJson("\"abc\"", String.class));
+    Assert.assertSame(codecs, JplowCodecs.defaults().with(factory));
+    Assert.assertSame(codecs, codecs.with());
+  }
+
+  @Test
+  public void testWithShouldNotShareRegistryBetweenFactoryInstances() {
+    JplowCodecs bang = JplowCodecs.defaults().with(new SuffixFactory("!"));
+    JplowCodecs question = JplowCodecs.defaults().with(new SuffixFactory("?"));
+
+    Assert.assertEquals("abc!", bang.gson().fromJson("\"abc\"", String.class));
+    Assert.assertEquals("abc?", question.gson().fromJson("\"abc\"", String.class));
+  }
+
+  @Test
+  public void testWithShouldCacheGeneratedFactoriesByClass() {
+    JplowCodecs codecs = JplowCodecs.defaults().with(new GsonAdaptersTrackerProtocol());
+
+    Assert.assertSame(codecs, JplowCodecs.defaults().with(new GsonAdaptersTrackerProtocol()));
+  }
+}
@@ -0,0 +1,135 @@
+package io.github.acgray.jplow.filter;
+
+import io.github.acgray.jplow.value.EnrichedTsvFixtures;
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.TsvRow;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+public class TestFilterExpression {
+
+  private static final TsvRow ROW = TsvRow.of(
+      EnrichedTsvFixtures.line().getBytes(StandardCharsets.UTF_8));
+
+  private static boolean matches(String expression) throws Exception {
+    return FilterExpression.parse(expression).test(ROW);
+  }
+
+  private static void assertInvalid(String expression) {
+    try {
+      FilterExpression.parse(expression);
+      Assert.fail("Expected InvalidFormat: " + expression);
+    } catch (FilterExpression.InvalidFormat exc) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testStringComparisons() throws Exception {
+    Assert.assertTrue(matches("event = 'unstruct'"));
+    Assert.assertFalse(matches("event = 'page_view'"));
+    Assert.assertTrue(matches("event != 'page_view'"));
+    Assert.assertTrue(matches("event <> 'page_view'"));
+    Assert.assertTrue(matches("app_id IN ('web', 'angry-birds')"));
+    Assert.assertFalse(matches("app_id NOT IN ('web', 'angry-birds')"));
+    Assert.assertTrue(matches("event_vendor LIKE 'com.snowplow%'"));
+    Assert.assertFalse(matches("event_vendor LIKE 'com.acme%'"));
+    Assert.assertTrue(matches("event_vendor NOT LIKE 'com.acme%'"));
+  }
+
+  @Test
+  public void testTimestampComparisons() throws Exception {
+    // collector_tstamp is 2013-11-26 00:02:05.123
+    Assert.assertTrue(matches("collector_tstamp >= '2013-11-26'"));
+    Assert.assertTrue(matches("collector_tstamp = '2013-11-26 00:02:05.123'"));
+    Assert.assertTrue(matches("collector_tstamp <= '2013-11-26T00:02:05.123Z'"));
+    Assert.assertFalse(matches("collector_tstamp < '2013-11-26 00:02:05.123'"));
+    Assert.assertFalse(matches("collector_tstamp > '2013-11-26 00:02:05.123'"));
+    Assert.assertTrue(matches(
+        "collector_tstamp BETWEEN '2013-11-26' AND '2013-11-27'"));
+    Assert.assertFalse(matches(
+        "collector_tstamp NOT BETWEEN '2013-11-26' AND '2013-11-27'"));
+  }
+
+  @Test
+  public void testNumberComparisons() throws Exception {
+    Assert.assertTrue(matches("txn_id = 41828"));
+    Assert.assertTrue(matches("txn_id > 41827 AND txn_id < 41829"));
+    Assert.assertFalse(matches("txn_id > 41828"));
+    Assert.assertTrue(matches("txn_id IN (1, 41828)"));
+    Assert.assertTrue(matches("txn_id < 99999999999"));
+    Assert.assertTrue(matches("geo_latitude > 37.4 AND geo_longitude < -122"));
+    Assert.assertFalse(matches("geo_latitude BETWEEN 0 AND 1.5"));
+  }
+
+  @Test
+  public void testBooleanComparisons() throws Exception {
+    Assert.assertTrue(matches("br_features_pdf = TRUE"));
+    Assert.assertTrue(matches("br_features_java = false"));
+    Assert.assertTrue(matches("br_features_java = 0"));
+    Assert.assertFalse(matches("br_features_java = 1"));
+  }
+
+  @Test
+  public void testNullComparisons() throws Exception {
+    Assert.assertTrue(matches("tr_city IS NULL"));
+    Assert.assertFalse(matches("tr_city IS NOT NULL"));
+    Assert.assertTrue(matches("event is not null"));
+    Assert.assertFalse(matches("dvce_sent_tstamp IS NULL"));
+  }
+
+  @Test
+  public void testLogicalOperators() throws Exception {
+    Assert.assertTrue(matches(
+        "event = 'unstruct' AND app_id IN ('web', 'angry-birds') "
+            + "AND collector_tstamp >= '2013-01-01'"));
+    Assert.assertTrue(matches("event = 'page_view' OR app_id = 'angry-birds'"));
+    Assert.assertFalse(matches("NOT (event = 'page_view' OR app_id = 'angry-birds')"));
+    // AND binds more tightly than OR
+    Assert.assertTrue(matches("app_id = 'angry-birds' OR event = 'x' AND platform = 'x'"));
+    Assert.assertFalse(matches("(app_id = 'angry-birds' OR event = 'x') AND platform = 'x'"));
+  }
+
+  @Test
+  public void testEscapedQuote() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[EventField.APP_ID.index()] = "o'brien";
+    TsvRow row = TsvRow.of(EnrichedTsvFixtures.line(columns));
+
+    Assert.assertTrue(FilterExpression.parse("app_id = 'o''brien'").test(row));
+  }
+
+  @Test
+  public void testFields() throws Exception {
+    FilterExpression expression = FilterExpression.parse(
+        "event = 'unstruct' AND (app_id = 'web' OR txn_id > 5)");
+
+    Assert.assertEquals(
+        EnumSet.of(EventField.EVENT, EventField.APP_ID, EventField.TXN_ID),
+        expression.fields());
+    Assert.assertEquals("event = 'unstruct' AND (app_id = 'web' OR txn_id > 5)",
+        expression.toString());
+  }
+
+  @Test
+  public void testInvalidExpressions() {
+    assertInvalid("");
+    assertInvalid("no_such_column = 'x'");
+    assertInvalid("event = ");
+    assertInvalid("event = 'unterminated");
+    assertInvalid("(event = 'x'");
+    assertInvalid("event = 'x' event = 'y'");
+    assertInvalid("event NOT = 'x'");
+    assertInvalid("event = 5");
+    assertInvalid("event > 'x'");
+    assertInvalid("event LIKE '%suffix'");
+    assertInvalid("txn_id = 'x'");
+    assertInvalid("txn_id = 1.5");
+    assertInvalid("collector_tstamp > 'not a time'");
+    assertInvalid("collector_tstamp IN ('2013-11-26')");
+    assertInvalid("br_features_pdf = 2");
+  }
+}
@@ -0,0 +1,165 @@
+package io.github.acgray.jplow.filter;
+
+import io.github.acgray.jplow.value.EnrichedTsvFixtures;
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.TsvRow;
+import org.joda.time.Instant;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+public class TestRowFilters {
+
+  private static TsvRow row() {
+    return TsvRow.of(EnrichedTsvFixtures.line());
+  }
+
+  private static TsvRow utf8Row() {
+    return TsvRow.of(EnrichedTsvFixtures.line().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static TsvRow rowWith(EventField field, String value) {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[field.index()] = value;
+    return TsvRow.of(EnrichedTsvFixtures.line(columns).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void assertMatches(Predicate<TsvRow> filter, boolean expected) {
+    Assert.assertEquals(expected, filter.test(row()));
+    Assert.assertEquals(expected, filter.test(utf8Row()));
+  }
+
+  @Test
+  public void testEqualTo() {
+    assertMatches(RowFilters.equalTo(EventField.EVENT, "unstruct"), true);
+    assertMatches(RowFilters.equalTo(EventField.EVENT, "unstruc"), false);
+    assertMatches(RowFilters.equalTo(EventField.EVENT, "unstructured"), false);
+    assertMatches(RowFilters.equalTo(EventField.TR_CITY, ""), true);
+  }
+
+  @Test
+  public void testEqualToShouldCompareNonAsciiText() {
+    TsvRow row = rowWith(EventField.APP_ID, "caf\u00e9");
+
+    Assert.assertTrue(RowFilters.equalTo(EventField.APP_ID, "caf\u00e9").test(row));
+    Assert.assertFalse(RowFilters.equalTo(EventField.APP_ID, "caf\u00e8").test(row));
+    Assert.assertFalse(RowFilters.equalTo(EventField.APP_ID, "cafe").test(row));
+    Assert.assertTrue(RowFilters.startsWith(EventField.APP_ID, "caf\u00e9").test(row));
+  }
+
+  @Test
+  public void testIn() {
+    assertMatches(RowFilters.in(EventField.APP_ID, "web", "angry-birds"), true);
+    assertMatches(RowFilters.in(EventField.APP_ID, "web", "ios"), false);
+    assertMatches(RowFilters.in(EventField.APP_ID), false);
+  }
+
+  @Test
+  public void testInShouldHashManyValues() {
+    String[] values = new String[20];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = "app-" + i;
+    }
+    assertMatches(RowFilters.in(EventField.APP_ID, values), false);
+
+    values[13] = "angry-birds";
+    assertMatches(RowFilters.in(EventField.APP_ID, Arrays.asList(values)), true);
+  }
+
+  @Test
+  public void testInShouldHashNonAsciiAndCollidingValues() {
+    String[] values = new String[20];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = "app-" + i;
+    }
+    // "Aa" and "BB" have the same hash code
+    values[0] = "Aa";
+    values[1] = "caf\u00e9";
+    Predicate<TsvRow> filter = RowFilters.in(EventField.APP_ID, values);
+
+    Assert.assertTrue(filter.test(rowWith(EventField.APP_ID, "caf\u00e9")));
+    Assert.assertTrue(filter.test(rowWith(EventField.APP_ID, "Aa")));
+    Assert.assertFalse(filter.test(rowWith(EventField.APP_ID, "BB")));
+    Assert.assertFalse(filter.test(rowWith(EventField.APP_ID, "")));
+  }
+
+  @Test
+  public void testStartsWith() {
+    assertMatches(RowFilters.startsWith(EventField.EVENT_VENDOR, "com.snowplowanalytics"), true);
+    assertMatches(RowFilters.startsWith(EventField.EVENT_VENDOR, "com.acme"), false);
+    assertMatches(RowFilters.startsWith(EventField.EVENT_VENDOR, ""), true);
+  }
+
+  @Test
+  public void testIsEmpty() {
+    assertMatches(RowFilters.isEmpty(EventField.TR_CITY), true);
+    assertMatches(RowFilters.isEmpty(EventField.EVENT), false);
+    assertMatches(RowFilters.isEmpty(EventField.EVENT).negate(), true);
+  }
+
+  @Test
+  public void testTimestampBetween() {
+    Instant collected = Instant.parse("2013-11-26T00:02:05.123Z");
+
+    assertMatches(
+        RowFilters.between(EventField.COLLECTOR_TSTAMP, collected, collected), true);
+    assertMatches(RowFilters.between(
+        EventField.COLLECTOR_TSTAMP, collected.minus(1000), collected.minus(1)), false);
+    assertMatches(RowFilters.between(
+        EventField.COLLECTOR_TSTAMP, collected.plus(1), collected.plus(1000)), false);
+
+    Assert.assertFalse(RowFilters.between(
+        EventField.DVCE_SENT_TSTAMP, new Instant(0), collected.plus(1000))
+        .test(rowWith(EventField.DVCE_SENT_TSTAMP, "")));
+  }
+
+  @Test
+  public void testTimestampBetweenShouldNotMatchInvalidTimestamp() {
+    TsvRow row = rowWith(EventField.COLLECTOR_TSTAMP, "yesterday");
+
+    Assert.assertFalse(RowFilters.between(
+        EventField.COLLECTOR_TSTAMP, new Instant(0), new Instant(Long.MAX_VALUE)).test(row));
+  }
+
+  @Test
+  public void testIntBetween() {
+    assertMatches(RowFilters.between(EventField.TXN_ID, 41828, 41828), true);
+    assertMatches(RowFilters.between(EventField.TXN_ID, 0, 41827), false);
+    assertMatches(RowFilters.between(EventField.TI_QUANTITY, 3, 100), false);
+
+    Assert.assertFalse(RowFilters.between(EventField.TXN_ID, 0, 100)
+        .test(rowWith(EventField.TXN_ID, "12a")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBetweenShouldRejectColumnOfOtherType() {
+    RowFilters.between(EventField.APP_ID, 0, 100);
+  }
+
+  @Test
+  public void testShouldTreatMissingColumnAsEmpty() {
+    TsvRow row = TsvRow.of("angry-birds\tweb");
+
+    Assert.assertTrue(RowFilters.isEmpty(EventField.EVENT).test(row));
+    Assert.assertTrue(RowFilters.equalTo(EventField.EVENT, "").test(row));
+    Assert.assertFalse(RowFilters.equalTo(EventField.EVENT, "unstruct").test(row));
+    Assert.assertFalse(RowFilters.in(EventField.EVENT, "unstruct").test(row));
+    Assert.assertFalse(RowFilters.startsWith(EventField.EVENT, "un").test(row));
+    Assert.assertFalse(RowFilters.between(
+        EventField.COLLECTOR_TSTAMP, new Instant(0), new Instant(Long.MAX_VALUE)).test(row));
+  }
+
+  @Test
+  public void testCombinedFilters() {
+    Predicate<TsvRow> filter = RowFilters.equalTo(EventField.EVENT, "unstruct")
+        .and(RowFilters.in(EventField.APP_ID, "angry-birds", "ios"))
+        .and(RowFilters.startsWith(EventField.EVENT_VENDOR, "com.snowplowanalytics"));
+
+    assertMatches(filter, true);
+    assertMatches(filter.and(RowFilters.equalTo(EventField.PLATFORM, "mob")), false);
+    assertMatches(RowFilters.all(), true);
+  }
+}
@@ -0,0 +1,205 @@
+package io.github.acgray.jplow.io;
+
+import io.github.acgray.jplow.filter.RowFilters;
+import io.github.acgray.jplow.value.EnrichedTsvFixtures;
+import io.github.acgray.jplow.value.EnrichedTsvReader;
+import io.github.acgray.jplow.value.EventField;
+import io.github.acgray.jplow.value.SnowplowEvent;
+import io.github.acgray.jplow.value.ValidationPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestEnrichedFiles {
+
+  private static String line(int n) {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[6] = String.format("00000000-0000-0000-0000-%012d", n);
+    return EnrichedTsvFixtures.line(columns);
+  }
+
+  private static List<String> eventIds(int count) {
+    List<String> ids = new ArrayList<>();
+    for (int n = 0; n < count; n++) {
+      ids.add(String.format("00000000-0000-0000-0000-%012d", n));
+    }
+    return ids;
+  }
+
+  private static Path write(String content) throws IOException {
+    Path path = Files.createTempFile("enriched", ".tsv");
+    path.toFile().deleteOnExit();
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    return path;
+  }
+
+  private static Path write(int count) throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (int n = 0; n < count; n++) {
+      content.append(line(n)).append('\n');
+    }
+    return write(content.toString());
+  }
+
+  @Test
+  public void testStreamShouldReadEveryLineInOrder() throws Exception {
+    Path path = write(50);
+
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(path)) {
+      Assert.assertEquals(
+          eventIds(50),
+          events.map(SnowplowEvent::eventId).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testParallelStreamShouldReadEveryLineInOrder() throws Exception {
+    Path path = write(200);
+    EnrichedTsvReader reader = EnrichedTsvReader.builder()
+        .validationPolicy(ValidationPolicy.LAZY)
+        .build();
+
+    // chunks of a few lines each, so that both chunks and lines are split
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(path, reader, 4096)) {
+      Assert.assertEquals(
+          eventIds(200),
+          events.parallel().map(SnowplowEvent::eventId).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testChunksShouldEndAfterNewlines() throws Exception {
+    Path path = write(20);
+    byte[] content = Files.readAllBytes(path);
+
+    long[] bounds;
+    try (FileChannel channel = FileChannel.open(path)) {
+      bounds = EnrichedFiles.chunkBounds(channel, 1000);
+    }
+
+    Assert.assertEquals(0, bounds[0]);
+    Assert.assertEquals(content.length, bounds[bounds.length - 1]);
+    Assert.assertTrue(bounds.length > 2);
+    for (int i = 1; i < bounds.length - 1; i++) {
+      Assert.assertEquals('\n', content[(int) bounds[i] - 1]);
+      Assert.assertTrue(bounds[i] > bounds[i - 1]);
+    }
+  }
+
+  @Test
+  public void testShouldHandleCrlfBlankAndUnterminatedLines() throws Exception {
+    Path path = write(line(0) + "\r\n\n" + line(1) + "\r\n" + line(2));
+
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(path)) {
+      Assert.assertEquals(
+          eventIds(3),
+          events.map(SnowplowEvent::eventId).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testEmptyFileShouldHaveNoEvents() throws Exception {
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(write(""))) {
+      Assert.assertEquals(0, events.count());
+    }
+  }
+
+  @Test
+  public void testReaderShouldBeUsedForEachLine() throws Exception {
+    Path path = write(10);
+    EnrichedTsvReader reader = EnrichedTsvReader.builder()
+        .validationPolicy(ValidationPolicy.LAZY)
+        .fields(EnumSet.of(EventField.EVENT_ID))
+        .build();
+
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(path, reader)) {
+      List<SnowplowEvent> list = events.collect(Collectors.toList());
+      Assert.assertEquals(10, list.size());
+      Assert.assertNull(list.get(0).appId());
+    }
+  }
+
+  @Test
+  public void testFilterShouldSkipRejectedLines() throws Exception {
+    Path path = write(line(0) + "\nnot\tenough\tcolumns\n" + line(1) + "\n" + line(2));
+    List<String> ids = eventIds(3);
+    EnrichedTsvReader reader = EnrichedTsvReader.builder()
+        .filter(RowFilters.in(EventField.EVENT_ID, ids.get(0), ids.get(2)))
+        .build();
+
+    // the invalid line is rejected before it is parsed
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(path, reader)) {
+      Assert.assertEquals(
+          Arrays.asList(ids.get(0), ids.get(2)),
+          events.map(SnowplowEvent::eventId).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testParallelStreamShouldApplyFilter() throws Exception {
+    Path path = write(200);
+    List<String> ids = eventIds(200);
+    List<String> expected = ids.stream()
+        .filter(id -> id.endsWith("7"))
+        .collect(Collectors.toList());
+    EnrichedTsvReader reader = EnrichedTsvReader.builder()
+        .validationPolicy(ValidationPolicy.LAZY)
+        .filter(RowFilters.in(EventField.EVENT_ID, expected))
+        .build();
+
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(path, reader, 4096)) {
+      Assert.assertEquals(
+          expected,
+          events.parallel().map(SnowplowEvent::eventId).collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  public void testInvalidLineShouldThrowWithItsPosition() throws Exception {
+    Path path = write(line(0) + "\nnot\tenough\tcolumns\n");
+
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(path)) {
+      events.count();
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+      Assert.assertTrue(exc.getCause().getMessage().contains(
+          "at byte " + (line(0).length() + 1)));
+      Assert.assertTrue(exc.getCause().getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+  }
+
+  @Test
+  public void testInvalidLinesShouldBePassedToHandlerAndSkipped() throws Exception {
+    String[] badInt = EnrichedTsvFixtures.columns();
+    badInt[16] = "3x";
+    Path path = write(line(0) + "\nnot\tenough\tcolumns\n" + line(1) + "\n"
+        + EnrichedTsvFixtures.line(badInt) + "\n" + line(2));
+    List<SnowplowEvent.InvalidFormat> invalid = new CopyOnWriteArrayList<>();
+
+    try (Stream<SnowplowEvent> events = EnrichedFiles.stream(
+        path, EnrichedTsvReader.builder().build(), 4096, invalid::add)) {
+      Assert.assertEquals(
+          eventIds(3),
+          events.parallel().map(SnowplowEvent::eventId).collect(Collectors.toList()));
+    }
+
+    Assert.assertEquals(2, invalid.size());
+    for (SnowplowEvent.InvalidFormat exc : invalid) {
+      Assert.assertTrue(exc.getMessage().contains("at byte "));
+      Assert.assertNotNull(exc.getCause());
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package io.github.acgray.jplow.io;
+
+import io.github.acgray.jplow.value.EnrichedTsvFixtures;
+import io.github.acgray.jplow.value.EnrichedTsvWriter;
+import io.github.acgray.jplow.value.SnowplowEvent;
+import io.github.acgray.jplow.value.ValidationPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestShredder {
+
+  private static String line(int n) {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[6] = String.format("00000000-0000-0000-0000-%012d", n);
+    return EnrichedTsvFixtures.line(columns);
+  }
+
+  private static Path tempDirectory() throws Exception {
+    Path directory = Files.createTempDirectory("shredded");
+    directory.toFile().deleteOnExit();
+    return directory;
+  }
+
+  private static List<String> read(Path path) throws Exception {
+    return Files.readAllLines(path, StandardCharsets.UTF_8);
+  }
+
+  private static List<Path> inputs(int files, int lines) throws Exception {
+    List<Path> inputs = new ArrayList<>();
+    for (int file = 0; file < files; file++) {
+      StringBuilder content = new StringBuilder();
+      for (int n = 0; n < lines; n++) {
+        content.append(line(file * lines + n)).append('\n');
+      }
+      Path input = Files.createTempFile("enriched", ".tsv");
+      input.toFile().deleteOnExit();
+      Files.write(input, content.toString().getBytes(StandardCharsets.UTF_8));
+      inputs.add(input);
+    }
+    return inputs;
+  }
+
+  @Test
+  public void testPartitionShouldWriteAtomicAndShreddedTables() throws Exception {
+    Path output = tempDirectory();
+    Shredder shredder = Shredder.builder().outputDirectory(output).build();
+    SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line());
+
+    try (Shredder.Partition partition = shredder.open(3)) {
+      partition.write(event);
+      Assert.assertEquals(1, partition.events());
+    }
+
+    Assert.assertEquals(
+        Collections.singletonList(
+            EnrichedTsvWriter.of(Shredder.atomicColumns()).toString(event)),
+        read(output.resolve("atomic-events/part-00003.tsv")));
+
+    List<String> pages = read(output.resolve("com_acme_page_context_1/part-00003.tsv"));
+    Assert.assertEquals(1, pages.size());
+    Assert.assertEquals(
+        Arrays.asList(
+            event.eventId(),
+            "2013-11-26 00:02:05.123",
+            "iglu:com.acme/page_context/jsonschema/1-0-2",
+            "{\"lorem\":\"ipsum\",\"dolor\":1,\"sit\":true}"),
+        Arrays.asList(pages.get(0).split("\t")));
+
+    Assert.assertEquals(1, read(output.resolve(
+        "com_snowplowanalytics_snowplow_web_page_1/part-00003.tsv")).size());
+    Assert.assertEquals(1, read(output.resolve(
+        "com_snowplowanalytics_snowplow_ua_parser_context_1/part-00003.tsv")).size());
+    Assert.assertTrue(read(output.resolve(
+        "com_snowplowanalytics_snowplow_link_click_1/part-00003.tsv")).get(0).endsWith(
+        "\t{\"targetUrl\":\"http://www.example.com\",\"elementId\":\"exampleLink\"}"));
+  }
+
+  @Test
+  public void testEvictedWritersShouldBeReopenedForAppending() throws Exception {
+    Path output = tempDirectory();
+    Shredder shredder = Shredder.builder().outputDirectory(output).maxOpenFiles(2).build();
+
+    try (Shredder.Partition partition = shredder.open(0)) {
+      for (int n = 0; n < 3; n++) {
+        partition.write(SnowplowEvent.fromTsv(line(n), ValidationPolicy.LAZY));
+        Assert.assertTrue(partition.openTables().size() <= 2);
+      }
+    }
+
+    Assert.assertEquals(3, read(output.resolve("atomic-events/part-00000.tsv")).size());
+    Assert.assertEquals(3, read(output.resolve("com_acme_page_context_1/part-00000.tsv")).size());
+  }
+
+  @Test
+  public void testMalformedEventShouldWriteNothing() throws Exception {
+    Path output = tempDirectory();
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY);
+
+    Shredder shredder = Shredder.builder().outputDirectory(output).build();
+    try (Shredder.Partition partition = shredder.open(0)) {
+      partition.write(event);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+
+    Assert.assertFalse(Files.exists(output.resolve("atomic-events")));
+  }
+
+  @Test
+  public void testShredFilesShouldWriteOnePartitionPerFile() throws Exception {
+    List<Path> inputs = inputs(3, 10);
+    Path output = tempDirectory();
+
+    Shredder.builder().outputDirectory(output).build().shredFiles(inputs);
+
+    for (int file = 0; file < 3; file++) {
+      String part = String.format("part-%05d.tsv", file);
+      List<String> pages = read(output.resolve("com_acme_page_context_1").resolve(part));
+      Assert.assertEquals(10, pages.size());
+      Assert.assertTrue(pages.get(0).startsWith(
+          String.format("00000000-0000-0000-0000-%012d\t", file * 10)));
+      Assert.assertEquals(10, read(output.resolve("atomic-events").resolve(part)).size());
+    }
+  }
+
+  @Test
+  public void testShreddingTwiceShouldReplaceOutput() throws Exception {
+    List<Path> inputs = inputs(2, 5);
+    Path output = tempDirectory();
+    Shredder shredder = Shredder.builder().outputDirectory(output).maxOpenFiles(2).build();
+
+    shredder.shredFiles(inputs);
+    shredder.shredFiles(inputs);
+
+    for (int file = 0; file < 2; file++) {
+      String part = String.format("part-%05d.tsv", file);
+      Assert.assertEquals(5, read(output.resolve("atomic-events").resolve(part)).size());
+      Assert.assertEquals(5, read(output.resolve("com_acme_page_context_1").resolve(part)).size());
+    }
+  }
+
+  @Test
+  public void testShreddingAgainShouldDeleteOutputOfTablesNoLongerWritten() throws Exception {
+    List<Path> inputs = inputs(1, 5);
+    Path output = tempDirectory();
+    Path stale = output.resolve("com_acme_stale_1");
+    Files.createDirectories(stale);
+    Files.write(stale.resolve("part-00000.tsv"), "stale\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(stale.resolve("part-00001.tsv"), "other\n".getBytes(StandardCharsets.UTF_8));
+
+    Shredder.builder().outputDirectory(output).build().shredFiles(inputs);
+
+    Assert.assertFalse(Files.exists(stale.resolve("part-00000.tsv")));
+    // written by a partition which was not shredded this time
+    Assert.assertTrue(Files.exists(stale.resolve("part-00001.tsv")));
+  }
+
+  @Test
+  public void testShredFilesShouldSkipInvalidLinesAndEvents() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+    Path input = Files.createTempFile("enriched", ".tsv");
+    input.toFile().deleteOnExit();
+    Files.write(input, (line(0) + "\n" + EnrichedTsvFixtures.line(columns) + "\n"
+        + "not\tenough\tcolumns\n" + line(1) + "\n").getBytes(StandardCharsets.UTF_8));
+    Path output = tempDirectory();
+
+    long skipped = Shredder.builder().outputDirectory(output).build()
+        .shredFiles(Collections.singletonList(input));
+
+    Assert.assertEquals(2, skipped);
+    Assert.assertEquals(2, read(output.resolve("atomic-events/part-00000.tsv")).size());
+    Assert.assertEquals(2, read(output.resolve("com_acme_page_context_1/part-00000.tsv")).size());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testTooFewOpenFilesShouldBeRejected() throws Exception {
+    Shredder.builder().outputDirectory(tempDirectory()).maxOpenFiles(1).build();
+  }
+}
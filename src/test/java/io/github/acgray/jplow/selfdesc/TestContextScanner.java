@@ -0,0 +1,146 @@
+package io.github.acgray.jplow.selfdesc;
+
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TestContextScanner {
+
+  private static final String CONTEXTS =
+      "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-0\","
+          + "\"data\":[{\"schema\":\"iglu:com.snowplowanalytics.snowplow/web_page/jsonschema/1-0-0\","
+          + "\"data\":{\"id\":\"b1e9e3c5\"}},"
+          + "{\"data\":{\"schema\":\"not a schema\",\"nested\":[{\"a\":\"}]\\\"\"},null,1.5e3]},"
+          + " \"schema\" : \"iglu:com.acme/page_context/jsonschema/1-0-2\" }]}";
+
+  private static void assertInvalid(String json) {
+    try {
+      ContextScanner.scan(json);
+      Assert.fail("Expected InvalidFormat: " + json);
+    } catch (ContextScanner.InvalidFormat exc) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testScanShouldFindSchemasInOrder() throws Exception {
+    List<ContextScanner.Entry> entries = ContextScanner.scan(CONTEXTS);
+
+    Assert.assertEquals(2, entries.size());
+    Assert.assertEquals(
+        SchemaKey.fromString("iglu:com.snowplowanalytics.snowplow/web_page/jsonschema/1-0-0"),
+        entries.get(0).schema());
+    Assert.assertEquals(
+        SchemaKey.fromString("iglu:com.acme/page_context/jsonschema/1-0-2"),
+        entries.get(1).schema());
+  }
+
+  @Test
+  public void testEntryShouldHoldRangeOfEntity() throws Exception {
+    List<ContextScanner.Entry> entries = ContextScanner.scan(CONTEXTS);
+
+    ContextScanner.Entry first = entries.get(0);
+    Assert.assertEquals(CONTEXTS.indexOf("[{") + 1, first.start());
+    Assert.assertEquals(
+        "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/web_page/jsonschema/1-0-0\","
+            + "\"data\":{\"id\":\"b1e9e3c5\"}}",
+        first.json());
+    Assert.assertEquals(CONTEXTS.length() - 2, entries.get(1).end());
+  }
+
+  @Test
+  public void testEntryShouldDecodeOnDemand() throws Exception {
+    SelfDescribing<JsonObject> context = ContextScanner.scan(CONTEXTS).get(1).decode();
+
+    Assert.assertEquals("page_context", context.schema().name());
+    Assert.assertEquals(
+        "not a schema", context.data().getAsJsonPrimitive("schema").getAsString());
+  }
+
+  @Test
+  public void testScanShouldReadEscapedSchema() throws Exception {
+    List<ContextScanner.Entry> entries = ContextScanner.scan(
+        "{\"data\":[{\"sch\\u0065ma\":\"iglu:com.acme\\/foo\\/jsonschema\\/1-0-0\",\"data\":{}}]}");
+
+    Assert.assertEquals(1, entries.size());
+    Assert.assertEquals("com.acme", entries.get(0).schema().vendor());
+    Assert.assertEquals("foo", entries.get(0).schema().name());
+  }
+
+  @Test
+  public void testScanShouldAcceptEmptyData() throws Exception {
+    Assert.assertTrue(ContextScanner.scan("{\"schema\":\"x\",\"data\":[]}").isEmpty());
+  }
+
+  @Test
+  public void testScanShouldRejectInvalidJson() {
+    assertInvalid("");
+    assertInvalid("[]");
+    assertInvalid("{\"schema\":\"x\"}");
+    assertInvalid("{\"data\":null}");
+    assertInvalid("{\"data\":[1]}");
+    assertInvalid("{\"data\":[{\"data\":{}}]}");
+    assertInvalid("{\"data\":[{\"schema\":\"not a schema\",\"data\":{}}]}");
+    assertInvalid("{\"data\":[{\"schema\":\"iglu:com.acme/foo/jsonschema/1-0-0\",\"data\":{]}");
+    assertInvalid("{\"data\":[]} trailing");
+    assertInvalid("{\"data\":[{\"schema\":\"iglu:com.acme/foo/jsonschema/1-0-0");
+  }
+
+  @Test
+  public void testEntriesShouldLocateTheirData() throws Exception {
+    String json = "{\"data\":[{\"data\": {\"a\":[1,\"]\"]} ,"
+        + "\"schema\":\"iglu:com.acme/foo/jsonschema/1-0-0\"},"
+        + "{\"schema\":\"iglu:com.acme/bar/jsonschema/1-0-0\"}]}";
+
+    List<ContextScanner.Entry> entries = ContextScanner.scan(json);
+
+    ContextScanner.Entry foo = entries.get(0);
+    Assert.assertSame(json, foo.source());
+    Assert.assertEquals(
+        "{\"a\":[1,\"]\"]}", json.substring(foo.dataStart(), foo.dataEnd()));
+    Assert.assertEquals(-1, entries.get(1).dataStart());
+    Assert.assertEquals(-1, entries.get(1).dataEnd());
+  }
+
+  @Test
+  public void testScanPayloadShouldFindWrappedEntity() throws Exception {
+    String json = "{\"schema\":\"iglu:com.acme/unstruct_event/jsonschema/1-0-0\","
+        + "\"data\":{\"schema\":\"iglu:com.acme/click/jsonschema/1-0-1\",\"data\":{\"id\":7}}}";
+
+    ContextScanner.Entry payload = ContextScanner.scanPayload(json);
+
+    Assert.assertEquals("click", payload.schema().name());
+    Assert.assertEquals(
+        "{\"id\":7}", json.substring(payload.dataStart(), payload.dataEnd()));
+  }
+
+  @Test(expected = ContextScanner.InvalidFormat.class)
+  public void testScanPayloadShouldRejectMissingData() throws Exception {
+    ContextScanner.scanPayload("{\"schema\":\"iglu:com.acme/click/jsonschema/1-0-1\"}");
+  }
+
+  private static boolean hasValidData(String data) throws Exception {
+    return ContextScanner.scan(
+        "{\"data\":[{\"schema\":\"iglu:com.acme/foo/jsonschema/1-0-0\",\"data\":" + data + "}]}")
+        .get(0).hasValidData();
+  }
+
+  @Test
+  public void testEntryShouldCheckItsData() throws Exception {
+    Assert.assertTrue(hasValidData("{\"a\": [1, -0.5e+3, \"x\\u00e9\\n\", true, null], \"b\":{}}"));
+    Assert.assertTrue(hasValidData("[]"));
+    Assert.assertTrue(hasValidData("false"));
+    Assert.assertTrue(ContextScanner.scan(CONTEXTS).get(1).hasValidData());
+
+    Assert.assertFalse(hasValidData("{\"a\" tru}"));
+    Assert.assertFalse(hasValidData("{\"a\":tru}"));
+    Assert.assertFalse(hasValidData("{a:1}"));
+    Assert.assertFalse(hasValidData("[1,]"));
+    Assert.assertFalse(hasValidData("{\"a\":01}"));
+    Assert.assertFalse(hasValidData("{\"a\":1.}"));
+    Assert.assertFalse(hasValidData("{\"a\":\"\\x\"}"));
+    Assert.assertFalse(hasValidData("'a'"));
+  }
+}
@@ -0,0 +1,33 @@
+package io.github.acgray.jplow.selfdesc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSchemaFamily {
+
+  @Test
+  public void testKeysAndPatternsOfSameFamilyShouldBeEqual() throws Exception {
+    SchemaFamily fromKey = SchemaFamily.of(
+        SchemaKey.fromString("iglu:com.acme/page_context/jsonschema/1-0-2"));
+    SchemaFamily fromPattern = SchemaFamily.of(SchemaPattern.builder()
+        .vendor("com.acme")
+        .name("page_context")
+        .major(1)
+        .minor(1)
+        .build());
+
+    Assert.assertEquals(SchemaFamily.of("com.acme", "page_context", 1), fromKey);
+    Assert.assertEquals(fromKey, fromPattern);
+    Assert.assertEquals(fromKey.hashCode(), fromPattern.hashCode());
+    Assert.assertEquals("SchemaFamily{com.acme/page_context/1}", fromKey.toString());
+  }
+
+  @Test
+  public void testFamiliesShouldDifferByEachPart() throws Exception {
+    SchemaFamily family = SchemaFamily.of("com.acme", "page_context", 1);
+
+    Assert.assertNotEquals(family, SchemaFamily.of("com.other", "page_context", 1));
+    Assert.assertNotEquals(family, SchemaFamily.of("com.acme", "other", 1));
+    Assert.assertNotEquals(family, SchemaFamily.of("com.acme", "page_context", 2));
+  }
+}
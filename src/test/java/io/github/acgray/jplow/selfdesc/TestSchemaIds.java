@@ -0,0 +1,40 @@
+package io.github.acgray.jplow.selfdesc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSchemaIds {
+
+  @Test
+  public void testIdsShouldBeStableAndDense() throws Exception {
+    SchemaKey first = SchemaKey.fromString("iglu:com.acme/ids_context/jsonschema/1-0-0");
+    SchemaKey second = SchemaKey.fromString("iglu:com.acme/ids_context/jsonschema/1-0-1");
+    SchemaKey third = SchemaKey.fromString("iglu:com.acme/ids_context/jsonschema/2-0-0");
+
+    int id = SchemaIds.schemaId(first);
+    Assert.assertEquals(id, SchemaIds.schemaId(
+        SchemaKey.fromString("iglu:com.acme/ids_context/jsonschema/1-0-0")));
+    Assert.assertNotEquals(id, SchemaIds.schemaId(second));
+    Assert.assertTrue(SchemaIds.schemaId(third) < SchemaIds.schemaCount());
+
+    Assert.assertEquals(first, SchemaIds.schema(id));
+    Assert.assertEquals(SchemaIds.familyOf(id), SchemaIds.familyOf(SchemaIds.schemaId(second)));
+    Assert.assertNotEquals(
+        SchemaIds.familyOf(id), SchemaIds.familyOf(SchemaIds.schemaId(third)));
+    Assert.assertEquals(SchemaFamily.of(first), SchemaIds.family(SchemaIds.familyOf(id)));
+  }
+
+  @Test
+  public void testExistingFamilyIdShouldNotAssign() {
+    SchemaFamily family = SchemaFamily.of("com.acme", "never_seen", 1);
+
+    Assert.assertEquals(-1, SchemaIds.existingFamilyId(family));
+    int id = SchemaIds.familyId(family);
+    Assert.assertEquals(id, SchemaIds.existingFamilyId(family));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownIdShouldBeRejected() {
+    SchemaIds.schema(Integer.MAX_VALUE);
+  }
+}
@@ -126,4 +126,79 @@ public class TestSchemaKey {
         key.toString());
   }
 
+  @Test
+  public void testParseShouldReadRangeOfText() throws Exception {
+    String json = "{\"schema\":\"iglu:com.acme/foo_context/jsonschema/2-0-1\"}";
+    int start = json.indexOf("iglu:");
+
+    SchemaKey key = SchemaKey.parse(json, start, json.lastIndexOf('"'));
+
+    Assert.assertEquals(SchemaKey.fromString("iglu:com.acme/foo_context/jsonschema/2-0-1"), key);
+  }
+
+  @Test
+  public void testParseShouldShareCanonicalInstances() throws Exception {
+    String igluKey = "iglu:com.acme/shared_context/jsonschema/1-0-0";
+
+    Assert.assertSame(
+        SchemaKey.fromString(igluKey),
+        SchemaKey.parse(new StringBuilder("x").append(igluKey), 1, igluKey.length() + 1));
+  }
+
+  @Test
+  public void testParseShouldNotCacheNonCanonicalReferences() throws Exception {
+    SchemaKey key = SchemaKey.fromString("iglu:com.acme/padded_context/jsonschema/01-0-0");
+
+    Assert.assertEquals(1, key.version().major());
+    Assert.assertEquals("iglu:com.acme/padded_context/jsonschema/1-0-0", key.igluKey());
+    Assert.assertEquals(
+        key, SchemaKey.fromString("iglu:com.acme/padded_context/jsonschema/1-0-0"));
+  }
+
+  @Test
+  public void testFromStringShouldAllowSlashesInVendor() throws Exception {
+    SchemaKey key = SchemaKey.fromString("iglu:com.acme/sub/foo_context/jsonschema/1-0-0");
+
+    Assert.assertEquals("com.acme/sub", key.vendor());
+    Assert.assertEquals("foo_context", key.name());
+  }
+
+  @Test
+  public void testFromStringShouldRejectMalformedParts() {
+    String[] cases = {
+        "",
+        "iglu:",
+        "iglu:com.acme/foo_context/1-0-0",
+        "iglu:com.acme//jsonschema/1-0-0",
+        "iglu:com.acme/foo context/jsonschema/1-0-0",
+        "iglu:com.acme/foo_context//1-0-0",
+        "iglu:com.acme/foo_context/JSONSCHEMA/1-0-0",
+        "iglu:com.acme/foo_context/jsonschema/",
+        "iglu:com.acme/foo_context/jsonschema/1-0-0/",
+        "iglu:com.acme/foo_context/jsonschema/99999999999-0-0",
+        "igloo:com.acme/foo_context/jsonschema/1-0-0",
+    };
+
+    for (String s : cases) {
+      try {
+        SchemaKey.fromString(s);
+        Assert.fail("Expected InvalidFormat for " + s);
+      } catch (SchemaKey.InvalidFormat exc) {
+        // this is expected
+      }
+    }
+  }
+
+  @Test
+  public void testIgluKeyAndTableNameShouldBeComputedOnce() throws Exception {
+    SchemaKey key = SchemaKey.builder()
+        .vendor("com.acme")
+        .name("blah_context")
+        .version(SchemaVer.fromString("1-2-3"))
+        .build();
+
+    Assert.assertSame(key.igluKey(), key.igluKey());
+    Assert.assertSame(key.tableName(), key.tableName());
+    Assert.assertEquals("com_acme_blah_context_1", key.tableName());
+  }
 }
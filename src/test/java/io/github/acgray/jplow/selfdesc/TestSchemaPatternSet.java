@@ -0,0 +1,94 @@
+package io.github.acgray.jplow.selfdesc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TestSchemaPatternSet {
+
+  private static SchemaPattern pattern(
+      String name, int major, Integer minor, Integer addition) {
+    return SchemaPattern.builder()
+        .vendor("com.acme")
+        .name(name)
+        .major(major)
+        .minor(minor)
+        .addition(addition)
+        .build();
+  }
+
+  private static SchemaKey key(String name, String version) throws Exception {
+    return SchemaKey.fromString("iglu:com.acme/" + name + "/jsonschema/" + version);
+  }
+
+  @Test
+  public void testMatchesShouldReturnIdsOfAllMatchingPatterns() throws Exception {
+    SchemaPatternSet set = SchemaPatternSet.of(
+        pattern("page", 1, null, null),
+        pattern("page", 1, 0, null),
+        pattern("page", 1, null, 2),
+        pattern("page", 1, 0, 2),
+        pattern("page", 2, null, null),
+        pattern("product", 1, null, null),
+        pattern("page", 1, 0, null));
+
+    Assert.assertEquals(7, set.size());
+    Assert.assertArrayEquals(new int[] {0, 1, 2, 3, 6}, set.matches(key("page", "1-0-2")));
+    Assert.assertArrayEquals(new int[] {0, 1, 6}, set.matches(key("page", "1-0-1")));
+    Assert.assertArrayEquals(new int[] {0, 2}, set.matches(key("page", "1-1-2")));
+    Assert.assertArrayEquals(new int[] {4}, set.matches(key("page", "2-5-5")));
+    Assert.assertArrayEquals(new int[0], set.matches(key("page", "3-0-0")));
+    Assert.assertArrayEquals(new int[0], set.matches(key("other", "1-0-0")));
+
+    Assert.assertTrue(set.matchesAny(key("product", "1-3-0")));
+    Assert.assertFalse(set.matchesAny(key("product", "2-0-0")));
+    Assert.assertEquals(pattern("page", 2, null, null), set.pattern(4));
+  }
+
+  @Test
+  public void testForEachMatchShouldAgreeWithMatches() throws Exception {
+    SchemaPatternSet set = SchemaPatternSet.of(
+        pattern("page", 1, null, null),
+        pattern("page", 1, 0, 2),
+        pattern("page", 1, 1, null));
+
+    List<Integer> ids = new ArrayList<>();
+    set.forEachMatch(key("page", "1-0-2"), ids::add);
+    ids.sort(null);
+
+    Assert.assertEquals(Arrays.asList(0, 1), ids);
+  }
+
+  @Test
+  public void testMatchesShouldAgreeWithSchemaPatternMatches() throws Exception {
+    Random random = new Random(42);
+    List<SchemaPattern> patterns = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      patterns.add(pattern(
+          "ctx" + random.nextInt(5),
+          random.nextInt(3),
+          random.nextBoolean() ? null : random.nextInt(3),
+          random.nextBoolean() ? null : random.nextInt(3)));
+    }
+    SchemaPatternSet set = SchemaPatternSet.of(patterns);
+
+    for (int i = 0; i < 200; i++) {
+      SchemaKey schema = key(
+          "ctx" + random.nextInt(6),
+          random.nextInt(3) + "-" + random.nextInt(3) + "-" + random.nextInt(3));
+      List<Integer> expected = new ArrayList<>();
+      for (int id = 0; id < patterns.size(); id++) {
+        if (patterns.get(id).matches(schema)) {
+          expected.add(id);
+        }
+      }
+      Assert.assertArrayEquals(
+          expected.stream().mapToInt(Integer::intValue).toArray(), set.matches(schema));
+      Assert.assertEquals(!expected.isEmpty(), set.matchesAny(schema));
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package io.github.acgray.jplow.selfdesc;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSchemaRegistry {
+
+  /** Decoded by reflection. */
+  static class PageContext {
+    String lorem;
+    int dolor;
+    boolean sit;
+  }
+
+  /** Decoded by reflection. */
+  static class PageContextV2 {
+    String lorem;
+  }
+
+  private static final String PAGE_CONTEXT_JSON =
+      "{\"schema\":\"iglu:com.acme/page_context/jsonschema/1-0-2\","
+      + "\"data\":{\"lorem\":\"ipsum\",\"dolor\":1,\"sit\":true}}";
+
+  private static SchemaPattern pattern(int major, Integer minor, Integer addition) {
+    return SchemaPattern.builder()
+        .vendor("com.acme")
+        .name("page_context")
+        .major(major)
+        .minor(minor)
+        .addition(addition)
+        .build();
+  }
+
+  @Test
+  public void testFromJsonShouldDecodeRegisteredClass() throws Exception {
+    SchemaRegistry registry = SchemaRegistry.builder()
+        .register(pattern(1, null, null), PageContext.class)
+        .build();
+
+    SelfDescribing<?> context = registry.fromJson(PAGE_CONTEXT_JSON);
+
+    Assert.assertEquals(
+        SchemaKey.fromString("iglu:com.acme/page_context/jsonschema/1-0-2"), context.schema());
+    PageContext page = (PageContext) context.data();
+    Assert.assertEquals("ipsum", page.lorem);
+    Assert.assertEquals(1, page.dolor);
+    Assert.assertTrue(page.sit);
+  }
+
+  @Test
+  public void testFromJsonShouldReadUnregisteredSchemasAsJsonObjects() throws Exception {
+    SchemaRegistry registry = SchemaRegistry.builder()
+        .register(pattern(2, null, null), PageContextV2.class)
+        .build();
+
+    SelfDescribing<?> context = registry.fromJson(PAGE_CONTEXT_JSON);
+
+    Assert.assertEquals(
+        "ipsum", ((JsonObject) context.data()).get("lorem").getAsString());
+  }
+
+  @Test
+  public void testFromJsonShouldAcceptDataBeforeSchema() throws Exception {
+    SchemaRegistry registry = SchemaRegistry.builder()
+        .register(pattern(1, null, null), PageContext.class)
+        .build();
+
+    SelfDescribing<?> context = registry.fromJson(
+        "{\"data\":{\"lorem\":\"ipsum\"},\"extra\":[1,2],"
+        + "\"schema\":\"iglu:com.acme/page_context/jsonschema/1-0-0\"}");
+
+    Assert.assertEquals("ipsum", ((PageContext) context.data()).lorem);
+  }
+
+  @Test
+  public void testMostSpecificPatternShouldWin() throws Exception {
+    SchemaRegistry registry = SchemaRegistry.builder()
+        .register(pattern(1, null, null), JsonObject.class)
+        .register(pattern(1, 0, 2), PageContext.class)
+        .register(pattern(1, 0, null), PageContextV2.class)
+        .build();
+
+    Assert.assertEquals(
+        PageContext.class,
+        registry.typeFor(SchemaKey.fromString("iglu:com.acme/page_context/jsonschema/1-0-2")));
+    Assert.assertEquals(
+        PageContextV2.class,
+        registry.typeFor(SchemaKey.fromString("iglu:com.acme/page_context/jsonschema/1-0-1")));
+    Assert.assertEquals(
+        JsonObject.class,
+        registry.typeFor(SchemaKey.fromString("iglu:com.acme/page_context/jsonschema/1-1-0")));
+    Assert.assertNull(
+        registry.typeFor(SchemaKey.fromString("iglu:com.acme/page_context/jsonschema/2-0-0")));
+  }
+
+  @Test
+  public void testConvertShouldDecodeParsedData() throws Exception {
+    SchemaRegistry registry = SchemaRegistry.builder()
+        .register(pattern(1, null, null), PageContext.class)
+        .build();
+    SelfDescribing<JsonObject> parsed = SelfDescribing.fromJsonObject(
+        new JsonParser().parse(PAGE_CONTEXT_JSON).getAsJsonObject());
+
+    Assert.assertEquals("ipsum", ((PageContext) registry.convert(parsed).data()).lorem);
+  }
+
+  @Test
+  public void testConvertShouldReturnUnregisteredValues() throws Exception {
+    SchemaRegistry registry = SchemaRegistry.builder().build();
+    SelfDescribing<JsonObject> parsed = SelfDescribing.fromJsonObject(
+        new JsonParser().parse(PAGE_CONTEXT_JSON).getAsJsonObject());
+
+    Assert.assertSame(parsed, registry.convert(parsed));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromJsonShouldRejectMissingSchema() throws Exception {
+    SchemaRegistry.builder().build().fromJson("{\"data\":{}}");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromJsonShouldRejectMissingData() throws Exception {
+    SchemaRegistry.builder().build().fromJson(
+        "{\"schema\":\"iglu:com.acme/page_context/jsonschema/1-0-0\"}");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromJsonShouldRejectTrailingContent() throws Exception {
+    SchemaRegistry.builder().build().fromJson(PAGE_CONTEXT_JSON + "{}");
+  }
+}
@@ -72,4 +72,17 @@ public class TestSchemaVer {
     }
   }
 
+  @Test
+  public void testParseShouldReadRangeOfText() throws Exception {
+    SchemaVer sv = SchemaVer.parse("jsonschema/10-2-33\"", 11, 18);
+
+    Assert.assertEquals(10, sv.major());
+    Assert.assertEquals(2, sv.minor());
+    Assert.assertEquals(33, sv.addition());
+  }
+
+  @Test(expected = SchemaVer.InvalidFormat.class)
+  public void testParseShouldRejectOverflow() throws Exception {
+    SchemaVer.fromString("1-0-2147483648");
+  }
 }
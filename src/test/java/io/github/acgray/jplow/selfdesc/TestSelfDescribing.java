@@ -1,6 +1,7 @@
 package io.github.acgray.jplow.selfdesc;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
@@ -77,6 +78,43 @@ public class TestSelfDescribing {
         new TestTypeAdaptorFactory());
   }
 
+  @Test
+  public void testAs_PlainObject() throws Exception {
+    SelfDescribing<JsonObject> obj = SelfDescribing.fromJson(
+        "{\"schema\": \"iglu:com.foo/bar_context/jsonschema/1-0-0\","
+            + " \"data\": {\"lorem\": \"ipsum\", \"dolor\": 1}}");
+
+    SelfDescribing<PlainContext> typed = obj.as(PlainContext.class, null);
+
+    Assert.assertEquals(obj.schema(), typed.schema());
+    Assert.assertEquals("ipsum", typed.data().lorem);
+    Assert.assertEquals(1, typed.data().dolor);
+
+    // and back again, through a JSON tree
+    SelfDescribing<JsonObject> json = typed.as(JsonObject.class, null);
+    Assert.assertEquals(obj, json);
+  }
+
+  @Test
+  public void testAs_WithTypeAdapterFactory() throws Exception {
+    TestTypeAdaptorFactory factory = new TestTypeAdaptorFactory();
+    SelfDescribing<JsonArray> obj = SelfDescribing.fromJson(
+        "{\"schema\": \"iglu:com.foo/bar_context/jsonschema/1-0-0\", \"data\": [\"a\", \"b\"]}",
+        JsonArray.class);
+
+    SelfDescribing<TestCustomType> copy = obj.as(TestCustomType.class, factory);
+
+    Assert.assertEquals("a", copy.data().arg1);
+    Assert.assertEquals("b", copy.data().arg2);
+    // the cached adapter is reused
+    Assert.assertEquals("b", obj.as(TestCustomType.class, factory).data().arg2);
+  }
+
+  private static class PlainContext {
+    String lorem;
+    int dolor;
+  }
+
   /**
    * Custom type with protected initializer - using a custom TypeAdapter to
    * (de)serialize this as [arg1, arg2].
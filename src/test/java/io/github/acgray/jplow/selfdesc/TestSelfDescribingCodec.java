@@ -0,0 +1,66 @@
+package io.github.acgray.jplow.selfdesc;
+
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TestSelfDescribingCodec {
+
+  private static final String CONTEXT = "{\"schema\":"
+      + "\"iglu:com.snowplowanalytics.snowplow/web_page/jsonschema/1-0-0\","
+      + "\"data\":{\"id\":\"b1a0e2c3\",\"n\":3}}";
+
+  @Test
+  public void testSchemaKeyShouldRoundTrip() throws Exception {
+    SchemaKey key = SchemaKey.fromString("iglu:com.acme/random_ctx/jsonschema/1-2-3");
+
+    Assert.assertEquals(key, SchemaKeyCodec.INSTANCE.decode(SchemaKeyCodec.INSTANCE.encode(key)));
+  }
+
+  @Test
+  public void testJsonDataShouldRoundTrip() throws Exception {
+    SelfDescribing<JsonObject> value = SelfDescribing.fromJson(CONTEXT);
+
+    SelfDescribing<?> decoded = SelfDescribingCodec.INSTANCE.decode(
+        SelfDescribingCodec.INSTANCE.encode(value));
+
+    Assert.assertEquals(value, decoded);
+    Assert.assertTrue(decoded.data() instanceof JsonObject);
+  }
+
+  @Test
+  public void testSerializableDataShouldRoundTrip() throws Exception {
+    SelfDescribing<ArrayList<String>> value = SelfDescribing.<ArrayList<String>>builder()
+        .schema(SchemaKey.fromString("iglu:com.acme/names/jsonschema/1-0-0"))
+        .data(new ArrayList<>(Arrays.asList("a", "b")))
+        .build();
+
+    Assert.assertEquals(
+        value,
+        SelfDescribingCodec.INSTANCE.decode(SelfDescribingCodec.INSTANCE.encode(value)));
+  }
+
+  @Test
+  public void testJavaSerializationShouldUseCodec() throws Exception {
+    SelfDescribing<JsonObject> value = SelfDescribing.fromJson(CONTEXT);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(value);
+      out.writeObject(value.schema());
+    }
+
+    try (ObjectInputStream in = new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      Assert.assertEquals(value, in.readObject());
+      Assert.assertEquals(value.schema(), in.readObject());
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package io.github.acgray.jplow.value;
+
+import java.util.Arrays;
+
+/**
+ * Sample lines of Snowplow Enriched TSV used across the event tests.
+ */
+public final class EnrichedTsvFixtures {
+
+  public static final String CONTEXTS = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-0\","
+      + "\"data\":[{\"schema\":\"iglu:com.snowplowanalytics.snowplow/web_page/jsonschema/1-0-0\","
+      + "\"data\":{\"id\":\"b1e9e3c5-2b8f-4c4b-9a1d-2d6a0c1f3e77\"}},"
+      + "{\"schema\":\"iglu:com.acme/page_context/jsonschema/1-0-2\","
+      + "\"data\":{\"lorem\":\"ipsum\",\"dolor\":1,\"sit\":true}}]}";
+
+  public static final String DERIVED_CONTEXTS = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-1\","
+      + "\"data\":[{\"schema\":\"iglu:com.snowplowanalytics.snowplow/ua_parser_context/jsonschema/1-0-0\","
+      + "\"data\":{\"useragentFamily\":\"Chrome\",\"useragentMajor\":\"63\"}}]}";
+
+  public static final String UNSTRUCT_EVENT = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/unstruct_event/jsonschema/1-0-0\","
+      + "\"data\":{\"schema\":\"iglu:com.snowplowanalytics.snowplow/link_click/jsonschema/1-0-1\","
+      + "\"data\":{\"targetUrl\":\"http://www.example.com\",\"elementId\":\"exampleLink\"}}}";
+
+  private EnrichedTsvFixtures() {}
+
+  /**
+   * @return the columns of a complete 131 column unstructured event
+   */
+  public static String[] columns() {
+    String[] c = new String[131];
+    Arrays.fill(c, "");
+
+    c[0] = "angry-birds";
+    c[1] = "web";
+    c[2] = "2017-01-26 00:01:25.292";
+    c[3] = "2013-11-26 00:02:05.123";
+    c[4] = "2013-11-26 00:03:57.885";
+    c[5] = "unstruct";
+    c[6] = "c6ef3124-b53a-4b13-a233-0088f79dcbcb";
+    c[7] = "41828";
+    c[8] = "cloudfront-1";
+    c[9] = "js-2.1.0";
+    c[10] = "clj-tomcat-0.1.0";
+    c[11] = "serde-0.5.2";
+    c[12] = "jon.doe@email.com";
+    c[13] = "92.231.54.234";
+    c[14] = "2161814971";
+    c[15] = "bc2e92ec6c204a14";
+    c[16] = "3";
+    c[17] = "ecdff4d0-9175-40ac-a8bb-325c49733607";
+    c[18] = "US";
+    c[19] = "TX";
+    c[20] = "New York";
+    c[21] = "94109";
+    c[22] = "37.443604";
+    c[23] = "-122.4124";
+    c[24] = "Florida";
+    c[25] = "FDN Communications";
+    c[26] = "Bouygues Telecom";
+    c[27] = "nuvox.net";
+    c[28] = "Cable/DSL";
+    c[29] = "http://www.snowplowanalytics.com";
+    c[30] = "On Analytics";
+    c[32] = "http";
+    c[33] = "www.snowplowanalytics.com";
+    c[34] = "80";
+    c[35] = "/product/index.html";
+    c[36] = "id=GTM-DLRG";
+    c[37] = "4-conclusion";
+    c[52] = CONTEXTS;
+    c[58] = UNSTRUCT_EVENT;
+    c[72] = "2";
+    c[73] = "0";
+    c[74] = "100";
+    c[75] = "-5";
+    c[76] = "1024";
+    c[77] = "Mozilla/5.0 (Windows NT 6.1; WOW64) Chrome/63.0";
+    c[78] = "Chrome 63";
+    c[79] = "Chrome";
+    c[80] = "63.0";
+    c[81] = "Browser";
+    c[82] = "WEBKIT";
+    c[83] = "en-US";
+    c[84] = "1";
+    c[85] = "1";
+    c[86] = "0";
+    c[87] = "0";
+    c[88] = "0";
+    c[89] = "0";
+    c[90] = "1";
+    c[91] = "0";
+    c[92] = "0";
+    c[93] = "1";
+    c[94] = "24";
+    c[95] = "1366";
+    c[96] = "630";
+    c[97] = "Windows 7";
+    c[98] = "Windows";
+    c[99] = "Microsoft Corporation";
+    c[100] = "Europe/London";
+    c[101] = "Computer";
+    c[102] = "0";
+    c[103] = "1366";
+    c[104] = "768";
+    c[105] = "UTF-8";
+    c[106] = "1349";
+    c[107] = "3398";
+    c[115] = "Europe/London";
+    c[119] = "2013-11-26 00:03:58.001";
+    c[122] = DERIVED_CONTEXTS;
+    c[123] = "2b15e5c8-d3b1-11e4-b9d6-1681e6b88ec1";
+    c[124] = "2013-11-26 00:02:04.999";
+    c[125] = "com.snowplowanalytics.snowplow";
+    c[126] = "link_click";
+    c[127] = "jsonschema";
+    c[128] = "1-0-1";
+    c[129] = "e3dbfa9cca0412c3d4052863cefb547f";
+    c[130] = "2013-11-26 00:02:06.500";
+
+    return c;
+  }
+
+  public static String line(String[] columns) {
+    return String.join("\t", columns);
+  }
+
+  /** @return a complete 131 column unstructured event */
+  public static String line() {
+    return line(columns());
+  }
+}
@@ -44,4 +44,20 @@ public class TestBadRequest {
 
     Assert.assertTrue(cp.equals(cp2));
   }
+
+  @Test
+  public void testCodecShouldRoundTrip() throws Exception {
+    BadRequest record = ImmutableBadRequest.builder()
+        .line("blahblahblah")
+        .errors(Collections.singletonList(ImmutableBadRequestError.builder()
+            .level("error")
+            .message("Field [e]: [pv] is not a recognised event code")
+            .build()))
+        .failureTstamp(new Date(1385424125000L))
+        .build();
+
+    Assert.assertEquals(
+        record,
+        BadRequestCodec.INSTANCE.decode(BadRequestCodec.INSTANCE.encode(record)));
+  }
 }
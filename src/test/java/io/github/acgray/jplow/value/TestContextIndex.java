@@ -0,0 +1,56 @@
+package io.github.acgray.jplow.value;
+
+import io.github.acgray.jplow.selfdesc.ContextScanner;
+import io.github.acgray.jplow.selfdesc.SchemaPattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestContextIndex {
+
+  // the data of the entity is malformed, but its schema can still be read
+  private static final String CONTEXTS = "{\"data\":["
+      + "{\"schema\":\"iglu:com.acme/broken/jsonschema/1-0-0\",\"data\":{\"a\" 1}},"
+      + "{\"schema\":\"iglu:com.acme/broken/jsonschema/1-0-1\",\"data\":{\"a\":2}}]}";
+
+  private static final SchemaPattern BROKEN = SchemaPattern.builder()
+      .vendor("com.acme")
+      .name("broken")
+      .major(1)
+      .build();
+
+  @Test
+  public void testContainsShouldNotParseContexts() throws Exception {
+    ContextIndex index = ContextIndex.scanned(ContextScanner.scan(CONTEXTS), false);
+
+    Assert.assertTrue(index.contains(BROKEN));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStrictIndexShouldReportMalformedContext() throws Exception {
+    ContextIndex.scanned(ContextScanner.scan(CONTEXTS), false).first(BROKEN);
+  }
+
+  @Test
+  public void testLenientIndexShouldSkipMalformedContext() throws Exception {
+    ContextIndex index = ContextIndex.scanned(ContextScanner.scan(CONTEXTS), true);
+
+    Assert.assertEquals(1, index.first(BROKEN).schema().version().addition());
+    Assert.assertEquals(1, index.all(BROKEN).size());
+  }
+
+  @Test
+  public void testLenientContainsShouldAgreeWithLookups() throws Exception {
+    ContextIndex index = ContextIndex.scanned(ContextScanner.scan(CONTEXTS), true);
+    SchemaPattern malformed = SchemaPattern.builder()
+        .vendor("com.acme")
+        .name("broken")
+        .major(1)
+        .minor(0)
+        .addition(0)
+        .build();
+
+    Assert.assertFalse(index.contains(malformed));
+    Assert.assertNull(index.first(malformed));
+    Assert.assertTrue(index.contains(BROKEN));
+  }
+}
@@ -0,0 +1,118 @@
+package io.github.acgray.jplow.value;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class TestDelimiterIndex {
+
+  private static byte[] utf8(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testZeroBytesShouldMarkExactlyTheZeroBytes() {
+    Assert.assertEquals(0x8000000000000080L, DelimiterIndex.zeroBytes(0x0001020304050600L));
+    Assert.assertEquals(0L, DelimiterIndex.zeroBytes(0x0101010101010101L));
+    Assert.assertEquals(0L, DelimiterIndex.zeroBytes(0x8080808080808080L));
+    Assert.assertEquals(0x8080808080808080L, DelimiterIndex.zeroBytes(0L));
+    // a zero byte below a one must not produce a false match
+    Assert.assertEquals(0x0000000000008000L, DelimiterIndex.zeroBytes(0x0101010101010001L));
+  }
+
+  @Test
+  public void testShouldMatchTokenizerOnEnrichedLines() {
+    String first = EnrichedTsvFixtures.line();
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[0] = "caf\u00e9";
+    columns[130] = "";
+    String second = EnrichedTsvFixtures.line(columns);
+    byte[] block = utf8(first + "\n" + second + "\n");
+
+    DelimiterIndex index = DelimiterIndex.of(block);
+
+    Assert.assertEquals(2, index.lineCount());
+    Assert.assertArrayEquals(
+        TsvTokenizer.tokenize(block, 0, utf8(first).length), index.fieldOffsets(0));
+    int start = utf8(first).length + 1;
+    Assert.assertEquals(start, index.lineStart(1));
+    Assert.assertEquals(block.length - 1, index.lineEnd(1));
+    Assert.assertEquals(131, index.fieldCount(1));
+    Assert.assertArrayEquals(
+        TsvTokenizer.tokenize(block, start, block.length - 1), index.fieldOffsets(1));
+  }
+
+  @Test
+  public void testShouldMatchTokenizerOnRandomInput() {
+    Random random = new Random(42);
+    byte[] alphabet = utf8("ab\t\t\n\r");
+
+    for (int round = 0; round < 200; round++) {
+      byte[] block = new byte[random.nextInt(100)];
+      for (int i = 0; i < block.length; i++) {
+        block[i] = alphabet[random.nextInt(alphabet.length)];
+      }
+      int from = block.length == 0 ? 0 : random.nextInt(Math.min(block.length, 9));
+
+      DelimiterIndex index = DelimiterIndex.of(block, from, block.length);
+
+      int line = 0;
+      int lineStart = from;
+      for (int i = from; i <= block.length; i++) {
+        if (i < block.length && block[i] != '\n') {
+          continue;
+        }
+        int end = i > lineStart && block[i - 1] == '\r' ? i - 1 : i;
+        if (end > lineStart) {
+          Assert.assertArrayEquals(
+              TsvTokenizer.tokenize(block, lineStart, end), index.fieldOffsets(line));
+          Assert.assertEquals(end, index.lineEnd(line));
+          line++;
+        }
+        lineStart = i + 1;
+      }
+      Assert.assertEquals(line, index.lineCount());
+    }
+  }
+
+  @Test
+  public void testShouldSkipEmptyLinesAndStripCarriageReturns() {
+    byte[] block = utf8("\n\r\na\tb\r\n\nc");
+
+    DelimiterIndex index = DelimiterIndex.of(block);
+
+    Assert.assertEquals(2, index.lineCount());
+    Assert.assertEquals(3, index.lineStart(0));
+    Assert.assertEquals(6, index.lineEnd(0));
+    Assert.assertEquals(2, index.fieldCount(0));
+    Assert.assertEquals(9, index.lineStart(1));
+    Assert.assertEquals(10, index.lineEnd(1));
+    Assert.assertArrayEquals(new int[] {0, 2}, index.fieldOffsets(1, 9));
+  }
+
+  @Test
+  public void testRowsShouldBeMadeFromTheIndex() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+    buffer.put(utf8("x\ty\nfoo\t\tbar\n"));
+
+    DelimiterIndex index = DelimiterIndex.of(buffer, 0, buffer.position());
+    int start = index.lineStart(1);
+    byte[] line = new byte[index.lineEnd(1) - start];
+    buffer.position(start);
+    buffer.get(line);
+
+    TsvRow row = TsvRow.of(line, index.fieldOffsets(1, start));
+    Assert.assertEquals(3, row.fieldCount());
+    Assert.assertEquals("foo", row.rawValue(0));
+    Assert.assertNull(row.stringValue(1));
+    Assert.assertEquals("bar", row.rawValue(2));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testShouldRejectUnknownLine() {
+    DelimiterIndex.of(utf8("a\n")).lineStart(1);
+  }
+}
@@ -0,0 +1,92 @@
+package io.github.acgray.jplow.value;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestEnrichedTimestamps {
+
+  @Test
+  public void testParseMillisShouldAgreeWithFormatter() {
+    Random random = new Random(42);
+
+    for (int i = 0; i < 10000; i++) {
+      // 1900-01-01 to 2100-01-01
+      long millis = -2208988800000L + (long) (random.nextDouble() * 6311433600000L);
+      String s = SnowplowEvent.DATE_FORMAT.print(millis);
+
+      Assert.assertEquals(s, millis, EnrichedTimestamps.parseMillis(s));
+
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      Assert.assertEquals(s, millis, EnrichedTimestamps.parseMillis(bytes, 0, bytes.length));
+    }
+  }
+
+  @Test
+  public void testFormatShouldAgreeWithFormatter() {
+    Random random = new Random(42);
+    char[] chars = new char[EnrichedTimestamps.LENGTH + 2];
+
+    for (int i = 0; i < 10000; i++) {
+      // 0001-01-01 to 9999-12-31
+      long millis = -62135596800000L + (long) (random.nextDouble() * 315537897600000L);
+      String s = SnowplowEvent.DATE_FORMAT.print(millis);
+
+      Assert.assertEquals(
+          2 + EnrichedTimestamps.LENGTH, EnrichedTimestamps.format(millis, chars, 2));
+      Assert.assertEquals(s, new String(chars, 2, EnrichedTimestamps.LENGTH));
+      Assert.assertEquals(s, EnrichedTimestamps.format(millis));
+    }
+  }
+
+  @Test
+  public void testFormatOutOfRange() {
+    long millis = SnowplowEvent.DATE_FORMAT.parseMillis("10000-01-01 00:00:00.000");
+
+    Assert.assertEquals(-1, EnrichedTimestamps.format(millis, new char[32], 0));
+    Assert.assertEquals(
+        SnowplowEvent.DATE_FORMAT.print(millis), EnrichedTimestamps.format(millis));
+    Assert.assertEquals("1969-12-31 23:59:59.999", EnrichedTimestamps.format(-1L));
+    Assert.assertEquals("2016-02-29 12:00:00.000", EnrichedTimestamps.format(1456747200000L));
+  }
+
+  @Test
+  public void testParseMillisOfKnownValues() {
+    Assert.assertEquals(0L, EnrichedTimestamps.parseMillis("1970-01-01 00:00:00.000"));
+    Assert.assertEquals(
+        1385424125123L, EnrichedTimestamps.parseMillis("2013-11-26 00:02:05.123"));
+    Assert.assertEquals(
+        951782400000L, EnrichedTimestamps.parseMillis("2000-02-29 00:00:00.000"));
+  }
+
+  @Test
+  public void testParseMillisOfRange() {
+    String s = "\t2013-11-26 00:02:05.123\t";
+
+    Assert.assertEquals(1385424125123L, EnrichedTimestamps.parseMillis(s, 1, 24));
+  }
+
+  @Test
+  public void testParseMillisShouldRejectMalformedInput() {
+    for (String s : Arrays.asList(
+        "",
+        "blah",
+        "2013-11-26 00:02:05",
+        "2013-11-26T00:02:05.123",
+        "2013-11-26 00:02:05.123Z",
+        "2013-13-26 00:02:05.123",
+        "2013-00-26 00:02:05.123",
+        "2013-02-29 00:02:05.123",
+        "2013-11-31 00:02:05.123",
+        "2013-11-26 24:02:05.123",
+        "2013-11-26 00:60:05.123",
+        "2013-11-26 00:02:60.123",
+        "2013-11-26 00:02:05.1x3",
+        "-013-11-26 00:02:05.123")) {
+      Assert.assertEquals(s, EnrichedTimestamps.NONE, EnrichedTimestamps.parseMillis(s));
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package io.github.acgray.jplow.value;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+public class TestEnrichedTsvReader {
+
+  @Test
+  public void testReadShouldValidateEagerlyByDefault() throws Exception {
+    EnrichedTsvReader reader = EnrichedTsvReader.builder().build();
+    String line = EnrichedTsvFixtures.line();
+
+    SnowplowEvent event = reader.read(line);
+
+    Assert.assertEquals(ValidationPolicy.EAGER, reader.validationPolicy());
+    Assert.assertEquals(SnowplowEvent.fromTsv(line), event);
+  }
+
+  @Test
+  public void testReadShouldApplyPolicyAndProjection() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[58] = "{not json";
+
+    EnrichedTsvReader reader = EnrichedTsvReader.builder()
+        .validationPolicy(ValidationPolicy.NONE)
+        .fields(EnumSet.of(EventField.APP_ID, EventField.UNSTRUCT_EVENT))
+        .build();
+
+    SnowplowEvent event = reader.read(EnrichedTsvFixtures.line(columns));
+
+    Assert.assertEquals("angry-birds", event.appId());
+    Assert.assertNull(event.eventId());
+    Assert.assertNull(event.unstructEventObject());
+    Assert.assertEquals(ValidationPolicy.NONE, event.validationPolicy());
+  }
+
+  @Test
+  public void testReadShouldApplyFilter() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[5] = "page_view";
+
+    EnrichedTsvReader reader = EnrichedTsvReader.builder()
+        .filter(row -> "unstruct".equals(row.rawValue(5)))
+        .build();
+
+    Assert.assertNull(reader.read(EnrichedTsvFixtures.line(columns)));
+    Assert.assertNull(reader.read(TsvRow.of(EnrichedTsvFixtures.line(columns))));
+    Assert.assertEquals("unstruct", reader.read(EnrichedTsvFixtures.line()).event());
+    Assert.assertEquals(
+        "page_view", reader.convert(TsvRow.of(EnrichedTsvFixtures.line(columns))).event());
+  }
+}
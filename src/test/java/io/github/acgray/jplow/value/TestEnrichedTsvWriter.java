@@ -0,0 +1,118 @@
+package io.github.acgray.jplow.value;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TestEnrichedTsvWriter {
+
+  @Test
+  public void testWriteShouldReproduceLine() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+    EnrichedTsvWriter writer = EnrichedTsvWriter.create();
+
+    for (SnowplowEvent event : Arrays.asList(
+        SnowplowEvent.fromTsv(line),
+        LazySnowplowEvent.of(line),
+        LazySnowplowEvent.of(line.getBytes(StandardCharsets.UTF_8)),
+        PackedSnowplowEvent.of(line))) {
+      StringBuilder out = new StringBuilder();
+      writer.write(event, out);
+      Assert.assertEquals(line, out.toString());
+      Assert.assertEquals(line, event.toTsv());
+    }
+  }
+
+  @Test
+  public void testWriteShouldNormalizeValues() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[3] = "2013-11-26 00:02:05.12";
+    columns[16] = "+3";
+
+    String[] expected = EnrichedTsvFixtures.columns();
+    expected[3] = "2013-11-26 00:02:05.120";
+
+    StringWriter out = new StringWriter();
+    EnrichedTsvWriter.create().write(
+        SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns)), out);
+
+    Assert.assertEquals(EnrichedTsvFixtures.line(expected), out.toString());
+  }
+
+  @Test
+  public void testWriteShouldSelectAndOrderColumns() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[0] = "caf\u00e9 \ud83d\ude00";
+
+    EnrichedTsvWriter writer = EnrichedTsvWriter.of(Arrays.asList(
+        EventField.COLLECTOR_TSTAMP,
+        EventField.TXN_ID,
+        EventField.APP_ID,
+        EventField.PAGE_REFERRER,
+        EventField.BR_FEATURES_PDF));
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns));
+    String expected = "2013-11-26 00:02:05.123\t41828\tcaf\u00e9 \ud83d\ude00\t\t1";
+
+    Assert.assertEquals(expected, writer.toString(event));
+
+    CharBuffer chars = CharBuffer.allocate(expected.length());
+    writer.write(event, chars);
+    Assert.assertEquals(expected, chars.flip().toString());
+
+    ByteBuffer bytes = ByteBuffer.allocate(100);
+    int written = writer.write(event, bytes);
+    Assert.assertArrayEquals(
+        expected.getBytes(StandardCharsets.UTF_8),
+        Arrays.copyOf(bytes.array(), written));
+  }
+
+  @Test
+  public void testWriteShouldNotWritePartialLines() throws Exception {
+    SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line());
+    ByteBuffer bytes = ByteBuffer.allocate(10);
+
+    try {
+      EnrichedTsvWriter.create().write(event, bytes);
+      Assert.fail("Expected BufferOverflowException");
+    } catch (BufferOverflowException exc) {
+      Assert.assertEquals(0, bytes.position());
+    }
+  }
+
+  @Test
+  public void testChannelWriterShouldWriteLines() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+    SnowplowEvent event = LazySnowplowEvent.of(line);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // smaller than a line, so each is written around the block
+    try (EnrichedTsvWriter.ChannelWriter writer =
+             EnrichedTsvWriter.create().open(Channels.newChannel(out), 256)) {
+      for (int i = 0; i < 3; i++) {
+        writer.write(event);
+      }
+    }
+
+    String expected = line + "\n" + line + "\n" + line + "\n";
+    Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+    out.reset();
+    try (EnrichedTsvWriter.ChannelWriter writer =
+             EnrichedTsvWriter.create().open(Channels.newChannel(out))) {
+      for (int i = 0; i < 3; i++) {
+        writer.write(event);
+      }
+      Assert.assertEquals(0, out.size());
+    }
+    Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,58 @@
+package io.github.acgray.jplow.value;
+
+import com.google.gson.annotations.SerializedName;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestEventField {
+
+  @Test
+  public void testThereIsOneFieldPerColumn() {
+    Assert.assertEquals(131, EventField.values().length);
+    Assert.assertEquals(130, EventField.TRUE_TSTAMP.index());
+  }
+
+  @Test
+  public void testForColumnName() {
+    for (EventField field : EventField.values()) {
+      Assert.assertSame(field, EventField.forColumnName(field.columnName()));
+    }
+    Assert.assertNull(EventField.forColumnName("appId"));
+  }
+
+  @Test
+  public void testColumnNamesMatchSerializedNames() throws Exception {
+    for (EventField field : EventField.values()) {
+      boolean found = false;
+      for (java.lang.reflect.Method m : SnowplowEvent.class.getMethods()) {
+        SerializedName name = m.getAnnotation(SerializedName.class);
+        if (name != null && name.value().equals(field.columnName())) {
+          found = true;
+        }
+      }
+      Assert.assertTrue(field.columnName(), found);
+    }
+  }
+
+  @Test
+  public void testDecodeMatchesAccessors() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+    TsvRow row = TsvRow.of(line);
+    SnowplowEvent event = SnowplowEvent.fromTsv(line);
+
+    for (EventField field : EventField.values()) {
+      Assert.assertEquals(
+          field.columnName(),
+          field.get(event),
+          field.decode(row));
+    }
+  }
+
+  @Test
+  public void testDecodeOfRequiredStringIsNeverNull() {
+    TsvRow row = TsvRow.of("\t");
+
+    Assert.assertEquals("", EventField.APP_ID.decode(row));
+    Assert.assertNull(EventField.NAME_TRACKER.decode(row));
+  }
+}
@@ -0,0 +1,162 @@
+package io.github.acgray.jplow.value;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestEventJsonWriter {
+
+  private static JsonObject write(SnowplowEvent event) {
+    return new JsonParser().parse(EventJsonWriter.create().toJson(event)).getAsJsonObject();
+  }
+
+  @Test
+  public void testAtomicFieldsShouldBeTyped() throws Exception {
+    JsonObject json = write(SnowplowEvent.fromTsv(EnrichedTsvFixtures.line()));
+
+    Assert.assertEquals("unstruct", json.get("event").getAsString());
+    Assert.assertEquals(
+        "2013-11-26T00:02:05.123Z", json.get("collector_tstamp").getAsString());
+    Assert.assertTrue(json.get("br_cookies").getAsJsonPrimitive().isBoolean());
+    Assert.assertTrue(json.get("ti_quantity").getAsJsonPrimitive().isNumber());
+    Assert.assertEquals(2, json.get("ti_quantity").getAsInt());
+    Assert.assertFalse(json.has("contexts"));
+    Assert.assertFalse(json.has("unstruct_event"));
+  }
+
+  @Test
+  public void testNullFieldsShouldBeLeftOut() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[16] = "";
+    columns[37] = "";
+
+    JsonObject json = write(SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns)));
+
+    Assert.assertFalse(json.has(EventField.values()[16].columnName()));
+    Assert.assertFalse(json.has(EventField.values()[37].columnName()));
+  }
+
+  @Test
+  public void testContextsShouldBeGroupedByFamily() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-0\","
+        + "\"data\":[{\"schema\":\"iglu:com.acme/page_context/jsonschema/1-0-2\","
+        + "\"data\":{\"lorem\":\"one\"}},"
+        + "{\"schema\":\"iglu:com.acme/other_context/jsonschema/1-0-0\",\"data\":{\"n\":1}},"
+        + "{\"data\": {\"lorem\": [\"two\", {\"a\": \"}\"}]},"
+        + "\"schema\":\"iglu:com.acme/page_context/jsonschema/1-1-0\"}]}";
+
+    JsonObject json = write(SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY));
+
+    JsonArray pages = json.getAsJsonArray("contexts_com_acme_page_context_1");
+    Assert.assertEquals(2, pages.size());
+    Assert.assertEquals("one", pages.get(0).getAsJsonObject().get("lorem").getAsString());
+    Assert.assertEquals(
+        "}",
+        pages.get(1).getAsJsonObject().getAsJsonArray("lorem").get(1)
+            .getAsJsonObject().get("a").getAsString());
+    Assert.assertEquals(1, json.getAsJsonArray("contexts_com_acme_other_context_1").size());
+    Assert.assertEquals(
+        "Chrome",
+        json.getAsJsonArray("contexts_com_snowplowanalytics_snowplow_ua_parser_context_1")
+            .get(0).getAsJsonObject().get("useragentFamily").getAsString());
+  }
+
+  @Test
+  public void testUnstructEventShouldBeAnObject() throws Exception {
+    JsonObject json = write(SnowplowEvent.fromTsv(EnrichedTsvFixtures.line()));
+
+    Assert.assertEquals(
+        "exampleLink",
+        json.getAsJsonObject("unstruct_event_com_snowplowanalytics_snowplow_link_click_1")
+            .get("elementId").getAsString());
+  }
+
+  @Test
+  public void testDataShouldBeCopiedVerbatim() throws Exception {
+    String json = EventJsonWriter.create().toJson(
+        SnowplowEvent.fromTsv(EnrichedTsvFixtures.line()));
+
+    Assert.assertTrue(json.contains(
+        "\"contexts_com_acme_page_context_1\":[{\"lorem\":\"ipsum\",\"dolor\":1,\"sit\":true}]"));
+    Assert.assertTrue(json.startsWith("{\"app_id\":"));
+    Assert.assertTrue(json.endsWith("}}"));
+  }
+
+  @Test
+  public void testStringsShouldBeEscaped() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[0] = "a\"b\\c\u0001\u2028";
+
+    JsonObject json = write(SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns)));
+
+    Assert.assertEquals("a\"b\\c\u0001\u2028", json.get("app_id").getAsString());
+  }
+
+  @Test
+  public void testMalformedContextsShouldBeReported() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+    SnowplowEvent lazy = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY);
+    StringBuilder out = new StringBuilder();
+
+    try {
+      EventJsonWriter.create().write(lazy, out);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+    Assert.assertEquals(0, out.length());
+
+    SnowplowEvent trusted = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.NONE);
+    Assert.assertFalse(write(trusted).has("contexts_com_acme_page_context_1"));
+  }
+
+  @Test
+  public void testMalformedDataShouldNotBeCopied() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-0\","
+        + "\"data\":[{\"schema\":\"iglu:com.acme/page_context/jsonschema/1-0-2\","
+        + "\"data\":{\"a\" tru}},"
+        + "{\"schema\":\"iglu:com.acme/other_context/jsonschema/1-0-0\",\"data\":{\"n\":1}}]}";
+    SnowplowEvent lazy = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY);
+    StringBuilder out = new StringBuilder();
+
+    try {
+      EventJsonWriter.create().write(lazy, out);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+    Assert.assertEquals(0, out.length());
+
+    JsonObject json = write(SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.NONE));
+    Assert.assertFalse(json.has("contexts_com_acme_page_context_1"));
+    Assert.assertEquals(1, json.getAsJsonArray("contexts_com_acme_other_context_1").size());
+  }
+
+  @Test
+  public void testLenientlyParsedDataShouldNotBeCopied() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-0\","
+        + "\"data\":[{\"schema\":\"iglu:com.acme/page_context/jsonschema/1-0-2\","
+        + "\"data\":{lorem:'one'}}]}";
+    SnowplowEvent eager = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns));
+    StringBuilder out = new StringBuilder();
+
+    try {
+      EventJsonWriter.create().write(eager, out);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+    Assert.assertEquals(0, out.length());
+  }
+}
@@ -0,0 +1,116 @@
+package io.github.acgray.jplow.value;
+
+import io.github.acgray.jplow.selfdesc.SchemaPattern;
+import org.joda.time.Instant;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TestLazySnowplowEvent {
+
+  @Test
+  public void testAccessorsShouldMatchEagerlyParsedEvent() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+
+    SnowplowEvent eager = SnowplowEvent.fromTsv(line);
+    LazySnowplowEvent lazy = LazySnowplowEvent.of(line);
+
+    Assert.assertEquals(eager, lazy.toImmutable());
+    Assert.assertEquals(eager.toTsv(), lazy.toTsv());
+  }
+
+  @Test
+  public void testByteBackedEventShouldDecodeUtf8() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[30] = "Caf\u00e9 \u65e5\u672c";
+
+    LazySnowplowEvent lazy = LazySnowplowEvent.of(
+        EnrichedTsvFixtures.line(columns).getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertEquals("Caf\u00e9 \u65e5\u672c", lazy.pageTitle());
+    Assert.assertEquals(Integer.valueOf(1366), lazy.brViewwidth());
+  }
+
+  @Test
+  public void testAccessorsShouldMemoizeDecodedValues() throws Exception {
+    LazySnowplowEvent lazy = LazySnowplowEvent.of(EnrichedTsvFixtures.line());
+
+    Assert.assertSame(lazy.appId(), lazy.appId());
+    Assert.assertSame(lazy.collectorTstamp(), lazy.collectorTstamp());
+    Assert.assertSame(lazy.contextObjects(), lazy.contextObjects());
+    Assert.assertNull(lazy.pageReferrer());
+    Assert.assertNull(lazy.pageReferrer());
+  }
+
+  @Test
+  public void testInvalidColumnIsReportedOnAccess() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[3] = "not a timestamp";
+
+    LazySnowplowEvent lazy = LazySnowplowEvent.of(
+        EnrichedTsvFixtures.line(columns));
+
+    Assert.assertEquals("angry-birds", lazy.appId());
+    try {
+      lazy.collectorTstamp();
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+      return;
+    }
+    Assert.fail("Expected an exception but none was thrown.");
+  }
+
+  @Test
+  public void testEmptyRequiredColumnIsReportedOnAccess() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[3] = "";
+
+    LazySnowplowEvent lazy = LazySnowplowEvent.of(
+        EnrichedTsvFixtures.line(columns));
+
+    try {
+      lazy.collectorTstampMillis();
+      Assert.fail("Expected an exception but none was thrown.");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+    try {
+      lazy.collectorTstamp();
+      Assert.fail("Expected an exception but none was thrown.");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+  }
+
+  @Test
+  public void testLegacyLayoutHasNoTrueTstamp() throws Exception {
+    String[] columns = Arrays.copyOf(EnrichedTsvFixtures.columns(), 130);
+
+    LazySnowplowEvent lazy = LazySnowplowEvent.of(
+        EnrichedTsvFixtures.line(columns));
+
+    Assert.assertNull(lazy.trueTstamp());
+    Assert.assertEquals(
+        Instant.parse("2013-11-26T00:02:04.999Z"), lazy.derivedTstamp());
+  }
+
+  @Test
+  public void testContextsShouldBeAvailable() throws Exception {
+    LazySnowplowEvent lazy = LazySnowplowEvent.of(EnrichedTsvFixtures.line());
+
+    Assert.assertTrue(lazy.hasContext(SchemaPattern.builder()
+        .vendor("com.acme")
+        .name("page_context")
+        .major(1)
+        .build()));
+    Assert.assertEquals(
+        "unstruct_event", lazy.unstructEventObject().schema().name());
+  }
+
+  @Test(expected = SnowplowEvent.InvalidFormat.class)
+  public void testOfShouldRejectWrongNumberOfFields() throws Exception {
+    LazySnowplowEvent.of("a\tb");
+  }
+}
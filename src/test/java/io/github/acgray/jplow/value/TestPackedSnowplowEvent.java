@@ -0,0 +1,77 @@
+package io.github.acgray.jplow.value;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestPackedSnowplowEvent {
+
+  @Test
+  public void testPackedEventShouldMatchImmutableEvent() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(line);
+    PackedSnowplowEvent packed = PackedSnowplowEvent.of(line);
+
+    for (EventField field : EventField.values()) {
+      Assert.assertEquals(field.columnName(), field.get(event), field.get(packed));
+      Assert.assertEquals(field.columnName(), event.isNull(field), packed.isNull(field));
+    }
+    Assert.assertEquals(event, ImmutableSnowplowEvent.copyOf(packed));
+  }
+
+  @Test
+  public void testCopyOfShouldMatchParsedEvent() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+
+    Assert.assertEquals(
+        PackedSnowplowEvent.of(line),
+        PackedSnowplowEvent.copyOf(SnowplowEvent.fromTsv(line)));
+  }
+
+  @Test
+  public void testPrimitiveAccessors() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[7] = "";
+    columns[93] = "";
+
+    PackedSnowplowEvent packed = PackedSnowplowEvent.of(
+        EnrichedTsvFixtures.line(columns));
+
+    Assert.assertEquals(1349, packed.intValue(EventField.DOC_WIDTH));
+    Assert.assertEquals(-5, packed.intValue(EventField.PP_YOFFSET_MIN));
+    Assert.assertEquals(-122.4124f, packed.floatValue(EventField.GEO_LONGITUDE), 0.00001f);
+    Assert.assertTrue(packed.booleanValue(EventField.BR_FEATURES_WINDOWSMEDIA));
+    Assert.assertFalse(packed.booleanValue(EventField.BR_FEATURES_GEARS));
+    Assert.assertEquals(1385424125123L, packed.timestampMillis(EventField.COLLECTOR_TSTAMP));
+    Assert.assertEquals(1385424125123L, packed.collectorTstampMillis());
+
+    Assert.assertTrue(packed.isNull(EventField.TXN_ID));
+    Assert.assertEquals(0, packed.intValue(EventField.TXN_ID));
+    Assert.assertNull(packed.txnId());
+    Assert.assertTrue(packed.isNull(EventField.BR_COOKIES));
+    Assert.assertNull(packed.brCookies());
+    Assert.assertTrue(packed.isNull(EventField.PAGE_REFERRER));
+    Assert.assertFalse(packed.isNull(EventField.APP_ID));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPrimitiveAccessorShouldCheckColumnType() throws Exception {
+    PackedSnowplowEvent.of(EnrichedTsvFixtures.line()).intValue(EventField.APP_ID);
+  }
+
+  @Test(expected = SnowplowEvent.InvalidFormat.class)
+  public void testOfShouldRejectInvalidValues() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[22] = "north";
+
+    PackedSnowplowEvent.of(EnrichedTsvFixtures.line(columns));
+  }
+
+  @Test(expected = SnowplowEvent.InvalidFormat.class)
+  public void testOfShouldRejectEmptyRequiredTimestamps() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[EventField.COLLECTOR_TSTAMP.index()] = "";
+
+    PackedSnowplowEvent.of(EnrichedTsvFixtures.line(columns));
+  }
+}
@@ -0,0 +1,465 @@
+package io.github.acgray.jplow.value;
+
+import com.google.gson.JsonObject;
+import io.github.acgray.jplow.selfdesc.SchemaFamily;
+import io.github.acgray.jplow.selfdesc.SchemaIds;
+import io.github.acgray.jplow.selfdesc.SchemaKey;
+import io.github.acgray.jplow.selfdesc.SchemaPattern;
+import io.github.acgray.jplow.selfdesc.SchemaRegistry;
+import io.github.acgray.jplow.selfdesc.SelfDescribing;
+import org.joda.time.Instant;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+
+public class TestSnowplowEvent {
+
+  @Test
+  public void testFromTsvShouldParseAllColumnTypes() throws Exception {
+    SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line());
+
+    Assert.assertEquals("angry-birds", event.appId());
+    Assert.assertEquals(
+        Instant.parse("2013-11-26T00:02:05.123Z"), event.collectorTstamp());
+    Assert.assertEquals(Integer.valueOf(41828), event.txnId());
+    Assert.assertEquals(37.443604f, event.geoLatitude(), 0.000001f);
+    Assert.assertEquals(Integer.valueOf(-5), event.ppYoffsetMin());
+    Assert.assertEquals(Boolean.TRUE, event.brFeaturesPdf());
+    Assert.assertEquals(Boolean.FALSE, event.dvceIsmobile());
+    Assert.assertNull(event.pageReferrer());
+    Assert.assertEquals("link_click", event.eventName());
+    Assert.assertEquals(
+        Instant.parse("2013-11-26T00:02:06.500Z"), event.trueTstamp());
+  }
+
+  @Test
+  public void testFromTsvShouldReadEachBrowserFeatureFromItsOwnColumn()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[80] = "63.0";
+    columns[90] = "1";
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns));
+
+    Assert.assertEquals(Boolean.TRUE, event.brFeaturesWindowsmedia());
+  }
+
+  @Test
+  public void testFromTsvShouldAcceptEmptyTrailingFields() throws Exception {
+    String[] columns = Arrays.copyOf(EnrichedTsvFixtures.columns(), 130);
+    columns[129] = "";
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns));
+
+    Assert.assertNull(event.eventFingerprint());
+    Assert.assertNull(event.trueTstamp());
+  }
+
+  @Test
+  public void testFromTsvShouldAcceptAnyCharSequence() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+
+    Assert.assertEquals(
+        SnowplowEvent.fromTsv(line),
+        SnowplowEvent.fromTsv(new StringBuilder(line)));
+  }
+
+  @Test(expected = SnowplowEvent.InvalidFormat.class)
+  public void testFromTsvShouldRejectWrongNumberOfFields() throws Exception {
+    SnowplowEvent.fromTsv("a\tb\tc");
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testFromTsvShouldRejectInvalidIntegers() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[16] = "3x";
+
+    SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns));
+  }
+
+  @Test
+  public void testToTsvShouldRoundTrip() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(line);
+
+    Assert.assertEquals(event, SnowplowEvent.fromTsv(event.toTsv()));
+  }
+
+  @Test
+  public void testFromTsvWithProjectionShouldOnlyExposeProjectedColumns()
+      throws Exception {
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(),
+        EnumSet.of(EventField.APP_ID, EventField.COLLECTOR_TSTAMP, EventField.DOC_WIDTH));
+
+    Assert.assertEquals("angry-birds", event.appId());
+    Assert.assertEquals(
+        Instant.parse("2013-11-26T00:02:05.123Z"), event.collectorTstamp());
+    Assert.assertEquals(Integer.valueOf(1349), event.docWidth());
+    Assert.assertNull(event.eventId());
+    Assert.assertNull(event.contexts());
+    Assert.assertNull(event.unstructEventObject());
+  }
+
+  @Test
+  public void testFromTsvWithProjectionShouldNotValidateOtherColumns()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[16] = "3x";
+    columns[52] = "{not json";
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns),
+        EnumSet.of(EventField.EVENT));
+
+    Assert.assertEquals("unstruct", event.event());
+  }
+
+  @Test(expected = SnowplowEvent.InvalidFormat.class)
+  public void testFromTsvWithProjectionShouldRejectInvalidProjectedColumns()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[16] = "3x";
+
+    SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns),
+        EnumSet.of(EventField.DOMAIN_SESSIONIDX));
+  }
+
+  @Test(expected = SnowplowEvent.InvalidFormat.class)
+  public void testFromTsvShouldRejectEmptyRequiredColumns() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[3] = "";
+
+    SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns));
+  }
+
+  @Test(expected = SnowplowEvent.InvalidFormat.class)
+  public void testFromTsvWithProjectionShouldRejectEmptyRequiredColumns()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[3] = "";
+
+    SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns),
+        EnumSet.of(EventField.COLLECTOR_TSTAMP),
+        ValidationPolicy.LAZY);
+  }
+
+  @Test
+  public void testFromTsvShouldReadEmptyEventVendorAsEmptyString()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[58] = "";
+    columns[125] = "";
+
+    Assert.assertEquals(
+        "", SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns)).eventVendor());
+  }
+
+  @Test
+  public void testTimestampMillisAccessors() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[4] = "";
+
+    for (SnowplowEvent event : Arrays.asList(
+        SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns)),
+        LazySnowplowEvent.of(EnrichedTsvFixtures.line(columns)))) {
+      Assert.assertEquals(1485388885292L, event.etlTstampMillis());
+      Assert.assertEquals(1385424125123L, event.collectorTstampMillis());
+      Assert.assertEquals(EnrichedTimestamps.NONE, event.dvceCreatedTstampMillis());
+      Assert.assertEquals(1385424238001L, event.dvceSentTstampMillis());
+      Assert.assertEquals(1385424124999L, event.derivedTstampMillis());
+      Assert.assertEquals(1385424126500L, event.trueTstampMillis());
+    }
+  }
+
+  @Test
+  public void testFromTsvShouldAcceptTimestampsOutsideCanonicalFormat()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[3] = "2013-11-26 00:02:05.12";
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns));
+
+    Assert.assertEquals(
+        Instant.parse("2013-11-26T00:02:05.120Z"), event.collectorTstamp());
+    Assert.assertEquals(
+        1385424125120L,
+        LazySnowplowEvent.of(EnrichedTsvFixtures.line(columns)).collectorTstampMillis());
+  }
+
+  private static final SchemaPattern PAGE_CONTEXT = SchemaPattern.builder()
+      .vendor("com.acme")
+      .name("page_context")
+      .major(1)
+      .build();
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEagerValidationShouldRejectInvalidContexts() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+
+    SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns));
+  }
+
+  @Test
+  public void testLazyValidationShouldReportInvalidContextsOnAccess()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY);
+
+    // copies are not validated either
+    SnowplowEvent copy = ((ImmutableSnowplowEvent) event).withAppId("other");
+    Assert.assertEquals(ValidationPolicy.LAZY, copy.validationPolicy());
+    Assert.assertEquals(event.unstructEventObject(), copy.unstructEventObject());
+
+    try {
+      copy.hasContext(PAGE_CONTEXT);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+  }
+
+  @Test
+  public void testNoValidationShouldIgnoreInvalidPayloads() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+    columns[58] = "[]";
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.NONE);
+
+    Assert.assertNull(event.unstructEventObject());
+    Assert.assertFalse(event.hasContext(
+        PAGE_CONTEXT));
+    // derived contexts are still read
+    Assert.assertTrue(event.hasContext(SchemaPattern.builder()
+        .vendor("com.snowplowanalytics.snowplow")
+        .name("ua_parser_context")
+        .major(1)
+        .build()));
+  }
+
+  @Test
+  public void testContextLookupsForEachValidationPolicy() throws Exception {
+    for (ValidationPolicy policy : ValidationPolicy.values()) {
+      SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(), policy);
+
+      Assert.assertTrue(event.hasContext(PAGE_CONTEXT));
+      Assert.assertEquals(
+          "page_context", event.getContextForSchema(PAGE_CONTEXT).schema().name());
+      Assert.assertEquals(
+          "ipsum",
+          event.findContext(PAGE_CONTEXT).get().data().get("lorem").getAsString());
+      Assert.assertEquals(1, event.getContextsForSchema(PAGE_CONTEXT).size());
+    }
+  }
+
+  @Test
+  public void testContextLookupsShouldMatchOptionalVersionParts() throws Exception {
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(), ValidationPolicy.LAZY);
+
+    // the page context is version 1-0-2
+    Assert.assertTrue(event.hasContext(pageContext(1, 0, 2)));
+    Assert.assertFalse(event.hasContext(pageContext(1, 0, 1)));
+    Assert.assertFalse(event.hasContext(pageContext(1, 1, null)));
+    Assert.assertFalse(event.hasContext(pageContext(2, null, null)));
+    Assert.assertFalse(event.findContext(pageContext(2, null, null)).isPresent());
+    Assert.assertTrue(event.getContextsForSchema(pageContext(2, null, null)).isEmpty());
+  }
+
+  /** Decoded by reflection. */
+  static class LinkClick {
+    String targetUrl;
+    String elementId;
+  }
+
+  @Test
+  public void testRegistryShouldDecodeContextsAndUnstructPayload() throws Exception {
+    SchemaRegistry registry = SchemaRegistry.builder()
+        .register(SchemaPattern.builder()
+            .vendor("com.snowplowanalytics.snowplow")
+            .name("link_click")
+            .major(1)
+            .build(), LinkClick.class)
+        .build();
+
+    for (ValidationPolicy policy : ValidationPolicy.values()) {
+      SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(), policy);
+
+      List<SelfDescribing<?>> contexts = event.contextObjects(registry);
+      Assert.assertEquals(3, contexts.size());
+      Assert.assertEquals(
+          "ipsum", ((JsonObject) contexts.get(1).data()).get("lorem").getAsString());
+
+      SelfDescribing<?> payload = event.unstructEventPayload(registry);
+      Assert.assertEquals("link_click", payload.schema().name());
+      Assert.assertEquals("exampleLink", ((LinkClick) payload.data()).elementId);
+    }
+  }
+
+  @Test
+  public void testRegistryShouldReportInvalidUnstructPayload() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[58] = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/unstruct_event/jsonschema/1-0-0\"}";
+    SchemaRegistry registry = SchemaRegistry.builder().build();
+
+    SnowplowEvent lazy = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY);
+    try {
+      lazy.unstructEventPayload(registry);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException exc) {
+      Assert.assertTrue(exc.getCause() instanceof SnowplowEvent.InvalidFormat);
+    }
+
+    SnowplowEvent trusted = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.NONE);
+    Assert.assertNull(trusted.unstructEventPayload(registry));
+  }
+
+  @Test
+  public void testContextSchemaIdsAndFamilies() throws Exception {
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(), ValidationPolicy.LAZY);
+
+    int[] ids = event.contextSchemaIds();
+    Assert.assertEquals(3, ids.length);
+    Assert.assertEquals(event.contextSchemas().get(1), SchemaIds.schema(ids[1]));
+
+    BitSet families = event.contextFamilies();
+    Assert.assertEquals(3, families.cardinality());
+    Assert.assertTrue(families.get(SchemaIds.familyId(SchemaFamily.of(PAGE_CONTEXT))));
+    Assert.assertFalse(event.hasContext(SchemaPattern.builder()
+        .vendor("com.acme")
+        .name("unknown_context")
+        .major(1)
+        .build()));
+  }
+
+  @Test
+  public void testHasContextShouldNotAssignSchemaIds() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-0\","
+        + "\"data\":[{\"schema\":\"iglu:com.acme/never_summarized/jsonschema/1-0-0\","
+        + "\"data\":{}}]}";
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY);
+    SchemaPattern pattern = SchemaPattern.builder()
+        .vendor("com.acme")
+        .name("never_summarized")
+        .major(1)
+        .build();
+
+    int before = SchemaIds.schemaCount();
+    Assert.assertTrue(event.hasContext(pattern));
+    Assert.assertEquals(before, SchemaIds.schemaCount());
+
+    event.contextSchemaIds();
+    Assert.assertTrue(SchemaIds.existingFamilyId(pattern.family()) >= 0);
+  }
+
+  private static SchemaPattern pageContext(int major, Integer minor, Integer addition) {
+    return SchemaPattern.builder()
+        .vendor("com.acme")
+        .name("page_context")
+        .major(major)
+        .minor(minor)
+        .addition(addition)
+        .build();
+  }
+
+  @Test
+  public void testGetContextsForSchemaShouldReturnEveryMatch() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{\"schema\":\"iglu:com.snowplowanalytics.snowplow/contexts/jsonschema/1-0-0\","
+        + "\"data\":[{\"schema\":\"iglu:com.acme/product/jsonschema/1-0-0\",\"data\":{\"sku\":\"a\"}},"
+        + "{\"schema\":\"iglu:com.acme/other/jsonschema/1-0-0\",\"data\":{}},"
+        + "{\"schema\":\"iglu:com.acme/product/jsonschema/1-1-0\",\"data\":{\"sku\":\"b\"}}]}";
+    SchemaPattern product = SchemaPattern.builder()
+        .vendor("com.acme")
+        .name("product")
+        .major(1)
+        .build();
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY);
+
+    List<SelfDescribing<JsonObject>> products = event.getContextsForSchema(product);
+    Assert.assertEquals(2, products.size());
+    Assert.assertEquals("a", products.get(0).data().get("sku").getAsString());
+    Assert.assertEquals("b", products.get(1).data().get("sku").getAsString());
+    Assert.assertSame(products.get(0), event.findContext(product).get());
+  }
+
+  @Test
+  public void testContextSchemasShouldListUserThenDerivedContexts() throws Exception {
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(), ValidationPolicy.LAZY);
+
+    Assert.assertEquals(
+        Arrays.asList(
+            SchemaKey.fromString(
+                "iglu:com.snowplowanalytics.snowplow/web_page/jsonschema/1-0-0"),
+            SchemaKey.fromString("iglu:com.acme/page_context/jsonschema/1-0-2"),
+            SchemaKey.fromString(
+                "iglu:com.snowplowanalytics.snowplow/ua_parser_context/jsonschema/1-0-0")),
+        event.contextSchemas());
+  }
+
+  @Test
+  public void testContextSchemasShouldSkipInvalidContextsWithoutValidation()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+
+    SnowplowEvent event = SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns), ValidationPolicy.NONE);
+
+    Assert.assertEquals(1, event.contextSchemas().size());
+    Assert.assertEquals("ua_parser_context", event.contextSchemas().get(0).name());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testContextSchemasShouldRejectInvalidContexts() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+
+    SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns), ValidationPolicy.LAZY)
+        .contextSchemas();
+  }
+
+  @Test
+  public void testValidationPolicyShouldNotAffectEquality() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+
+    Assert.assertEquals(
+        SnowplowEvent.fromTsv(line),
+        SnowplowEvent.fromTsv(line, ValidationPolicy.NONE));
+  }
+
+  @Test(expected = SnowplowEvent.InvalidFormat.class)
+  public void testEagerValidationWithProjectionShouldRejectProjectedContexts()
+      throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[52] = "{not json";
+
+    SnowplowEvent.fromTsv(
+        EnrichedTsvFixtures.line(columns),
+        EnumSet.of(EventField.CONTEXTS),
+        ValidationPolicy.EAGER);
+  }
+}
@@ -0,0 +1,113 @@
+package io.github.acgray.jplow.value;
+
+import io.github.acgray.jplow.codec.BinaryCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+public class TestSnowplowEventCodec {
+
+  @Test
+  public void testImmutableEventShouldRoundTrip() throws Exception {
+    SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line());
+
+    SnowplowEvent decoded = SnowplowEventCodec.INSTANCE.decode(
+        SnowplowEventCodec.INSTANCE.encode(event));
+
+    Assert.assertTrue(decoded instanceof ImmutableSnowplowEvent);
+    Assert.assertEquals(event, decoded);
+    Assert.assertEquals(ValidationPolicy.EAGER, decoded.validationPolicy());
+  }
+
+  @Test
+  public void testPackedEventShouldRoundTripWithNulls() throws Exception {
+    String[] columns = EnrichedTsvFixtures.columns();
+    columns[7] = "";
+    columns[93] = "";
+    PackedSnowplowEvent event = PackedSnowplowEvent.of(EnrichedTsvFixtures.line(columns));
+
+    SnowplowEvent decoded = SnowplowEventCodec.INSTANCE.decode(
+        SnowplowEventCodec.INSTANCE.encode(event));
+
+    Assert.assertTrue(decoded instanceof PackedSnowplowEvent);
+    Assert.assertEquals(event, decoded);
+    Assert.assertTrue(decoded.isNull(EventField.TXN_ID));
+    Assert.assertTrue(decoded.isNull(EventField.BR_COOKIES));
+    Assert.assertTrue(decoded.booleanValue(EventField.BR_FEATURES_WINDOWSMEDIA));
+    Assert.assertEquals(-5, decoded.intValue(EventField.PP_YOFFSET_MIN));
+    Assert.assertEquals(1385424125123L, decoded.collectorTstampMillis());
+    Assert.assertEquals(
+        event.derivedTstampMillis(), decoded.timestampMillis(EventField.DERIVED_TSTAMP));
+  }
+
+  @Test
+  public void testLazyEventShouldKeepLineAndProjection() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+    LazySnowplowEvent event = LazySnowplowEvent.of(
+        TsvRow.of(line), EnumSet.of(EventField.APP_ID, EventField.COLLECTOR_TSTAMP));
+
+    SnowplowEvent decoded = SnowplowEventCodec.INSTANCE.decode(
+        SnowplowEventCodec.INSTANCE.encode(event));
+
+    Assert.assertTrue(decoded instanceof LazySnowplowEvent);
+    Assert.assertEquals(line, ((LazySnowplowEvent) decoded).row().toString());
+    Assert.assertEquals(event.appId(), decoded.appId());
+    Assert.assertEquals(event.collectorTstamp(), decoded.collectorTstamp());
+    Assert.assertNull(decoded.eventId());
+  }
+
+  @Test
+  public void testEncodingShouldBeSmallerThanTsv() throws Exception {
+    String line = EnrichedTsvFixtures.line();
+
+    byte[] bytes = SnowplowEventCodec.INSTANCE.encode(SnowplowEvent.fromTsv(line));
+
+    Assert.assertTrue(bytes.length < line.length());
+  }
+
+  @Test
+  public void testJavaSerializationShouldUseCodec() throws Exception {
+    SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line());
+    PackedSnowplowEvent packed = PackedSnowplowEvent.copyOf(event);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(Arrays.asList(event, packed, event));
+    }
+
+    Object read;
+    try (ObjectInputStream in = new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      read = in.readObject();
+    }
+
+    Assert.assertEquals(Arrays.asList(event, packed, event), read);
+    Assert.assertTrue(bytes.size() < 2 * SnowplowEventCodec.INSTANCE.encode(event).length + 512);
+  }
+
+  @Test
+  public void testShouldDecodeRecordWithFewerColumns() throws Exception {
+    String[] columns = Arrays.copyOf(EnrichedTsvFixtures.columns(), 130);
+    SnowplowEvent event = SnowplowEvent.fromTsv(EnrichedTsvFixtures.line(columns));
+
+    byte[] bytes = SnowplowEventCodec.INSTANCE.encode(event);
+    SnowplowEvent decoded = SnowplowEventCodec.INSTANCE.decode(bytes);
+
+    Assert.assertEquals(event, decoded);
+    Assert.assertNull(decoded.trueTstamp());
+  }
+
+  @Test(expected = BinaryCodec.InvalidFormat.class)
+  public void testTruncatedRecordShouldThrowInvalidFormat() throws Exception {
+    byte[] bytes = SnowplowEventCodec.INSTANCE.encode(
+        SnowplowEvent.fromTsv(EnrichedTsvFixtures.line()));
+
+    SnowplowEventCodec.INSTANCE.decode(Arrays.copyOf(bytes, bytes.length / 2));
+  }
+}
@@ -0,0 +1,145 @@
+package io.github.acgray.jplow.value;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestStringDictionary {
+
+  @Test
+  public void testInternShouldReturnCanonicalInstances() {
+    StringDictionary dictionary = new StringDictionary(64);
+    String line = "x\tpage_view\ty";
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+    String first = dictionary.intern(line, 2, 11);
+
+    Assert.assertEquals("page_view", first);
+    Assert.assertSame(first, dictionary.intern(new StringBuilder(line), 2, 11));
+    Assert.assertSame(first, dictionary.intern(bytes, 2, 11));
+    Assert.assertSame(first, dictionary.intern(new String("page_view")));
+    Assert.assertEquals(1, dictionary.size());
+
+    String unicode = "caf\u00e9";
+    byte[] utf8 = unicode.getBytes(StandardCharsets.UTF_8);
+    Assert.assertSame(dictionary.intern(unicode), dictionary.intern(utf8, 0, utf8.length));
+  }
+
+  @Test
+  public void testCodesShouldBeStable() {
+    StringDictionary dictionary = new StringDictionary(64);
+
+    int web = dictionary.code("web");
+    int mob = dictionary.code("mob");
+
+    Assert.assertNotEquals(web, mob);
+    Assert.assertEquals(web, dictionary.code(new String("web")));
+    Assert.assertEquals("mob", dictionary.decode(mob));
+    Assert.assertEquals(StringDictionary.NO_CODE, dictionary.code(null));
+    Assert.assertNull(dictionary.decode(12345));
+  }
+
+  @Test
+  public void testCodesShouldSurviveEviction() {
+    StringDictionary dictionary = new StringDictionary(4);
+
+    int[] codes = new int[100];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = dictionary.code("value-" + i);
+    }
+    Assert.assertTrue(dictionary.size() <= 4);
+
+    for (int i = 0; i < codes.length; i++) {
+      Assert.assertEquals(codes[i], dictionary.code("value-" + i));
+      Assert.assertEquals("value-" + i, dictionary.decode(codes[i]));
+    }
+  }
+
+  @Test
+  public void testDictionaryShouldBeBounded() {
+    StringDictionary dictionary = new StringDictionary(10);
+    Assert.assertEquals(16, dictionary.maxSize());
+
+    for (int i = 0; i < 1000; i++) {
+      dictionary.intern("value-" + i);
+    }
+    Assert.assertTrue(dictionary.size() <= 16);
+
+    // recently used values survive eviction
+    String hot = dictionary.intern("hot");
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertSame(hot, dictionary.intern("hot"));
+      dictionary.intern("cold-" + i);
+    }
+    Assert.assertTrue(dictionary.size() <= 16);
+  }
+
+  @Test
+  public void testDictionaryShouldBeSharedBetweenThreads() throws Exception {
+    StringDictionary dictionary = new StringDictionary(256);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      List<Future<int[]>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(executor.submit(() -> {
+          int[] codes = new int[100];
+          for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < codes.length; i++) {
+              codes[i] = dictionary.code(dictionary.intern("v" + i));
+            }
+          }
+          return codes;
+        }));
+      }
+
+      int[] expected = results.get(0).get();
+      for (Future<int[]> result : results) {
+        Assert.assertArrayEquals(expected, result.get());
+      }
+      for (int i = 0; i < expected.length; i++) {
+        Assert.assertEquals("v" + i, dictionary.decode(expected[i]));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDictionaryShouldOnlyCoverStringColumns() {
+    new StringDictionary(16, EnumSet.of(EventField.TXN_ID));
+  }
+
+  @Test
+  public void testReaderShouldShareValuesBetweenEvents() throws Exception {
+    StringDictionary dictionary = new StringDictionary(64);
+    String line = EnrichedTsvFixtures.line();
+
+    EnrichedTsvReader reader = EnrichedTsvReader.builder()
+        .dictionary(dictionary)
+        .build();
+    SnowplowEvent first = reader.read(line);
+    SnowplowEvent second = reader.read(line);
+
+    Assert.assertEquals(first, second);
+    Assert.assertSame(first.appId(), second.appId());
+    Assert.assertSame(first.eventVendor(), second.eventVendor());
+    Assert.assertSame(first.nameTracker(), second.nameTracker());
+    Assert.assertNotSame(first.eventId(), second.eventId());
+
+    SnowplowEvent projected = EnrichedTsvReader.builder()
+        .dictionary(dictionary)
+        .fields(EnumSet.of(EventField.APP_ID, EventField.EVENT_ID))
+        .build()
+        .read(line);
+    Assert.assertSame(first.appId(), projected.appId());
+    Assert.assertEquals(first.eventId(), projected.eventId());
+  }
+}
@@ -0,0 +1,117 @@
+package io.github.acgray.jplow.value;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class TestTsvTokenizer {
+
+  private static String field(String line, int[] offsets, int field) {
+    return line.substring(
+        TsvTokenizer.fieldStart(offsets, field),
+        TsvTokenizer.fieldEnd(offsets, field));
+  }
+
+  @Test
+  public void testTokenizeShouldIndexEachField() {
+    String line = "a\tbb\t\tccc";
+    int[] offsets = TsvTokenizer.tokenize(line);
+
+    Assert.assertEquals(4, TsvTokenizer.fieldCount(offsets));
+    Assert.assertEquals("a", field(line, offsets, 0));
+    Assert.assertEquals("bb", field(line, offsets, 1));
+    Assert.assertEquals("", field(line, offsets, 2));
+    Assert.assertEquals("ccc", field(line, offsets, 3));
+  }
+
+  @Test
+  public void testTokenizeShouldKeepEmptyTrailingFields() {
+    String line = "a\t\t\t";
+    int[] offsets = TsvTokenizer.tokenize(line);
+
+    Assert.assertEquals(4, TsvTokenizer.fieldCount(offsets));
+    for (int i = 1; i < 4; i++) {
+      Assert.assertEquals(0, TsvTokenizer.fieldLength(offsets, i));
+    }
+  }
+
+  @Test
+  public void testTokenizeEmptyLineHasOneEmptyField() {
+    int[] offsets = TsvTokenizer.tokenize("");
+
+    Assert.assertEquals(1, TsvTokenizer.fieldCount(offsets));
+    Assert.assertEquals(0, TsvTokenizer.fieldLength(offsets, 0));
+  }
+
+  @Test
+  public void testTokenizeShouldGrowBeyondDefaultCapacity() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      sb.append(i).append('\t');
+    }
+    String line = sb.toString();
+    int[] offsets = TsvTokenizer.tokenize(line);
+
+    Assert.assertEquals(501, TsvTokenizer.fieldCount(offsets));
+    Assert.assertEquals("499", field(line, offsets, 499));
+  }
+
+  @Test
+  public void testTokenizeIntoSmallArrayReportsFieldCount() {
+    int[] offsets = new int[2];
+    int fields = TsvTokenizer.tokenize("a\tb\tc", 0, 5, offsets);
+
+    Assert.assertEquals(3, fields);
+    Assert.assertArrayEquals(new int[]{0, 2}, offsets);
+  }
+
+  @Test
+  public void testTokenizeSubRange() {
+    String text = "xx\ta\tb\nyy";
+    int[] offsets = new int[8];
+    int fields = TsvTokenizer.tokenize(text, 3, 6, offsets);
+
+    Assert.assertEquals(2, fields);
+    Assert.assertEquals("a", text.substring(offsets[0], offsets[1] - 1));
+    Assert.assertEquals("b", text.substring(offsets[1], offsets[2] - 1));
+  }
+
+  @Test
+  public void testTokenizeBytesMatchesCharOffsetsForAscii() {
+    String line = EnrichedTsvFixtures.line();
+    byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+
+    Assert.assertArrayEquals(
+        TsvTokenizer.tokenize(line),
+        TsvTokenizer.tokenize(bytes));
+  }
+
+  @Test
+  public void testTokenizeBytesWithMultiByteCharacters() {
+    byte[] bytes = "caf\u00e9\t\u65e5\u672c\t".getBytes(StandardCharsets.UTF_8);
+    int[] offsets = TsvTokenizer.tokenize(bytes);
+
+    Assert.assertEquals(3, TsvTokenizer.fieldCount(offsets));
+    Assert.assertEquals("\u65e5\u672c", new String(
+        bytes,
+        TsvTokenizer.fieldStart(offsets, 1),
+        TsvTokenizer.fieldLength(offsets, 1),
+        StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testTokenizeByteBuffers() {
+    byte[] bytes = "--a\tbc\t--".getBytes(StandardCharsets.UTF_8);
+
+    ByteBuffer heap = ByteBuffer.wrap(bytes, 2, 4).slice();
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).position(2);
+    direct.limit(6);
+
+    Assert.assertArrayEquals(new int[]{0, 2, 5}, TsvTokenizer.tokenize(heap));
+    Assert.assertArrayEquals(new int[]{2, 4, 7}, TsvTokenizer.tokenize(direct));
+    Assert.assertEquals(2, direct.position());
+  }
+}